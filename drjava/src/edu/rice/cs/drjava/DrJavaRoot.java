@@ -175,6 +175,9 @@ public class DrJavaRoot {
           // after _mainFrame.start() to address bug
           // [ drjava-Bugs-2831253 ] Starting DrJava with Project as Parameter
           _openCommandLineFiles(_mainFrame, filesToOpen, numFiles, true);
+          
+          // the JDKs found at startup may have come from the cache; check them again for the next start
+          JarJDKToolsLibrary.revalidateSearchCache(_mainFrame.getModel());
         } 
       });
       
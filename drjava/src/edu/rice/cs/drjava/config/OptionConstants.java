@@ -738,6 +738,14 @@ public interface OptionConstants {
                                 new KeyStrokeOption("",null), 
                                 to.vector(KeyStroke.getKeyStroke(KeyEvent.VK_F5, SHIFT_MASK)));
   
+  /** The key binding for compiling the current document without saving it */
+  public static final VectorOption<KeyStroke> KEY_COMPILE_IN_MEMORY =
+    new VectorOption<KeyStroke>("key.compile.in.memory", new KeyStrokeOption("",null), to.vector());
+  
+  /** The key binding for checking the current document for compiler errors */
+  public static final VectorOption<KeyStroke> KEY_CHECK =
+    new VectorOption<KeyStroke>("key.check", new KeyStrokeOption("",null), to.vector());
+  
   /** The key binding for compiling all */
   public static final VectorOption<KeyStroke> KEY_COMPILE_ALL =
     new VectorOption<KeyStroke>("key.compile.all", 
@@ -1191,6 +1199,9 @@ public interface OptionConstants {
   public static final BooleanOption FIND_NO_TEST_CASES =
     new BooleanOption("find.replace.no.test.cases", Boolean.FALSE);
   
+  public static final BooleanOption FIND_REGEX =
+    new BooleanOption("find.replace.regex", Boolean.FALSE);
+  
   /* ---------- Debugger Options ---------- */
   
   /** A classpath-structured vector of all paths to look for source files on while stepping in the debugger. */
@@ -1400,6 +1411,10 @@ public interface OptionConstants {
   public static final NonNegativeIntegerOption HISTORY_MAX_SIZE =
     new NonNegativeIntegerOption("history.max.size", Integer.valueOf(500));
   
+  /** Number of characters of output to keep in the Interactions Pane and the Console; 0 keeps all output. */
+  public static final NonNegativeIntegerOption INTERACTIONS_OUTPUT_LIMIT =
+    new NonNegativeIntegerOption("interactions.output.limit", Integer.valueOf(1000000));
+  
   /** Number of files to list in the recent file list */
   public static final NonNegativeIntegerOption RECENT_FILES_MAX_SIZE =
     new NonNegativeIntegerOption("recent.files.max.size", Integer.valueOf(5));
@@ -1427,6 +1442,10 @@ public interface OptionConstants {
   /** Whether to force test classes in projects to end in "Test". */
   public static final BooleanOption FORCE_TEST_SUFFIX = new BooleanOption("force.test.suffix", Boolean.FALSE);
   
+  /** The number of threads among which the test classes of a JUnit run are divided; 0 means one per processor. */
+  public static final NonNegativeIntegerOption JUNIT_TEST_THREADS =
+    new NonNegativeIntegerOption("junit.test.threads", Integer.valueOf(1));
+  
   /** Whether remote control using sockets is enabled. */
   public static final BooleanOption REMOTE_CONTROL_ENABLED = new BooleanOption("remote.control.enabled", Boolean.TRUE);
   
@@ -1461,6 +1480,15 @@ public interface OptionConstants {
   public static final BooleanOption SHOW_PATH_WARNINGS = 
     new BooleanOption("show.path.warnings", Boolean.FALSE);
   
+  /** Whether compiling with a build directory only recompiles the sources that changed since the last compilation and
+    * the sources that depend on them. */
+  public static final BooleanOption INCREMENTAL_COMPILATION = 
+    new BooleanOption("incremental.compilation", Boolean.FALSE);
+  
+  /** Whether edited documents are checked for compiler errors in the background while typing. */
+  public static final BooleanOption BACKGROUND_CHECKING = 
+    new BooleanOption("background.checking", Boolean.FALSE);
+  
   /**
    * Default compiler to use
    * Stores the name of the compiler to use, set by changing the selection in
@@ -1514,6 +1542,12 @@ public interface OptionConstants {
   public static final VectorOption<File> RECENT_PROJECTS =
     new VectorOption<File>("recent.projects",new FileOption("",null),new Vector<File>());
   
+  /** Whether the reduced model of each document keeps a seek index so that long cursor moves take logarithmic time. */
+  public static final BooleanOption REDUCED_MODEL_SEEK_INDEX = new BooleanOption("reduced.model.seek.index", Boolean.TRUE);
+  
+  /** Whether Find All keeps a trigram index of open documents to skip documents that cannot contain the find word. */
+  public static final BooleanOption FIND_TRIGRAM_INDEX = new BooleanOption("find.replace.trigram.index", Boolean.TRUE);
+  
   /** Whether to enabled the Show Debug Console menu item in the Tools menu. */
   public static final BooleanOption SHOW_DEBUG_CONSOLE = new BooleanOption("show.debug.console", Boolean.FALSE);
   
@@ -1610,6 +1644,10 @@ public interface OptionConstants {
   /** The command-line arguments to be passed to the Slave JVM. */
   public static final StringOption SLAVE_JVM_ARGS = new StringOption("slave.jvm.args", "");
   
+  /** The number of Interactions JVMs kept booted in reserve, so that resetting the Interactions Pane is fast. */
+  public static final NonNegativeIntegerOption SLAVE_JVM_STANDBY =
+    new NonNegativeIntegerOption("slave.jvm.standby", Integer.valueOf(1));
+  
   /* Possible maximum heap sizes. */
   public static final ArrayList<String> heapSizeChoices = HeapSizeChoices.evaluate();
   static class HeapSizeChoices {
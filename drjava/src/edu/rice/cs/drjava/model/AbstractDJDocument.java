@@ -44,6 +44,7 @@ import edu.rice.cs.drjava.config.OptionListener;
 import edu.rice.cs.drjava.model.definitions.indent.Indenter;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.BraceInfo;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelControl;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelImage;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
 
@@ -56,17 +57,13 @@ import edu.rice.cs.util.text.SwingDocument;
 import java.awt.EventQueue;
 import java.util.ArrayList;
 import java.util.Set;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.SortedMap;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 import javax.swing.ProgressMonitor;
 import javax.swing.text.AbstractDocument;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
 import javax.swing.text.Position;
 
 import static edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelStates.*;
@@ -99,8 +96,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
   protected static final HashSet<String> _primTypes = _makePrimTypes();
   /** The default indent setting. */
   protected volatile int _indent = 2;
-  /** Initial number of elements in _queryCache (see below). */
-  private static final int INIT_CACHE_SIZE = 0x10000;  // 16**4 = 16384 
   /** Constant specifying how large pos must be before incremental analysis is applied in posInBlockComment */
   public static final int POS_THRESHOLD = 10000; 
 //  /** Constant specifying how large pos must be before incremental analysis is applied in posInParenPhrase */
@@ -117,21 +112,27 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     * track of state.  This field together with _currentLocation function as a virtual object for purposes of 
     * synchronization.  All operations that access or modify this virtual object should be synchronized on _reduced.
     */
-  public final ReducedModelControl _reduced = new ReducedModelControl();  // public only for locking purposes
+  public final ReducedModelControl _reduced =  // public only for locking purposes
+    new ReducedModelControl(DrJava.getConfig().getSetting(REDUCED_MODEL_SEEK_INDEX).booleanValue());
   
   /** The absolute character offset in the document. Treated as part of the _reduced (model) for locking 
     * purposes. */
   protected volatile int _currentLocation = 0;
   
-  /* The fields _queryCache, _offsetToQueries, and _cacheModified function as an extension of the reduced model. 
-   * When enabled in blockIndent, this data structure caches calls to the reduced model to speed up indent performance.
-   * Must be cleared every time the document is changed.  Use by calling _checkCache, _storeInCache, and _clearCache.
-   * When _queryCache = null, the cache is disabled.
+  /* The field _queryCache functions as an extension of the reduced model.  It memoizes calls to the reduced model
+   * (primarily from the indenter and brace matching) for the life of the document.  Every change to the document
+   * selectively clears the answers that depend on text at or beyond the change; see the Command classes below.
+   * Use by calling _checkCache, _storeInCache, and _clearCache.
    */
-  private volatile HashMap<Query, Object> _queryCache;
+  private final QueryCache _queryCache = new QueryCache();
   
-  /** Records the set of queries (as a list) for each offset. */
-  private volatile SortedMap<Integer, List<Query>> _offsetToQueries;
+  /** The highlight spans of the lines painted so far; updated by the Command classes below. */
+  private final HighlightCache _highlightCache = new HighlightCache();
+  
+  /** Set while insertWithReducedModel runs; the reduced model has already been restored, so the insert commands
+    * must not update it.
+    */
+  private volatile boolean _reducedModelRestored = false;
   
   /** The instance of the indent decision tree used by Definitions documents. */
   private volatile Indenter _indenter;
@@ -163,8 +164,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
    */
   protected AbstractDJDocument(Indenter indenter) { 
     _indenter = indenter;
-    _queryCache = null;
-    _offsetToQueries = null;
     _initNewIndenter();
 //     System.err.println("AbstractDJDocument constructor with indent level " + indenter.getIndentLevel() 
 //    + " invoked on " + this);
@@ -237,6 +236,7 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
   public void setKeywords(Set<String> keywords) {
     _keywords.clear();
     _keywords.addAll(keywords);
+    _highlightCache.clear();
   }
 
   /** Create a set of Java/GJ primitive types for special coloring.
@@ -252,23 +252,26 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
   }
   
   /** Return all highlight status info for text between start and end. This should collapse adjoining blocks with the
-    * same status into one.  ONLY runs in the event thread.  Perturbs _currentLocation to improve performance.
+    * same status into one.  The spans of each line are taken from _highlightCache when the reduced model state at the
+    * start of the line is known to be unchanged, so repainting (e.g., when scrolling) does not rescan the text. ONLY
+    * runs in the event thread.  Perturbs _currentLocation to improve performance.
     */
   public ArrayList<HighlightStatus> getHighlightStatus(int start, int end) {
     
     assert EventQueue.isDispatchThread();
     
     if (start == end) return new ArrayList<HighlightStatus>(0);
-    ArrayList<HighlightStatus> v;
-    
-    setCurrentLocation(start);
-    /* Now ask reduced model for highlight status for chars till end */
-    v = _reduced.getHighlightStatus(start, end - start);
-    
-    /* Go through and find any NORMAL blocks. Within them check for keywords. */
-    for (int i = 0; i < v.size(); i++) {
-      HighlightStatus stat = v.get(i);
-      if (stat.getState() == HighlightStatus.NORMAL) i = _highlightKeywords(v, i);
+    ArrayList<HighlightStatus> v = new ArrayList<HighlightStatus>();
+    
+    final Element root = getDefaultRootElement();
+    final int docEnd = getLength();
+    int line = root.getElementIndex(start);
+    int lineStart = root.getElement(line).getStartOffset();
+    while (lineStart < end) {
+      int lineEnd = Math.min(root.getElement(line).getEndOffset(), docEnd);  // the last line ends with a phantom newline
+      _getLineHighlight(line, lineStart, lineEnd).appendTo(v, lineStart, start, end);
+      lineStart = lineEnd;
+      line++;
     }
     
     /* bstoler: Previously we moved back to the old location. This implementation choice severely slowed down 
@@ -279,6 +282,41 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     return v;
   }
   
+  /** Returns the highlight spans of the specified line, computing them only if the line has changed or the reduced
+    * model state at its start differs from the one they were computed for.  Only runs in the event thread.
+    * @param line the line number
+    * @param lineStart the offset of the start of the line
+    * @param lineEnd the offset just past the end of the line (including its newline)
+    * @return the highlight spans of the line
+    */
+  private HighlightCache.Line _getLineHighlight(int line, int lineStart, int lineEnd) {
+    HighlightCache.Line cached = _highlightCache.get(line, lineEnd - lineStart);
+    if (cached != null && cached.isChecked()) return cached;
+    
+    setCurrentLocation(lineStart);
+    ReducedModelState state = _reduced.getStateAtCurrent();
+    if (cached != null && cached.getState() == state) {
+      cached.setChecked();
+      return cached;
+    }
+    
+    /* Ask reduced model for highlight status for the chars of the line */
+    ArrayList<HighlightStatus> v = _reduced.getHighlightStatus(lineStart, lineEnd - lineStart);
+    
+    /* Go through and find any NORMAL blocks. Within them check for keywords. */
+    for (int i = 0; i < v.size(); i++) {
+      HighlightStatus stat = v.get(i);
+      if (stat.getState() == HighlightStatus.NORMAL) i = _highlightKeywords(v, i);
+    }
+    
+    HighlightCache.Line result = new HighlightCache.Line(state, lineStart, lineEnd - lineStart, v);
+    _highlightCache.put(line, result);
+    return result;
+  }
+  
+  /** @return the highlight cache of this document; used to report hit rates and for testing purposes. */
+  public HighlightCache getHighlightCache() { return _highlightCache; }
+  
   /** Distinguishes keywords from normal text in the given HighlightStatus element. Specifically, it looks to see
     * if the given text contains a keyword. If it does, it splits the HighlightStatus block into separate blocks
     * so that each keyword has its own block. This process identifies all keywords in the given block.
@@ -685,7 +723,10 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     
     setCurrentLocation(origPos);    // Restore the state of the reduced model;
     
-    if (i == text.length()) reducedPos = -1; // No matching char was found
+    if (i == text.length()) {  // No matching char was found
+      _storeInCache(key, -1, Integer.MAX_VALUE);  // Any change after pos invalidates this result
+      return -1;
+    }
     _storeInCache(key, reducedPos, reducedPos);
     // Return position of matching char or ERROR_INDEX (-1)     
     return reducedPos;  
@@ -921,10 +962,7 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
    * @param key Name of the method and arguments
    * @return the object in the cache associated with key; null if not in the cache.
    */
-  protected Object _checkCache(final Query key) {
-    if (_queryCache == null) return null;
-    return _queryCache.get(key); 
-  }
+  protected Object _checkCache(final Query key) { return _queryCache.get(key); }
   
   /** 
    * Stores the given result in the helper method cache. 
@@ -937,9 +975,7 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
    *                unchanged, the query should return the same answer.
    */
   protected void _storeInCache(final Query query, final Object answer, final int offset) {
-    if (_queryCache == null) return;
-    _queryCache.put(query, answer);
-    _addToOffsetsToQueries(query, offset);
+    _queryCache.put(query, answer, offset);
   }
   
   /** 
@@ -947,37 +983,35 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
    * specified value.  Should be called every time the document is modified. 
    * @param offset the offset beyond which to clear
    */
-  protected void _clearCache(int offset) {
-    if (_queryCache == null) return;
-    
-    if (offset <= 0) {
-      _queryCache.clear();
-      _offsetToQueries.clear();
-      return;
-    }
-    // The Integer[] copy of the key set is required to avoid ConcurrentModifiationExceptions.  Ugh!
-    Integer[] deadOffsets = _offsetToQueries.tailMap(offset).keySet().toArray(new Integer[0]);
-    for (int i: deadOffsets) {
-      for (Query query: _offsetToQueries.get(i)) _queryCache.remove(query);  // remove query entry from cache
-      _offsetToQueries.remove(i);   // remove query bucket for i from offsetToQueries table
-    }
-  }
+  protected void _clearCache(int offset) { _queryCache.clear(offset); }
   
-  /** 
-   * Add {@literal <query,offset>} pair to _offsetToQueries map. 
-   * Assumes lock on _queryCache is already held.
-   * @param query the query
-   * @param offset the offset
-   */
-  private void _addToOffsetsToQueries(final Query query, final int offset) {
-    List<Query> selectedQueries = _offsetToQueries.get(offset);
-    if (selectedQueries == null) {
-      selectedQueries = new LinkedList<Query>();
-      _offsetToQueries.put(offset, selectedQueries);
+  /** @return the query cache of this document; used to report hit rates and for testing purposes. */
+  public QueryCache getQueryCache() { return _queryCache; }
+
+  /** @return a compact image of the reduced model that can later be restored by insertWithReducedModel. */
+  public ReducedModelImage getReducedModelImage() { synchronized(_reduced) { return ReducedModelImage.of(_reduced); } }
+
+  /** @return the number of tokens in the reduced model; a measure of the memory it occupies. */
+  public int getReducedModelTokenCount() { return _reduced.getTokenCount(); }
+
+  /** Inserts text into an empty document whose reduced model is taken from image instead of being rebuilt character
+    * by character.  The image must have been taken from a document containing exactly text.  Used when the document
+    * cache reconstructs a document.
+    * @param text the text of the document
+    * @param image the image of the reduced model for text
+    * @throws BadLocationException if the document is not empty
+    */
+  public void insertWithReducedModel(String text, ReducedModelImage image) throws BadLocationException {
+    if (getLength() != 0) throw new BadLocationException("Document is not empty", 0);
+    synchronized(_reduced) {
+      image.restore(_reduced);
+      _currentLocation = 0;
     }
-    selectedQueries.add(query);
+    _reducedModelRestored = true;
+    try { insertString(0, text, null); }
+    finally { _reducedModelRestored = false; }
   }
-  
+
   /** Default indentation - uses OTHER flag and no progress indicator.  Assume write lock is already held.
     * @param selStart the offset of the initial character of the region to indent
     * @param selEnd the offset of the last character of the region to indent
@@ -1046,10 +1080,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
   private void _indentBlock(final int start, final int end, Indenter.IndentReason reason, ProgressMonitor pm)
     throws OperationCanceledException, BadLocationException {
     
-    // Set up the query cache;
-    _queryCache = new HashMap<Query, Object>(INIT_CACHE_SIZE);
-    _offsetToQueries = new TreeMap<Integer, List<Query>>();
-    
     // Keep marker at the end. This Position will be the correct endpoint no matter how we change 
     // the doc doing the indentLine calls.
     final Position endPos = this.createUnwrappedPosition(end);
@@ -1077,10 +1107,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       walker += _reduced.getDistToNextNewline() + 1;
 //      _indentInProgress = false;
     }
-    
-    // disable the query cache
-    _queryCache = null;
-    _offsetToQueries = null;
   }
   
   /** 
@@ -1245,14 +1271,39 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       }
       setCurrentLocation(oldPos);  // restore old position
       
-      if (i == -1) matchIndex = -1;
-      _storeInCache(key, matchIndex, Math.max(pos - 1, matchIndex));
+      if (i == -1) {  // no match; the answer depends on the whole line
+        matchIndex = -1;
+        _storeInCache(key, matchIndex, Math.max(pos - 1, lineEnd));
+      }
+      else _storeInCache(key, matchIndex, Math.max(pos - 1, matchIndex));
     }
     catch (BadLocationException e) { throw new UnexpectedException(e); }
     
     return matchIndex;
   }
   
+  /** Returns the number of the line containing the given offset, in time logarithmic in the number of lines.  The
+    * default root element has one child element per line, which Swing keeps up to date on each insertion and removal,
+    * so the line is found by a binary search of their start offsets; no text is scanned.  Lines are numbered from 0.
+    * @param offset an offset in the document; offsets past the end map to the last line
+    * @return the number of the line containing offset
+    */
+  public int offsetToLine(int offset) { return getDefaultRootElement().getElementIndex(offset); }
+  
+  /** Returns the offset of the start of the given line, in constant time, using the same line elements as
+    * {@link #offsetToLine}.  Lines are numbered from 0.
+    * @param line the number of the line
+    * @return the offset of the first character of line, or -1 if the document has no such line
+    */
+  public int lineToOffset(int line) {
+    final Element root = getDefaultRootElement();
+    if (line < 0 || line >= root.getElementCount()) return -1;
+    return root.getElement(line).getStartOffset();
+  }
+  
+  /** @return the number of lines in the document, counting the line after a final newline */
+  public int getLineCount() { return getDefaultRootElement().getElementCount(); }
+  
   /** Returns the absolute position of the beginning of the current line.  (Just after most recent newline, or 0.) 
     * Doesn't ignore comments.
     * @param pos Any position on the current line
@@ -1809,8 +1860,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       final int length = chng.getLength();
       final String str = getText(offset, length);
       
-      if (length > 0) _clearCache(offset);    // Selectively clear the query cache
-      
       Runnable doCommand = 
         (length == 1) ? new CharInsertCommand(offset, str.charAt(0)) : new InsertCommand(offset, str);
       RemoveCommand undoCommand = new UninsertCommand(offset, length, str);
@@ -1847,8 +1896,6 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       final String removedText = getText(offset, length);
       super.removeUpdate(chng);
       
-      if (length > 0) _clearCache(offset);  // Selectively clear the query cache
-      
       Runnable doCommand = new RemoveCommand(offset, length, removedText);
       Runnable undoCommand = new UnremoveCommand(offset, removedText);
       
@@ -1932,6 +1979,13 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
     return result;
   }
   
+  /** @return the number of newlines in text */
+  private static int _countNewlines(String text) {
+    int count = 0;
+    for (int i = text.indexOf(newline); i >= 0; i = text.indexOf(newline, i + 1)) count++;
+    return count;
+  }
+  
   protected class InsertCommand implements Runnable {
     protected final int _offset;
     protected final String _text;
@@ -1941,14 +1995,22 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       _text = text;
     }
     
-    /** Inserts chars in reduced model and moves location to end of insert; cache has already been cleared. */
+    /** Selectively clears the query cache, inserts chars in reduced model and moves location to end of insert.  Also
+      * runs on undo and redo, which do not pass through insertUpdate.
+      */
     public void run() {
       
-      _reduced.move(_offset - _currentLocation);  
+      if (_text.length() > 0) _clearCache(_offset);
       int len = _text.length();
+      _highlightCache.changed(offsetToLine(_offset), _countNewlines(_text), 0);
       // Record any change to line numbering
       int newLineOffset = _text.indexOf(newline);
       if (newLineOffset >= 0) _numLinesChanged(_offset + newLineOffset);
+      if (_reducedModelRestored) {  // reduced model already reflects this insertion; see insertWithReducedModel
+        _styleChanged();
+        return;
+      }
+      _reduced.move(_offset - _currentLocation);  
       // loop over string, inserting characters into reduced model and recording any change to line numbering
       for (int i = 0; i < len; i++) { _addCharToReducedModel(_text.charAt(i)); }
       
@@ -1981,13 +2043,17 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       _ch = ch;
     }
     
-    /** Inserts chars in reduced model and moves location to end of insert; cache has already been cleared. */
+    /** Selectively clears the query cache, inserts char in reduced model and moves location to end of insert. */
     public void run() {
       
-      _reduced.move(_offset - _currentLocation);  
+      _clearCache(_offset);
+      _highlightCache.changed(offsetToLine(_offset), (_ch == newline) ? 1 : 0, 0);
       if (_ch == newline) _numLinesChanged(_offset);  // record change to line numbering
-      _addCharToReducedModel(_ch);
-      _currentLocation = _offset + 1;  // update _currentLocation to match effects on the reduced model
+      if (! _reducedModelRestored) {
+        _reduced.move(_offset - _currentLocation);  
+        _addCharToReducedModel(_ch);
+        _currentLocation = _offset + 1;  // update _currentLocation to match effects on the reduced model
+      }
       _styleChanged();
     }
   }
@@ -2003,8 +2069,10 @@ public abstract class AbstractDJDocument extends SwingDocument implements DJDocu
       _removedText = removedText;
     }
     
-    /** Removes chars from reduced model; cache has already been selectively cleared. */
+    /** Selectively clears the query cache and removes chars from reduced model. */
     public void run() {
+      if (_length > 0) _clearCache(_offset);
+      _highlightCache.changed(offsetToLine(_offset), 0, _countNewlines(_removedText));
       setCurrentLocation(_offset);
       if (_removedText.indexOf(newline) >= 0) _numLinesChanged(_offset);  // record change to line numbering
       _reduced.delete(_length);    
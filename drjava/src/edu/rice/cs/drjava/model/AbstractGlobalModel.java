@@ -90,6 +90,7 @@ import edu.rice.cs.drjava.config.OptionEvent;
 import edu.rice.cs.drjava.config.OptionListener;
 import edu.rice.cs.drjava.model.cache.DCacheAdapter;
 import edu.rice.cs.drjava.model.cache.DDReconstructor;
+import edu.rice.cs.drjava.model.cache.DocImage;
 import edu.rice.cs.drjava.model.cache.DocumentCache ;
 import edu.rice.cs.drjava.model.compiler.CompilerModel;
 import edu.rice.cs.drjava.model.debug.Breakpoint;
@@ -108,6 +109,7 @@ import edu.rice.cs.drjava.model.definitions.InvalidPackageException;
 import edu.rice.cs.drjava.model.definitions.indent.Indenter;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelControl;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelImage;
 import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
 import edu.rice.cs.drjava.model.junit.JUnitModel;
 import edu.rice.cs.drjava.model.print.DrJavaBook;
@@ -154,6 +156,7 @@ import edu.rice.cs.util.swing.DocumentIterator;
 import edu.rice.cs.util.swing.Utilities;
 import edu.rice.cs.util.text.AbstractDocumentInterface;
 import edu.rice.cs.util.text.ConsoleDocument;
+import edu.rice.cs.util.text.ConsoleOutputBuffer;
 import edu.rice.cs.util.text.EditDocumentInterface;
 
 import static edu.rice.cs.plt.debug.DebugUtil.debug;
@@ -201,6 +204,9 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
   /** The document adapter used in the console document. */
   protected final InteractionsDJDocument _consoleDocAdapter;
   
+  /** Batches System.out, System.err and System.in echo output for insertion into _consoleDoc. */
+  protected final ConsoleOutputBuffer _consoleOutput;
+  
   /** A PageFormat object for printing to paper. */
   protected volatile PageFormat _pageFormat = new PageFormat();
   
@@ -282,6 +288,7 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     
     _consoleDocAdapter = new InteractionsDJDocument(_notifier);
     _consoleDoc = new ConsoleDocument(_consoleDocAdapter);
+    _consoleOutput = new ConsoleOutputBuffer(_consoleDoc);
     
     _bookmarkManager = new ConcreteRegionManager<MovingDocumentRegion>();
     _findResultsManagers = new LinkedList<RegionManager<MovingDocumentRegion>>();
@@ -377,6 +384,13 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     };
     DrJava.getConfig().addOptionListener(BROWSER_HISTORY_MAX_SIZE, browserHistoryMaxSizeListener);
     getBrowserHistoryManager().setMaximumSize(DrJava.getConfig().getSetting(BROWSER_HISTORY_MAX_SIZE).intValue());
+    
+    // setup option listener for the amount of output kept in the console
+    OptionListener<Integer> outputLimitListener = new OptionListener<Integer>() {
+      public void optionChanged(OptionEvent<Integer> oce) { _consoleOutput.setLimit(oce.value.intValue()); }
+    };
+    DrJava.getConfig().addOptionListener(INTERACTIONS_OUTPUT_LIMIT, outputLimitListener);
+    _consoleOutput.setLimit(DrJava.getConfig().getSetting(INTERACTIONS_OUTPUT_LIMIT).intValue());
   }
   
   // ----- STATE -----
@@ -2559,14 +2573,19 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
     });
   }
   
-  /** Appends a string to the given document using a particular attribute set (identified by a String key). Also waits
-    * for a small amount of time (InteractionsModel.WRITE_DELAY) to prevent any one writer from flooding the model with
-    * print calls to the point where the user interface could become unresponsive.  Only runs in event thread.
+  /** Appends a string to the given document using a particular attribute set (identified by a String key).  Text
+    * for the console document is appended in batches by _consoleOutput, which holds back any one writer that floods
+    * the console with print calls to the point where the user interface could become unresponsive.  This method can
+    * safely be run outside the event thread.
     * @param doc Document to append to
     * @param s String to append to the end of the document
     * @param style the style to print with
     */
   protected void _docAppend(final ConsoleDocument doc, final String s, final String style) {
+    if (doc == _consoleDoc) {
+      _consoleOutput.print(s, style);
+      return;
+    }
     Utilities.invokeLater(new Runnable() {
       public void run() { doc.insertBeforeLastPrompt(s, style); }
     });
@@ -3137,10 +3156,15 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
         private volatile WeakHashMap< DefinitionsDocument.WrappedPosition, Integer> _positions =
           new WeakHashMap<DefinitionsDocument.WrappedPosition, Integer>();
         
+        // Compressed image of the document saved when it was kicked out of the cache; supersedes _image
+        private volatile DocImage _docImage = null;
+        
         // Returns the text for this document as a String; assert never returns null;
         public String getText() {
           String image = _image;
           if (image != null) return image;
+          DocImage docImage = _docImage;
+          if (docImage != null) return docImage.getText();
           
           // Document has not yet been read from disk; read it and set _image before returning text.
           // Synchronization on this was eliminated because it does not prevent the returned string from becoming 
@@ -3160,13 +3184,20 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
           newDefDoc.setOpenDefDoc(ConcreteOpenDefDoc.this);
           
           /* Initialize doc text contents */
-          String image = getText();  // retrieves _image if it has already been set
+          String image = getText();  // retrieves _image or _docImage if either has already been set
           assert image != null;  // getText() never returns null
           
-          _editorKit.read(new StringReader(image), newDefDoc, 0);
+          DocImage docImage = _docImage;
+          ReducedModelImage reducedModel = (docImage == null) ? null : docImage.getReducedModelImage();
+          // restore the saved reduced model rather than re-lexing the text if possible
+          if (reducedModel != null) {
+            newDefDoc.insertWithReducedModel(image, reducedModel);
+            _docImage = docImage.withoutReducedModel();  // the resident document now owns the reduced model
+          }
+          else _editorKit.read(new StringReader(image), newDefDoc, 0);
           //  Set document property to write out document using newLine conventions of the host platform.
           newDefDoc.putProperty(DefaultEditorKit.EndOfLineStringProperty, StringOps.EOL);
-          _log.log("Reading from image for " + _file + " containing " + _image.length() + " chars");    
+          _log.log("Reading from image for " + _file + " containing " + image.length() + " chars");    
           
           _loc = Math.min(_loc, image.length()); // make sure not past end
           _loc = Math.max(_loc, 0); // make sure not less than 0
@@ -3203,8 +3234,9 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
           // Save document image.  Note: this could be optimized to eliminate redundant updates to _image
           String text = doc.getText();
           if (text.length() > 0) {
-            _image = text;  
-//            _log.log("Saving image containing " + _image.length() + " chars for " + _file);
+            _docImage = new DocImage(text, doc.getReducedModelImage());
+            _image = null;
+//            _log.log("Saving image containing " + text.length() + " chars for " + _file);
           }
           _loc = doc.getCurrentLocation();
           _list = doc.getDocumentListeners();
@@ -3215,6 +3247,24 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
           _positions = doc.getWrappedPositionOffsets();
         }
         
+        public int getTextLength() {
+          String image = _image;
+          if (image != null) return image.length();
+          DocImage docImage = _docImage;
+          if (docImage != null) return docImage.getLength();
+          return getText().length();
+        }
+        
+        public int getImageSize() {
+          DocImage docImage = _docImage;
+          return (docImage == null) ? 0 : docImage.sizeInBytes();
+        }
+        
+        public void discardReducedModel() {
+          DocImage docImage = _docImage;
+          if (docImage != null) _docImage = docImage.withoutReducedModel();
+        }
+        
         public void addDocumentListener(DocumentListener dl) {
           ArrayList<DocumentListener> tmp = new ArrayList<DocumentListener>();
           for (DocumentListener l: _list) { if (dl != l) tmp.add(l); }
@@ -4054,16 +4104,15 @@ public class AbstractGlobalModel implements SingleDisplayModel, OptionConstants,
       * @param offset the offset {@literal >=} 0
       * @return the line number {@literal >=} 0 
       */
-    public int getLineOfOffset(int offset) { return getDefaultRootElement().getElementIndex(offset); }
+    public int getLineOfOffset(int offset) { return getDocument().offsetToLine(offset); }
     
     /** Translates a 0-based line number into an offset.
       * @param line number {@literal >=} 0
       * @return offset {@literal >=} 0 
       */
     public int getOffsetOfLine(int line) {
-      final int count = getDefaultRootElement().getElementCount();
-      if (line >= count) { line = count - 1; }
-      return getDefaultRootElement().getElement(line).getStartOffset();
+      final DefinitionsDocument doc = getDocument();
+      return doc.lineToOffset(Math.min(line, doc.getLineCount() - 1));
     }
     
 ///** Add a region manager for find results to this document.
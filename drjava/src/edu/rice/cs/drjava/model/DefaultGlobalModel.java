@@ -138,6 +138,7 @@ public class DefaultGlobalModel extends AbstractGlobalModel {
         //        System.out.println("adding for reset: " + _state.getBuildDirectory().getAbsolutePath());
         _jvm.addBuildDirectoryClassPath(IOUtil.attemptAbsoluteFile(buildDir));
       }
+      _jvm.sendMemoryClasses();
     }
     
     public void interpreterResetFailed(Throwable t) { }
@@ -151,9 +152,9 @@ public class DefaultGlobalModel extends AbstractGlobalModel {
   
   private CompilerListener _clearInteractionsListener = new DummyCompilerListener() {
     public void compileEnded(File workDir, List<? extends File> excludedFiles) {
-      // Only clear interactions if there were no errors and unit testing is not in progress
+      // Only clear interactions if there were no errors, unit testing is not in progress, and classes were produced
       if ( (_compilerModel.getNumErrors() == 0 || _compilerModel.getCompilerErrorModel().hasOnlyWarnings())
-            && ! _junitModel.isTestInProgress() && _resetAfterCompile) {
+            && ! _junitModel.isTestInProgress() && _resetAfterCompile && ! _compilerModel.isCheckOnly()) {
 //        Utilities.show("compileEnded called in clearInteractionsListener");
         resetInteractions(workDir);  // use same working directory as current interpreter
       }
@@ -805,6 +806,7 @@ public class DefaultGlobalModel extends AbstractGlobalModel {
     _debugger.addListener(new DebugListener() {
       public void watchSet(final DebugWatchData w) { setProjectChanged(true); }
       public void watchRemoved(final DebugWatchData w) { setProjectChanged(true); }    
+      public void watchesUpdated() { }
       
       public void regionAdded(final Breakpoint bp) { }
       public void regionChanged(final Breakpoint bp) { }
@@ -92,6 +92,9 @@ public class DummyGlobalModelListener extends DummyInteractionsListener implemen
 
   /** Called after the active compiler has been changed. */
   public void activeCompilerChanged() { }
+  
+  /** Called when a background check has updated the compiler errors of some files. */
+  public void backgroundCheckEnded(List<? extends File> checkedFiles) { }
 
   /** Called when a file's main method is about to be run. */
   public void prepareForRun(OpenDefinitionsDocument doc) { }
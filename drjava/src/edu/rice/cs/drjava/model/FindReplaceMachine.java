@@ -47,7 +47,14 @@ import edu.rice.cs.drjava.config.OptionConstants;
 import java.awt.EventQueue;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
 import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.PatternSyntaxException;
 
 /** Implementation of logic of find/replace over a document.
   * @version $Id$
@@ -56,6 +63,16 @@ public class FindReplaceMachine {
   
   static private Log _log = new Log("FindReplace.txt", false);
   
+  /** Daemon threads shared by the parallel "find all" searches of all machines. */
+  private static final ExecutorService _searchPool =
+    Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "Find All");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  
   /* Visible machine state; manipulated directly or indirectly by FindReplacePanel. */
   private volatile OpenDefinitionsDocument _doc;      // Current search document 
   private volatile OpenDefinitionsDocument _firstDoc; // First document where searching started (when searching all documents)
@@ -72,6 +89,15 @@ public class FindReplaceMachine {
   private volatile boolean _isForward;                // Whether search direction is forward (false means backward)
   private volatile boolean _ignoreCommentsAndStrings; // Whether to ignore matches in comments and strings
   private volatile boolean _ignoreTestCases;          // Whether to ignore documents that end in *Test.java
+  private volatile boolean _regex;                    // Whether _findWord is a regular expression
+  private volatile boolean _useIndex;                 // Whether "find all" consults _index to skip documents
+  private volatile SearchPattern _pattern;            // Compiled form of _findWord; null if not yet compiled
+  private volatile int _matchLength;                  // Length of the most recent match
+  private volatile int _replacementLength;            // Length of the text inserted by the most recent replacement
+  private volatile int _findAllGeneration = 0;        // Incremented by each "find all"; stale results are dropped
+  private Runnable1<Integer> _findAllDone = null;     // Completion action of the "find all" in progress, or null
+  private int[] _findAllState = null;                 // Documents remaining and matches processed by that "find all"
+  private final TrigramIndex _index = new TrigramIndex();
   private volatile String _lastFindWord;              // Last word found; set to null by FindReplacePanel if caret is updated
   private volatile boolean _skipText;                 // Whether to skip over the current match if direction is reversed
   private volatile DocumentIterator _docIterator;     // An iterator of open documents; _doc is current
@@ -104,6 +130,8 @@ public class FindReplaceMachine {
     setSearchSelectionOnly(false);
     setIgnoreCommentsAndStrings(false);
     setIgnoreTestCases(false);
+    setRegex(false);
+    setUseIndex(true);
   }
   
   public void cleanUp() {
@@ -134,7 +162,10 @@ public class FindReplaceMachine {
     _isForward = ! searchBackwards;
   }
   
-  public void setMatchCase(boolean matchCase) { _matchCase = matchCase; }
+  public void setMatchCase(boolean matchCase) { 
+    _matchCase = matchCase; 
+    _pattern = null;
+  }
   public boolean getMatchCase() { return _matchCase; }
   
   public void setMatchWholeWord() { _matchWholeWord = true; }
@@ -156,6 +187,39 @@ public class FindReplaceMachine {
     _ignoreTestCases = ignoreTestCases;
   }
   public boolean getIgnoreTestCases() { return _ignoreTestCases; }
+  
+  /** @param regex whether the find word is interpreted as a regular expression (see java.util.regex.Pattern) */
+  public void setRegex(boolean regex) {
+    _regex = regex;
+    _pattern = null;
+  }
+  public boolean getRegex() { return _regex; }
+  
+  /** @param useIndex whether "find all" uses a trigram index to skip documents that cannot contain the find word */
+  public void setUseIndex(boolean useIndex) {
+    _useIndex = useIndex;
+    if (! useIndex) _index.clear();
+  }
+  public boolean getUseIndex() { return _useIndex; }
+  
+  /** @return the length of the most recent match; differs from the length of the find word for regular expressions */
+  public int getMatchLength() { return _matchLength; }
+  
+  /** @return the length of the text inserted by the most recent replacement */
+  public int getReplacementLength() { return _replacementLength; }
+  
+  /** 
+   * Checks that the find word is a valid search key.
+   * @return a description of the error in the find word, or null if it is valid
+   */
+  public String getPatternError() {
+    if (! _regex) return null;
+    try { 
+      SearchPattern.regex(_findWord, _matchCase);
+      return null;
+    }
+    catch(PatternSyntaxException e) { return e.getDescription(); }
+  }
 
   public void setDocument(OpenDefinitionsDocument doc) { _doc = doc; }
   
@@ -185,6 +249,7 @@ public class FindReplaceMachine {
     */
   public void setFindWord(String word) {  
     _findWord = StringOps.replace(word, StringOps.EOL, "\n"); 
+    _pattern = null;
   }
   
   /** Change the replacing word.
@@ -204,29 +269,23 @@ public class FindReplaceMachine {
     // (was: this invariant doesn't hold.  See DrJava bug #2321815)
     assert Utilities.TEST_MODE || EventQueue.isDispatchThread();
     
-    String findWord = _findWord;
-    int wordLen, off;
+    SearchPattern pattern = _getPattern();
+    int matchLen, off;
     
-    if(_current == -1) return false;
+    if(_current == -1 || pattern == null) return false;
     
-    wordLen = findWord.length();
-    if (_isForward) off = getCurrentOffset() - wordLen;
+    matchLen = pattern.isRegex() ? _matchLength : _findWord.length();
+    if (_isForward) off = getCurrentOffset() - matchLen;
     else off = getCurrentOffset();
     
-    if (off < 0) return false;
+    if (off < 0 || matchLen == 0) return false;
     
-    String matchSpace;
     try {
-      if (off + wordLen > _doc.getLength()) return false;
-      matchSpace = _doc.getText(off, wordLen);
+      if (off + matchLen > _doc.getLength()) return false;
+      // the whole text, so that look-around in a regular expression sees the text around the match
+      return pattern.matchesAt(_getText(_doc, 0, _doc.getLength()), off, off + matchLen);
     }
     catch (BadLocationException e) { throw new UnexpectedException(e); }
-    
-    if (!_matchCase) {
-      matchSpace = matchSpace.toLowerCase();
-      findWord = findWord.toLowerCase();
-    }
-    return matchSpace.equals(findWord);
   }
   
   /** 
@@ -242,19 +301,23 @@ public class FindReplaceMachine {
     try {
 //      boolean atStart = false;
       int offset = getCurrentOffset();
-      if (_isForward) offset -= _findWord.length();  // position is now on left edge of match
+      int matchLen = _getPattern().isRegex() ? _matchLength : _findWord.length();
+      if (_isForward) offset -= matchLen;  // position is now on left edge of match
+      String replacement = _getPattern().replacement(_getText(_doc, 0, _doc.getLength()), offset, offset + matchLen, 
+                                                      _replaceWord);
 //      assert _findWord.equals(_doc.getText(offset, _findWord.length()));
       
 //      Utilities.show("ReplaceCurrent called. _doc = " + _doc.getText() + " offset = " + offset + " _findWord = " +
 //        _findWord);
       
-      _doc.remove(offset, _findWord.length());
+      _doc.remove(offset, matchLen);
       
 //      if (position == 0) atStart = true;
-      _doc.insertString(offset, _replaceWord, null);  // could use _insertString if we had the DefinitionsDocument
+      _doc.insertString(offset, replacement, null);  // could use _insertString if we had the DefinitionsDocument
+      _replacementLength = replacement.length();
       
       // update _current Position
-      if (_isForward) setPosition(offset + _replaceWord.length());
+      if (_isForward) setPosition(offset + replacement.length());
       else setPosition(offset);
       
       return true;
@@ -429,6 +492,114 @@ public class FindReplaceMachine {
     return count;
   }
   
+  /** 
+   * Processes all occurrences of the find word in all documents, beginning with _doc.  Unlike processAll, returns
+   * immediately: the documents are searched in parallel on a pool of worker threads, and findAction is applied to
+   * the matches of each document (in the event thread) as soon as that document has been searched.  When every
+   * document has been searched, done is applied to the number of matches processed.  The text of each document is
+   * snapshotted before it is searched; matches in a document that is modified before its results are delivered are
+   * dropped.  If the trigram index is enabled, documents that cannot contain a literal find word are skipped without
+   * taking a snapshot.  A later call supersedes any search still in progress: done is applied at once to the number
+   * of matches that search has processed, and its remaining matches are dropped.  Only executes in event thread.
+   * @param findAction action to perform on the occurrences; input is the FindResult, output is ignored
+   * @param done action to perform when the search is complete; input is the number of occurrences processed
+   */
+  public void processAllInParallel(final Runnable1<FindResult> findAction, final Runnable1<Integer> done) {
+    
+    assert EventQueue.isDispatchThread();
+    
+    final SearchPattern pattern = _getPattern();
+    final int generation = ++_findAllGeneration;
+    _endFindAll();
+    if (pattern == null) {
+      done.run(0);
+      return;
+    }
+    final boolean matchWholeWord = _matchWholeWord;
+    final boolean ignoreShadowed = _ignoreCommentsAndStrings;
+    final String literal = _useIndex ? pattern.getRequiredLiteral() : null;
+    
+    // Collect the documents to search in navigator order, skipping those that the index rules out.
+    final List<OpenDefinitionsDocument> docs = new ArrayList<OpenDefinitionsDocument>();
+    OpenDefinitionsDocument doc = _doc;
+    int n = _docIterator.getDocumentCount();
+    for (int i = 0; i < n && doc != null; i++) {
+      if (! (_ignoreTestCases && _isTestCase(doc)) && (literal == null || _index.mayContain(doc, literal))) {
+        docs.add(doc);
+      }
+      doc = _docIterator.getNextDocument(doc, _frame);
+    }
+    if (docs.isEmpty()) {
+      done.run(0);
+      return;
+    }
+    
+    final int[] state = { docs.size(), 0 };  // documents remaining, matches processed; only accessed in event thread
+    _findAllDone = done;
+    _findAllState = state;
+    for (final OpenDefinitionsDocument d: docs) {
+      final String text = d.getText();  // text of a non-resident document comes from its cached image
+      final int stamp = (literal == null) ? 0 : _index.track(d);
+      final boolean needsIndex = literal != null && ! _index.isIndexed(d);
+      _searchPool.submit(new Runnable() {
+        public void run() {
+          List<SearchPattern.Match> found = new ArrayList<SearchPattern.Match>();
+          long[] bits = null;
+          try {
+            if (needsIndex) bits = TrigramIndex.computeBits(text);
+            int from = 0;
+            SearchPattern.Match m;
+            while ((m = pattern.find(text, from, text.length())) != null) {
+              if (! matchWholeWord || isWholeWord(text, m.start, m.end)) found.add(m);
+              from = m.end;
+            }
+          }
+          catch(RuntimeException e) { _log.log("Find All failed on " + d, e); }
+          final long[] indexBits = bits;
+          final List<SearchPattern.Match> matches = found;
+          Utilities.invokeLater(new Runnable() {
+            public void run() {
+              if (generation != _findAllGeneration) return;  // superseded by a later search
+              if (indexBits != null) _index.install(d, indexBits, text.length(), stamp);
+              state[1] += _deliverMatches(d, text, matches, ignoreShadowed, findAction);
+              if (--state[0] == 0) _endFindAll();
+            }
+          });
+        }
+      });
+    }
+  }
+  
+  /** Applies the completion action of the "find all" in progress, if any, to the number of matches it has processed. */
+  private void _endFindAll() {
+    Runnable1<Integer> done = _findAllDone;
+    if (done == null) return;
+    _findAllDone = null;
+    done.run(_findAllState[1]);
+  }
+  
+  /** 
+   * Applies findAction to those matches found in the snapshot text of doc that are still valid.  Only executes in the
+   * event thread.
+   * @return the number of matches processed
+   */
+  private static int _deliverMatches(OpenDefinitionsDocument doc, String text, List<SearchPattern.Match> matches,
+                                     boolean ignoreShadowed, Runnable1<FindResult> findAction) {
+    if (matches.isEmpty() || doc.getLength() != text.length()) return 0;
+    int count = 0;
+    try {
+      for (SearchPattern.Match m: matches) {
+        int len = m.end - m.start;
+        if (! doc.getText(m.start, len).equals(text.substring(m.start, m.end))) continue;  // doc was modified
+        if (ignoreShadowed && doc.isShadowed(m.start)) continue;
+        findAction.run(new FindResult(doc, m.end, false, false, len));
+        count++;
+      }
+    }
+    catch(BadLocationException e) { /* doc was modified; drop its remaining matches */ }
+    return count;
+  }
+  
   public FindResult findNext() { return findNext(_searchAllDocuments); }
   
   /** Finds the next occurrence of the find word and returns an offset at the end of that occurrence or -1 if the word
@@ -452,9 +623,9 @@ public class FindReplaceMachine {
     // If the user just found a match and toggled the "Search Backwards" option, we should skip the matched text.
     if (_skipText) {  // adjust position (offset)
 //      System.err.println("Skip text is true!  Last find word = " + _lastFindWord);
-      int wordLen = _lastFindWord.length();
-      if (_isForward) setPosition(getCurrentOffset() + wordLen);
-      else setPosition(getCurrentOffset() - wordLen);
+      int matchLen = _regex ? _matchLength : _lastFindWord.length();
+      if (_isForward) setPosition(getCurrentOffset() + matchLen);
+      else setPosition(getCurrentOffset() - matchLen);
       positionChanged();
     }
     
@@ -528,7 +699,8 @@ public class FindReplaceMachine {
     int newLen;
     int newStart;
     
-    final int adjustment = wordLen - 1; // non-negative max size of the findWord suffix (prefix) within preceding text
+    // non-negative max size of the findWord suffix (prefix) within preceding text; unbounded for a regular expression
+    final int adjustment = _regex ? docLen : wordLen - 1;
     
     if (_isForward) {
       newStart = 0;
@@ -571,85 +743,58 @@ public class FindReplaceMachine {
                                            final boolean wrapped, final boolean allWrapped) {  
 //    Utilities.show("called _findNextInDocSegment(" + doc.getText() + ",\n" + start + ", " + len + ", " + wrapped +
 //      " ...)");
-    boolean inTestCase = false;
-    for(String ext: OptionConstants.LANGUAGE_LEVEL_EXTENSIONS) {
-      inTestCase |= doc.getFileName().endsWith("Test"+ext);
-    }
     
-    if (!_ignoreTestCases || ! inTestCase) {
+    if (!_ignoreTestCases || ! _isTestCase(doc)) {
       final int docLen = doc.getLength();;     // The length of the segment to be searched
-      final int wordLen = _findWord.length();   // length of search key (word being searched for)
+      final SearchPattern pattern = _getPattern();
       
       assert (start >= 0 && start <= docLen) && (len >= 0 && len <= docLen);
       
-      if (len == 0 || docLen == 0) return new FindResult(doc, -1, wrapped, allWrapped);
+      if (len == 0 || docLen == 0 || pattern == null) return new FindResult(doc, -1, wrapped, allWrapped);
       
       if (start + len > docLen) len = docLen - start;
       
-//    if (start + len > docLen) len = docLen - start;
-      
-      String text;             // The text segment to be searched
-      final String findWord;   // copy of word being searched (so it can converted to lower case if necessary
-      
       try { 
         
-//      if (wrapped && allWrapped) Utilities.show(start  + ", " + len + ", " + docLen + ", doc = '" + doc.getText() + "'");
-        text = doc.getText(start, len);
+        // The text segment to be searched; offsets in text are relative to start.  The segment is matched in place,
+        // even when the search ignores case.
+        final CharSequence text = _getText(doc, start, len);
         
-        if (! _matchCase) {
-          text = text.toLowerCase();
-          findWord = _findWord.toLowerCase();  // does not affect wordLen
-        }
-        else findWord = _findWord;
-//       if (wrapped && allWrapped) Utilities.show("Executing loop with findWord = " + findWord + "; text = " + text +
-//          "; len = " + len);     
-        
-        // loop to find first valid (not ignored) occurrence of findWord
-        // loop carried variables are rem, foundOffset; 
-        // loop invariant variables are _doc, docLen, _isForward, findWord, wordLen, start, len.
-        // Invariant:  on forwardsearch, foundOffset + rem == len; on backward search foundOffset == rem.
-        // loop exits by returning match (as FindResult) or by falling through with no match.
+        // loop to find first valid (not ignored) match of pattern
+        // loop carried variables are from, to; 
+        // loop invariant variables are doc, _isForward, pattern, start, len.
+        // Invariant: on forward search, text[0, from) has been searched; on backward search, text[to, len) has been
+        // searched.  Loop exits by returning match (as FindResult) or by falling through with no match.
         // if match is returned, _current has been updated to match location
-        int foundOffset = _isForward? 0 : len;
-        int rem = len;
-//      _log.log("Starting search loop; text = '" + text + "' findWord = '" + findWord + "' forward? = " + _isForward +
-//         " rem = " + rem + " foundOffset = " + foundOffset);
-        while (rem >= wordLen) {
+        int from = 0;
+        int to = len;
+        while (from < to) {
           
           // Find next match in text
-          foundOffset = _isForward ? text.indexOf(findWord, foundOffset) : text.lastIndexOf(findWord, foundOffset);
-//        _log.log("foundOffset = " + foundOffset);
-          if (foundOffset < 0) break;  // no valid match in this document
-          int foundLocation = start + foundOffset;
+          final SearchPattern.Match m = _isForward ? pattern.find(text, from, to) : pattern.findLast(text, from, to);
+//        _log.log("match = " + m);
+          if (m == null) break;  // no valid match in this document
+          int foundLocation = start + m.start;
           int matchLocation;
           
           if (_isForward) {
-            foundOffset += wordLen;                          // skip over matched word
-//          text = text.substring(adjustedOffset, len);    // len is length of text before update
-            rem = len - foundOffset;                         // len is updated to length of remaining text to search
-            matchLocation = foundLocation + wordLen;         // matchLocation is index in _doc of right edge of match
-//            _current = docToSearch.createPosition(start);          // put caret at beginning of found word
+            from = m.end;                                    // skip over matched text
+            matchLocation = start + m.end;                   // matchLocation is index in doc of right edge of match
           }
           else { 
-            
-            foundOffset -= wordLen;                        // skip over matched word        
-            rem = foundOffset;                             // rem is adjusted to match foundOffset
-            matchLocation = foundLocation;                 // matchLocation is index in _doc of left edge of match
-//          text = text.substring(0, len);               // len is length of text after update
-//            _current = docToSearch.createPosition(foundLocation);  // put caret at end of found word
+            to = m.start;                                    // skip over matched text
+            matchLocation = foundLocation;                   // matchLocation is index in doc of left edge of match
           }
-//        _log.log("rem = " + rem);
           
-//        _log.log("Finished iteration with text = " + text + "; len = " + len + "; foundLocation = " + foundLocation);
           assert foundLocation > -1;
-          if (_shouldIgnore(foundLocation, doc)) continue;
+          if (_shouldIgnore(foundLocation, m.end - m.start, doc)) continue;
           
-          //_current = doc.createPosition(matchLocation);   // formerly doc.createPosition(...)
+          _matchLength = m.end - m.start;
           setPosition(matchLocation);
           
 //        System.err.println("Returning result = " + new FindResult(doc, matchLocation, wrapped, allWrapped));
           
-          return new FindResult(doc, matchLocation, wrapped, allWrapped);  // return valid match
+          return new FindResult(doc, matchLocation, wrapped, allWrapped, _matchLength);  // return valid match
         }
       }
       catch (BadLocationException e) { throw new UnexpectedException(e); }
@@ -658,6 +803,48 @@ public class FindReplaceMachine {
     return new FindResult(doc, -1, wrapped, allWrapped);
   }
   
+  /** 
+   * Gets the text of a segment of doc without copying it if doc is resident.  The text of a document that is not
+   * resident is taken from its cached image, which avoids reconstructing the document.  Only runs in the event thread.
+   * @param doc the document
+   * @param start the start of the segment
+   * @param len the length of the segment
+   * @return the text of the segment; the result must not be used after doc is modified
+   * @throws BadLocationException if the segment does not lie within doc
+   */
+  private static CharSequence _getText(OpenDefinitionsDocument doc, int start, int len) throws BadLocationException {
+    if (! doc.isReady()) return doc.getText(start, len);
+    Segment segment = new Segment();
+    doc.getText(start, len, segment);
+    return segment;
+  }
+  
+  /** 
+   * @return the compiled form of the find word, or null if the find word is empty or an invalid regular expression 
+   */
+  private SearchPattern _getPattern() {
+    SearchPattern pattern = _pattern;
+    if (pattern != null) return pattern;
+    String findWord = _findWord;
+    if (findWord.length() == 0) return null;
+    try { pattern = _regex ? SearchPattern.regex(findWord, _matchCase) : SearchPattern.literal(findWord, _matchCase); }
+    catch(PatternSyntaxException e) { return null; }
+    _pattern = pattern;
+    return pattern;
+  }
+  
+  /** 
+   * @param doc a document
+   * @return whether doc is a test case, i.e. its file name ends in Test followed by a source file extension
+   */
+  private static boolean _isTestCase(OpenDefinitionsDocument doc) {
+    String fileName = doc.getFileName();
+    for (String ext: OptionConstants.LANGUAGE_LEVEL_EXTENSIONS) {
+      if (fileName.endsWith("Test" + ext)) return true;
+    }
+    return false;
+  }
+  
   /** Searches all documents following startDoc for _findWord, cycling through the documents in the direction specified
     * by _isForward. If the search cycles back to doc without finding a match, performs a wrapped search on doc.
     * @param startDoc  document where searching started and just failed
@@ -706,14 +893,15 @@ public class FindReplaceMachine {
     * already held.
     * @param doc - the document where an instance of the find word was found
     * @param foundOffset - the position where that instance was found
+    * @param matchLen - the length of that instance
     * @return true if the whole word is found at foundOffset, false otherwise
     */
-  private boolean wholeWordFoundAtCurrent(OpenDefinitionsDocument doc, int foundOffset) {    
+  private boolean wholeWordFoundAtCurrent(OpenDefinitionsDocument doc, int foundOffset, int matchLen) {    
     
     char leftOfMatch = 0;   //  forced initialization
     char rightOfMatch = 0;  //  forced initialization
     int leftLoc = foundOffset - 1;
-    int rightLoc = foundOffset + _findWord.length();
+    int rightLoc = foundOffset + matchLen;
     boolean leftOutOfBounds = false;
     boolean rightOutOfBounds = false;
     
@@ -735,20 +923,32 @@ public class FindReplaceMachine {
     * @param ch - a character
     * @return true if ch is a delimiter, false otherwise
     */
-  private boolean isDelimiter(char ch) { return ! Character.isLetterOrDigit(ch)  &&  ch != '_'; }
+  private static boolean isDelimiter(char ch) { return ! Character.isLetterOrDigit(ch)  &&  ch != '_'; }
+  
+  /** 
+   * Determines whether text[start, end) is a whole word; the text counterpart of wholeWordFoundAtCurrent.
+   * @param text a snapshot of a document
+   * @param start the start of a match
+   * @param end the end of the match
+   * @return true if the match is delimited on both sides (or by the ends of text)
+   */
+  private static boolean isWholeWord(CharSequence text, int start, int end) {
+    return (start == 0 || isDelimiter(text.charAt(start - 1))) && (end == text.length() || isDelimiter(text.charAt(end)));
+  }
   
   /** Returns true if the currently found instance should be ignored (either because it is inside a string or comment or
     * because it does not match the whole word when either or both of those conditions are set to true).  Only executes 
     * in event thread.
     * @param foundOffset the location of the instance found
+    * @param matchLen the length of the instance found
     * @param odd the current document where the instance was found
     * @return true if the location should be ignored, false otherwise
     */
-  private boolean _shouldIgnore(int foundOffset, OpenDefinitionsDocument odd) {
+  private boolean _shouldIgnore(int foundOffset, int matchLen, OpenDefinitionsDocument odd) {
     
     assert EventQueue.isDispatchThread();
 
-    return (_matchWholeWord && ! wholeWordFoundAtCurrent(odd, foundOffset)) || 
+    return (_matchWholeWord && ! wholeWordFoundAtCurrent(odd, foundOffset, matchLen)) || 
       (_ignoreCommentsAndStrings && odd.isShadowed(foundOffset));
   }
 }
@@ -38,12 +38,17 @@ package edu.rice.cs.drjava.model;
 
 import edu.rice.cs.drjava.DrJavaTestCase;
 import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.lambda.Runnable1;
 import edu.rice.cs.util.StringOps;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.Utilities;
 
 import javax.swing.text.BadLocationException;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /** Tests the FindReplaceMachine.
   * @version $Id$
@@ -648,6 +653,139 @@ public class FindReplaceMachineTest extends DrJavaTestCase {
 //    System.err.println("testAnyOccurrenceSearchIgnore completed");
   }
   
+  public void testRegexFindNext() throws BadLocationException {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _initFrm(0);
+    _frm.setRegex(true);
+    _frm.setFindWord("s\\w+");
+    _testFindNextSucceeds(_frm, 0, 17);
+    assertEquals("match length", 3, _frm.getMatchLength());
+    _testFindNextSucceeds(_frm, 0, 32);
+    assertEquals("match length", 5, _frm.getMatchLength());
+    
+    _frm.setFindWord("s[");
+    assertNotNull("invalid regular expression", _frm.getPatternError());
+  }
+  
+  public void testRegexReplaceAll() throws BadLocationException {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _initFrm(0);
+    _frm.setRegex(true);
+    _frm.setFindWord("(\\w+) evil");
+    _frm.setReplaceWord("$1 good");
+    replaceAll();
+    assertEquals("replaced text", "Hear no good, see no good, speak no good.", _doc.getText());
+  }
+  
+  public void testRegexReplaceAllLookAround() throws BadLocationException {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _initFrm(0);
+    _frm.setRegex(true);
+    _frm.setFindWord("(?<=see no )(e)vil(?=,)");
+    _frm.setReplaceWord("$1ye");
+    replaceAll();
+    assertEquals("replaced text", "Hear no evil, see no eye, speak no evil.", _doc.getText());
+  }
+  
+  public void testFindAllInParallel() throws Exception {
+    _docPrev.insertString(0, EVIL_TEXT_PREV, null);
+    _doc.insertString(0, EVIL_TEXT, null);
+    _docNext.insertString(0, EVIL_TEXT_NEXT, null);
+    _frm.setFindWord("evil");
+    FindAll all = new FindAll();
+    _startFindAll(all);
+    assertEquals("count", 9, all.await());
+    assertEquals("matches", 9, all.results.size());
+    for (FindResult fr: all.results) {
+      int start = fr.getFoundOffset() - fr.getMatchLength();
+      assertEquals("match", "evil", fr.getDocument().getText(start, fr.getMatchLength()));
+    }
+    
+    _frm.setFindWord("evilnext");
+    all = new FindAll();
+    _startFindAll(all);
+    assertEquals("one document", 3, all.await());
+    for (FindResult fr: all.results) assertSame("document", _docNext, fr.getDocument());
+  }
+  
+  /** Tests that the trigram index does not hide a match added after a document was indexed. */
+  public void testFindAllAfterEdit() throws Exception {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _docNext.insertString(0, "Hear nothing.", null);
+    _frm.setUseIndex(true);
+    _frm.setFindWord("evil");
+    FindAll all = new FindAll();
+    _startFindAll(all);
+    assertEquals("before the edit", 3, all.await());
+    
+    _docNext.insertString(5, "evil ", null);
+    all = new FindAll();
+    _startFindAll(all);
+    assertEquals("after the edit", 4, all.await());
+  }
+  
+  /** Tests that a later Find All ends the earlier one, which delivers no more matches. */
+  public void testFindAllSuperseded() throws Exception {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _docNext.insertString(0, EVIL_TEXT_NEXT, null);
+    _frm.setFindWord("evil");
+    final FindAll first = new FindAll();
+    final FindAll second = new FindAll();
+    Utilities.invokeAndWait(new Runnable() {
+      public void run() {
+        _frm.processAllInParallel(first, first.done);
+        _frm.processAllInParallel(second, second.done);
+      }
+    });
+    assertEquals("superseded before any match was delivered", 0, first.await());
+    assertEquals("later search", 6, second.await());
+    Utilities.clearEventQueue();
+    assertEquals("no matches delivered to the earlier search", 0, first.results.size());
+    assertEquals("done once", 1, first.doneCalls);
+  }
+  
+  /** Tests that the matches in a document modified during Find All are dropped. */
+  public void testFindAllDropsEditedDocument() throws Exception {
+    _doc.insertString(0, EVIL_TEXT, null);
+    _docNext.insertString(0, EVIL_TEXT_NEXT, null);
+    _frm.setFindWord("evil");
+    final FindAll all = new FindAll();
+    Utilities.invokeAndWait(new Runnable() {
+      public void run() {
+        _frm.processAllInParallel(all, all.done);
+        try { _doc.insertString(0, "evil ", null); }  // before any match is delivered
+        catch (BadLocationException e) { throw new UnexpectedException(e); }
+      }
+    });
+    assertEquals("count", 3, all.await());
+    for (FindResult fr: all.results) assertSame("document", _docNext, fr.getDocument());
+  }
+  
+  /** Collects the matches of processAllInParallel. */
+  private static class FindAll implements Runnable1<FindResult> {
+    final List<FindResult> results = new ArrayList<FindResult>();  // only accessed in the event thread
+    final CountDownLatch latch = new CountDownLatch(1);
+    volatile int count = -1;
+    volatile int doneCalls = 0;
+    final Runnable1<Integer> done = new Runnable1<Integer>() {
+      public void run(Integer c) {
+        count = c;
+        doneCalls++;
+        latch.countDown();
+      }
+    };
+    public void run(FindResult fr) { results.add(fr); }
+    /** @return the number of matches passed to done, once it has been called */
+    int await() throws InterruptedException {
+      assertTrue("find all finished", latch.await(10, TimeUnit.SECONDS));
+      return count;
+    }
+  }
+  
+  private void _startFindAll(final FindAll all) {
+    Utilities.invokeAndWait(new Runnable() { public void run() { _frm.processAllInParallel(all, all.done); } });
+  }
+  
   private void _testFindNextSucceeds(final FindReplaceMachine frm, int start, final int found, 
                                      OpenDefinitionsDocument doc) {
     Utilities.invokeAndWait(new Runnable() {
@@ -47,18 +47,32 @@ public class FindResult {
   private final int _foundoffset;
   private final boolean _wrapped;
   private final boolean _allWrapped;
+  private final int _matchLength;
   
   /** Constructor for a FindResult.
    * @param document the document where the found instance is located
    * @param foundoffset the offset of the instance found
    * @param wrapped {@code true} if the search wrapped to the beginning (or end) of the document
    * @param allWrapped {@code true} if the search wrapped to the start document
+   * @param matchLength the length of the instance found
    */
-  public FindResult(OpenDefinitionsDocument document, int foundoffset, boolean wrapped, boolean allWrapped) {
+  public FindResult(OpenDefinitionsDocument document, int foundoffset, boolean wrapped, boolean allWrapped, 
+                    int matchLength) {
     _document = document;
     _foundoffset = foundoffset;
     _wrapped = wrapped;
     _allWrapped = allWrapped;
+    _matchLength = matchLength;
+  }
+  
+  /** Constructor for a FindResult with no match length; used for failed searches. 
+   * @param document the document where the found instance is located
+   * @param foundoffset the offset of the instance found
+   * @param wrapped {@code true} if the search wrapped to the beginning (or end) of the document
+   * @param allWrapped {@code true} if the search wrapped to the start document
+   */
+  public FindResult(OpenDefinitionsDocument document, int foundoffset, boolean wrapped, boolean allWrapped) {
+    this(document, foundoffset, wrapped, allWrapped, 0);
   }
   
   /** Intelligible toString method */
@@ -77,4 +91,7 @@ public class FindResult {
   
   /** @return true if the search wrapped to the start document. */
   public boolean getAllWrapped() { return _allWrapped; }
+  
+  /** @return the length of the instance found; may differ from the length of the find word for regular expressions */
+  public int getMatchLength() { return _matchLength; }
 }
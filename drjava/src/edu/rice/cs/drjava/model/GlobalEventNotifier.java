@@ -452,6 +452,13 @@ public class GlobalEventNotifier extends EventNotifier<GlobalModelListener>
     finally { _lock.endRead(); }
   }
   
+  /** Called in the event thread when a background check has updated the compiler errors of some files. */
+  public void backgroundCheckEnded(List<? extends File> checkedFiles) {
+    _lock.startRead();
+    try { for (GlobalModelListener l : _listeners) { l.backgroundCheckEnded(checkedFiles); } }
+    finally { _lock.endRead(); }
+  }
+  
   //---------------------------------- JUnit ---------------------------------//
   
   /** Called when trying to test a non-TestCase class.
@@ -990,6 +990,9 @@ public abstract class GlobalModelTestCase extends MultiThreadedTestCase {
     }
     public void compileAborted(Exception e) { listenerFail("compileAborted fired unexpectedly"); }
     public void activeCompilerChanged() { listenerFail("activeCompilerChanged fired unexpectedly"); }
+    public void backgroundCheckEnded(List<? extends File> checkedFiles) {
+      listenerFail("backgroundCheckEnded fired unexpectedly");
+    }
 
     public void prepareForRun(OpenDefinitionsDocument doc) { listenerFail("prepareForRun fired unexpectedly"); }
     
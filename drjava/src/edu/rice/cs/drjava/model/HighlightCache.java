@@ -0,0 +1,186 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelState;
+
+/** The highlight spans of the lines of an AbstractDJDocument, indexed by line number.  The spans of a line are a 
+  * function of its text and of the reduced model state at its start, so each entry records that state along with the
+  * spans (stored relative to the start of the line).  An edit discards the entries of the edited line and marks the
+  * entries of the following lines unchecked; an unchecked entry is reused as soon as the state at the start of its
+  * line is found to be unchanged.  Lines before an edit are unaffected by it.  Confined to the event thread.
+  * @version $Id$
+  */
+public class HighlightCache {
+  
+  /** The entries by line number; null if the line has not been highlighted since it last changed. */
+  private final ArrayList<Line> _lines;
+  
+  private long _hits;
+  private long _misses;
+  
+  public HighlightCache() { _lines = new ArrayList<Line>(); }
+  
+  /** 
+   * @param line the line number
+   * @param length the current length of the line, including its newline
+   * @return the cached spans of line, or null if there are none or they were computed for a line of another length
+   */
+  public Line get(int line, int length) {
+    Line l = (line < _lines.size()) ? _lines.get(line) : null;
+    if (l == null || l._length != length) { _misses++; return null; }
+    _hits++;
+    return l;
+  }
+  
+  /** 
+   * Caches the spans of a line.
+   * @param line the line number
+   * @param l the spans of line
+   */
+  public void put(int line, Line l) {
+    while (_lines.size() <= line) _lines.add(null);
+    _lines.set(line, l);
+  }
+  
+  /** 
+   * Records an edit that started in the given line.
+   * @param line the number of the line containing the start of the edit
+   * @param inserted the number of newlines inserted
+   * @param removed the number of newlines removed
+   */
+  public void changed(int line, int inserted, int removed) {
+    int size = _lines.size();
+    if (line >= size) return;
+    _lines.set(line, null);
+    if (removed > 0) _lines.subList(line + 1, Math.min(line + 1 + removed, size)).clear();
+    if (inserted > 0) _lines.addAll(line + 1, Collections.<Line>nCopies(inserted, null));
+    size = _lines.size();
+    for (int i = line + 1; i < size; i++) {
+      Line l = _lines.get(i);
+      if (l != null) l._checked = false;
+    }
+  }
+  
+  /** Discards all entries. */
+  public void clear() { _lines.clear(); }
+  
+  /** @return the number of cached lines */
+  public int size() {
+    int n = 0;
+    for (Line l: _lines) if (l != null) n++;
+    return n;
+  }
+  
+  /** @return the number of lookups that found spans */
+  public long getHits() { return _hits; }
+  
+  /** @return the number of lookups that found no spans */
+  public long getMisses() { return _misses; }
+  
+  public String toString() { return "HighlightCache[size=" + size() + ", hits=" + _hits + ", misses=" + _misses + "]"; }
+  
+  /** The highlight spans of one line. */
+  public static class Line {
+    private final ReducedModelState _state;
+    private final int _length;
+    private final int[] _offsets;
+    private final int[] _lengths;
+    private final int[] _states;
+    private boolean _checked;
+    
+    /** 
+     * @param state the reduced model state at the start of the line
+     * @param start the offset of the start of the line
+     * @param length the length of the line, including its newline
+     * @param spans the highlight spans covering the line, in order
+     */
+    public Line(ReducedModelState state, int start, int length, List<HighlightStatus> spans) {
+      _state = state;
+      _length = length;
+      int n = spans.size();
+      _offsets = new int[n];
+      _lengths = new int[n];
+      _states = new int[n];
+      for (int i = 0; i < n; i++) {
+        HighlightStatus s = spans.get(i);
+        _offsets[i] = s.getLocation() - start;
+        _lengths[i] = s.getLength();
+        _states[i] = s.getState();
+      }
+      _checked = true;
+    }
+    
+    /** @return the reduced model state at the start of the line when the spans were computed */
+    public ReducedModelState getState() { return _state; }
+    
+    /** @return true unless the line has followed an edit since its state was last compared */
+    public boolean isChecked() { return _checked; }
+    
+    /** Records that the state at the start of the line still equals getState(). */
+    public void setChecked() { _checked = true; }
+    
+    /** 
+     * Appends the spans of this line that overlap [start, end) to v, clipped to that range.  A span that continues the
+     * last element of v with the same state is merged into it.
+     * @param v the spans found so far
+     * @param lineStart the current offset of the start of the line
+     * @param start the start of the requested range
+     * @param end the end of the requested range
+     */
+    public void appendTo(ArrayList<HighlightStatus> v, int lineStart, int start, int end) {
+      for (int i = 0; i < _offsets.length; i++) {
+        int from = Math.max(lineStart + _offsets[i], start);
+        int to = Math.min(lineStart + _offsets[i] + _lengths[i], end);
+        if (from >= to) continue;
+        int last = v.size() - 1;
+        if (last >= 0) {
+          HighlightStatus prev = v.get(last);
+          if (prev.getState() == _states[i] && prev.getLocation() + prev.getLength() == from) {
+            v.set(last, new HighlightStatus(prev.getLocation(), to - prev.getLocation(), _states[i]));
+            continue;
+          }
+        }
+        v.add(new HighlightStatus(from, to - from, _states[i]));
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.HighlightStatus;
+import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.util.swing.Utilities;
+
+import static edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelStates.*;
+
+/** Tests the line bookkeeping of HighlightCache and that cached highlighting matches a fresh document after edits.
+  * @version $Id$
+  */
+public final class HighlightCacheTest extends DrJavaTestCase {
+  
+  private static HighlightCache.Line _line(int length) {
+    ArrayList<HighlightStatus> spans = new ArrayList<HighlightStatus>();
+    spans.add(new HighlightStatus(0, length, HighlightStatus.NORMAL));
+    return new HighlightCache.Line(FREE, 0, length, spans);
+  }
+  
+  public void testChanged() {
+    HighlightCache c = new HighlightCache();
+    HighlightCache.Line[] lines = new HighlightCache.Line[5];
+    for (int i = 0; i < 5; i++) { lines[i] = _line(i + 1); c.put(i, lines[i]); }
+    
+    c.changed(1, 2, 0);
+    assertSame("before edit", lines[0], c.get(0, 1));
+    assertTrue("before edit checked", lines[0].isChecked());
+    assertNull("edited line", c.get(1, 2));
+    assertNull("inserted line", c.get(2, 3));
+    assertSame("shifted line", lines[2], c.get(4, 3));
+    assertFalse("shifted line unchecked", lines[2].isChecked());
+    assertSame("last line", lines[4], c.get(6, 5));
+    assertNull("wrong length", c.get(6, 4));
+    
+    c.changed(3, 0, 2);
+    assertNull("edited line", c.get(3, 4));
+    assertSame("joined line", lines[4], c.get(4, 5));
+    assertEquals("size", 2, c.size());
+  }
+  
+  public void testAppendToMergesAndClips() {
+    ArrayList<HighlightStatus> spans = new ArrayList<HighlightStatus>();
+    spans.add(new HighlightStatus(10, 3, HighlightStatus.KEYWORD));
+    spans.add(new HighlightStatus(13, 5, HighlightStatus.NORMAL));
+    HighlightCache.Line l = new HighlightCache.Line(FREE, 10, 8, spans);
+    
+    ArrayList<HighlightStatus> v = new ArrayList<HighlightStatus>();
+    v.add(new HighlightStatus(0, 21, HighlightStatus.KEYWORD));
+    l.appendTo(v, 21, 0, 27);
+    assertEquals("merged", 2, v.size());
+    assertEquals("merged length", 24, v.get(0).getLength());
+    assertEquals("clipped start", 24, v.get(1).getLocation());
+    assertEquals("clipped length", 3, v.get(1).getLength());
+  }
+  
+  /** Random edits that open and close comments and strings must leave the same highlighting as a fresh document. */
+  public void testMatchesFreshDocument() {
+    Utilities.invokeAndWait(new Runnable() { public void run() {
+      try {
+        final String[] pieces = { "/*", "*/", "//", "\"", "'", "\n", "int ", "x", " return 1;", "{\n", "}\n" };
+        Random r = new Random(20);
+        DefinitionsDocument doc = new DefinitionsDocument(new GlobalEventNotifier());
+        doc.insertString(0, "class A {\n  int x = 1;\n  /* c */ String s = \"a\";\n}\n", null);
+        for (int i = 0; i < 300; i++) {
+          int len = doc.getLength();
+          if (r.nextInt(3) == 0 && len > 0) {
+            int offset = r.nextInt(len);
+            doc.remove(offset, Math.min(1 + r.nextInt(4), len - offset));
+          }
+          else doc.insertString(r.nextInt(len + 1), pieces[r.nextInt(pieces.length)], null);
+          
+          len = doc.getLength();
+          int start = (len == 0) ? 0 : r.nextInt(len);
+          assertHighlightsEqual("edit " + i, doc, start, len);
+          assertHighlightsEqual("whole document " + i, doc, 0, len);
+        }
+        
+        long misses = doc.getHighlightCache().getMisses();
+        doc.getHighlightStatus(0, doc.getLength());
+        assertEquals("repaint is served by the cache", misses, doc.getHighlightCache().getMisses());
+      }
+      catch (BadLocationException e) { throw new UnexpectedException(e); }
+    } });
+  }
+  
+  private static void assertHighlightsEqual(String msg, DefinitionsDocument doc, int start, int end) 
+    throws BadLocationException {
+    DefinitionsDocument fresh = new DefinitionsDocument(new GlobalEventNotifier());
+    fresh.insertString(0, doc.getText(), null);
+    ArrayList<HighlightStatus> expected = fresh.getHighlightStatus(start, end);
+    ArrayList<HighlightStatus> actual = doc.getHighlightStatus(start, end);
+    assertEquals(msg + " size", expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      HighlightStatus e = expected.get(i);
+      HighlightStatus a = actual.get(i);
+      assertEquals(msg + " location " + i, e.getLocation(), a.getLocation());
+      assertEquals(msg + " length " + i, e.getLength(), a.getLength());
+      assertEquals(msg + " state " + i, e.getState(), a.getState());
+    }
+  }
+}
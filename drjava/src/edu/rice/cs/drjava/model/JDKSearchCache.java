@@ -0,0 +1,178 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.reflect.JavaVersion.FullVersion;
+
+import edu.rice.cs.util.FileOps;
+
+/** The results of earlier searches for JDK libraries (see {@link JarJDKToolsLibrary#search}), kept in a file so that
+  * the jar files found by a search need not be opened again at the next start unless they have changed.  An entry
+  * belongs to a jar file and a JDK descriptor, and is only used while the size and modification time of the jar file
+  * are unchanged.  The whole cache is discarded if the Java runtime or the DrJava jar file changes.  Thread-safe.
+  */
+public class JDKSearchCache {
+  
+  /** The default cache file. */
+  public static final File DEFAULT_FILE = new File(System.getProperty("user.home", "."), ".drjava.jdkcache");
+  
+  /** The result of probing a jar file with a descriptor. */
+  public static class Entry implements Serializable {
+    private final long _size;
+    private final long _lastModified;
+    private final FullVersion _version;
+    
+    private Entry(File jar, FullVersion version) {
+      _size = jar.length();
+      _lastModified = jar.lastModified();
+      _version = version;
+    }
+    
+    /** @return true if the jar file, with the descriptor, produced a valid library */
+    public boolean isValid() { return _version != null; }
+    
+    /** @return the version of the library; null if it is not valid */
+    public FullVersion version() { return _version; }
+    
+    private boolean matches(File jar) { return jar.length() == _size && jar.lastModified() == _lastModified; }
+  }
+  
+  /** The file of this cache; null if the cache is not saved. */
+  private final File _file;
+  
+  /** Identifies the Java runtime and DrJava jar file for which the entries are valid. */
+  private final String _environment;
+  
+  private HashMap<String, Entry> _entries = new HashMap<String, Entry>();
+  private ArrayList<String> _descriptorNames = null;
+  
+  /** The keys used or added since the cache was loaded; only these are saved. */
+  private final Set<String> _used = new HashSet<String>();
+  
+  /** Creates a cache from the given file, if it exists and belongs to the current environment.
+    * @param file the cache file; null for a cache that is never saved
+    */
+  public JDKSearchCache(File file) {
+    _file = file;
+    File drjava = FileOps.getDrJavaFile();
+    _environment = System.getProperty("java.home") + "|" + System.getProperty("java.version") + "|" + drjava + "|" +
+      drjava.length() + "|" + drjava.lastModified();
+    if (_file != null && _file.isFile()) { _load(); }
+  }
+  
+  /** @param jar a jar file
+    * @param desc a JDK descriptor
+    * @return the result of probing the jar file with the descriptor, or null if unknown or out of date
+    */
+  public synchronized Entry get(File jar, JDKDescriptor desc) {
+    String key = _key(jar, desc);
+    Entry e = _entries.get(key);
+    if (e == null || ! e.matches(jar)) { return null; }
+    _used.add(key);
+    return e;
+  }
+  
+  /** Records the result of probing a jar file with a descriptor.
+    * @param jar a jar file
+    * @param desc a JDK descriptor
+    * @param version the version of the resulting library, or null if the library is not valid
+    */
+  public synchronized void put(File jar, JDKDescriptor desc, FullVersion version) {
+    String key = _key(jar, desc);
+    _entries.put(key, new Entry(jar, version));
+    _used.add(key);
+  }
+  
+  /** @return the names of the descriptor class files in the DrJava jar file, or null if unknown */
+  public synchronized List<String> descriptorNames() { return _descriptorNames; }
+  
+  /** @param names the names of the descriptor class files in the DrJava jar file */
+  public synchronized void setDescriptorNames(List<String> names) { _descriptorNames = new ArrayList<String>(names); }
+  
+  /** Writes the entries used since the cache was loaded to the cache file.  Failures are ignored. */
+  public void save() { if (_file != null) { saveAs(_file); } }
+  
+  /** Writes the entries used since the cache was loaded to the given file.  Failures are ignored.
+    * @param file the file to write
+    */
+  public synchronized void saveAs(File file) {
+    HashMap<String, Entry> used = new HashMap<String, Entry>();
+    for (String key : _used) { used.put(key, _entries.get(key)); }
+    ObjectOutputStream out = null;
+    try {
+      out = new ObjectOutputStream(new FileOutputStream(file));
+      out.writeObject(_environment);
+      out.writeObject(_descriptorNames);
+      out.writeObject(used);
+    }
+    catch (IOException e) { JDKToolsLibrary.msg("could not save JDK search cache: " + e); }
+    finally { if (out != null) { IOUtil.attemptClose(out); } }
+  }
+  
+  @SuppressWarnings("unchecked")
+  private void _load() {
+    ObjectInputStream in = null;
+    try {
+      in = new ObjectInputStream(new FileInputStream(_file));
+      if (! _environment.equals(in.readObject())) { return; }
+      ArrayList<String> names = (ArrayList<String>) in.readObject();
+      HashMap<String, Entry> entries = (HashMap<String, Entry>) in.readObject();
+      _descriptorNames = names;
+      _entries = entries;
+    }
+    catch (Exception e) { JDKToolsLibrary.msg("could not load JDK search cache: " + e); }
+    finally { if (in != null) { IOUtil.attemptClose(in); } }
+  }
+  
+  private static String _key(File jar, JDKDescriptor desc) {
+    return desc.getClass().getName() + "|" + desc.getName() + "|" + jar.getAbsolutePath();
+  }
+}
@@ -0,0 +1,84 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.reflect.JavaVersion;
+import edu.rice.cs.plt.reflect.JavaVersion.FullVersion;
+
+/** Tests JDKSearchCache.
+  * @version $Id$
+  */
+public class JDKSearchCacheTest extends DrJavaTestCase {
+  
+  /** Tests that entries survive saving and loading, and are dropped when the jar file changes. */
+  public void testEntries() throws Exception {
+    File dir = IOUtil.createAndMarkTempDirectory("jdkcache", "");
+    File jar = new File(dir, "tools.jar");
+    IOUtil.writeStringToFile(jar, "not really a jar");
+    File other = new File(dir, "classes.jar");
+    IOUtil.writeStringToFile(other, "not a jar either");
+    File cacheFile = new File(dir, "cache");
+    FullVersion version = JavaVersion.parseFullVersion("1.6.0_45", "Java(TM)", "Sun", jar);
+    
+    JDKSearchCache cache = new JDKSearchCache(cacheFile);
+    assertNull("initially empty", cache.get(jar, JDKDescriptor.NONE));
+    cache.put(jar, JDKDescriptor.NONE, version);
+    cache.put(other, JDKDescriptor.NONE, null);
+    cache.setDescriptorNames(Arrays.asList("a/B.class"));
+    cache.save();
+    
+    cache = new JDKSearchCache(cacheFile);
+    assertTrue("valid entry", cache.get(jar, JDKDescriptor.NONE).isValid());
+    assertEquals("version", version, cache.get(jar, JDKDescriptor.NONE).version());
+    assertFalse("invalid entry", cache.get(other, JDKDescriptor.NONE).isValid());
+    assertEquals("descriptors", Arrays.asList("a/B.class"), cache.descriptorNames());
+    
+    IOUtil.writeStringToFile(jar, "a different jar file");
+    assertNull("changed jar", cache.get(jar, JDKDescriptor.NONE));
+    cache.save();
+    
+    cache = new JDKSearchCache(cacheFile);
+    assertNull("unused entries are not saved", cache.get(jar, JDKDescriptor.NONE));
+    assertNotNull("used entries are saved", cache.get(other, JDKDescriptor.NONE));
+  }
+}
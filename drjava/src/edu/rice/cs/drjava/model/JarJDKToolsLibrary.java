@@ -53,6 +53,11 @@ import java.util.jar.Manifest;
 import java.util.Enumeration;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import edu.rice.cs.plt.io.IOUtil;
 import edu.rice.cs.plt.iter.IterUtil;
@@ -75,6 +80,8 @@ import edu.rice.cs.drjava.model.javadoc.JavadocModel;
 import edu.rice.cs.drjava.model.javadoc.DefaultJavadocModel;
 import edu.rice.cs.drjava.model.javadoc.NoJavadocAvailable;
 import edu.rice.cs.drjava.model.JDKDescriptor;
+import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.util.swing.Utilities;
 
 /** A JDKToolsLibrary that was loaded from a specific jar file. */
 public class JarJDKToolsLibrary extends JDKToolsLibrary {
@@ -158,13 +165,27 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
    */
   public static JarJDKToolsLibrary makeFromFile(File f, GlobalModel model, JDKDescriptor desc,
                                                 List<File> additionalBootClassPath) {
+    return makeFromFile(f, model, desc, additionalBootClassPath, null);
+  }
+
+  /** 
+   * Create a JarJDKToolsLibrary from a specific {@code "tools.jar"} or {@code "classes.jar"} file. 
+   * @param f the .jar file from which to create the JDK tools library
+   * @param model the global model
+   * @param desc a JDKDescriptor
+   * @param additionalBootClassPath the boot classpath
+   * @param knownVersion the version of the library, if known from an earlier search; null to guess it
+   * @return the newly-created JarJDKToolsLibrary
+   */
+  public static JarJDKToolsLibrary makeFromFile(File f, GlobalModel model, JDKDescriptor desc,
+                                                List<File> additionalBootClassPath, FullVersion knownVersion) {
     assert desc != null;
     
     CompilerInterface compiler = NoCompilerAvailable.ONLY;
     Debugger debugger = NoDebuggerAvailable.ONLY;
     JavadocModel javadoc = new NoJavadocAvailable(model);
     
-    FullVersion version = desc.guessVersion(f);
+    FullVersion version = (knownVersion != null) ? knownVersion : desc.guessVersion(f);
     JDKToolsLibrary.msg("makeFromFile: " + f + " --> " + version + ", vendor: " + version.vendor());
     JDKToolsLibrary.msg("    desc = " + desc);
     
@@ -523,30 +544,90 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
                                             LinkedHashMap<File,Set<JDKDescriptor>> jars,
                                             Map<FullVersion, Iterable<JarJDKToolsLibrary>> results,
                                             Map<FullVersion, Iterable<JarJDKToolsLibrary>> compoundResults) {
+    collectValidResults(model, jars, results, compoundResults, new JDKSearchCache(null));
+  }
+  
+  /** 
+   * Check which jars are valid JDKs, and determine if they are compound or 
+   * full (non-compound) JDKs.  Jars that are known from the cache to be invalid are skipped, and the versions
+   * of the others are taken from the cache.  The jars are probed in parallel; the results are added in order.
+   * @param model the global model
+   * @param jars the jar files
+   * @param results container for valid full JDKs; populated by this function
+   * @param compoundResults container for valid compound JDKs; populated by this function
+   * @param cache the results of earlier searches; updated by this function
+   */
+  protected static void collectValidResults(final GlobalModel model,
+                                            LinkedHashMap<File,Set<JDKDescriptor>> jars,
+                                            Map<FullVersion, Iterable<JarJDKToolsLibrary>> results,
+                                            Map<FullVersion, Iterable<JarJDKToolsLibrary>> compoundResults,
+                                            final JDKSearchCache cache) {
     JDKToolsLibrary.msg("---- Collecting Valid Results ----");
-    for (Map.Entry<File,Set<JDKDescriptor>> jar : jars.entrySet()) {
-      for (JDKDescriptor desc : jar.getValue()) {
-        assert desc != null;
-
-        boolean containsCompiler = desc.containsCompiler(jar.getKey());
-        JDKToolsLibrary.msg("Checking file " + jar.getKey() + " for " + desc);
-        JDKToolsLibrary.msg("    " + containsCompiler);
-        if (! containsCompiler) continue;
-
-        JarJDKToolsLibrary lib = makeFromFile(jar.getKey(), model, desc);
-        if (lib.isValid()) {
-          FullVersion v = lib.version();
-          Map<FullVersion, Iterable<JarJDKToolsLibrary>> mapToAddTo = results;
-          if (desc.isCompound()) { mapToAddTo = compoundResults; }
-          
-          if (mapToAddTo.containsKey(v)) { mapToAddTo.put(v, IterUtil.compose(lib, mapToAddTo.get(v))); }
-          else { mapToAddTo.put(v, IterUtil.singleton(lib)); }
-        }
-        else {
-          JDKToolsLibrary.msg("    library is not valid: compiler=" + lib.compiler().isAvailable() +
-                              " debugger=" + lib.debugger().isAvailable() + " javadoc=" + lib.javadoc().isAvailable());
+    List<Future<JarJDKToolsLibrary>> probes = new ArrayList<Future<JarJDKToolsLibrary>>();
+    ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      for (Map.Entry<File,Set<JDKDescriptor>> jar : jars.entrySet()) {
+        for (final JDKDescriptor desc : jar.getValue()) {
+          assert desc != null;
+          final File f = jar.getKey();
+          final JDKSearchCache.Entry known = cache.get(f, desc);
+          if (known != null && ! known.isValid()) {
+            JDKToolsLibrary.msg("Skipping file " + f + " for " + desc + ": not valid in an earlier search");
+            continue;
+          }
+          probes.add(pool.submit(new Callable<JarJDKToolsLibrary>() {
+            public JarJDKToolsLibrary call() { return _probe(f, model, desc, known, cache); }
+          }));
         }
       }
+      
+      for (Future<JarJDKToolsLibrary> probe : probes) {
+        JarJDKToolsLibrary lib;
+        try { lib = probe.get(); }
+        catch (ExecutionException e) { JDKToolsLibrary.msg("    probe failed: " + e.getCause()); continue; }
+        catch (InterruptedException e) { throw new UnexpectedException(e); }
+        if (lib == null) { continue; }
+        
+        FullVersion v = lib.version();
+        Map<FullVersion, Iterable<JarJDKToolsLibrary>> mapToAddTo = results;
+        if (lib.jdkDescriptor().isCompound()) { mapToAddTo = compoundResults; }
+        
+        if (mapToAddTo.containsKey(v)) { mapToAddTo.put(v, IterUtil.compose(lib, mapToAddTo.get(v))); }
+        else { mapToAddTo.put(v, IterUtil.singleton(lib)); }
+      }
+    }
+    finally { pool.shutdown(); }
+  }
+  
+  /** 
+   * Checks whether a jar is a valid JDK for the given descriptor, and records the result in the cache.
+   * @param f the jar file
+   * @param model the global model
+   * @param desc the descriptor
+   * @param known the result of an earlier search, or null if unknown
+   * @param cache the cache to update
+   * @return the library, or null if the jar is not valid
+   */
+  private static JarJDKToolsLibrary _probe(File f, GlobalModel model, JDKDescriptor desc, 
+                                           JDKSearchCache.Entry known, JDKSearchCache cache) {
+    if (known == null) {
+      boolean containsCompiler = desc.containsCompiler(f);
+      JDKToolsLibrary.msg("Checking file " + f + " for " + desc);
+      JDKToolsLibrary.msg("    " + containsCompiler);
+      if (! containsCompiler) { cache.put(f, desc, null); return null; }
+    }
+    
+    JarJDKToolsLibrary lib = makeFromFile(f, model, desc, new ArrayList<File>(),
+                                          (known == null) ? null : known.version());
+    if (lib.isValid()) {
+      cache.put(f, desc, lib.version());
+      return lib;
+    }
+    else {
+      JDKToolsLibrary.msg("    library is not valid: compiler=" + lib.compiler().isAvailable() +
+                          " debugger=" + lib.debugger().isAvailable() + " javadoc=" + lib.javadoc().isAvailable());
+      cache.put(f, desc, null);
+      return null;
     }
   }
   
@@ -626,10 +707,44 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
    * valid library (see {@link #isValid} are returned.  The result is sorted
    * by version.  Where one library of the same version might be preferred
    * over another, the preferred library appears earlier in the result list.
+   * The results of the previous search, kept in {@link JDKSearchCache#DEFAULT_FILE}, are used for jar files that
+   * have not changed since.
    * @param model the global model
    * @return list of tools libraries discovered on the file system
     */
   public static Iterable<JarJDKToolsLibrary> search(GlobalModel model) {
+    JDKSearchCache cache = new JDKSearchCache(Utilities.TEST_MODE ? null : JDKSearchCache.DEFAULT_FILE);
+    Iterable<JarJDKToolsLibrary> result = search(model, cache);
+    cache.save();
+    return result;
+  }
+  
+  /** 
+   * Starts a search, in a background thread, that ignores the results of earlier searches and replaces them 
+   * with its own.  The libraries found are discarded; the search only keeps the cache up to date for the next start.
+   * @param model the global model
+   */
+  public static void revalidateSearchCache(final GlobalModel model) {
+    if (Utilities.TEST_MODE) { return; }
+    Thread t = new Thread("Revalidate JDK Search") {
+      public void run() {
+        JDKSearchCache cache = new JDKSearchCache(null);
+        search(model, cache);
+        cache.saveAs(JDKSearchCache.DEFAULT_FILE);
+      }
+    };
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+  
+  /** 
+   * Produce a list of tools libraries discovered on the file system, using and updating the given cache.
+   * @param model the global model
+   * @param cache the results of earlier searches
+   * @return list of tools libraries discovered on the file system
+    */
+  public static Iterable<JarJDKToolsLibrary> search(GlobalModel model, JDKSearchCache cache) {
     JDKToolsLibrary.msg("---- Searching for Libraries ----");
     
     /* roots is a list of possible parent directories of Java installations; we want to eliminate duplicates & 
@@ -643,7 +758,7 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
     LinkedHashMap<File,Set<JDKDescriptor>> jars = new LinkedHashMap<File,Set<JDKDescriptor>>();
 
     // Search for all compound JDK descriptors in the drjava.jar file
-    Iterable<JDKDescriptor> descriptors = searchForJDKDescriptors(); 
+    Iterable<JDKDescriptor> descriptors = searchForJDKDescriptors(cache); 
     for(JDKDescriptor desc: descriptors) {
       // add the specific search directories and files
       for(File f: desc.getSearchDirectories()) { addIfDir(f, desc, roots); }
@@ -661,7 +776,7 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
     Map<FullVersion, Iterable<JarJDKToolsLibrary>> compoundResults =
       new TreeMap<FullVersion, Iterable<JarJDKToolsLibrary>>();
     
-    collectValidResults(model, jars, results, compoundResults);
+    collectValidResults(model, jars, results, compoundResults, cache);
     
     // We store everything in reverse order, since that's the natural order of the versions
     Iterable<JarJDKToolsLibrary> collapsed = IterUtil.reverse(IterUtil.collapse(results.values()));  // Are versions in results subsequently ignored?
@@ -760,13 +875,22 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
    * Note: This does not work properly if not all classes are in a jar or in the same directory.
    * For example, when doing an "ant run", the classes are spread across classes/base and classes/lib,
    * with the edu.rice.cs.drjava.DrJava class in classes/base but the descriptors in classes/lib. 
+   * The names of the descriptors found are kept in the cache, so the DrJava jar is only scanned once.
+   * @param cache the results of earlier searches
    * @return iterator over JDK descriptors
    */
-  private static Iterable<JDKDescriptor> searchForJDKDescriptors() {
+  private static Iterable<JDKDescriptor> searchForJDKDescriptors(JDKSearchCache cache) {
     JDKToolsLibrary.msg("---- Searching for descriptors ----");
     long t0 = System.currentTimeMillis();
     JDKToolsLibrary.msg("ms: "+t0);
     Iterable<JDKDescriptor> descriptors = IterUtil.empty();
+    List<String> names = cache.descriptorNames();
+    if (names != null) {
+      JDKToolsLibrary.msg("descriptor names from cache: " + names);
+      for (String name : names) { descriptors = attemptToLoadDescriptor(descriptors, name); }
+      return descriptors;
+    }
+    names = new ArrayList<String>();
     try {
       File f = edu.rice.cs.util.FileOps.getDrJavaFile();
       JDKToolsLibrary.msg("drjava.jar: " + f);
@@ -779,10 +903,12 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
           String name = je.getName();
           if (name.startsWith("edu/rice/cs/drjava/model/compiler/descriptors/") && name.endsWith(".class") &&
               (name.indexOf('$') < 0)) {
+            names.add(name);
             descriptors = attemptToLoadDescriptor(descriptors, name);
           }
         }
         jf.close();
+        cache.setDescriptorNames(names); // a directory's modification time does not reflect changes to its classes
       }
       else {
         final String DESC_PATH = "edu/rice/cs/drjava/model/compiler/descriptors";
@@ -795,6 +921,7 @@ public class JarJDKToolsLibrary extends JDKToolsLibrary {
         });
         for (File je: files) {
           String name = DESC_PATH + "/" + je.getName();
+          names.add(name);
           descriptors = attemptToLoadDescriptor(descriptors, name);
         }
       }
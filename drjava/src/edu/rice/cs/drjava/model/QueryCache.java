@@ -0,0 +1,194 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** The memo table for the queries of an AbstractDJDocument.  Each answer is stored with the offset bounding the right
+  * edge of the text on which it depends.  The entries are also kept in an array sorted by that offset, so a document
+  * change at offset o discards exactly the suffix of entries with offset {@literal >=} o.  Since most queries are
+  * stored while walking forward through a document, appends normally preserve the order; the array is re-sorted 
+  * lazily otherwise.  The number of entries is bounded; when the bound is reached, the half of the entries with the
+  * largest offsets is discarded.  All methods are synchronized because queries may run outside the event thread.
+  * @version $Id$
+  */
+public class QueryCache {
+  
+  /** Default bound on the number of cached answers. */
+  public static final int DEFAULT_MAX_SIZE = 0x10000;  // 16**4
+  
+  private final int _maxSize;
+  private final HashMap<Query, Entry> _answers;
+  
+  /** The entries of _answers; _entries[0:_size) is sorted by offset iff _sorted. */
+  private Entry[] _entries;
+  private int _size;
+  private boolean _sorted;
+  
+  private long _hits;
+  private long _misses;
+  private long _evictions;
+  
+  /** Creates a cache bounded by DEFAULT_MAX_SIZE. */
+  public QueryCache() { this(DEFAULT_MAX_SIZE); }
+  
+  /** 
+   * @param maxSize the maximum number of cached answers; must be at least 2
+   */
+  public QueryCache(int maxSize) {
+    if (maxSize < 2) throw new IllegalArgumentException("maxSize must be at least 2");
+    _maxSize = maxSize;
+    _answers = new HashMap<Query, Entry>();
+    _entries = new Entry[16];
+    _size = 0;
+    _sorted = true;
+  }
+  
+  /** 
+   * @param query the query to look up
+   * @return the cached answer to query, or null if there is none
+   */
+  public synchronized Object get(Query query) {
+    Entry e = _answers.get(query);
+    if (e == null) { _misses++; return null; }
+    _hits++;
+    return e._answer;
+  }
+  
+  /** 
+   * Caches an answer.
+   * @param query  a canonical description of the query
+   * @param answer  the answer returned for the query
+   * @param offset  the offset bounding the right edge of the text on which the answer depends
+   */
+  public synchronized void put(Query query, Object answer, int offset) {
+    if (_size == _maxSize) _evict();
+    Entry e = new Entry(query, answer, offset);
+    _answers.put(query, e);  // any previous entry for query stays in _entries until it is removed by offset
+    if (_size == _entries.length) _entries = Arrays.copyOf(_entries, Math.min(2 * _size, _maxSize));
+    if (_size > 0 && _entries[_size - 1]._offset > offset) _sorted = false;
+    _entries[_size++] = e;
+  }
+  
+  /** 
+   * Discards all answers that depend on text at or after offset.
+   * @param offset the offset of the leftmost changed character
+   */
+  public synchronized void clear(int offset) {
+    if (offset <= 0) {
+      _answers.clear();
+      Arrays.fill(_entries, 0, _size, null);
+      _size = 0;
+      _sorted = true;
+      return;
+    }
+    _truncate(_firstIndexAtOrAfter(offset));
+  }
+  
+  /** Discards all answers. */
+  public void clear() { clear(0); }
+  
+  /** @return the number of cached answers */
+  public synchronized int size() { return _answers.size(); }
+  
+  /** @return the number of lookups that found an answer */
+  public synchronized long getHits() { return _hits; }
+  
+  /** @return the number of lookups that found no answer */
+  public synchronized long getMisses() { return _misses; }
+  
+  /** @return the number of answers discarded because the cache was full */
+  public synchronized long getEvictions() { return _evictions; }
+  
+  /** Resets the hit, miss and eviction counters. */
+  public synchronized void resetStatistics() { _hits = _misses = _evictions = 0; }
+  
+  public synchronized String toString() {
+    return "QueryCache[size=" + _answers.size() + ", hits=" + _hits + ", misses=" + _misses + ", evictions=" + 
+      _evictions + "]";
+  }
+  
+  /** Discards the half of the entries with the largest offsets. */
+  private void _evict() {
+    int before = _answers.size();
+    _sortIfNecessary();
+    _truncate(_size / 2);
+    _evictions += before - _answers.size();
+  }
+  
+  /** Removes _entries[from:_size) and the corresponding answers. Assumes _entries is sorted. */
+  private void _truncate(int from) {
+    for (int i = from; i < _size; i++) {
+      Entry e = _entries[i];
+      if (_answers.get(e._query) == e) _answers.remove(e._query);  // otherwise superseded by a later put
+      _entries[i] = null;
+    }
+    if (from < _size) _size = from;
+  }
+  
+  /** @return the index of the first entry whose offset is {@literal >=} offset. Sorts _entries if necessary. */
+  private int _firstIndexAtOrAfter(int offset) {
+    _sortIfNecessary();
+    int lo = 0;
+    int hi = _size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (_entries[mid]._offset < offset) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+  
+  private void _sortIfNecessary() {
+    if (_sorted) return;
+    Arrays.sort(_entries, 0, _size);  // stable, so later puts of the same query stay later
+    _sorted = true;
+  }
+  
+  /** A cached answer together with the offset bounding the text on which it depends. */
+  private static class Entry implements Comparable<Entry> {
+    final Query _query;
+    final Object _answer;
+    final int _offset;
+    Entry(Query query, Object answer, int offset) {
+      _query = query;
+      _answer = answer;
+      _offset = offset;
+    }
+    public int compareTo(Entry other) { return (_offset < other._offset) ? -1 : ((_offset == other._offset) ? 0 : 1); }
+  }
+}
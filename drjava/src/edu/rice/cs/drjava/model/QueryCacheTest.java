@@ -0,0 +1,97 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+/** Tests the offset-based invalidation, size bound, and statistics of QueryCache.
+  * @version $Id$
+  */
+public final class QueryCacheTest extends DrJavaTestCase {
+  
+  public void testGetAndClear() {
+    QueryCache c = new QueryCache();
+    for (int i = 0; i < 100; i++) c.put(new Query.PrevCharPos(i, new char[] {'{'}), i, i);
+    assertEquals("size", 100, c.size());
+    assertEquals("hit", 17, c.get(new Query.PrevCharPos(17, new char[] {'{'})));
+    assertNull("miss", c.get(new Query.PrevCharPos(17, new char[] {'}'})));
+    assertEquals("hits", 1, c.getHits());
+    assertEquals("misses", 1, c.getMisses());
+    
+    c.clear(50);
+    assertEquals("size after clear", 50, c.size());
+    assertEquals("below change", 49, c.get(new Query.PrevCharPos(49, new char[] {'{'})));
+    assertNull("at change", c.get(new Query.PrevCharPos(50, new char[] {'{'})));
+    
+    c.clear(0);
+    assertEquals("size after full clear", 0, c.size());
+  }
+  
+  public void testUnorderedOffsets() {
+    QueryCache c = new QueryCache();
+    c.put(new Query.IndentInformation(1), "a", 30);
+    c.put(new Query.IndentInformation(2), "b", 10);
+    c.put(new Query.IndentInformation(3), "c", Integer.MAX_VALUE);
+    c.put(new Query.IndentInformation(4), "d", 20);
+    c.clear(20);
+    assertNull(c.get(new Query.IndentInformation(1)));
+    assertEquals("b", c.get(new Query.IndentInformation(2)));
+    assertNull(c.get(new Query.IndentInformation(3)));
+    assertNull(c.get(new Query.IndentInformation(4)));
+  }
+  
+  public void testReplacedAnswer() {
+    QueryCache c = new QueryCache();
+    c.put(new Query.IndentInformation(1), "old", 40);
+    c.put(new Query.IndentInformation(1), "new", 10);
+    c.clear(20);  // removes only the superseded entry
+    assertEquals("new", c.get(new Query.IndentInformation(1)));
+    c.clear(5);
+    assertNull(c.get(new Query.IndentInformation(1)));
+  }
+  
+  public void testBound() {
+    QueryCache c = new QueryCache(8);
+    for (int i = 0; i < 8; i++) c.put(new Query.IndentInformation(i), i, i);
+    assertEquals(8, c.size());
+    c.put(new Query.IndentInformation(8), 8, 8);
+    assertEquals("half evicted", 5, c.size());
+    assertEquals(4, c.getEvictions());
+    assertEquals("low offsets survive", 0, c.get(new Query.IndentInformation(0)));
+    assertNull("high offsets evicted", c.get(new Query.IndentInformation(7)));
+    assertEquals(8, c.get(new Query.IndentInformation(8)));
+  }
+}
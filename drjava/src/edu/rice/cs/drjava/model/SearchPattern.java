@@ -0,0 +1,250 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/** An immutable search key used by FindReplaceMachine: either a literal string or a regular expression, matched with
+  * or without regard to case.  Matching is performed directly on a CharSequence (typically a javax.swing.text.Segment
+  * or a String snapshot of a document), so case-insensitive literal search does not need a lower-cased copy of the
+  * text.  Instances are thread-safe and may be shared by the workers of a parallel search.
+  * @version $Id$
+  */
+public final class SearchPattern {
+  
+  /** The extent of a match within a text. */
+  public static final class Match {
+    public final int start;
+    public final int end;
+    Match(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+    public String toString() { return "Match(" + start + ", " + end + ")"; }
+  }
+  
+  private final String _word;
+  private final boolean _matchCase;
+  private final Pattern _regex;     // null for a literal pattern
+  private final char[] _folded;     // case-folded _word; used for case-insensitive literal matching
+  
+  private SearchPattern(String word, boolean matchCase, Pattern regex) {
+    _word = word;
+    _matchCase = matchCase;
+    _regex = regex;
+    _folded = new char[word.length()];
+    for (int i = 0; i < word.length(); i++) _folded[i] = fold(word.charAt(i));
+  }
+  
+  /** 
+   * @param word the string to find; must not be empty
+   * @param matchCase whether matching is case-sensitive
+   * @return a pattern that matches occurrences of word
+   */
+  public static SearchPattern literal(String word, boolean matchCase) {
+    if (word.length() == 0) throw new IllegalArgumentException("Cannot search for the empty string");
+    return new SearchPattern(word, matchCase, null);
+  }
+  
+  /** 
+   * @param regex a regular expression in the syntax of java.util.regex.Pattern
+   * @param matchCase whether matching is case-sensitive
+   * @return a pattern that matches the non-empty matches of regex
+   * @throws PatternSyntaxException if regex is not a valid regular expression
+   */
+  public static SearchPattern regex(String regex, boolean matchCase) {
+    int flags = Pattern.MULTILINE | (matchCase ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    return new SearchPattern(regex, matchCase, Pattern.compile(regex, flags));
+  }
+  
+  /** @return the literal word or the source of the regular expression */
+  public String getWord() { return _word; }
+  
+  /** @return whether this pattern is a regular expression */
+  public boolean isRegex() { return _regex != null; }
+  
+  /** @return whether matching is case-sensitive */
+  public boolean getMatchCase() { return _matchCase; }
+  
+  /** @return the literal that every match contains, or null if there is none (as for regular expressions) */
+  public String getRequiredLiteral() { return (_regex == null) ? _word : null; }
+  
+  /** 
+   * Finds the first match that lies entirely within {@code text[from, to)}.
+   * @param text the text to search
+   * @param from the first offset to consider
+   * @param to the offset bounding the end of a match
+   * @return the first match, or null if there is none
+   */
+  public Match find(CharSequence text, int from, int to) {
+    if (_regex != null) {
+      Matcher m = _matcher(text).region(from, to);
+      while (m.find()) {
+        if (m.end() > m.start()) return new Match(m.start(), m.end());
+      }
+      return null;
+    }
+    int len = _word.length();
+    for (int i = from; i <= to - len; i++) {
+      if (_matchesAt(text, i)) return new Match(i, i + len);
+    }
+    return null;
+  }
+  
+  /** 
+   * Finds the last match that lies entirely within {@code text[from, to)}.
+   * @param text the text to search
+   * @param from the offset bounding the start of a match
+   * @param to the offset bounding the end of a match
+   * @return the last match, or null if there is none
+   */
+  public Match findLast(CharSequence text, int from, int to) {
+    if (_regex != null) {
+      Matcher m = _matcher(text);
+      Match last = null;
+      int pos = from;
+      while (pos < to) {  // find the match with the greatest start offset
+        m.region(pos, to);
+        if (! m.find()) break;
+        if (m.end() > m.start()) last = new Match(m.start(), m.end());
+        pos = m.start() + 1;
+      }
+      return last;
+    }
+    int len = _word.length();
+    for (int i = to - len; i >= from; i--) {
+      if (_matchesAt(text, i)) return new Match(i, i + len);
+    }
+    return null;
+  }
+  
+  /** 
+   * @param text a candidate text
+   * @return whether text as a whole is a match of this pattern
+   */
+  public boolean matches(CharSequence text) {
+    if (_regex != null) return _regex.matcher(text).matches();
+    return text.length() == _word.length() && _matchesAt(text, 0);
+  }
+  
+  /** 
+   * @param text a text
+   * @param start the start of a candidate match in text
+   * @param end the end of a candidate match in text
+   * @return whether {@code text[start, end)} is a match of this pattern; look-around sees the rest of text
+   */
+  public boolean matchesAt(CharSequence text, int start, int end) {
+    if (_regex != null) return _matcher(text).region(start, end).matches();
+    return end - start == _word.length() && _matchesAt(text, start);
+  }
+  
+  /** 
+   * Computes the replacement for a match.  For a regular expression, group references such as $1 in replaceWord are 
+   * expanded, and a backslash quotes the next character, as in Matcher.appendReplacement.  The match is taken in the
+   * context of the whole text, so look-around in the regular expression sees the text around it.
+   * @param text the text containing the match
+   * @param start the start of the match in text
+   * @param end the end of the match in text
+   * @param replaceWord the replacement text
+   * @return the text that replaces {@code text[start, end)}, or replaceWord if that is not a match
+   * @throws IllegalArgumentException if replaceWord ends in an unquoted backslash or dollar sign
+   * @throws IndexOutOfBoundsException if replaceWord refers to a group that the regular expression does not have
+   */
+  public String replacement(CharSequence text, int start, int end, String replaceWord) {
+    if (_regex == null) return replaceWord;
+    Matcher m = _matcher(text).region(start, end);
+    if (! m.matches()) return replaceWord;
+    StringBuilder sb = new StringBuilder();
+    int i = 0;
+    while (i < replaceWord.length()) {
+      char c = replaceWord.charAt(i++);
+      if (c == '\\') {
+        if (i == replaceWord.length()) throw new IllegalArgumentException("character to be escaped is missing");
+        sb.append(replaceWord.charAt(i++));
+      }
+      else if (c == '$') {
+        if (i == replaceWord.length() || ! Character.isDigit(replaceWord.charAt(i))) {
+          throw new IllegalArgumentException("Illegal group reference");
+        }
+        // as in Matcher, the group number is the longest run of digits that names an existing group
+        int group = replaceWord.charAt(i++) - '0';
+        if (group > m.groupCount()) throw new IndexOutOfBoundsException("No group " + group);
+        while (i < replaceWord.length() && Character.isDigit(replaceWord.charAt(i))) {
+          int longer = group * 10 + (replaceWord.charAt(i) - '0');
+          if (longer > m.groupCount()) break;
+          group = longer;
+          i++;
+        }
+        String g = m.group(group);
+        if (g != null) sb.append(g);
+      }
+      else sb.append(c);
+    }
+    return sb.toString();
+  }
+  
+  /** Creates a matcher whose regions do not hide the surrounding text from anchors and look-around. */
+  private Matcher _matcher(CharSequence text) {
+    return _regex.matcher(text).useAnchoringBounds(false).useTransparentBounds(true);
+  }
+  
+  /** Literal comparison at offset i without copying text. */
+  private boolean _matchesAt(CharSequence text, int i) {
+    int len = _folded.length;
+    if (_matchCase) {
+      for (int j = 0; j < len; j++) if (text.charAt(i + j) != _word.charAt(j)) return false;
+      return true;
+    }
+    for (int j = 0; j < len; j++) {
+      char c = text.charAt(i + j);
+      if (c != _word.charAt(j) && fold(c) != _folded[j]) return false;
+    }
+    return true;
+  }
+  
+  /** 
+   * Folds the case of ch the way String.regionMatches does when ignoring case.
+   * @param ch a character
+   * @return the case-folded form of ch
+   */
+  static char fold(char ch) { return Character.toLowerCase(Character.toUpperCase(ch)); }
+  
+  public String toString() {
+    return "SearchPattern(" + _word + (isRegex() ? ", regex" : "") + (_matchCase ? ", match case" : "") + ")";
+  }
+}
@@ -0,0 +1,122 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import javax.swing.text.Segment;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+/** Tests SearchPattern.
+  * @version $Id$
+  */
+public final class SearchPatternTest extends DrJavaTestCase {
+  
+  private static final String TEXT = "Hear no evil, see no Evil, speak no EVIL.";
+  
+  public void testLiteralMatchCase() {
+    SearchPattern p = SearchPattern.literal("evil", true);
+    SearchPattern.Match m = p.find(TEXT, 0, TEXT.length());
+    assertEquals("first start", 8, m.start);
+    assertEquals("first end", 12, m.end);
+    assertNull("no further match", p.find(TEXT, m.end, TEXT.length()));
+    assertEquals("last match", 8, p.findLast(TEXT, 0, TEXT.length()).start);
+    assertNull("match must lie in bounds", p.find(TEXT, 0, 11));
+  }
+  
+  public void testLiteralIgnoreCase() {
+    SearchPattern p = SearchPattern.literal("eViL", false);
+    assertEquals("first", 8, p.find(TEXT, 0, TEXT.length()).start);
+    assertEquals("second", 21, p.find(TEXT, 12, TEXT.length()).start);
+    assertEquals("last", 36, p.findLast(TEXT, 0, TEXT.length()).start);
+    assertEquals("previous", 21, p.findLast(TEXT, 0, 36).start);
+    assertTrue("matches", p.matches("EVIL"));
+    assertFalse("does not match", p.matches("EVIL "));
+  }
+  
+  public void testSegment() {
+    char[] chars = ("xx" + TEXT + "yy").toCharArray();
+    Segment s = new Segment(chars, 2, TEXT.length());
+    SearchPattern p = SearchPattern.literal("see", false);
+    assertEquals("offset relative to segment", 14, p.find(s, 0, s.length()).start);
+  }
+  
+  public void testRegex() {
+    SearchPattern p = SearchPattern.regex("s\\w+", true);
+    SearchPattern.Match m = p.find(TEXT, 0, TEXT.length());
+    assertEquals("first start", 14, m.start);
+    assertEquals("first end", 17, m.end);
+    m = p.findLast(TEXT, 0, TEXT.length());
+    assertEquals("last start", 27, m.start);
+    assertEquals("last end", 32, m.end);
+    m = p.findLast(TEXT, 0, 30);
+    assertEquals("last match truncated by bound", 27, m.start);
+    assertEquals("last match truncated by bound", 30, m.end);
+    assertNull("no required literal", p.getRequiredLiteral());
+  }
+  
+  public void testRegexIgnoreCaseAndAnchors() {
+    SearchPattern p = SearchPattern.regex("^evil", false);
+    String text = "no evil\nEvil here";
+    assertEquals("line start", 8, p.find(text, 0, text.length()).start);
+    assertNull("region start is not a line start", p.find(text, 3, text.length() - 10));
+  }
+  
+  public void testRegexReplacement() {
+    SearchPattern p = SearchPattern.regex("(\\w+) evil", true);
+    assertEquals("group reference", "no good", p.replacement("no evil", 0, 7, "$1 good"));
+    assertEquals("match in context", "see good", p.replacement("I see evil.", 2, 10, "$1 good"));
+    assertEquals("quoted", "$1 \\", p.replacement("no evil", 0, 7, "\\$1 \\\\"));
+    assertEquals("group 10 does not exist", "no0", p.replacement("no evil", 0, 7, "$10"));
+    assertEquals("not a match", "$1 good", p.replacement("no evil", 0, 6, "$1 good"));
+    assertEquals("literal replacement", "$1", SearchPattern.literal("x", true).replacement("x", 0, 1, "$1"));
+  }
+  
+  public void testRegexLookAround() {
+    SearchPattern p = SearchPattern.regex("(?<=x)(y)(?=z)", true);
+    String text = "xyz yz";
+    assertTrue("look-around sees the text around the match", p.matchesAt(text, 1, 2));
+    assertFalse("no x before", p.matchesAt(text, 4, 5));
+    assertEquals("replacement", "[y]", p.replacement(text, 1, 2, "[$1]"));
+    assertTrue("literal", SearchPattern.literal("yz", true).matchesAt(text, 4, 6));
+  }
+  
+  public void testEmptyMatchesSkipped() {
+    SearchPattern p = SearchPattern.regex("a*", true);
+    SearchPattern.Match m = p.find("bbaab", 0, 5);
+    assertEquals("start", 2, m.start);
+    assertEquals("end", 4, m.end);
+  }
+}
@@ -106,5 +106,9 @@ public class TestDocGetter extends DummyGlobalModel {
     public File getFile() throws FileMovedException  { return _file; }
     
     public void setFile(File f) { _file = f; }
+    
+    /** CompilerErrorModel maps lines to offsets with these. */
+    public int getNumberOfLines() { return _doc.getLineCount() - 1; }
+    public int getOffsetOfLine(int line) { return _doc.lineToOffset(Math.min(line, _doc.getLineCount() - 1)); }
   }
 }
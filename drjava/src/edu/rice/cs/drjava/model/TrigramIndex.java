@@ -0,0 +1,206 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import edu.rice.cs.drjava.model.definitions.DocumentUIListener;
+
+/** An index of the character trigrams of open documents that lets a multi-document search skip documents that cannot
+  * contain a literal search key.  For each document, the (case-folded) trigrams of its text are hashed into a bit set,
+  * so the index answers "may contain" queries with false positives but never with false negatives.  The bit sets are
+  * kept up to date from the insert and remove events of the documents: an edit only adds the trigrams around the 
+  * changed text, so after many removals a bit set holds stale trigrams and is rebuilt at the next query.
+  * <p>
+  * The listener that maintains an entry is a DocumentUIListener so that the DDReconstructor carries it over when the
+  * document cache reconstructs the document.  Queries and updates run in the event thread.
+  * @version $Id$
+  */
+public class TrigramIndex {
+  
+  /** Smallest and largest bit set sizes (in bits); both powers of 2. */
+  private static final int MIN_BITS = 1 << 12;
+  private static final int MAX_BITS = 1 << 20;
+  
+  /** Per document entries; weak keys so that closed documents are dropped. */
+  private final Map<OpenDefinitionsDocument, Entry> _entries = new WeakHashMap<OpenDefinitionsDocument, Entry>();
+  
+  /** The trigram bit set of a single document. */
+  private static final class Entry implements DocumentUIListener {
+    private volatile long[] _bits;
+    private volatile int _indexedLength;   // length of the text when the bit set was last built
+    private volatile int _removedChars;    // characters removed since the bit set was last built
+    private volatile int _edits = 0;       // number of edits seen; stamps the text from which a bit set is built
+    private volatile boolean _stale = true;
+    
+    /** @return false if the document certainly does not contain literal (case-insensitively) */
+    boolean mayContain(String literal) {
+      long[] set = _bits;
+      int mask = (set.length << 6) - 1;
+      for (int i = 0; i + 3 <= literal.length(); i++) {
+        int h = _hash(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2)) & mask;
+        if ((set[h >>> 6] & (1L << h)) == 0) return false;
+      }
+      return true;
+    }
+    
+    /** Adds the trigrams around [offset, offset + len) of the document d to the bit set. */
+    private void _update(Document d, int offset, int len) {
+      if (_stale) return;
+      int start = Math.max(0, offset - 2);
+      int end = Math.min(d.getLength(), offset + len + 2);
+      try { _add(_bits, d.getText(start, end - start), 0, end - start); }
+      catch(BadLocationException e) { _stale = true; }
+    }
+    
+    public void insertUpdate(DocumentEvent e) { 
+      _edits++;
+      _update(e.getDocument(), e.getOffset(), e.getLength()); 
+    }
+    
+    public void removeUpdate(DocumentEvent e) {
+      _edits++;
+      _removedChars += e.getLength();
+      // Trigrams of removed text linger; rebuild once they may dominate the bit set.
+      if (_removedChars > _indexedLength / 2 + 64) _stale = true;
+      _update(e.getDocument(), e.getOffset(), 0);
+    }
+    
+    public void changedUpdate(DocumentEvent e) { }
+  }
+  
+  /** 
+   * Determines whether doc may contain literal, ignoring case.  Only runs in the event thread.
+   * @param doc the document
+   * @param literal the literal sought
+   * @return false only if doc is indexed and certainly does not contain literal
+   */
+  public boolean mayContain(OpenDefinitionsDocument doc, String literal) {
+    Entry e = _entries.get(doc);
+    if (e == null || e._stale) return true;
+    return literal.length() < 3 || e.mayContain(literal);
+  }
+  
+  /** 
+   * @param doc a document
+   * @return whether doc currently has an up to date entry in this index
+   */
+  public boolean isIndexed(OpenDefinitionsDocument doc) {
+    Entry e = _entries.get(doc);
+    return e != null && ! e._stale;
+  }
+  
+  /** 
+   * Starts tracking the edits of doc if necessary.  Only runs in the event thread.
+   * @param doc the document
+   * @return a stamp identifying the current text of doc; see install
+   */
+  public int track(OpenDefinitionsDocument doc) {
+    Entry e = _entries.get(doc);
+    if (e == null) {
+      e = new Entry();
+      _entries.put(doc, e);
+      doc.addDocumentListener(e);
+    }
+    return e._edits;
+  }
+  
+  /** 
+   * Computes the trigram bit set of text.  Thread-safe, so bit sets can be computed off the event thread.
+   * @param text the text of a document
+   * @return the bit set for text
+   */
+  public static long[] computeBits(CharSequence text) {
+    int len = text.length();
+    int bits = MIN_BITS;
+    while (bits < 8 * len && bits < MAX_BITS) bits <<= 1;
+    long[] set = new long[bits >>> 6];
+    _add(set, text, 0, len);
+    return set;
+  }
+  
+  /** 
+   * Installs the bit set computed from the text of doc identified by stamp, unless doc has been edited since.  Only
+   * runs in the event thread.
+   * @param doc the document
+   * @param bits the bit set computed by computeBits
+   * @param length the length of the text from which bits was computed
+   * @param stamp the stamp returned by track when the text was taken
+   */
+  public void install(OpenDefinitionsDocument doc, long[] bits, int length, int stamp) {
+    Entry e = _entries.get(doc);
+    if (e == null || e._edits != stamp) return;
+    e._bits = bits;
+    e._indexedLength = length;
+    e._removedChars = 0;
+    e._stale = false;
+  }
+  
+  /** 
+   * (Re)builds the entry for doc from text, which must be the current text of doc.  Only runs in the event thread.
+   * @param doc the document
+   * @param text the current text of doc
+   */
+  public void index(OpenDefinitionsDocument doc, CharSequence text) {
+    install(doc, computeBits(text), text.length(), track(doc));
+  }
+  
+  /** Discards the entries of all documents. */
+  public void clear() {
+    for (Entry e: _entries.values()) e._stale = true;
+  }
+  
+  /** Adds the trigrams of text[from, to) to set. */
+  private static void _add(long[] set, CharSequence text, int from, int to) {
+    int mask = (set.length << 6) - 1;
+    for (int i = from; i + 3 <= to; i++) {
+      int h = _hash(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)) & mask;
+      set[h >>> 6] |= 1L << h;
+    }
+  }
+  
+  /** Hashes the case-folded trigram c1 c2 c3. */
+  private static int _hash(char c1, char c2, char c3) {
+    int h = (SearchPattern.fold(c1) * 31 + SearchPattern.fold(c2)) * 31 + SearchPattern.fold(c3);
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 15);
+  }
+}
@@ -0,0 +1,116 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model;
+
+import javax.swing.text.BadLocationException;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+/** Tests TrigramIndex.
+  * @version $Id$
+  */
+public final class TrigramIndexTest extends DrJavaTestCase {
+  
+  private static final String TEXT = "Hear no evil, see no evil, speak no evil.";
+  
+  private TrigramIndex _index;
+  private OpenDefinitionsDocument _doc;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    _index = new TrigramIndex();
+    _doc = new DummyOpenDefDoc();
+    _doc.insertString(0, TEXT, null);
+  }
+  
+  private String _text() throws BadLocationException { return _doc.getText(0, _doc.getLength()); }
+  
+  public void testMayContain() throws BadLocationException {
+    assertFalse("not indexed", _index.isIndexed(_doc));
+    assertTrue("unindexed documents may contain anything", _index.mayContain(_doc, "monkey"));
+    
+    _index.index(_doc, _text());
+    assertTrue("indexed", _index.isIndexed(_doc));
+    assertTrue("contained", _index.mayContain(_doc, "speak"));
+    assertTrue("case is ignored", _index.mayContain(_doc, "SPEAK NO"));
+    assertFalse("not contained", _index.mayContain(_doc, "monkey"));
+    assertTrue("too short to rule out", _index.mayContain(_doc, "mo"));
+  }
+  
+  public void testEditsAddTrigrams() throws BadLocationException {
+    _index.index(_doc, _text());
+    _doc.insertString(5, "monkey ", null);
+    assertTrue("still indexed", _index.isIndexed(_doc));
+    assertTrue("inserted", _index.mayContain(_doc, "monkey"));
+    assertTrue("across the start of the insertion", _index.mayContain(_doc, "r mon"));
+    assertTrue("across the end of the insertion", _index.mayContain(_doc, "ey no"));
+    
+    _doc.remove(4, 10);  // " monkey no" removed
+    assertTrue("across a removal", _index.mayContain(_doc, "Hear evil"));
+  }
+  
+  public void testManyRemovalsMakeStale() throws BadLocationException {
+    for (int i = 0; i < 9; i++) _doc.insertString(0, TEXT, null);
+    _index.index(_doc, _text());
+    _doc.remove(0, 100);
+    assertTrue("a few removals keep the bit set", _index.isIndexed(_doc));
+    _doc.remove(0, _doc.getLength() - 5);
+    assertFalse("rebuilt before the next query", _index.isIndexed(_doc));
+    assertTrue("stale entries rule nothing out", _index.mayContain(_doc, "monkey"));
+  }
+  
+  public void testInstallAfterEdit() throws BadLocationException {
+    int stamp = _index.track(_doc);
+    long[] bits = TrigramIndex.computeBits(_text());
+    _doc.insertString(0, "monkey ", null);
+    _index.install(_doc, bits, TEXT.length(), stamp);
+    assertFalse("bit set of older text is discarded", _index.isIndexed(_doc));
+    assertTrue("so it cannot hide the edit", _index.mayContain(_doc, "monkey"));
+    
+    stamp = _index.track(_doc);
+    _index.install(_doc, TrigramIndex.computeBits(_text()), _doc.getLength(), stamp);
+    assertTrue("bit set of current text", _index.isIndexed(_doc));
+    assertTrue("contained", _index.mayContain(_doc, "monkey"));
+    assertFalse("not contained", _index.mayContain(_doc, "donkey"));
+  }
+  
+  public void testClear() throws BadLocationException {
+    _index.index(_doc, _text());
+    _index.clear();
+    assertFalse("cleared", _index.isIndexed(_doc));
+    assertTrue("cleared entries rule nothing out", _index.mayContain(_doc, "monkey"));
+  }
+}
@@ -69,4 +69,15 @@ public interface DDReconstructor {
   
   /** @return the string text for document that has been kicked out; null otherwise. */
   public String getText();
+  
+  /** @return the length of the text returned by getText(), computed without inflating a compressed image if possible */
+  public int getTextLength();
+  
+  /** @return the approximate number of bytes retained by the compressed image of a kicked out document; 0 if none */
+  public int getImageSize();
+  
+  /** Discards the reduced model image (if any) held for a kicked out document, keeping only its compressed text.  The
+    * next make() then rebuilds the reduced model from the text.
+    */
+  public void discardReducedModel();
 }
@@ -0,0 +1,135 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.SoftReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelImage;
+import edu.rice.cs.util.UnexpectedException;
+
+/** The compressed image of a document that has been kicked out of the DocumentCache: its text, deflated, and
+  * (optionally) an image of its reduced model.  A reconstructor holding a DocImage can rebuild the document without
+  * reading the file or re-lexing the text.  The most recently inflated text is retained softly so that repeated
+  * getText calls on a virtualized document do not inflate it each time.
+  */
+public final class DocImage {
+  
+  private static final String ENCODING = "UTF-8";
+  
+  private final byte[] _deflated;
+  private final int _length;
+  private final ReducedModelImage _reducedModel;
+  private volatile SoftReference<String> _text;
+  
+  /** 
+   * @param text the text of the document
+   * @param reducedModel the image of the reduced model for text, or null
+   */
+  public DocImage(String text, ReducedModelImage reducedModel) {
+    this(_deflate(text), text.length(), reducedModel);
+    _text = new SoftReference<String>(text);
+  }
+  
+  private DocImage(byte[] deflated, int length, ReducedModelImage reducedModel) {
+    _deflated = deflated;
+    _length = length;
+    _reducedModel = reducedModel;
+    _text = new SoftReference<String>(null);
+  }
+  
+  /** @return the text of the document */
+  public String getText() {
+    String text = _text.get();
+    if (text == null) {
+      text = _inflate(_deflated);
+      _text = new SoftReference<String>(text);
+    }
+    return text;
+  }
+  
+  /** @return the length of the text of the document */
+  public int getLength() { return _length; }
+  
+  /** @return the image of the reduced model, or null if it has been discarded */
+  public ReducedModelImage getReducedModelImage() { return _reducedModel; }
+  
+  /** @return a copy of this image without the reduced model image */
+  public DocImage withoutReducedModel() { return new DocImage(_deflated, _length, null); }
+  
+  /** @return the approximate number of bytes retained by this image, not counting the softly held text */
+  public int sizeInBytes() {
+    int size = 32 + _deflated.length;
+    if (_reducedModel != null) size += _reducedModel.sizeInBytes();
+    return size;
+  }
+  
+  private static byte[] _deflate(String text) {
+    try {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      deflater.setInput(text.getBytes(ENCODING));
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 4 + 16);
+      byte[] buf = new byte[8192];
+      while (! deflater.finished()) out.write(buf, 0, deflater.deflate(buf));
+      deflater.end();
+      return out.toByteArray();
+    }
+    catch(UnsupportedEncodingException e) { throw new UnexpectedException(e); }
+  }
+  
+  private static String _inflate(byte[] deflated) {
+    try {
+      Inflater inflater = new Inflater();
+      inflater.setInput(deflated);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(deflated.length * 4);
+      byte[] buf = new byte[8192];
+      while (! inflater.finished()) {
+        int n = inflater.inflate(buf);
+        if (n == 0 && inflater.needsInput()) break;
+        out.write(buf, 0, n);
+      }
+      inflater.end();
+      return out.toString(ENCODING);
+    }
+    catch(DataFormatException e) { throw new UnexpectedException(e); }
+    catch(UnsupportedEncodingException e) { throw new UnexpectedException(e); }
+  }
+}
@@ -65,6 +65,16 @@ import edu.rice.cs.plt.iter.IterUtil;
   * active queue had already reached maximum size, it deletes the last document in the queue to keep the queue from
   * growing larger than its maximum size.
   * <p>
+  * Residency is bounded by a memory budget rather than by a document count alone: each resident document is weighted
+  * by its text length plus the size of its reduced model, and documents are evicted from the front of the queue until
+  * the total weight fits in the budget.  The queue is a second-chance LRU: a document accessed since it was last
+  * examined is moved to the back of the queue instead of being evicted.
+  * <p>
+  * An evicted document is not discarded outright.  Its reconstructor keeps a compressed image of the text together
+  * with an image of the reduced model (see DocImage), so a document in this middle tier is rebuilt without disk I/O
+  * and without re-lexing.  The reduced model images are themselves bounded by a separate budget; beyond it, the
+  * oldest images are reduced to compressed text.
+  * <p>
   * The resident queue only contains documents that have not been modified since their last save (except in the process
   * of responding to notification that a document has been modified).  When a document is modified for the first time, 
   * it is immediately removed from the resident queue and marked as UNMANAGED by its document manager.  An
@@ -81,21 +91,51 @@ public class DocumentCache {
   /** Log file. */
   private static final Log _log = new Log("DocumentCache.txt", false);
   
-  private static final int INIT_CACHE_SIZE = 32;
+  /** The default bound on the number of resident documents; the memory budget is normally the binding constraint. */
+  private static final int INIT_CACHE_SIZE = 1024;
+  
+  /** The default memory budget (in bytes) for resident unmodified documents. */
+  public static final long INIT_MEMORY_BUDGET = 32L << 20;
+  
+  /** The default memory budget (in bytes) for the reduced model images of kicked out documents. */
+  public static final long INIT_IMAGE_BUDGET = 8L << 20;
+  
+  /** Approximate number of bytes occupied by one token of a reduced model (token plus list node). */
+  private static final int BYTES_PER_TOKEN = 48;
   
   /** invariant {@code _residentQueue.size() <= CACHE_SIZE} */
   private volatile int CACHE_SIZE;
   
+  /** invariant {@code _residentBytes <= _memoryBudget || _residentQueue.size() <= 1} */
+  private volatile long _memoryBudget;
+  
+  /** Bound on _imageBytes. */
+  private volatile long _imageBudget;
+  
   /** Data structure representing the queue of resident unmodified documents. */
   private final LinkedHashSet<DocManager> _residentQueue;
   
+  /** Queue of kicked out documents whose reconstructors hold a reduced model image, oldest first. */
+  private final LinkedHashSet<DocManager> _imageQueue;
+  
   private final Object _cacheLock = new Object();
   
+  /* Statistics; all updated only while _cacheLock is held. */
+  private volatile long _residentBytes = 0;
+  private volatile long _imageBytes = 0;
+  private volatile int _rebuildCount = 0;
+  private volatile int _imageRebuildCount = 0;
+  private volatile long _lastRebuildNanos = 0;
+  private volatile long _totalRebuildNanos = 0;
+  
   /* General constructor.  Not currently used except when called by default constructor. */
   public DocumentCache(int size) {
 //    Utilities.showDebug("DocumentCache created with size = " + size);
     CACHE_SIZE = size;
+    _memoryBudget = INIT_MEMORY_BUDGET;
+    _imageBudget = INIT_IMAGE_BUDGET;
     _residentQueue = new LinkedHashSet<DocManager>();
+    _imageQueue = new LinkedHashSet<DocManager>();
   }
   
   /* Default constructor; uses default cache size. */
@@ -128,16 +168,101 @@ public class DocumentCache {
       int diff = _residentQueue.size() - CACHE_SIZE;
       if (diff > 0) {
         Iterable<DocManager> toRemove = IterUtil.snapshot(IterUtil.truncate(_residentQueue, diff));
-        for (DocManager dm : toRemove) { _residentQueue.remove(dm); dm.kickOut(); }
+        for (DocManager dm : toRemove) dm.remove();
       }
     }
   }
   
+  /** 
+   * Changes the memory budget (in bytes) for resident unmodified documents, evicting documents if necessary.  A single
+   * document larger than the budget is still kept resident while it is in use.
+   * @param bytes the new budget
+   */
+  public void setMemoryBudget(long bytes) {
+    if (bytes <= 0) throw new IllegalArgumentException("Cannot set the memory budget to zero or less.");
+    synchronized(_cacheLock) {
+      _memoryBudget = bytes;
+      _evict(null);
+    }
+  }
+  
+  /** 
+   * Changes the memory budget (in bytes) for the reduced model images of kicked out documents.
+   * @param bytes the new budget; 0 disables reduced model images
+   */
+  public void setImageBudget(long bytes) {
+    if (bytes < 0) throw new IllegalArgumentException("Cannot set the image budget to less than zero.");
+    synchronized(_cacheLock) {
+      _imageBudget = bytes;
+      _trimImages();
+    }
+  }
+  
   public int getCacheSize() { return CACHE_SIZE; }
   public int getNumInCache() { return _residentQueue.size(); }
+  public long getMemoryBudget() { return _memoryBudget; }
+  public long getImageBudget() { return _imageBudget; }
+  
+  /** @return the estimated number of bytes occupied by the resident unmodified documents */
+  public long getResidentBytes() { return _residentBytes; }
+  
+  /** @return the estimated number of bytes retained by the middle tier: compressed images that include a reduced model */
+  public long getImageBytes() { return _imageBytes; }
+  
+  /** @return the number of times a document was made, either from its file or from its compressed image */
+  public int getRebuildCount() { return _rebuildCount; }
+  
+  /** @return the number of times a document was made from a compressed image including a reduced model */
+  public int getImageRebuildCount() { return _imageRebuildCount; }
+  
+  /** @return the time in nanoseconds taken by the most recent rebuild */
+  public long getLastRebuildNanos() { return _lastRebuildNanos; }
+  
+  /** @return the total time in nanoseconds spent rebuilding documents */
+  public long getTotalRebuildNanos() { return _totalRebuildNanos; }
   
   public String toString() { return _residentQueue.toString(); }
   
+  /** 
+   * Estimates the number of bytes occupied by a document: two bytes per character of text plus the tokens of its 
+   * reduced model.
+   * @param doc the document
+   * @return the estimated weight of doc
+   */
+  static long weightOf(DefinitionsDocument doc) {
+    if (doc == null) return 0;
+    return 2L * doc.getLength() + (long) BYTES_PER_TOKEN * doc.getReducedModelTokenCount();
+  }
+  
+  /** 
+   * Evicts documents from the front of the resident queue until both the count and memory bounds are respected.  A 
+   * document that has been referenced since it was last examined gets a second chance at the back of the queue.
+   * Assumes _cacheLock is already held.
+   * @param keep a document manager that must not be evicted, or null
+   */
+  private void _evict(DocManager keep) {
+    while (_residentQueue.size() > CACHE_SIZE || (_residentBytes > _memoryBudget && _residentQueue.size() > 1)) {
+      DocManager victim = IterUtil.first(_residentQueue);
+      if (victim == keep || victim._referenced) {  // give victim a second chance
+        victim._referenced = false;
+        _residentQueue.remove(victim);
+        _residentQueue.add(victim);
+      }
+      else victim.remove();
+    }
+  }
+  
+  /** Reduces the oldest reduced model images to compressed text until _imageBytes fits in the image budget.  Assumes
+    * _cacheLock is already held.
+    */
+  private void _trimImages() {
+    while (_imageBytes > _imageBudget && ! _imageQueue.isEmpty()) {
+      DocManager dm = IterUtil.first(_imageQueue);
+      dm.removeImage();
+      dm._rec.discardReducedModel();
+    }
+  }
+  
   
   ///////////////////////////// DocManager //////////////////////////
   
@@ -164,6 +289,15 @@ public class DocumentCache {
     private volatile int _stat; // I know, this is not very OO
     private volatile DefinitionsDocument _doc;
     
+    /** Whether the document has been accessed since the cache last examined it; see _evict. */
+    private volatile boolean _referenced = false;
+    
+    /** The weight of this document counted in _residentBytes, or 0 if it is not in the resident queue. */
+    private long _weight = 0;
+    
+    /** The size of the image counted in _imageBytes, or 0 if this is not in the image queue. */
+    private long _imageSize = 0;
+    
     /** 
      * Instantiates a manager for the documents that are produced by the given document reconstructor.
      * @param rec The reconstructor used to create the document
@@ -186,9 +320,17 @@ public class DocumentCache {
      * @return the newly-created document
      */
     private DefinitionsDocument makeDocument() {
+      final boolean fromImage = _imageQueue.contains(this);
+      removeImage();
+      final long start = System.nanoTime();
       try { // _doc is not in memory
         _doc = _rec.make();
         assert _doc != null;
+        final long elapsed = System.nanoTime() - start;
+        _rebuildCount++;
+        if (fromImage) _imageRebuildCount++;
+        _lastRebuildNanos = elapsed;
+        _totalRebuildNanos += elapsed;
         // update documents if necessary
         if (_keywords != null) {  // copy cached keywords to new copy of doc
           _doc.setKeywords(_keywords); _keywords.clear(); _keywords = null;
@@ -212,6 +354,7 @@ public class DocumentCache {
 //      Utilities.showDebug("getDocument called on " + this + " with _stat = " + _stat);
       
 //      The following double-check idiom is safe in Java 1.4 and later JVMs provided that _doc is volatile.
+      _referenced = true;
       final DefinitionsDocument doc = _doc;  // create a snapshot of _doc
       if (doc != null) return doc;  
       synchronized(_cacheLock) { // lock the cache so that this DocManager's state can be updated
@@ -224,7 +367,7 @@ public class DocumentCache {
       * to be loaded. */
     public int getLength() {
       final DefinitionsDocument doc = _doc;  // create a snapshot of _doc
-      if (doc == null /* || ! doc.isModifiedSinceSave()*/) return _rec.getText().length();
+      if (doc == null /* || ! doc.isModifiedSinceSave()*/) return _rec.getTextLength();
       return doc.getLength();
     }
     
@@ -257,14 +400,15 @@ public class DocumentCache {
     public void close() {
 //      Utilities.showDebug("close() called on " + this);
       synchronized(_cacheLock) {
-        _residentQueue.remove(this);
+        dequeue();
+        removeImage();
         closingKickOut();
       }
     }
     
     public void documentModified() {
       synchronized(_cacheLock) { 
-        _residentQueue.remove(this); // remove modified document from queue if present
+        dequeue(); // remove modified document from queue if present
         _stat = UNMANAGED;
       }
     }
@@ -294,13 +438,41 @@ public class DocumentCache {
         _residentQueue.add(this);
         _stat = IN_QUEUE;
       }
-      if (_residentQueue.size() > CACHE_SIZE) IterUtil.first(_residentQueue).remove();
+      // (re)compute the weight; a saved document may have changed since it was last in the queue
+      _residentBytes -= _weight;
+      _weight = weightOf(_doc);
+      _residentBytes += _weight;
+      _evict(this);
+    }
+    
+    /** Removes this DocManager from the resident queue without changing its status.  Assumes _cacheLock is already
+      * held. 
+      */
+    private void dequeue() {
+      if (_residentQueue.remove(this)) {
+        _residentBytes -= _weight;
+        _weight = 0;
+      }
+    }
+    
+    /** Removes this DocManager from the image queue.  Assumes _cacheLock is already held. */
+    private void removeImage() {
+      if (_imageQueue.remove(this)) {
+        _imageBytes -= _imageSize;
+        _imageSize = 0;
+      }
     }
     
     /** Removes this DocManager from the queue and sets status to NOT_IN_QUEUE.  Assumes _cacheLock is already held. */
     private void remove() { 
-      _residentQueue.remove(this);
+      dequeue();
       kickOut();
+      _imageSize = _rec.getImageSize();
+      if (_imageSize > 0) {
+        _imageQueue.add(this);
+        _imageBytes += _imageSize;
+        _trimImages();
+      }
     }
     
     /* All of the following private methods presume that _cacheLock is held */
@@ -0,0 +1,231 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.cache;
+
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.DummyOpenDefDoc;
+import edu.rice.cs.drjava.model.GlobalEventNotifier;
+import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
+import edu.rice.cs.drjava.model.definitions.reducedmodel.ReducedModelImage;
+
+/** Tests the memory budget, the second-chance eviction order and the compressed image tier of the DocumentCache.
+  * Unlike DocumentCacheTest, these tests use a stub reconstructor instead of a global model, so the cache is exercised
+  * on its own.
+  * @version $Id$
+  */
+public class DocumentCacheBudgetTest extends DrJavaTestCase {
+  
+  /** Text with comments, strings and braces, so that the reduced model has many tokens. */
+  private static final String TEXT;
+  static {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      sb.append("class C").append(i).append(" { /* comment */ String s = \"{\"; int[] a = { (1), [2] }; } // end\n");
+    }
+    TEXT = sb.toString();
+  }
+  
+  private DocumentCache _cache;
+  private GlobalEventNotifier _notifier;
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    _cache = new DocumentCache();
+    _notifier = new GlobalEventNotifier();
+  }
+  
+  /** A titled, unmodified document. */
+  private static class TestOpenDoc extends DummyOpenDefDoc {
+    public boolean isUntitled() { return false; }
+  }
+  
+  /** Keeps a DocImage of a kicked out document, like the reconstructor of AbstractGlobalModel. */
+  private class TestReconstructor implements DDReconstructor {
+    private final String _text;
+    private volatile DocImage _docImage = null;
+    int _made = 0;
+    int _madeFromImage = 0;
+    
+    TestReconstructor(String text) { _text = text; }
+    
+    public DefinitionsDocument make() throws BadLocationException {
+      _made++;
+      DefinitionsDocument doc = new DefinitionsDocument(_notifier);
+      DocImage docImage = _docImage;
+      ReducedModelImage reducedModel = (docImage == null) ? null : docImage.getReducedModelImage();
+      if (reducedModel != null) {
+        _madeFromImage++;
+        doc.insertWithReducedModel(docImage.getText(), reducedModel);
+        _docImage = docImage.withoutReducedModel();
+      }
+      else doc.insertString(0, getText(), null);
+      doc.resetModification();
+      return doc;
+    }
+    public void saveDocInfo(DefinitionsDocument doc) { _docImage = new DocImage(doc.getText(), doc.getReducedModelImage()); }
+    public void addDocumentListener(DocumentListener dl) { }
+    public String getText() {
+      DocImage docImage = _docImage;
+      return (docImage == null) ? _text : docImage.getText();
+    }
+    public int getTextLength() { return getText().length(); }
+    public int getImageSize() {
+      DocImage docImage = _docImage;
+      return (docImage == null) ? 0 : docImage.sizeInBytes();
+    }
+    public void discardReducedModel() {
+      DocImage docImage = _docImage;
+      if (docImage != null) _docImage = docImage.withoutReducedModel();
+    }
+    boolean hasReducedModelImage() { return _docImage != null && _docImage.getReducedModelImage() != null; }
+  }
+  
+  /** @return the adapter for a new document with the given reconstructor, after loading the document */
+  private DCacheAdapter _load(TestReconstructor rec) throws Exception {
+    DCacheAdapter adapter = _cache.register(new TestOpenDoc(), rec);
+    adapter.getDocument();
+    return adapter;
+  }
+  
+  /** @return the weight of a resident document with text TEXT */
+  private long _weight() throws Exception {
+    DefinitionsDocument doc = new DefinitionsDocument(_notifier);
+    doc.insertString(0, TEXT, null);
+    return DocumentCache.weightOf(doc);
+  }
+  
+  /** Tests that resident documents are evicted, oldest first, once their weight exceeds the memory budget. */
+  public void testMemoryBudgetEviction() throws Exception {
+    long weight = _weight();
+    _cache.setMemoryBudget(2 * weight + weight / 2);  // room for two documents
+    
+    DCacheAdapter a = _load(new TestReconstructor(TEXT));
+    DCacheAdapter b = _load(new TestReconstructor(TEXT));
+    assertEquals("two resident", 2, _cache.getNumInCache());
+    assertEquals("resident bytes", 2 * weight, _cache.getResidentBytes());
+    
+    DCacheAdapter c = _load(new TestReconstructor(TEXT));
+    assertEquals("still two resident", 2, _cache.getNumInCache());
+    assertTrue("within budget", _cache.getResidentBytes() <= _cache.getMemoryBudget());
+    assertFalse("oldest evicted", a.isReady());
+    assertTrue("b resident", b.isReady());
+    assertTrue("c resident", c.isReady());
+    
+    _cache.setMemoryBudget(weight);  // room for one document
+    assertEquals("one resident", 1, _cache.getNumInCache());
+    assertFalse("b evicted", b.isReady());
+    assertTrue("newest kept", c.isReady());
+  }
+  
+  /** Tests that a document accessed since the cache last examined it is moved back instead of being evicted. */
+  public void testSecondChance() throws Exception {
+    long weight = _weight();
+    _cache.setMemoryBudget(2 * weight + weight / 2);
+    
+    DCacheAdapter a = _load(new TestReconstructor(TEXT));
+    DCacheAdapter b = _load(new TestReconstructor(TEXT));
+    DCacheAdapter c = _load(new TestReconstructor(TEXT));  // evicts a; b and c are no longer marked as referenced
+    assertFalse("a evicted", a.isReady());
+    
+    b.getDocument();  // b is now referenced although it is older than c
+    DCacheAdapter d = _load(new TestReconstructor(TEXT));
+    assertTrue("referenced b kept", b.isReady());
+    assertFalse("unreferenced c evicted", c.isReady());
+    assertTrue("d resident", d.isReady());
+  }
+  
+  /** Tests that an evicted document is rebuilt from its compressed image, with the same text and reduced model. */
+  public void testImageTier() throws Exception {
+    _cache.setCacheSize(1);
+    TestReconstructor recA = new TestReconstructor(TEXT);
+    DCacheAdapter a = _load(recA);
+    a.getDocument().setCurrentLocation(0);  // the structures are compared with the cursor at the start
+    String reduced = a.getDocument().getReduced().simpleString();
+    
+    _load(new TestReconstructor(TEXT));  // evicts a
+    assertFalse("a evicted", a.isReady());
+    assertTrue("a has an image", recA.hasReducedModelImage());
+    assertEquals("image bytes", recA.getImageSize(), _cache.getImageBytes());
+    assertEquals("text of evicted document", TEXT, a.getText());
+    
+    int rebuilds = _cache.getImageRebuildCount();
+    DefinitionsDocument doc = a.getDocument();  // evicts the other document in turn
+    assertEquals("rebuilt from image", rebuilds + 1, _cache.getImageRebuildCount());
+    assertEquals("reconstructor used image", 1, recA._madeFromImage);
+    assertEquals("restored text", TEXT, doc.getText());
+    doc.setCurrentLocation(0);
+    assertEquals("restored reduced model", reduced, doc.getReduced().simpleString());
+    assertFalse("restored document unmodified", doc.isModifiedSinceSave());
+    
+    // a restored reduced model must respond to edits like one built by lexing
+    doc.insertString(0, "/*", null);
+    DefinitionsDocument lexed = new DefinitionsDocument(_notifier);
+    lexed.insertString(0, "/*" + TEXT, null);
+    doc.setCurrentLocation(0);
+    lexed.setCurrentLocation(0);
+    assertEquals("edited reduced model", lexed.getReduced().simpleString(), doc.getReduced().simpleString());
+  }
+  
+  /** Tests that reduced model images beyond the image budget are cut back to compressed text, oldest first. */
+  public void testImageBudget() throws Exception {
+    _cache.setCacheSize(1);
+    TestReconstructor recA = new TestReconstructor(TEXT);
+    TestReconstructor recB = new TestReconstructor(TEXT);
+    DCacheAdapter a = _load(recA);
+    _load(recB);                                     // evicts a
+    _load(new TestReconstructor(TEXT));              // evicts b
+    assertTrue("a has an image", recA.hasReducedModelImage());
+    assertTrue("b has an image", recB.hasReducedModelImage());
+    
+    _cache.setImageBudget(recB.getImageSize());      // room for one image
+    assertFalse("oldest image trimmed", recA.hasReducedModelImage());
+    assertTrue("newer image kept", recB.hasReducedModelImage());
+    assertTrue("within image budget", _cache.getImageBytes() <= _cache.getImageBudget());
+    
+    int rebuilds = _cache.getImageRebuildCount();
+    assertEquals("text kept", TEXT, a.getDocument().getText());
+    assertEquals("a rebuilt by lexing", rebuilds, _cache.getImageRebuildCount());
+    assertEquals("reconstructor lexed", 0, recA._madeFromImage);
+    
+    _cache.setImageBudget(0);
+    assertEquals("no images", 0, _cache.getImageBytes());
+    assertFalse("b trimmed", recB.hasReducedModelImage());
+  }
+}
@@ -0,0 +1,286 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+
+import edu.rice.cs.drjava.DrJava;
+import edu.rice.cs.drjava.config.OptionConstants;
+import edu.rice.cs.drjava.model.DJError;
+import edu.rice.cs.drjava.model.DrJavaFileUtils;
+import edu.rice.cs.drjava.model.DummyGlobalModelListener;
+import edu.rice.cs.drjava.model.GlobalModel;
+import edu.rice.cs.drjava.model.OpenDefinitionsDocument;
+import edu.rice.cs.drjava.model.definitions.DocumentUIListener;
+import edu.rice.cs.util.FileOps;
+import edu.rice.cs.util.swing.Utilities;
+import edu.rice.cs.plt.collect.CollectUtil;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.lambda.Condition;
+import edu.rice.cs.plt.tuple.Pair;
+
+import static edu.rice.cs.plt.debug.DebugUtil.error;
+
+/** Checks edited documents for compiler errors while the user types, if {@link OptionConstants#BACKGROUND_CHECKING}
+  * is set.  A check starts once no document has been edited for {@link #DELAY} milliseconds.  It covers the edited
+  * documents and the open documents that directly depend on them, according to the DependencyGraph in the build
+  * directory, if there is one; the graph is loaded by the first check and again after each compilation.  Checks run one at a time on a low priority thread, using the text of the documents
+  * when the check started, including the unsaved text of the other open documents; an edit cancels the running
+  * check, whose results are then discarded.  The results of a check replace the errors of the checked files in the
+  * compiler error model.
+  * <p>
+  * The listeners on the documents are DocumentUIListeners so that the DDReconstructor carries them over when the 
+  * document cache reconstructs a document.  Except for the checks themselves, everything runs in the event thread.
+  * @version $Id$
+  */
+public class BackgroundChecker {
+  
+  /** Milliseconds without edits after which a check starts. */
+  public static final int DELAY = 750;
+  
+  /** The lowest priority daemon thread on which checks run, in order. */
+  private static final ExecutorService _worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "Background Compiler Check");
+      t.setDaemon(true);
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    }
+  });
+  
+  private final DefaultCompilerModel _compilerModel;
+  private final GlobalModel _model;
+  
+  /** Incremented by each edit and each compilation, so that checks of older text are cancelled. */
+  private volatile int _generation = 0;
+  
+  /** The documents edited since the last check started. */
+  private final Set<OpenDefinitionsDocument> _edited = new LinkedHashSet<OpenDefinitionsDocument>();
+  
+  /** The build directory and the DependencyGraph loaded from it, which may be null; discarded by 
+    * {@link #compiled}.  Guarded by _graphLock. */
+  private Pair<File, DependencyGraph> _graph = null;
+  
+  /** Incremented by each call to {@link #compiled}, so that a graph loaded during a compilation is not kept.  Guarded
+    * by _graphLock. */
+  private int _graphVersion = 0;
+  
+  private final Object _graphLock = new Object();
+  
+  /** Restarted by each edit; starts a check when it fires. */
+  private final Timer _timer;
+  
+  /** Stops the running check once the generation has changed. */
+  private class Cancelled implements Condition {
+    private final int _checkGeneration = _generation;
+    public boolean isTrue() { return _generation != _checkGeneration; }
+  }
+  
+  /** 
+   * @param compilerModel the compiler model that receives the errors found
+   * @param model the global model whose documents are checked
+   */
+  public BackgroundChecker(DefaultCompilerModel compilerModel, GlobalModel model) {
+    _compilerModel = compilerModel;
+    _model = model;
+    _timer = new Timer(DELAY, new ActionListener() {
+      public void actionPerformed(ActionEvent e) { _startCheck(); }
+    });
+    _timer.setRepeats(false);
+    model.addListener(new DummyGlobalModelListener() {
+      public void newFileCreated(OpenDefinitionsDocument doc) { _track(doc); }
+      public void fileOpened(OpenDefinitionsDocument doc) { _track(doc); }
+      public void fileClosed(OpenDefinitionsDocument doc) { _edited.remove(doc); }
+    });
+  }
+  
+  /** Cancels the running check, if any, and any check that is about to start. */
+  public void cancel() {
+    _generation++;
+    Utilities.invokeLater(new Runnable() { public void run() { _timer.stop(); } });
+  }
+  
+  /** Discards the loaded DependencyGraph, which a compilation to disk may have changed. */
+  public void compiled() {
+    synchronized(_graphLock) {
+      _graph = null;
+      _graphVersion++;
+    }
+  }
+  
+  /** Returns the DependencyGraph in the build directory, loading it if it has not been loaded since the last
+    * compilation.  Runs in the worker thread; default visibility for testing purposes only.
+    * @param buildDir the build directory, or null
+    * @return the graph, or null if there is none
+    */
+  DependencyGraph _getGraph(File buildDir) {
+    if (buildDir == null) return null;
+    int version;
+    synchronized(_graphLock) {
+      if (_graph != null && _graph.first().equals(buildDir)) return _graph.second();
+      version = _graphVersion;
+    }
+    DependencyGraph graph = DependencyGraph.load(buildDir);
+    synchronized(_graphLock) {
+      if (version == _graphVersion) _graph = Pair.make(buildDir, graph);
+    }
+    return graph;
+  }
+  
+  /** Starts listening to the edits of doc. */
+  private void _track(final OpenDefinitionsDocument doc) {
+    doc.addDocumentListener(new DocumentUIListener() {
+      public void insertUpdate(DocumentEvent e) { _edited(doc); }
+      public void removeUpdate(DocumentEvent e) { _edited(doc); }
+      public void changedUpdate(DocumentEvent e) { }
+    });
+  }
+  
+  private void _edited(OpenDefinitionsDocument doc) {
+    if (! DrJava.getConfig().getSetting(OptionConstants.BACKGROUND_CHECKING).booleanValue()) return;
+    _generation++;
+    _edited.add(doc);
+    _timer.restart();
+  }
+  
+  /** Takes a snapshot of the edited documents and submits a check of them to the worker. */
+  private void _startCheck() {
+    if (_edited.isEmpty()) return;
+    final CompilerInterface compiler = _compilerModel.getActiveCompiler();
+    if (! DrJava.getConfig().getSetting(OptionConstants.BACKGROUND_CHECKING).booleanValue() || 
+        ! (compiler instanceof InMemoryCompiler)) {
+      _edited.clear();
+      return;
+    }
+    
+    final Map<File, String> sources = new LinkedHashMap<File, String>();
+    for (OpenDefinitionsDocument doc: _edited) {
+      File f = _sourceFile(doc);
+      if (f != null) sources.put(f, doc.getText());
+    }
+    _edited.clear();
+    if (sources.isEmpty()) return;
+    
+    // dependents are only checked if they are open; the text of all unsaved documents is taken now
+    final Map<File, String> unsaved = new HashMap<File, String>();
+    final Set<File> open = new HashSet<File>();
+    for (OpenDefinitionsDocument doc: _model.getOpenDefinitionsDocuments()) {
+      File f = _sourceFile(doc);
+      if (f == null) continue;
+      open.add(f);
+      if (doc.isModifiedSinceSave() && ! sources.containsKey(f)) unsaved.put(f, doc.getText());
+    }
+    
+    final List<File> classPath = CollectUtil.makeList(_model.getClassPath());
+    final Map<String, byte[]> classes = _compilerModel._getMemoryClasses();
+    File dir = _model.getBuildDirectory();
+    final File buildDir = (dir == null || dir == FileOps.NULL_FILE) ? null : IOUtil.attemptCanonicalFile(dir);
+    final Cancelled cancelled = new Cancelled();
+    _worker.submit(new Runnable() {
+      public void run() {
+        if (cancelled.isTrue()) return;
+        _addDependents(sources, unsaved, open, _getGraph(buildDir));
+        List<? extends DJError> errors = 
+          ((InMemoryCompiler) compiler).checkSources(sources, unsaved, classes, classPath, null, 
+                                                     DefaultCompilerModel._getBootClassPath(), null, true, cancelled);
+        if (errors == null || cancelled.isTrue()) return;
+        final List<File> checked = new ArrayList<File>(sources.keySet());
+        final List<? extends DJError> result = errors;
+        Utilities.invokeLater(new Runnable() {
+          public void run() { if (! cancelled.isTrue()) _compilerModel._publishCheck(checked, result); }
+        });
+      }
+    });
+  }
+  
+  /** Adds the open documents that depend on the classes of sources to sources.  Runs in the worker thread.
+    * @param sources the text of the files to check, keyed by canonical file
+    * @param unsaved the text of the unsaved open documents, keyed by canonical file
+    * @param open the canonical files of the open documents
+    * @param graph the DependencyGraph of the build directory, or null
+    */
+  static void _addDependents(Map<File, String> sources, Map<File, String> unsaved, Set<File> open, 
+                             DependencyGraph graph) {
+    if (graph == null) return;
+    Set<String> names = new HashSet<String>();
+    for (File f: sources.keySet()) names.addAll(graph.getClasses(f));
+    for (File f: graph.getDependents(names)) {
+      if (sources.containsKey(f) || ! open.contains(f)) continue;
+      String text = unsaved.get(f);
+      if (text == null) {
+        try { text = IOUtil.toString(f); }
+        catch (IOException e) { error.log(e); continue; }
+      }
+      sources.put(f, text);
+    }
+  }
+  
+  /** @return the canonical file of doc if it can be checked, or null */
+  private static File _sourceFile(OpenDefinitionsDocument doc) {
+    if (doc.isUntitled() || ! doc.isSourceFile()) return null;
+    File f = doc.getRawFile();
+    if (f == null || f == FileOps.NULL_FILE || DrJavaFileUtils.isLLFile(f)) return null;
+    return IOUtil.attemptCanonicalFile(f);
+  }
+  
+  /** 
+   * Replaces the errors in the checked files.
+   * @param old the current errors
+   * @param checked the canonical files that were checked
+   * @param errors the errors found in checked
+   * @return the errors of old outside checked, followed by errors
+   */
+  static List<DJError> mergeErrors(CompilerErrorModel old, Collection<File> checked, List<? extends DJError> errors) {
+    Set<File> files = new HashSet<File>(checked);
+    List<DJError> result = new ArrayList<DJError>();
+    for (int i = 0; i < old.getNumErrors(); i++) {
+      DJError e = old.getError(i);
+      File f = e.file();
+      if (f == null || ! files.contains(IOUtil.attemptCanonicalFile(f))) result.add(e);
+    }
+    result.addAll(errors);
+    return result;
+  }
+}
@@ -0,0 +1,311 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.compiler;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.swing.text.BadLocationException;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import edu.rice.cs.drjava.DrJava;
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.config.OptionConstants;
+import edu.rice.cs.drjava.model.DJError;
+import edu.rice.cs.drjava.model.DummyGlobalModel;
+import edu.rice.cs.drjava.model.DummyOpenDefDoc;
+import edu.rice.cs.drjava.model.GlobalModel;
+import edu.rice.cs.drjava.model.GlobalModelListener;
+import edu.rice.cs.drjava.model.OpenDefinitionsDocument;
+import edu.rice.cs.drjava.model.TestDocGetter;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.lambda.Condition;
+import edu.rice.cs.plt.reflect.JavaVersion;
+import edu.rice.cs.util.UnexpectedException;
+import edu.rice.cs.util.swing.Utilities;
+
+/** Tests when BackgroundChecker starts and cancels checks, what they cover, and how their errors are combined with
+  * the existing ones.
+  * @version $Id$
+  */
+public class BackgroundCheckerTest extends DrJavaTestCase {
+  
+  /** Milliseconds to wait for a check that should start. */
+  private static final long TIMEOUT = 10000;
+  
+  private File _dir;
+  private final List<OpenDefinitionsDocument> _docs = new ArrayList<OpenDefinitionsDocument>();
+  private final List<GlobalModelListener> _listeners = new ArrayList<GlobalModelListener>();
+  private volatile RecordingCompiler _compiler;
+  private volatile DefaultCompilerModel _compilerModel;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    _dir = IOUtil.createAndMarkTempDirectory("checker", "");
+    DrJava.getConfig().setSetting(OptionConstants.BACKGROUND_CHECKING, Boolean.TRUE);
+    GlobalModel model = new DummyGlobalModel() {
+      public void addListener(GlobalModelListener listener) { _listeners.add(listener); }
+      public List<OpenDefinitionsDocument> getOpenDefinitionsDocuments() { 
+        return new ArrayList<OpenDefinitionsDocument>(_docs);
+      }
+      public Iterable<File> getClassPath() { return Collections.<File>emptyList(); }
+      public File getBuildDirectory() { return null; }
+      public void setNumCompilerErrors(int num) { }
+    };
+    _compiler = new RecordingCompiler();
+    _compilerModel = new DefaultCompilerModel(model, Arrays.asList(_compiler));
+  }
+  
+  protected void tearDown() throws Exception {
+    _compilerModel._getChecker().cancel();
+    DrJava.getConfig().setSetting(OptionConstants.BACKGROUND_CHECKING, 
+                                  OptionConstants.BACKGROUND_CHECKING.getDefault());
+    super.tearDown();
+  }
+  
+  /** A check requested from RecordingCompiler. */
+  private static class Check {
+    final Map<File, String> sources;
+    final Map<File, String> unsaved;
+    final Condition cancelled;
+    Check(Map<File, String> s, Map<File, String> u, Condition c) {
+      sources = new HashMap<File, String>(s);
+      unsaved = new HashMap<File, String>(u);
+      cancelled = c;
+    }
+  }
+  
+  /** A compiler that records the checks it is asked to run and finds no errors. */
+  private static class RecordingCompiler extends JavacCompiler implements InMemoryCompiler {
+    final BlockingQueue<Check> checks = new LinkedBlockingQueue<Check>();
+    RecordingCompiler() { super(JavaVersion.CURRENT_FULL, "", null); }
+    public boolean isAvailable() { return true; }
+    public List<? extends DJError> compile(List<? extends File> files, List<? extends File> classPath, 
+                                           List<? extends File> sourcePath, File destination, 
+                                           List<? extends File> bootClassPath, String sourceVersion, 
+                                           boolean showWarnings) {
+      return Collections.emptyList();
+    }
+    public List<? extends DJError> compileSources(Map<File, String> sources, Map<String, byte[]> classes, 
+                                                  List<? extends File> classPath, List<? extends File> sourcePath, 
+                                                  List<? extends File> bootClassPath, String sourceVersion, 
+                                                  boolean showWarnings, Map<String, byte[]> classFiles) {
+      return Collections.emptyList();
+    }
+    public List<? extends DJError> checkSources(Map<File, String> sources, Map<File, String> unsaved, 
+                                                Map<String, byte[]> classes, 
+                                                List<? extends File> classPath, List<? extends File> sourcePath, 
+                                                List<? extends File> bootClassPath, String sourceVersion, 
+                                                boolean showWarnings, Condition cancelled) {
+      checks.add(new Check(sources, unsaved, cancelled));
+      return Collections.emptyList();
+    }
+  }
+  
+  /** A saved source file open in the model, whose text is edited as in the definitions pane. */
+  private class TestDoc extends DummyOpenDefDoc {
+    private final File _file;
+    private volatile boolean _modified = false;
+    TestDoc(File f, String text) throws BadLocationException {
+      _file = f;
+      _defDoc.insertString(0, text, null);
+    }
+    public File getRawFile() { return _file; }
+    public boolean isUntitled() { return false; }
+    public boolean isSourceFile() { return true; }
+    public boolean isModifiedSinceSave() { return _modified; }
+    public String getText() { return _defDoc.getText(); }
+    /** Replaces the text in the event thread. */
+    void edit(final String text) {
+      _modified = true;
+      Utilities.invokeAndWait(new Runnable() {
+        public void run() {
+          try {
+            _defDoc.remove(0, _defDoc.getLength());
+            _defDoc.insertString(0, text, null);
+          }
+          catch (BadLocationException e) { throw new UnexpectedException(e); }
+        }
+      });
+    }
+  }
+  
+  /** Writes a source file in the temporary directory and opens it. */
+  private TestDoc _open(String name, String text) throws Exception {
+    File f = new File(_dir, name);
+    IOUtil.writeStringToFile(f, text);
+    final TestDoc doc = new TestDoc(f, text);
+    _docs.add(doc);
+    Utilities.invokeAndWait(new Runnable() {
+      public void run() { for (GlobalModelListener l: _listeners) l.fileOpened(doc); }
+    });
+    return doc;
+  }
+  
+  /** @return the next check, waiting at most ms milliseconds for it to start, or null */
+  private Check _nextCheck(long ms) throws InterruptedException {
+    return _compiler.checks.poll(ms, TimeUnit.MILLISECONDS);
+  }
+  
+  private static Map<File, String> _map(File f, String text) { return Collections.singletonMap(_canonical(f), text); }
+  
+  private static File _canonical(File f) { return IOUtil.attemptCanonicalFile(f); }
+  
+  /** Tests that a burst of edits leads to a single check, once the document has not been edited for the delay. */
+  public void testDebounce() throws Exception {
+    TestDoc a = _open("A.java", "class A { }");
+    a.edit("class A { int x; }");
+    a.edit("class A { int y; }");
+    assertNull("no check before the delay", _nextCheck(BackgroundChecker.DELAY / 2));
+    Check c = _nextCheck(TIMEOUT);
+    assertNotNull("check after the delay", c);
+    assertEquals("latest text", _map(a.getRawFile(), "class A { int y; }"), c.sources);
+    assertNull("one check for the edits", _nextCheck(2 * BackgroundChecker.DELAY));
+  }
+  
+  /** Tests that an edit or a compilation cancels the running check, and that cancel stops a pending one. */
+  public void testCancel() throws Exception {
+    TestDoc a = _open("A.java", "class A { }");
+    a.edit("class A { int x; }");
+    _compilerModel._getChecker().cancel();
+    assertNull("pending check cancelled", _nextCheck(2 * BackgroundChecker.DELAY));
+    
+    a.edit("class A { int y; }");
+    Check c = _nextCheck(TIMEOUT);
+    assertNotNull("check after the delay", c);
+    assertFalse("current", c.cancelled.isTrue());
+    a.edit("class A { int z; }");
+    assertTrue("edit cancels the check of older text", c.cancelled.isTrue());
+    
+    c = _nextCheck(TIMEOUT);
+    assertNotNull("check after the delay", c);
+    assertEquals("latest text", _map(a.getRawFile(), "class A { int z; }"), c.sources);
+    assertFalse("current", c.cancelled.isTrue());
+    _compilerModel._getChecker().cancel();
+    assertTrue("cancel stops the running check", c.cancelled.isTrue());
+  }
+  
+  /** Tests that the text of unsaved documents that are not checked replaces the files on disk. */
+  public void testUnsavedDocuments() throws Exception {
+    TestDoc a = _open("A.java", "class A { }");
+    TestDoc b = _open("B.java", "class B { }");
+    b.edit("class B { int g() { return 1; } }");
+    Check c = _nextCheck(TIMEOUT);
+    assertNotNull("check after the delay", c);
+    assertEquals("edited", _map(b.getRawFile(), "class B { int g() { return 1; } }"), c.sources);
+    assertEquals("no other unsaved documents", Collections.<File, String>emptyMap(), c.unsaved);
+    
+    a.edit("class A { int f() { return new B().g(); } }");
+    c = _nextCheck(TIMEOUT);
+    assertNotNull("check after the delay", c);
+    assertEquals("edited", _map(a.getRawFile(), "class A { int f() { return new B().g(); } }"), c.sources);
+    assertEquals("unsaved", _map(b.getRawFile(), "class B { int g() { return 1; } }"), c.unsaved);
+  }
+  
+  /** Tests that the open dependents of the checked files are added, with their unsaved text if they have any. */
+  public void testDependents() throws Exception {
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    if (javac == null) return;  // running on a JRE
+    File src = new File(_dir, "src");
+    File build = new File(_dir, "build");
+    src.mkdirs();
+    build.mkdirs();
+    File a = _canonical(new File(src, "A.java"));
+    File b = _canonical(new File(src, "B.java"));
+    File c = _canonical(new File(src, "C.java"));
+    File d = _canonical(new File(src, "D.java"));
+    IOUtil.writeStringToFile(a, "class A { }");
+    IOUtil.writeStringToFile(b, "class B { A a; }");
+    IOUtil.writeStringToFile(c, "class C { A a; }");
+    IOUtil.writeStringToFile(d, "class D { A a; }");
+    List<File> files = Arrays.asList(a, b, c, d);
+    DependencyGraph graph = new DependencyGraph(build);
+    Map<File, Long> before = graph.scanClassFiles();
+    assertEquals("compiled", 0, javac.run(null, null, null, "-d", build.getPath(), a.getPath(), b.getPath(), 
+                                          c.getPath(), d.getPath()));
+    graph.update(files, before);
+    graph.save();
+    
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(a, "class A { int x; }");
+    Map<File, String> unsaved = _map(b, "class B { A a; int y; }");
+    Set<File> open = new HashSet<File>(Arrays.asList(a, b, d));  // C is closed
+    BackgroundChecker checker = _compilerModel._getChecker();
+    DependencyGraph loaded = checker._getGraph(build);
+    assertNotNull("loaded", loaded);
+    assertSame("kept until a compilation", loaded, checker._getGraph(build));
+    checker.compiled();
+    assertNotSame("loaded again after a compilation", loaded, checker._getGraph(build));
+    BackgroundChecker._addDependents(sources, unsaved, open, loaded);
+    Map<File, String> expected = new HashMap<File, String>();
+    expected.put(a, "class A { int x; }");
+    expected.put(b, "class B { A a; int y; }");
+    expected.put(d, "class D { A a; }");
+    assertEquals(expected, sources);
+    
+    sources = new HashMap<File, String>(_map(a, "class A { int x; }"));
+    BackgroundChecker._addDependents(sources, unsaved, open, null);
+    assertEquals("no dependency graph", _map(a, "class A { int x; }"), sources);
+  }
+  
+  /** Tests that the errors in the checked files are replaced, and that the others are kept. */
+  public void testMergeErrors() {
+    File checked = new File("/tmp/nowhere1");
+    File other = new File("/tmp/nowhere2");
+    TestDocGetter getter = new TestDocGetter(new File[] { checked, other }, 
+                                             new String[] { "class A {\n}\n", "class B {\n}\n" });
+    DJError stale = new DJError(checked, 0, 0, "stale", false);
+    DJError kept = new DJError(other, 1, 0, "kept", false);
+    DJError general = new DJError("no file", false);
+    CompilerErrorModel old = new CompilerErrorModel(new DJError[] { stale, kept, general }, getter);
+    Utilities.clearEventQueue();  // constructor for CompilerErrorModel calls invokeLater
+    
+    DJError found = new DJError(checked, 1, 0, "found", false);
+    List<DJError> merged = BackgroundChecker.mergeErrors(old, Arrays.asList(checked), Arrays.asList(found));
+    assertEquals(3, merged.size());
+    assertTrue(merged.contains(kept));
+    assertTrue(merged.contains(general));
+    assertTrue(merged.contains(found));
+    assertFalse(merged.contains(stale));
+    
+    merged = BackgroundChecker.mergeErrors(old, Arrays.asList(checked), Collections.<DJError>emptyList());
+    assertEquals(Arrays.asList(general, kept), merged);  // the model sorts the errors
+  }
+}
@@ -53,7 +53,6 @@ import edu.rice.cs.drjava.model.FileMovedException;
 import edu.rice.cs.drjava.model.DrJavaFileUtils;
 import edu.rice.cs.util.FileOps;
 import edu.rice.cs.util.OperationCanceledException;
-import edu.rice.cs.util.StringOps;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.Utilities;
 
@@ -61,7 +60,6 @@ import edu.rice.cs.util.swing.Utilities;
   * @version $Id$
   */
 public class CompilerErrorModel {
-  private static final String newLine = StringOps.EOL;
   /** An array of errors to be displayed in the CompilerErrorPanel associated with this model.  After model
     * construction, this array should be sorted in this order:
     * (i)  Errors with no file.
@@ -366,68 +364,23 @@ public class CompilerErrorModel {
         if (curError >= _numErrors) break;
         
         // curError is the first error in a file, and its document is open.
+        // The document maps lines to offsets without scanning its text.
         final int fileStartIndex = curError;
         final int defsLength = document.getLength();
-        final String defsText = document.getText(0, defsLength);
-        int curLine = 0;
-        int offset = 0; // offset is number of chars from beginning of file
-        
-        // offset is always pointing to the first character in the line
-        // containing an error (or the last line of the previous file) at the top of this loop
-        while ((curError < _numErrors) && // we still have errors to find
-               file.equals(_errors[curError].file()) &&  // the next error is in this file
-               (offset <= defsLength)) { // we haven't gone past the end of the file
-          // create new positions for all errors on this line
-          boolean didNotAdvance = false;
-          if (_errors[curError].lineNumber() != curLine) {
-            // if this happens, then we will not advance to the next error in the loop below.
-            // that means we have to advance curError when we reach the end of the document
-            // or we get stuck in an infinite loop (bug 1679178)
-            // this seems to be a problem with incompatible line endings (Windows vs. Unix)
-            didNotAdvance = true;
+        final int lastLine = document.getNumberOfLines();
+        while ((curError < _numErrors) && file.equals(_errors[curError].file())) {
+          int line = _errors[curError].lineNumber();
+          if (line < 0 || line > lastLine) {
+            // the compiler's line numbers do not match the document, e.g. because of different line endings
+            _positions[curError] = null;
           }
           else {
-            while ((curError < _numErrors) &&
-                   file.equals(_errors[curError].file()) &&  // we are still in this file
-                   (_errors[curError].lineNumber() == curLine)) {
-              _positions[curError] = document.createPosition(offset + _errors[curError].startColumn());
-              curError++;
-            }
-          }
-
-          // At this point, offset is the starting index of the previous error's line.
-          // Update offset to be appropriate for the current error.
-          // ... but don't bother looking if it isn't in this file.
-          // ... or if we're done with all errors already.
-          if (curError < _numErrors) {
-            int curErrorLine = _errors[curError].lineNumber();
-            int nextNewline = 0;
-            while ((curLine != curErrorLine)
-                     && (nextNewline != -1)
-                     && (file.equals(_errors[curError].file()))) {
-              nextNewline = defsText.indexOf(newLine, offset);
-              if (nextNewline == -1) nextNewline = defsText.indexOf("\n", offset);
-              if (nextNewline != -1) {
-                curLine++;
-                offset = nextNewline + 1;
-              }
-              else {
-                // we're at the end of the document
-                if (didNotAdvance) {
-                  // we did not advance to the next error above, so unless we want to
-                  // get stuck in an infinite loop (bug 1679178), we have to advance now.
-                  // otherwise we would never leave the while loop and keep processing
-                  // the same error.
-                  // this situation probably means that the line number information of the
-                  // compiler is different from our line number information;
-                  // probably a Windows vs. Unix line ending problem
-                  _positions[curError] = null;
-                  curError++;
-                }
-              }
-            }
+            int offset = document.getOffsetOfLine(line) + Math.max(_errors[curError].startColumn(), 0);
+            _positions[curError] = document.createPosition(Math.min(offset, defsLength));
           }
+          curError++;
         }
+        
         //Remember the indexes in the _errors and _positions arrays that
         // are for the errors in this file
         int fileEndIndex = curError;
@@ -440,7 +393,6 @@ public class CompilerErrorModel {
       }
     }
     catch (BadLocationException ble) { throw new UnexpectedException(ble); }
-    catch (StringIndexOutOfBoundsException e) { throw new UnexpectedException(e); }
   }
   
   /** Finds the first error after numProcessed which has a file and line number.
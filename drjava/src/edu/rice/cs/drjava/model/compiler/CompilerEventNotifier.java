@@ -124,4 +124,13 @@ class CompilerEventNotifier extends EventNotifier<CompilerListener> implements C
     try { for (CompilerListener cl : _listeners) { cl.activeCompilerChanged(); } }
     finally { _lock.endRead(); }
   }
+  
+  /** Called in the event thread when a background check has updated the compiler errors of some files.
+    * @param checkedFiles the files whose errors were updated
+    */
+  public void backgroundCheckEnded(List<? extends File> checkedFiles) {
+    _lock.startRead();
+    try { for (CompilerListener cl : _listeners) { cl.backgroundCheckEnded(checkedFiles); } }
+    finally { _lock.endRead(); }
+  }
 }
@@ -68,4 +68,10 @@ public interface CompilerListener {
   
   /** Called after the active compiler has been changed. */
   public void activeCompilerChanged();
+  
+  /** 
+   * Called in the event thread when a background check has updated the compiler errors of some files. 
+   * @param checkedFiles the files whose errors were updated
+   */
+  public void backgroundCheckEnded(List<? extends File> checkedFiles);
 }
@@ -92,6 +92,22 @@ public interface CompilerModel {
     */
   public void compile(OpenDefinitionsDocument doc) throws IOException;
   
+  /** Compiles the specified documents from their current text, without saving them.  The class files produced are
+    * kept in memory and loaded by the interpreter in preference to those in the build directory.
+    * @param docs the documents to be compiled
+    * @throws IOException if a filesystem-related problem prevents compilation
+    */
+  public void compileInMemory(List<OpenDefinitionsDocument> docs) throws IOException;
+  
+  /** Checks a single document for compiler errors, using its current text.  Nothing is saved or written to disk.
+    * @param doc the document to be checked
+    * @throws IOException if a filesystem-related problem prevents compilation
+    */
+  public void check(OpenDefinitionsDocument doc) throws IOException;
+  
+  /** @return {@code true} iff the most recent compilation was a {@link #check}, which produces no class files. */
+  public boolean isCheckOnly();
+  
   //----------------------------- Error Results -----------------------------//
   
   /** @return the CompilerErrorModel representing the last compile. */
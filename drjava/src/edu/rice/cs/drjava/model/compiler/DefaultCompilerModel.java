@@ -95,6 +95,20 @@ public class DefaultCompilerModel implements CompilerModel {
   /** The lock providing mutual exclustion between compilation and unit testing */
   private Object _compilerLock = new Object();
   
+  /** The number of rounds of incremental compilation after which the remaining files are all compiled together. */
+  static final int MAX_INCREMENTAL_ROUNDS = 8;
+  
+  /** Whether the most recent compilation only checked for errors. */
+  private volatile boolean _checkOnly = false;
+  
+  /** The class files compiled in memory since the last compilation to disk, keyed by binary name; given to the
+    * interpreter and to later compilations in memory.  Replaced, never modified.
+    */
+  private volatile Map<String, byte[]> _memoryClasses = Collections.emptyMap();
+  
+  /** Checks the documents for errors while they are edited. */
+  private final BackgroundChecker _checker;
+  
   /** The LanguageLevelStackTraceMapper that helps translate .java line 
     * numbers to .dj* line numbers when an error is thrown */
   public LanguageLevelStackTraceMapper _LLSTM;
@@ -128,6 +142,7 @@ public class DefaultCompilerModel implements CompilerModel {
     _model = m;
     _compilerErrorModel = new CompilerErrorModel(new DJError[0], _model);
     _LLSTM = new LanguageLevelStackTraceMapper(_model);
+    _checker = new BackgroundChecker(this, _model);
   }
   
   
@@ -223,6 +238,24 @@ public class DefaultCompilerModel implements CompilerModel {
     else _notifier.compileAborted(new UnexpectedException(doc + "is modified but unsaved"));
   }
   
+  /** Compiles the given documents from their current text, without saving them.  The class files produced are kept
+    * in memory and passed to the interpreter, which loads them in preference to the build directory.  Untitled 
+    * documents and language level files cannot be compiled this way and are skipped.
+    * @param docs the documents to be compiled
+    * @throws IOException if a filesystem-related problem prevents compilation
+    */
+  public void compileInMemory(List<OpenDefinitionsDocument> docs) throws IOException { _doCompileInMemory(docs, true); }
+  
+  /** Checks the given document for compiler errors, using its current text.  Nothing is saved or written to disk,
+    * and the interpreter is not reset.
+    * @param doc the document to be checked
+    * @throws IOException if a filesystem-related problem prevents compilation
+    */
+  public void check(OpenDefinitionsDocument doc) throws IOException { _doCompileInMemory(Arrays.asList(doc), false); }
+  
+  /** @return {@code true} iff the most recent compilation only checked for errors, producing no class files */
+  public boolean isCheckOnly() { return _checkOnly; }
+  
   /** Check that there are no unsaved or untitled files currently open.
     * @return  {@code true} iff compilation should continue
     */
@@ -239,6 +272,13 @@ public class DefaultCompilerModel implements CompilerModel {
    */
   private void _doCompile(List<OpenDefinitionsDocument> docs) throws IOException {
     _LLSTM.clearCache();
+    _checker.cancel();
+    _checkOnly = false;
+    if (! _memoryClasses.isEmpty()) {
+      // the class files about to be written supersede those compiled in memory
+      _memoryClasses = Collections.emptyMap();
+      _model.getInteractionsModel().setMemoryClasses(_memoryClasses);
+    }
     final ArrayList<File> filesToCompile = new ArrayList<File>();
     final ArrayList<File> excludedFiles = new ArrayList<File>();
     final ArrayList<DJError> packageErrors = new ArrayList<DJError>();
@@ -284,6 +324,7 @@ public class DefaultCompilerModel implements CompilerModel {
       }
     }
     finally {
+      _checker.compiled();
       Utilities.invokeLater(new Runnable() {
         public void run() { _notifier.compileEnded(_model.getWorkingDirectory(), excludedFiles); }
       });
@@ -291,6 +332,80 @@ public class DefaultCompilerModel implements CompilerModel {
   }
   
   
+  /** 
+   * Compile the given documents from their text in memory.
+   * @param docs the documents to be compiled
+   * @param keepClasses whether to pass the class files produced to the interpreter; if false, only check for errors
+   * @throws IOException if an IO operation fails
+   */
+  private void _doCompileInMemory(List<OpenDefinitionsDocument> docs, boolean keepClasses) throws IOException {
+    _checker.cancel();
+    final Map<File, String> sources = new LinkedHashMap<File, String>();
+    final ArrayList<File> excludedFiles = new ArrayList<File>();
+    final ArrayList<DJError> packageErrors = new ArrayList<DJError>();
+    for (OpenDefinitionsDocument doc : docs) {
+      if (doc.isUntitled()) continue;
+      File f = doc.getFile();
+      if (doc.isSourceFile() && ! DrJavaFileUtils.isLLFile(f)) {
+        sources.put(f, doc.getText());
+        try { doc.getSourceRoot(); }
+        catch (InvalidPackageException e) {
+          packageErrors.add(new DJError(f, e.getMessage(), false));
+        }
+      }
+      else excludedFiles.add(f);
+    }
+    _checkOnly = ! keepClasses;
+    
+    Utilities.invokeLater(new Runnable() { public void run() { _notifier.compileStarted(); } });
+    
+    try {
+      if (! packageErrors.isEmpty()) { _distributeErrors(packageErrors); }
+      else if (sources.isEmpty()) { _distributeErrors(Collections.<DJError>emptyList()); }
+      else {
+        CompilerInterface compiler = getActiveCompiler();
+        if (! (compiler instanceof InMemoryCompiler)) {
+          _distributeErrors(Arrays.asList(new DJError(compiler.getName() + " cannot compile unsaved files", false)));
+          return;
+        }
+        List<File> classPath = CollectUtil.makeList(_model.getClassPath());
+        Map<String, byte[]> classFiles = keepClasses ? new HashMap<String, byte[]>() : null;
+        List<? extends DJError> errors;
+        synchronized(_compilerLock) {
+          errors = ((InMemoryCompiler) compiler).compileSources(sources, _memoryClasses, classPath, null, 
+                                                                 _getBootClassPath(), null, true, classFiles);
+        }
+        _distributeErrors(errors);
+        if (keepClasses && _compilerErrorModel.getNumCompilerErrors() == 0) {
+          // the classes compiled earlier in memory are still current unless compiled again now
+          Map<String, byte[]> merged = new HashMap<String, byte[]>(_memoryClasses);
+          merged.putAll(classFiles);
+          _memoryClasses = merged;
+          _model.getInteractionsModel().setMemoryClasses(merged);
+        }
+      }
+    }
+    finally {
+      Utilities.invokeLater(new Runnable() {
+        public void run() { _notifier.compileEnded(_model.getWorkingDirectory(), excludedFiles); }
+      });
+    }
+  }
+  
+  /** @return the class files compiled in memory since the last compilation to disk, keyed by binary name */
+  Map<String, byte[]> _getMemoryClasses() { return _memoryClasses; }
+  
+  /** @return the checker that checks edited documents in the background */
+  BackgroundChecker _getChecker() { return _checker; }
+  
+  /** @return the boot class path given by the drjava.bootclasspath property, or null if it is not set */
+  static List<File> _getBootClassPath() {
+    // Temporary hack to allow a boot class path to be specified
+    String bootProp = System.getProperty("drjava.bootclasspath");
+    if (bootProp == null) { return null; }
+    return CollectUtil.makeList(IOUtil.parsePath(bootProp));
+  }
+  
   //-------------------------------- Helpers --------------------------------//
   
   /** 
@@ -351,10 +466,7 @@ public class DefaultCompilerModel implements CompilerModel {
       
       List<File> classPath = CollectUtil.makeList(_model.getClassPath());
       
-      // Temporary hack to allow a boot class path to be specified
-      List<File> bootClassPath = null;
-      String bootProp = System.getProperty("drjava.bootclasspath");
-      if (bootProp != null) { bootClassPath = CollectUtil.makeList(IOUtil.parsePath(bootProp)); }
+      List<File> bootClassPath = _getBootClassPath();
       
       final LinkedList<DJError> errors = new LinkedList<DJError>();
       
@@ -369,7 +481,10 @@ public class DefaultCompilerModel implements CompilerModel {
         // Mutual exclusion with JUnit code that finds all test classes (in DefaultJUnitModel)
         synchronized(_compilerLock) {
           if (preprocessedFiles == null) {
-            errors.addAll(compiler.compile(files, classPath, null, buildDir, bootClassPath, null, true));
+            if (buildDir != null && DrJava.getConfig().getSetting(OptionConstants.INCREMENTAL_COMPILATION)) {
+              errors.addAll(_compileIncrementally(compiler, files, classPath, buildDir, bootClassPath));
+            }
+            else errors.addAll(compiler.compile(files, classPath, null, buildDir, bootClassPath, null, true));
           }
           else {
             /** If compiling a language level file, do not show warnings, as these are not caught by the language level 
@@ -386,6 +501,86 @@ public class DefaultCompilerModel implements CompilerModel {
     }
   }
   
+  /** 
+   * Compiles the files that changed since the last compilation into buildDir, together with the files that depend on
+   * classes whose API changed, as recorded by the DependencyGraph stored in buildDir.  Compiles all of the given files
+   * if there is no usable graph, e.g. because a jar on the class path or the compiler changed.  Class files of deleted
+   * source files and of classes that are no longer declared are removed.  Assumes _compilerLock is held.  Default
+   * visibility for testing purposes only.
+   * @param compiler the compiler to use
+   * @param files the files to be compiled
+   * @param classPath the class path
+   * @param buildDir the output directory; must not be null
+   * @param bootClassPath the boot class path, or null
+   * @return the errors and warnings reported by the compiler
+   */
+  static List<DJError> _compileIncrementally(CompilerInterface compiler, List<File> files, List<File> classPath, 
+                                             File buildDir, List<File> bootClassPath) {
+    final LinkedList<DJError> errors = new LinkedList<DJError>();
+    String settings = compiler.getName() + " " + compiler.version() + " " + 
+      new TreeSet<String>(CompilerOptions.getOptions(true).keySet());
+    String stamp = DependencyGraph.stamp(settings, classPath, bootClassPath);
+    DependencyGraph graph = DependencyGraph.load(buildDir, stamp);
+    Set<File> toCompile;
+    if (graph == null) {
+      _log.log("No usable dependency graph in " + buildDir + "; compiling all files");
+      graph = new DependencyGraph(buildDir, stamp);
+      toCompile = new LinkedHashSet<File>();
+      for (File f: files) toCompile.add(IOUtil.attemptCanonicalFile(f));
+    }
+    else {
+      toCompile = graph.getModifiedSources(files);
+      toCompile.addAll(graph.getDependents(graph.removeDeletedSources()));
+    }
+    
+    // Each round compiles the dependents of the classes whose API changed in the previous one
+    boolean full = false;
+    for (int round = 0; ! toCompile.isEmpty(); round++) {
+      _log.log("Incremental compilation round " + round + ": " + toCompile);
+      graph.setAside(toCompile);
+      DependencyGraph.Update update = null;
+      try {
+        Map<File, Long> before = graph.scanClassFiles();
+        List<? extends DJError> roundErrors = 
+          compiler.compile(new ArrayList<File>(toCompile), classPath, null, buildDir, bootClassPath, null, true);
+        errors.addAll(roundErrors);
+        boolean failed = false;
+        for (DJError e: roundErrors) { if (! e.isWarning()) failed = true; }
+        if (! failed) update = graph.update(toCompile, before);
+      }
+      catch (IOException e) {
+        _log.log("Could not update dependency graph: " + e);
+        DependencyGraph.delete(buildDir);
+        return errors;
+      }
+      finally { graph.restore(); }  // keeps the previous class files if the compilation failed
+      if (update == null) {
+        graph.markModified(toCompile);
+        break;
+      }
+      if (full) break;
+      
+      Set<File> next;
+      if (update.constantsChanged() || round >= MAX_INCREMENTAL_ROUNDS) {
+        // Uses of compile-time constants are not recorded in class files; recompile everything else
+        full = true;
+        next = new LinkedHashSet<File>(graph.getSources());
+        for (File f: files) next.add(IOUtil.attemptCanonicalFile(f));
+      }
+      else next = graph.getDependents(update.getChanged());
+      next.removeAll(toCompile);
+      for (Iterator<File> i = next.iterator(); i.hasNext(); ) { if (! i.next().exists()) i.remove(); }
+      toCompile = next;
+    }
+    
+    try { graph.save(); }
+    catch (IOException e) {
+      _log.log("Could not save dependency graph: " + e);
+      DependencyGraph.delete(buildDir);
+    }
+    return errors;
+  }
+  
   /** 
    * Reorders files so that all file names containing "Test" are at the end.  
    * @param files the files to be sorted
@@ -604,6 +799,18 @@ public class DefaultCompilerModel implements CompilerModel {
     _model.setNumCompilerErrors(_compilerErrorModel.getNumCompilerErrors());  // cache number of compiler errors in global model
   }
   
+  /** 
+   * Replaces the errors in the given files with the errors found by a background check of them.  Only runs in the
+   * event thread.
+   * @param checked the canonical files that were checked
+   * @param errors the errors found in them
+   */
+  void _publishCheck(List<File> checked, List<? extends DJError> errors) {
+    try { _distributeErrors(BackgroundChecker.mergeErrors(_compilerErrorModel, checked, errors)); }
+    catch (IOException e) { throw new UnexpectedException(e); }
+    _notifier.backgroundCheckEnded(checked);
+  }
+  
   //----------------------------- Error Results -----------------------------//
   
   /** @return the CompilerErrorModel representing the last compile. */
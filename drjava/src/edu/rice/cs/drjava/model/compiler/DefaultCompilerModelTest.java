@@ -0,0 +1,202 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.DJError;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.*;
+import java.util.jar.JarOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.reflect.JavaVersion;
+
+/** Tests the incremental compilation of DefaultCompilerModel with the system Java compiler.
+  * @version $Id$
+  */
+public class DefaultCompilerModelTest extends DrJavaTestCase {
+  
+  private File _src;
+  private File _build;
+  private long _time;
+  private RoundCompiler _compiler;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    File dir = IOUtil.createAndMarkTempDirectory("incremental", "");
+    _src = new File(dir, "src");
+    _build = new File(dir, "build");
+    _src.mkdirs();
+    _build.mkdirs();
+    _time = System.currentTimeMillis() - 100000;
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    _compiler = (javac == null) ? null : new RoundCompiler(javac);
+  }
+  
+  /** A compiler that records the files of each round.  The files in grow get a new method each time they are 
+    * compiled, so that their API changes. */
+  private static class RoundCompiler extends JavacCompiler {
+    final JavaCompiler javac;
+    final List<Set<File>> rounds = new ArrayList<Set<File>>();
+    final Set<File> grow = new HashSet<File>();
+    RoundCompiler(JavaCompiler j) { super(JavaVersion.CURRENT_FULL, "", null); javac = j; }
+    public boolean isAvailable() { return true; }
+    public List<? extends DJError> compile(List<? extends File> files, List<? extends File> classPath, 
+                                           List<? extends File> sourcePath, File destination, 
+                                           List<? extends File> bootClassPath, String sourceVersion, 
+                                           boolean showWarnings) {
+      rounds.add(new HashSet<File>(files));
+      List<String> args = new ArrayList<String>(Arrays.asList("-d", destination.getPath(), 
+                                                              "-cp", IOUtil.pathToString(classPath)));
+      for (File f: files) {
+        if (grow.contains(f)) {
+          try {
+            String text = IOUtil.toString(f);
+            int brace = text.lastIndexOf('}');
+            IOUtil.writeStringToFile(f, text.substring(0, brace) + " void m" + rounds.size() + "() { } }");
+          }
+          catch (java.io.IOException e) { throw new RuntimeException(e); }
+        }
+        args.add(f.getPath());
+      }
+      if (javac.run(null, null, null, args.toArray(new String[0])) == 0) return Collections.emptyList();
+      return Arrays.asList(new DJError(files.get(0), 0, 0, "compilation failed", false));
+    }
+  }
+  
+  /** Writes a source file with a modification time later than that of the previous one. */
+  private File _write(String name, String text) throws Exception {
+    File f = new File(_src, name);
+    IOUtil.writeStringToFile(f, text);
+    _time += 10000;
+    f.setLastModified(_time);
+    return IOUtil.attemptCanonicalFile(f);
+  }
+  
+  /** Compiles files incrementally; returns the files compiled in each round. */
+  private List<Set<File>> _compile(List<File> classPath, File... files) {
+    _compiler.rounds.clear();
+    DefaultCompilerModel._compileIncrementally(_compiler, Arrays.asList(files), classPath, _build, null);
+    return new ArrayList<Set<File>>(_compiler.rounds);
+  }
+  
+  private List<Set<File>> _compile(File... files) { return _compile(Arrays.asList(_build), files); }
+  
+  private static Set<File> _set(File... files) { return new HashSet<File>(Arrays.asList(files)); }
+  
+  public void testRounds() throws Exception {
+    if (_compiler == null) return;  // running on a JRE
+    File a = _write("A.java", "class A { int f() { return 1; } }");
+    File b = _write("B.java", "class B { int g() { return new A().f(); } }");
+    File c = _write("C.java", "class C { }");
+    assertEquals("full build", Arrays.asList(_set(a, b, c)), _compile(a, b, c));
+    assertEquals("nothing modified", Collections.emptyList(), _compile(a, b, c));
+    
+    a = _write("A.java", "class A { int f() { return 2; } }");
+    assertEquals("body change", Arrays.asList(_set(a)), _compile(a, b, c));
+    a = _write("A.java", "class A { int f() { return 2; } int h() { return 3; } }");
+    assertEquals("API change", Arrays.asList(_set(a), _set(b)), _compile(a, b, c));
+  }
+  
+  /** Tests that the class files of a failed round are kept, and that its files are compiled again next time. */
+  public void testFailedRound() throws Exception {
+    if (_compiler == null) return;
+    File a = _write("A.java", "class A { int f() { return 1; } }");
+    File b = _write("B.java", "class B { int g() { return new A().f(); } }");
+    _compile(a, b);
+    long compiled = new File(_build, "B.class").lastModified();
+    
+    b = _write("B.java", "class B { int g() { return new A().nope(); } }");
+    assertEquals("failed", Arrays.asList(_set(b)), _compile(a, b));
+    assertTrue("class file restored", new File(_build, "B.class").isFile());
+    assertEquals("old class file", compiled, new File(_build, "B.class").lastModified());
+    
+    b = _write("B.java", "class B { int g() { return new A().f(); } }");
+    b.setLastModified(_time - 10000);  // as if the broken version had never been saved
+    assertEquals("marked modified", Arrays.asList(_set(b)), _compile(a, b));
+    assertEquals("then up to date", Collections.emptyList(), _compile(a, b));
+  }
+  
+  /** Tests that a changed constant causes the remaining files to be compiled, since its uses are not recorded. */
+  public void testConstantChange() throws Exception {
+    if (_compiler == null) return;
+    File a = _write("A.java", "class A { static final int K = 1; }");
+    File b = _write("B.java", "class B { int k() { return A.K; } }");
+    File c = _write("C.java", "class C { }");
+    _compile(a, b, c);
+    a = _write("A.java", "class A { static final int K = 2; }");
+    assertEquals("full round", Arrays.asList(_set(a), _set(b, c)), _compile(a, b, c));
+  }
+  
+  /** Tests that a chain of API changes longer than MAX_INCREMENTAL_ROUNDS ends with a full round. */
+  public void testMaxRounds() throws Exception {
+    if (_compiler == null) return;
+    int n = DefaultCompilerModel.MAX_INCREMENTAL_ROUNDS + 4;
+    File[] files = new File[n];
+    files[0] = _write("A0.java", "class A0 { }");
+    for (int i = 1; i < n; i++) files[i] = _write("A" + i + ".java", "class A" + i + " { A" + (i - 1) + " a; }");
+    _compile(files);
+    
+    files[0] = _write("A0.java", "class A0 { void m() { } }");
+    _compiler.grow.addAll(Arrays.asList(files));
+    List<Set<File>> rounds = _compile(files);
+    int max = DefaultCompilerModel.MAX_INCREMENTAL_ROUNDS;
+    assertEquals("rounds", max + 2, rounds.size());
+    for (int i = 0; i <= max; i++) assertEquals("round " + i, _set(files[i]), rounds.get(i));
+    Set<File> rest = _set(files);
+    rest.remove(files[max]);
+    assertEquals("full round of all but the last round's files", rest, rounds.get(max + 1));
+  }
+  
+  /** Tests that a change to a jar on the class path causes a full build. */
+  public void testClassPathChanged() throws Exception {
+    if (_compiler == null) return;
+    File jar = new File(_src.getParentFile(), "lib.jar");
+    new JarOutputStream(new FileOutputStream(jar)).close();
+    List<File> cp = Arrays.asList(jar, _build);
+    File a = _write("A.java", "class A { }");
+    File b = _write("B.java", "class B { }");
+    _compile(cp, a, b);
+    assertEquals("unchanged", Collections.emptyList(), _compile(cp, a, b));
+    assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+    assertEquals("jar changed", Arrays.asList(_set(a, b)), _compile(cp, a, b));
+    assertEquals("new class path", Arrays.asList(_set(a, b)), _compile(a, b));
+  }
+}
@@ -0,0 +1,670 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.util.UnexpectedException;
+
+/** The source file to class file to dependency graph of a build directory, used for incremental compilation.  Each
+  * source file is recorded with its modification time and the classes compiled from it; each class with digests of
+  * its API (the signatures of its non-private members) and of its compile-time constants, with its supertypes, and
+  * with the classes it references.  A change to the API of a class also changes the inherited API of its subtypes, so
+  * the classes that reference one of those subtypes depend on it as well.  The references are read from the constant pools and member descriptors of the class files, so they are
+  * exact except for compile-time constants, which javac inlines; a change to a constant therefore calls for a full
+  * build.  The graph also records a stamp of the environment of the build, such as the jars on the class path and
+  * the compiler; a graph whose stamp differs is not used, so that the next build is a full one.  The graph is stored
+  * in the build directory in the file {@link #FILE_NAME}.
+  * @version $Id$
+  */
+public class DependencyGraph {
+  
+  /** The name of the file in the build directory that holds the graph. */
+  public static final String FILE_NAME = ".drjava-dependencies";
+  
+  private static final String HEADER = "drjava-dependencies 3";
+  
+  /** The suffix of the class files set aside while their sources are compiled. */
+  private static final String SET_ASIDE_SUFFIX = ".old";
+  
+  private final File _buildDir;
+  private final String _stamp;
+  private final Map<File, Source> _sources;
+  private final Map<String, ClassNode> _classes;  // keyed by internal name, e.g. java/lang/Object
+  private final List<File> _setAside;
+  
+  /** 
+   * Creates an empty graph with an empty stamp.
+   * @param buildDir the build directory; must not be null
+   */
+  public DependencyGraph(File buildDir) { this(buildDir, ""); }
+  
+  /** 
+   * Creates an empty graph.
+   * @param buildDir the build directory; must not be null
+   * @param stamp the environment of the build, as returned by {@link #stamp}
+   */
+  public DependencyGraph(File buildDir, String stamp) {
+    _buildDir = IOUtil.attemptCanonicalFile(buildDir);
+    _stamp = stamp;
+    _sources = new HashMap<File, Source>();
+    _classes = new HashMap<String, ClassNode>();
+    _setAside = new ArrayList<File>();
+  }
+  
+  /** 
+   * @param buildDir the build directory
+   * @return the graph stored in buildDir, whatever its stamp, or null if there is none or it is inconsistent with the
+   *         class files there
+   */
+  public static DependencyGraph load(File buildDir) { return load(buildDir, null); }
+  
+  /** 
+   * @param buildDir the build directory
+   * @param stamp the environment of the build, as returned by {@link #stamp}, or null to accept any
+   * @return the graph stored in buildDir, or null if there is none, it has a different stamp, or it is inconsistent
+   *         with the class files there
+   */
+  public static DependencyGraph load(File buildDir, String stamp) {
+    File f = new File(IOUtil.attemptCanonicalFile(buildDir), FILE_NAME);
+    if (! f.isFile()) return null;
+    try {
+      BufferedReader r = new BufferedReader(new FileReader(f));
+      try {
+        if (! HEADER.equals(r.readLine())) return null;
+        String line = r.readLine();
+        if (line == null || ! line.startsWith("E\t")) return null;
+        String stored = line.substring(2);
+        if (stamp != null && ! stamp.equals(stored)) return null;
+        DependencyGraph g = new DependencyGraph(buildDir, stored);
+        Source source = null;
+        while ((line = r.readLine()) != null) {
+          String[] parts = line.split("\t", -1);
+          if (parts[0].equals("S") && parts.length == 3) {
+            source = new Source(new File(parts[2]), Long.parseLong(parts[1]));
+            g._sources.put(source._file, source);
+          }
+          else if (parts[0].equals("C") && parts.length == 6 && source != null) {
+            ClassNode c = new ClassNode(parts[1], source._file, parts[2], parts[3], _split(parts[4]), _split(parts[5]));
+            if (! g.getClassFile(c._name).isFile()) return null;
+            source._classes.add(c._name);
+            g._classes.put(c._name, c);
+          }
+          else return null;
+        }
+        return g;
+      }
+      finally { r.close(); }
+    }
+    catch (IOException e) { return null; }
+    catch (NumberFormatException e) { return null; }
+  }
+  
+  /** Writes this graph to its build directory.
+    * @throws IOException if the file cannot be written
+    */
+  public void save() throws IOException {
+    File f = new File(_buildDir, FILE_NAME);
+    File tmp = new File(_buildDir, FILE_NAME + ".tmp");
+    PrintWriter w = new PrintWriter(new FileWriter(tmp));
+    try {
+      w.println(HEADER);
+      w.println("E\t" + _stamp);
+      for (Source s: _sources.values()) {
+        w.println("S\t" + s._lastModified + "\t" + s._file.getPath());
+        for (String name: s._classes) {
+          ClassNode c = _classes.get(name);
+          w.println("C\t" + c._name + "\t" + c._api + "\t" + c._constants + "\t" + _join(c._supertypes) + "\t" +
+                    _join(c._references));
+        }
+      }
+    }
+    finally { w.close(); }
+    if (w.checkError()) throw new IOException("Could not write " + tmp);
+    if (! tmp.renameTo(f) && ! (f.delete() && tmp.renameTo(f))) throw new IOException("Could not write " + f);
+  }
+  
+  /** @return the space-separated names in s */
+  private static Set<String> _split(String s) {
+    Set<String> result = new HashSet<String>();
+    if (s.length() > 0) result.addAll(Arrays.asList(s.split(" ")));
+    return result;
+  }
+  
+  /** @return the names separated by spaces */
+  private static String _join(Set<String> names) {
+    StringBuilder result = new StringBuilder();
+    for (String name: names) {
+      if (result.length() > 0) result.append(' ');
+      result.append(name);
+    }
+    return result.toString();
+  }
+  
+  /** 
+   * Computes the stamp of the environment of a build.  Jars on the paths are recorded with their modification times
+   * and lengths; directories only by name, since the classes in them are looked up afresh by each compilation.
+   * @param settings the compiler and the settings that affect its output
+   * @param classPath the class path, or null
+   * @param bootClassPath the boot class path, or null
+   * @return a digest of the arguments
+   */
+  public static String stamp(String settings, Iterable<? extends File> classPath, 
+                             Iterable<? extends File> bootClassPath) {
+    StringBuilder s = new StringBuilder(settings);
+    for (Iterable<? extends File> path: Arrays.asList(classPath, bootClassPath)) {
+      s.append('\n');
+      if (path == null) continue;
+      for (File f: path) {
+        s.append(f.getPath()).append(File.pathSeparatorChar);
+        if (f.isFile()) s.append(f.lastModified()).append(' ').append(f.length()).append(File.pathSeparatorChar);
+      }
+    }
+    return _digest(s.toString());
+  }
+  
+  /** @return the stamp of the environment of the build recorded in this graph */
+  public String getStamp() { return _stamp; }
+  
+  /** Deletes the graph stored in the build directory, so the next build is a full one.
+    * @param buildDir the build directory
+    */
+  public static void delete(File buildDir) { new File(buildDir, FILE_NAME).delete(); }
+  
+  /** @return the set of source files recorded in this graph */
+  public Set<File> getSources() { return Collections.unmodifiableSet(_sources.keySet()); }
+  
+  /** 
+   * @param source a source file
+   * @return the internal names of the classes compiled from source
+   */
+  public Set<String> getClasses(File source) {
+    Source s = _sources.get(IOUtil.attemptCanonicalFile(source));
+    return (s == null) ? Collections.<String>emptySet() : Collections.unmodifiableSet(s._classes);
+  }
+  
+  /** 
+   * @param name the internal name of a class
+   * @return the class file of name in the build directory
+   */
+  public File getClassFile(String name) { return new File(_buildDir, name.replace('/', File.separatorChar) + ".class"); }
+  
+  /** 
+   * @param files source files
+   * @return the canonical forms of the files that are not recorded, have changed since they were compiled, or are
+   *         missing one of their class files
+   */
+  public Set<File> getModifiedSources(Iterable<? extends File> files) {
+    Set<File> result = new LinkedHashSet<File>();
+    for (File f: files) {
+      f = IOUtil.attemptCanonicalFile(f);
+      Source s = _sources.get(f);
+      if (s == null || s._lastModified != f.lastModified()) { result.add(f); continue; }
+      for (String name: s._classes) {
+        if (! getClassFile(name).isFile()) { result.add(f); break; }
+      }
+    }
+    return result;
+  }
+  
+  /** Forgets the source files that no longer exist, deleting the class files compiled from them.
+    * @return the internal names of the classes of the deleted source files
+    */
+  public Set<String> removeDeletedSources() {
+    Set<String> removed = new HashSet<String>();
+    Iterator<Source> i = _sources.values().iterator();
+    while (i.hasNext()) {
+      Source s = i.next();
+      if (s._file.exists()) continue;
+      for (String name: s._classes) {
+        getClassFile(name).delete();
+        _classes.remove(name);
+        removed.add(name);
+      }
+      i.remove();
+    }
+    return removed;
+  }
+  
+  /** 
+   * @param names internal names of classes
+   * @return the existing source files with a class that references one of names, or one of their recorded subtypes
+   */
+  public Set<File> getDependents(Set<String> names) {
+    Set<File> result = new LinkedHashSet<File>();
+    if (names.isEmpty()) return result;
+    names = _withSubtypes(names);
+    for (ClassNode c: _classes.values()) {
+      if (result.contains(c._source)) continue;
+      for (String ref: c._references) {
+        if (names.contains(ref)) {
+          if (c._source.exists()) result.add(c._source);
+          break;
+        }
+      }
+    }
+    return result;
+  }
+  
+  /** 
+   * @param names internal names of classes
+   * @return names and the recorded classes that extend or implement one of them, directly or indirectly
+   */
+  private Set<String> _withSubtypes(Set<String> names) {
+    Set<String> result = new HashSet<String>(names);
+    boolean added = true;
+    while (added) {
+      added = false;
+      for (ClassNode c: _classes.values()) {
+        if (result.contains(c._name)) continue;
+        for (String s: c._supertypes) {
+          if (result.contains(s)) { result.add(c._name); added = true; break; }
+        }
+      }
+    }
+    return result;
+  }
+  
+  /** Records that the given source files must be recompiled, e.g. because compiling them failed.
+    * @param files source files
+    */
+  public void markModified(Iterable<? extends File> files) {
+    for (File f: files) {
+      Source s = _sources.get(IOUtil.attemptCanonicalFile(f));
+      if (s != null) s._lastModified = -1;
+    }
+  }
+  
+  /** Renames the class files of the given sources, so that after compiling them the class files that exist are exactly
+    * the ones the compilation wrote.  The files are deleted by {@link #update} and restored by {@link #restore}.
+    * @param sources the source files about to be compiled
+    */
+  public void setAside(Iterable<? extends File> sources) {
+    for (File f: sources) {
+      for (String name: getClasses(f)) {
+        File classFile = getClassFile(name);
+        File old = new File(classFile.getPath() + SET_ASIDE_SUFFIX);
+        old.delete();
+        if (classFile.renameTo(old)) _setAside.add(classFile);
+      }
+    }
+  }
+  
+  /** Restores the class files set aside that were not written again, e.g. after a failed compilation. */
+  public void restore() {
+    for (File classFile: _setAside) {
+      File old = new File(classFile.getPath() + SET_ASIDE_SUFFIX);
+      if (classFile.exists()) old.delete();
+      else old.renameTo(classFile);
+    }
+    _setAside.clear();
+  }
+  
+  /** @return the modification times of the class files in the build directory; taken before each compilation,
+    *         after {@link #setAside} */
+  public Map<File, Long> scanClassFiles() {
+    Map<File, Long> result = new HashMap<File, Long>();
+    _scanClassFiles(_buildDir, result);
+    return result;
+  }
+  
+  private static void _scanClassFiles(File dir, Map<File, Long> result) {
+    File[] files = dir.listFiles();
+    if (files == null) return;
+    for (File f: files) {
+      if (f.isDirectory()) _scanClassFiles(f, result);
+      else if (f.getName().endsWith(".class")) result.put(f, f.lastModified());
+    }
+  }
+  
+  /** Records the result of successfully compiling the given source files.  The classes written by the compilation are
+    * read from the build directory; previously recorded classes of the files that were not written again are stale,
+    * and their class files are deleted along with the other files set aside.
+    * @param compiled the source files that were compiled
+    * @param before the result of {@link #scanClassFiles} before the compilation
+    * @return the changes to the APIs of the recorded classes
+    * @throws IOException if a class file cannot be read
+    */
+  public Update update(Collection<? extends File> compiled, Map<File, Long> before) throws IOException {
+    for (File classFile: _setAside) new File(classFile.getPath() + SET_ASIDE_SUFFIX).delete();
+    _setAside.clear();
+    Set<File> sources = new HashSet<File>();
+    for (File f: compiled) sources.add(IOUtil.attemptCanonicalFile(f));
+    
+    Set<File> written = new HashSet<File>();
+    for (Map.Entry<File, Long> e: scanClassFiles().entrySet()) {
+      if (! e.getValue().equals(before.get(e.getKey()))) written.add(e.getKey());
+    }
+    
+    Map<File, Set<String>> produced = new HashMap<File, Set<String>>();
+    List<ClassNode> nodes = new ArrayList<ClassNode>();
+    for (File classFile: written) {
+      ClassNode c = readClassFile(classFile);
+      ClassNode old = _classes.get(c._name);
+      File source = _findSource(c, (old == null) ? null : old._source, sources);
+      if (source == null) continue;  // not compiled from a source file we know of
+      c = new ClassNode(c._name, source, c._api, c._constants, c._supertypes, c._references);
+      nodes.add(c);
+      Set<String> names = produced.get(source);
+      if (names == null) { names = new HashSet<String>(); produced.put(source, names); }
+      names.add(c._name);
+    }
+    
+    Set<String> changed = new HashSet<String>();
+    boolean constantsChanged = false;
+    for (File f: sources) {
+      Source s = _sources.get(f);
+      if (s == null) continue;
+      Set<String> names = produced.get(f);
+      for (String name: s._classes) {
+        if (names != null && names.contains(name)) continue;
+        getClassFile(name).delete();  // a class that is no longer declared in f
+        _classes.remove(name);
+        changed.add(name);
+      }
+      s._classes.clear();
+    }
+    for (ClassNode c: nodes) {
+      ClassNode old = _classes.get(c._name);
+      if (old != null) {
+        if (! old._api.equals(c._api)) changed.add(c._name);
+        if (! old._constants.equals(c._constants)) constantsChanged = true;
+        Source oldSource = _sources.get(old._source);
+        if (oldSource != null && oldSource._file != c._source) oldSource._classes.remove(c._name);
+      }
+      _classes.put(c._name, c);
+      Source s = _sources.get(c._source);
+      if (s == null) { s = new Source(c._source, c._source.lastModified()); _sources.put(s._file, s); }
+      s._classes.add(c._name);
+    }
+    for (File f: produced.keySet()) _sources.get(f)._lastModified = f.lastModified();
+    for (File f: sources) {
+      Source s = _sources.get(f);
+      if (s != null && s._classes.isEmpty()) _sources.remove(f);  // e.g. a file that declares no class
+    }
+    return new Update(changed, constantsChanged);
+  }
+  
+  /** 
+   * @param c a class read from a class file
+   * @param recorded the source previously recorded for c, or null
+   * @param compiled the canonical source files that were compiled
+   * @return the source file c was compiled from, or null if it is unknown
+   */
+  private static File _findSource(ClassNode c, File recorded, Set<File> compiled) {
+    if (c._sourceFile == null) return recorded;
+    int slash = c._name.lastIndexOf('/');
+    String suffix = File.separator + 
+      ((slash < 0) ? "" : c._name.substring(0, slash + 1).replace('/', File.separatorChar)) + c._sourceFile;
+    File byName = null;
+    int matches = 0;
+    for (File f: compiled) {
+      if (f.getPath().endsWith(suffix)) return f;
+      if (f.getName().equals(c._sourceFile)) { byName = f; matches++; }
+    }
+    if (recorded != null) return recorded;
+    return (matches == 1) ? byName : null;
+  }
+  
+  /** 
+   * Reads the API digests and references of a class file.
+   * @param classFile a class file
+   * @return the class declared by classFile, not yet associated with a source file
+   * @throws IOException if the file cannot be read or is not a class file
+   */
+  static ClassNode readClassFile(File classFile) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)));
+    try { return _readClass(in); }
+    catch (IndexOutOfBoundsException e) { throw new IOException("Malformed class file: " + classFile); }
+    catch (ClassCastException e) { throw new IOException("Malformed class file: " + classFile); }
+    finally { in.close(); }
+  }
+  
+  private static ClassNode _readClass(DataInputStream in) throws IOException {
+    if (in.readInt() != 0xCAFEBABE) throw new IOException("Not a class file");
+    in.readUnsignedShort();  // minor version
+    in.readUnsignedShort();  // major version
+    
+    /* The constant pool; Utf8 entries are Strings, String entries int[] { index of the Utf8 }, and other constants
+     * their values.  classNames maps the index of each Class entry to the index of its name.  Descriptors may mention
+     * classes that are not Class entries. */
+    int count = in.readUnsignedShort();
+    Object[] pool = new Object[count];
+    int[] classNames = new int[count];
+    List<Integer> classes = new ArrayList<Integer>();
+    List<Integer> descriptors = new ArrayList<Integer>();
+    for (int i = 1; i < count; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1: pool[i] = in.readUTF(); break;                                    // Utf8
+        case 3: pool[i] = in.readInt(); break;                                    // Integer
+        case 4: pool[i] = in.readFloat(); break;                                  // Float
+        case 5: pool[i] = in.readLong(); i++; break;                              // Long
+        case 6: pool[i] = in.readDouble(); i++; break;                            // Double
+        case 7: classNames[i] = in.readUnsignedShort(); classes.add(i); break;   // Class
+        case 8: pool[i] = new int[] { in.readUnsignedShort() }; break;            // String
+        case 9: case 10: case 11: in.readInt(); break;                            // Field, method refs
+        case 12: in.readUnsignedShort(); descriptors.add(in.readUnsignedShort()); break;  // NameAndType
+        case 15: in.readUnsignedByte(); in.readUnsignedShort(); break;            // MethodHandle
+        case 16: descriptors.add(in.readUnsignedShort()); break;                  // MethodType
+        case 17: case 18: in.readInt(); break;                                    // Dynamic, InvokeDynamic
+        case 19: case 20: in.readUnsignedShort(); break;                          // Module, Package
+        default: throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    
+    int access = in.readUnsignedShort();
+    String name = (String) pool[classNames[in.readUnsignedShort()]];
+    int superIndex = in.readUnsignedShort();
+    String superName = (superIndex == 0) ? "" : (String) pool[classNames[superIndex]];
+    Set<String> supertypes = new HashSet<String>();
+    _addClass(superName, supertypes);
+    StringBuilder api = new StringBuilder();
+    api.append(access).append(' ').append(name).append(' ').append(superName);
+    int interfaces = in.readUnsignedShort();
+    for (int i = 0; i < interfaces; i++) {
+      String iface = (String) pool[classNames[in.readUnsignedShort()]];
+      _addClass(iface, supertypes);
+      api.append(' ').append(iface);
+    }
+    api.append('\n');
+    
+    Set<String> refs = new HashSet<String>();
+    for (int index: classes) _addClass((String) pool[classNames[index]], refs);
+    for (int index: descriptors) _addDescriptor((String) pool[index], refs);
+    
+    StringBuilder constants = new StringBuilder();
+    List<String> members = new ArrayList<String>();
+    for (int kind = 0; kind < 2; kind++) {  // fields, then methods
+      int n = in.readUnsignedShort();
+      for (int i = 0; i < n; i++) {
+        int memberAccess = in.readUnsignedShort();
+        String memberName = (String) pool[in.readUnsignedShort()];
+        String desc = (String) pool[in.readUnsignedShort()];
+        _addDescriptor(desc, refs);
+        StringBuilder member = new StringBuilder();
+        member.append(kind).append(' ').append(memberAccess).append(' ').append(memberName).append(' ').append(desc);
+        int attributes = in.readUnsignedShort();
+        for (int j = 0; j < attributes; j++) {
+          String attr = (String) pool[in.readUnsignedShort()];
+          int length = in.readInt();
+          if (attr.equals("ConstantValue")) {
+            Object value = pool[in.readUnsignedShort()];
+            if (value instanceof int[]) value = "\"" + pool[((int[]) value)[0]];
+            if ((memberAccess & 0x0002) == 0) constants.append(memberName).append('=').append(value).append('\n');
+          }
+          else if (attr.equals("Signature")) {
+            String sig = (String) pool[in.readUnsignedShort()];
+            _addDescriptor(sig, refs);
+            member.append(' ').append(sig);
+          }
+          else if (attr.equals("Exceptions")) {
+            int exceptions = in.readUnsignedShort();
+            for (int k = 0; k < exceptions; k++) {
+              member.append(' ').append(pool[classNames[in.readUnsignedShort()]]);
+            }
+          }
+          else _skip(in, length);
+        }
+        // private and synthetic members (e.g. accessors for inner classes) are not part of the API
+        if ((memberAccess & 0x1002) == 0) members.add(member.toString());
+      }
+    }
+    Collections.sort(members);
+    for (String m: members) api.append(m).append('\n');
+    
+    String sourceFile = null;
+    int attributes = in.readUnsignedShort();
+    for (int j = 0; j < attributes; j++) {
+      String attr = (String) pool[in.readUnsignedShort()];
+      int length = in.readInt();
+      if (attr.equals("SourceFile")) sourceFile = (String) pool[in.readUnsignedShort()];
+      else if (attr.equals("Signature")) {
+        String sig = (String) pool[in.readUnsignedShort()];
+        _addDescriptor(sig, refs);
+        api.append(sig).append('\n');
+      }
+      else _skip(in, length);
+    }
+    
+    refs.remove(name);
+    ClassNode result =
+      new ClassNode(name, null, _digest(api.toString()), _digest(constants.toString()), supertypes, refs);
+    result._sourceFile = sourceFile;
+    return result;
+  }
+  
+  private static void _skip(DataInputStream in, int length) throws IOException {
+    while (length > 0) {
+      int skipped = in.skipBytes(length);
+      if (skipped <= 0) throw new IOException("Truncated class file");
+      length -= skipped;
+    }
+  }
+  
+  /** Adds the class named by a Class entry, which may be an array descriptor, to refs. */
+  private static void _addClass(String name, Set<String> refs) {
+    if (name.startsWith("[")) _addDescriptor(name, refs);
+    else if (! name.startsWith("java/")) refs.add(name);
+  }
+  
+  /** Adds the classes mentioned in a descriptor or generic signature to refs. */
+  private static void _addDescriptor(String desc, Set<String> refs) {
+    int n = desc.length();
+    int i = 0;
+    while (i < n) {
+      char c = desc.charAt(i);
+      if (c == 'L' || c == 'T' || c == '.') {  // a class, a type variable, or an inner class of a generic class
+        int end = i + 1;
+        while (end < n && desc.charAt(end) != ';' && desc.charAt(end) != '<') end++;
+        String name = desc.substring(i + 1, end);
+        int colon = name.indexOf(':');
+        if (colon >= 0) end = i + 1 + colon;  // actually the name of a formal type parameter, followed by its bound
+        else if (c == 'L') _addClass(name, refs);
+        i = end;
+      }
+      else i++;
+    }
+  }
+  
+  private static String _digest(String s) {
+    try {
+      byte[] hash = MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"));
+      StringBuilder result = new StringBuilder();
+      for (byte b: hash) result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException e) { throw new UnexpectedException(e); }
+    catch (UnsupportedEncodingException e) { throw new UnexpectedException(e); }
+  }
+  
+  /** The changes made by {@link DependencyGraph#update}. */
+  public static class Update {
+    private final Set<String> _changed;
+    private final boolean _constantsChanged;
+    Update(Set<String> changed, boolean constantsChanged) {
+      _changed = changed;
+      _constantsChanged = constantsChanged;
+    }
+    /** @return the internal names of the classes whose API changed or that were removed */
+    public Set<String> getChanged() { return _changed; }
+    /** @return true if a compile-time constant changed; dependents on it cannot be found from the class files */
+    public boolean constantsChanged() { return _constantsChanged; }
+  }
+  
+  private static class Source {
+    final File _file;
+    long _lastModified;
+    final Set<String> _classes;
+    Source(File file, long lastModified) {
+      _file = file;
+      _lastModified = lastModified;
+      _classes = new TreeSet<String>();
+    }
+  }
+  
+  static class ClassNode {
+    final String _name;
+    final File _source;
+    final String _api;
+    final String _constants;
+    final Set<String> _supertypes;  // the superclass and interfaces, except for those in java/
+    final Set<String> _references;
+    String _sourceFile;  // the SourceFile attribute, when read from a class file
+    ClassNode(String name, File source, String api, String constants, Set<String> supertypes,
+              Set<String> references) {
+      _name = name;
+      _source = source;
+      _api = api;
+      _constants = constants;
+      _supertypes = supertypes;
+      _references = references;
+    }
+  }
+}
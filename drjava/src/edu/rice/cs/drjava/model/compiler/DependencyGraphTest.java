@@ -0,0 +1,188 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.util.*;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests DependencyGraph on class files compiled by the system Java compiler.
+  * @version $Id$
+  */
+public class DependencyGraphTest extends DrJavaTestCase {
+  
+  private File _src;
+  private File _build;
+  private DependencyGraph _graph;
+  private long _time;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    File dir = IOUtil.createAndMarkTempDirectory("dependencies", "");
+    _src = new File(dir, "src");
+    _build = new File(dir, "build");
+    _src.mkdirs();
+    _build.mkdirs();
+    _graph = new DependencyGraph(_build);
+    _time = System.currentTimeMillis() - 100000;
+  }
+  
+  /** Writes a source file with a modification time later than that of the previous one. */
+  private File _write(String name, String text) throws Exception {
+    File f = new File(_src, name);
+    f.getParentFile().mkdirs();
+    IOUtil.writeStringToFile(f, text);
+    _time += 10000;
+    f.setLastModified(_time);
+    return IOUtil.attemptCanonicalFile(f);
+  }
+  
+  /** Compiles files and records them in _graph. */
+  private DependencyGraph.Update _compile(File... files) throws Exception {
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    List<String> args = new ArrayList<String>(Arrays.asList("-d", _build.getPath(), "-cp", _build.getPath()));
+    for (File f: files) args.add(f.getPath());
+    _graph.setAside(Arrays.asList(files));
+    Map<File, Long> before = _graph.scanClassFiles();
+    assertEquals("compiled", 0, javac.run(null, null, null, args.toArray(new String[0])));
+    return _graph.update(Arrays.asList(files), before);
+  }
+  
+  private static Set<File> _set(File... files) { return new HashSet<File>(Arrays.asList(files)); }
+  
+  public void testDependencies() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;  // running on a JRE
+    File a = _write("p/A.java", "package p; public class A { public int f() { return 1; } }");
+    File b = _write("q/B.java", "package q; class B { int g() { return new p.A().f(); } }");
+    File c = _write("C.java", "class C { java.util.List<p.A> as; }");
+    _compile(a, b, c);
+    assertEquals("classes", Collections.singleton("p/A"), _graph.getClasses(a));
+    assertEquals("unmodified", _set(), _graph.getModifiedSources(Arrays.asList(a, b, c)));
+    assertEquals("dependents", _set(b, c), _graph.getDependents(Collections.singleton("p/A")));
+    
+    a = _write("p/A.java", "package p; public class A { public int f() { return 2; } }");
+    assertEquals("modified", _set(a), _graph.getModifiedSources(Arrays.asList(a, b, c)));
+    DependencyGraph.Update u = _compile(a);
+    assertEquals("body change", Collections.<String>emptySet(), u.getChanged());
+    assertFalse("no constants", u.constantsChanged());
+    
+    a = _write("p/A.java", "package p; public class A { public int f() { return 2; } public void h() { } }");
+    assertEquals("API change", Collections.singleton("p/A"), _compile(a).getChanged());
+    
+    a = _write("p/A.java", "package p; public class A { public static final int K = 1; public int f() { return 2; } " +
+               "public void h() { } }");
+    _compile(a);
+    a = _write("p/A.java", "package p; public class A { public static final int K = 2; public int f() { return 2; } " +
+               "public void h() { } }");
+    assertTrue("constant change", _compile(a).constantsChanged());
+  }
+  
+  /** Tests that a change to the API of a class reaches the classes that use it through a subtype. */
+  public void testSubtypes() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;
+    File a = _write("A.java", "class A { int m() { return 1; } }");
+    File b = _write("B.java", "class B extends A { }");
+    File c = _write("C.java", "class C { int n() { return new B().m(); } }");
+    File d = _write("D.java", "class D extends B implements Runnable { public void run() { } }");
+    File e = _write("E.java", "class E { int n() { return new D().m(); } }");
+    _compile(a, b, c, d, e);
+    assertEquals("dependents of B", _set(c, d, e), _graph.getDependents(Collections.singleton("B")));
+    
+    a = _write("A.java", "class A { int m(int x) { return x; } }");
+    DependencyGraph.Update u = _compile(a);
+    assertEquals("API change", Collections.singleton("A"), u.getChanged());
+    assertEquals("dependents through subtypes", _set(b, c, d, e), _graph.getDependents(u.getChanged()));
+    
+    _graph.save();
+    DependencyGraph g = DependencyGraph.load(_build);
+    assertEquals("loaded dependents", _set(b, c, d, e), g.getDependents(Collections.singleton("A")));
+  }
+  
+  public void testStaleClassFiles() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;
+    File a = _write("A.java", "class A { class Inner { } Runnable r = new Runnable() { public void run() { } }; }");
+    File b = _write("B.java", "class B { A a; }");
+    _compile(a, b);
+    assertEquals("classes", new HashSet<String>(Arrays.asList("A", "A$Inner", "A$1")), _graph.getClasses(a));
+    
+    a = _write("A.java", "class A { }");
+    DependencyGraph.Update u = _compile(a);
+    assertEquals("removed classes and changed API", new HashSet<String>(Arrays.asList("A", "A$Inner", "A$1")), 
+                 u.getChanged());
+    assertFalse("stale class file deleted", new File(_build, "A$Inner.class").exists());
+    assertTrue("class file kept", new File(_build, "A.class").exists());
+    
+    assertTrue(a.delete());
+    assertEquals("deleted source", Collections.singleton("A"), _graph.removeDeletedSources());
+    assertFalse("class file of deleted source", new File(_build, "A.class").exists());
+    assertEquals("sources", Collections.singleton(b), _graph.getSources());
+    
+    _graph.setAside(Arrays.asList(b));
+    assertFalse("set aside", new File(_build, "B.class").exists());
+    _graph.restore();
+    assertTrue("restored", new File(_build, "B.class").exists());
+  }
+  
+  public void testSaveAndLoad() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;
+    assertNull("no graph", DependencyGraph.load(_build));
+    File a = _write("A.java", "class A { B b; }");
+    File b = _write("B.java", "class B { }");
+    _compile(a, b);
+    _graph.save();
+    
+    DependencyGraph g = DependencyGraph.load(_build);
+    assertNotNull("loaded", g);
+    assertNotNull("same stamp", DependencyGraph.load(_build, ""));
+    assertNull("different stamp", DependencyGraph.load(_build, DependencyGraph.stamp("", null, null)));
+    assertEquals("sources", _set(a, b), g.getSources());
+    assertEquals("dependents", _set(a), g.getDependents(Collections.singleton("B")));
+    assertEquals("unmodified", _set(), g.getModifiedSources(Arrays.asList(a, b)));
+    
+    g.markModified(Arrays.asList(b));
+    assertEquals("marked", _set(b), g.getModifiedSources(Arrays.asList(a, b)));
+    
+    assertTrue(new File(_build, "B.class").delete());
+    assertNull("inconsistent graph", DependencyGraph.load(_build));
+    IOUtil.writeStringToFile(new File(_build, DependencyGraph.FILE_NAME), "garbage");
+    assertNull("malformed graph", DependencyGraph.load(_build));
+  }
+}
@@ -49,4 +49,5 @@ public class DummyCompilerListener implements CompilerListener {
   public void saveBeforeCompile() { }
   public void saveUntitled() { }
   public void activeCompilerChanged() { }
+  public void backgroundCheckEnded(List<? extends File> checkedFiles) { }
 }
\ No newline at end of file
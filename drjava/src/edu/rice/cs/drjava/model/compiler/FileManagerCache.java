@@ -0,0 +1,183 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import static edu.rice.cs.plt.debug.DebugUtil.error;
+
+/** Keeps the standard file manager of a javax.tools compiler open between compilations.  The file manager opens and
+  * indexes the jars on the class path and boot class path the first time they are searched, so reusing it makes
+  * repeated compilations faster.  A new file manager is created when the class path or boot class path changes, or
+  * when a jar on either path has been modified, added, or removed.  Directories are not tracked: the file manager
+  * lists them afresh for each compilation.
+  * <p>The source path and output directory are set on the file manager by every call to {@link #get}, since a
+  * compilation that does not give them must not inherit those of an earlier one.</p>
+  * <p>Before Java 9, javac keeps the contents of a jar it has read even after its file manager is closed, so a jar
+  * rebuilt in place could be read stale.  File managers are not reused on those versions: each one is closed by
+  * {@link #release} at the end of its compilation, as before this cache existed, and compilations on them are no
+  * faster.</p>
+  * <p>A file manager is not thread-safe, so callers must hold the lock on this cache from {@link #get} until
+  * {@link #release}.</p>
+  * @version $Id$
+  */
+public class FileManagerCache {
+  
+  /** Whether file managers are kept open between compilations; false before Java 9. */
+  static final boolean REUSES = ! System.getProperty("java.specification.version", "").startsWith("1.");
+  
+  private final JavaCompiler _compiler;
+  
+  /** Receives the diagnostics reported by the file manager; forwards them to the current compilation's listener. */
+  private final ForwardingListener _listener = new ForwardingListener();
+  
+  /** The cached file manager, or null. */
+  private StandardJavaFileManager _fileManager = null;
+  
+  /** The state of the paths when _fileManager was created. */
+  private List<Stamp> _stamps = null;
+  
+  private int _reused = 0;
+  private int _created = 0;
+  
+  /** @param compiler the compiler whose file managers are cached */
+  public FileManagerCache(JavaCompiler compiler) { _compiler = compiler; }
+  
+  /** @return the compiler whose file managers are cached */
+  public JavaCompiler getCompiler() { return _compiler; }
+  
+  /** Returns a file manager for a compilation with the given paths.  The file manager must not be closed; call
+    * {@link StandardJavaFileManager#flush} and then {@link #release} when the compilation ends instead, and hold the
+    * lock on this until then.
+    * @param classPath the class path of the compilation, or null
+    * @param bootClassPath the boot class path of the compilation, or null
+    * @param sourcePath the source path of the compilation, or null for the default
+    * @param destination the output directory of the compilation, or null to write class files next to their sources
+    * @param listener receives the diagnostics reported by the file manager until the next call to this method
+    * @return the cached file manager, if it is still valid for the paths, or a new one
+    */
+  public synchronized StandardJavaFileManager get(Iterable<? extends File> classPath, Iterable<? extends File> bootClassPath, 
+                                                  Iterable<? extends File> sourcePath, File destination, 
+                                                  DiagnosticListener<? super JavaFileObject> listener) {
+    _listener.setTarget(listener);
+    List<Stamp> stamps = new ArrayList<Stamp>();
+    _addStamps(stamps, classPath);
+    stamps.add(null);  // separates the paths
+    _addStamps(stamps, bootClassPath);
+    if (_fileManager != null && stamps.equals(_stamps)) { _reused++; }
+    else {
+      clear();
+      _fileManager = _compiler.getStandardFileManager(_listener, null, null);
+      _stamps = stamps;
+      _created++;
+    }
+    _setLocation(StandardLocation.SOURCE_PATH, sourcePath);
+    _setLocation(StandardLocation.CLASS_OUTPUT, (destination == null) ? null : Collections.singletonList(destination));
+    return _fileManager;
+  }
+  
+  /** Sets a location of the cached file manager.  If the path is not valid, the location is reset to its default, and
+    * the compiler reports the error when it reads the corresponding option.
+    */
+  private void _setLocation(StandardLocation location, Iterable<? extends File> path) {
+    try { _fileManager.setLocation(location, path); }
+    catch (IOException e) {
+      try { _fileManager.setLocation(location, null); }
+      catch (IOException e2) { error.log(e2); }
+    }
+  }
+  
+  /** Ends a compilation.  Closes the file manager unless file managers are reused. */
+  public synchronized void release() { if (! REUSES) clear(); }
+  
+  /** Closes the cached file manager, releasing the jars it holds open. */
+  public synchronized void clear() {
+    if (_fileManager != null) {
+      try { _fileManager.close(); }
+      catch (IOException e) { error.log(e); }
+      _fileManager = null;
+      _stamps = null;
+    }
+  }
+  
+  /** @return the number of calls to {@link #get} that reused the cached file manager */
+  public synchronized int getReused() { return _reused; }
+  
+  /** @return the number of file managers created */
+  public synchronized int getCreated() { return _created; }
+  
+  private static void _addStamps(List<Stamp> stamps, Iterable<? extends File> path) {
+    if (path != null) { for (File f : path) { stamps.add(new Stamp(f)); } }
+  }
+  
+  /** A path entry, with the modification time and length of the file if it is not a directory. */
+  private static class Stamp {
+    private final File _file;
+    private final long _lastModified;
+    private final long _length;
+    Stamp(File f) {
+      _file = f;
+      if (f.isFile()) { _lastModified = f.lastModified(); _length = f.length(); }
+      else { _lastModified = 0; _length = f.exists() ? -1 : -2; }
+    }
+    public boolean equals(Object o) {
+      if (! (o instanceof Stamp)) return false;
+      Stamp s = (Stamp) o;
+      return _file.equals(s._file) && _lastModified == s._lastModified && _length == s._length;
+    }
+    public int hashCode() { return _file.hashCode() ^ (int) _lastModified; }
+  }
+  
+  /** A diagnostic listener that forwards to a listener that can be changed. */
+  private static class ForwardingListener implements DiagnosticListener<JavaFileObject> {
+    private volatile DiagnosticListener<? super JavaFileObject> _target = null;
+    void setTarget(DiagnosticListener<? super JavaFileObject> target) { _target = target; }
+    public void report(Diagnostic<? extends JavaFileObject> d) {
+      DiagnosticListener<? super JavaFileObject> target = _target;
+      if (target != null) target.report(d);
+    }
+  }
+}
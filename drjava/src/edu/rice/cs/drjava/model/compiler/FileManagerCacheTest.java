@@ -0,0 +1,159 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests FileManagerCache with the system Java compiler.
+  * @version $Id$
+  */
+public class FileManagerCacheTest extends DrJavaTestCase {
+  
+  private File _dir;
+  private FileManagerCache _cache;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    _dir = IOUtil.createAndMarkTempDirectory("fmcache", "");
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    _cache = (javac == null) ? null : new FileManagerCache(javac);
+  }
+  
+  protected void tearDown() throws Exception {
+    if (_cache != null) _cache.clear();
+    super.tearDown();
+  }
+  
+  /** Compiles the given source file into dest, or next to the source if dest is null, using the cached file manager;
+    * returns the number of errors. */
+  private int _compile(File source, File dest, List<File> classPath) throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    List<String> options = new ArrayList<String>();
+    if (dest != null) { options.addAll(Arrays.asList("-d", dest.getPath())); }
+    options.addAll(Arrays.asList("-classpath", IOUtil.pathToString(classPath)));
+    synchronized(_cache) {
+      StandardJavaFileManager fm = _cache.get(classPath, null, null, dest, diagnostics);
+      _cache.getCompiler().getTask(null, fm, diagnostics, options, null, 
+                                   fm.getJavaFileObjects(source)).call();
+      fm.flush();
+      _cache.release();
+    }
+    return diagnostics.getDiagnostics().size();
+  }
+  
+  private File _write(String name, String text) throws Exception {
+    File f = new File(_dir, name);
+    f.getParentFile().mkdirs();
+    IOUtil.writeStringToFile(f, text);
+    return f;
+  }
+  
+  /** Writes a jar containing the class files in dir. */
+  private void _jar(File jar, File dir, String... classFiles) throws Exception {
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      for (String name : classFiles) {
+        out.putNextEntry(new JarEntry(name));
+        out.write(IOUtil.toByteArray(new File(dir, name)));
+        out.closeEntry();
+      }
+    }
+    finally { out.close(); }
+  }
+  
+  public void testReuse() throws Exception {
+    if (_cache == null) return;  // running on a JRE
+    File build = new File(_dir, "build");
+    build.mkdirs();
+    List<File> cp = Arrays.asList(build);
+    assertEquals("errors", 0, _compile(_write("A.java", "class A { }"), build, cp));
+    // the build directory is listed afresh: A appeared after the file manager was created
+    assertEquals("errors", 0, _compile(_write("B.java", "class B { A a; }"), build, cp));
+    // before Java 9, each compilation has its own file manager
+    int reused = FileManagerCache.REUSES ? 1 : 0;
+    assertEquals("created", 2 - reused, _cache.getCreated());
+    assertEquals("reused", reused, _cache.getReused());
+    
+    assertEquals("errors", 0, _compile(_write("C.java", "class C { }"), build, Arrays.asList(build, _dir)));
+    assertEquals("class path changed", 3 - reused, _cache.getCreated());
+  }
+  
+  public void testJarModified() throws Exception {
+    if (_cache == null) return;  // running on a JRE
+    File lib = new File(_dir, "lib");
+    File build = new File(_dir, "build");
+    lib.mkdirs();
+    build.mkdirs();
+    File jar = new File(_dir, "lib.jar");
+    List<File> cp = Arrays.asList(jar, build);
+    
+    assertEquals("errors", 0, _compile(_write("p/L.java", "package p; public class L { }"), lib, cp));
+    _jar(jar, lib, "p/L.class");
+    File user = _write("U.java", "class U { int f() { return new p.L().g(); } }");
+    assertEquals("L has no g()", 1, _compile(user, build, cp));
+    
+    assertEquals("errors", 0, _compile(_write("p/L.java", "package p; public class L { public int g() { return 1; } }"), 
+                                       lib, cp));
+    _jar(jar, lib, "p/L.class");
+    jar.setLastModified(jar.lastModified() + 10000);  // in case the length and time are unchanged
+    assertEquals("L has g()", 0, _compile(user, build, cp));
+  }
+  
+  public void testDestinationChanged() throws Exception {
+    if (_cache == null) return;  // running on a JRE
+    File build = new File(_dir, "build");
+    build.mkdirs();
+    List<File> cp = Arrays.asList(build, _dir);
+    assertEquals("errors", 0, _compile(_write("A.java", "class A { }"), build, cp));
+    assertTrue("A in build", new File(build, "A.class").exists());
+    assertEquals("errors", 0, _compile(_write("B.java", "class B { }"), null, cp));
+    assertTrue("B next to its source", new File(_dir, "B.class").exists());
+    assertFalse("B not in the earlier destination", new File(build, "B.class").exists());
+  }
+}
@@ -0,0 +1,83 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import edu.rice.cs.drjava.model.DJError;
+import edu.rice.cs.plt.lambda.Condition;
+
+/** A compiler that can compile source text that has not been saved and keep the class files it produces in memory,
+  * so that neither the sources nor the build directory are touched.
+  * @version $Id$
+  */
+public interface InMemoryCompiler extends CompilerInterface {
+  
+  /** Compile the given sources.
+    * @param sources  The text of the sources to compile, keyed by the file each one belongs to.  Errors refer to these
+    *                 files.  Sources found on the source path or class path that are keys of this map are also read
+    *                 from it.
+    * @param classes  Class files compiled in memory earlier, keyed by binary class name, which are found ahead of the
+    *                 class path.  If <code>null</code>, there are none.
+    * @param classPath  Support jars or directories that should be on the classpath.  If <code>null</code>, the default
+    *                   is used.
+    * @param sourcePath  Location of additional sources to be compiled on-demand.  If <code>null</code>, the default is 
+    *                    used.
+    * @param bootClassPath  The bootclasspath; if <code>null</code>, the default is used.
+    * @param sourceVersion  The language version of the sources.  If <code>null</code>, the default is used.
+    * @param showWarnings  Whether compiler warnings should be shown or ignored.
+    * @param classFiles  Receives the class files produced, keyed by binary class name.  If <code>null</code>, the 
+    *                    sources are only checked for errors.
+    * @return Errors that occurred. If no errors, should be zero length (not null).
+    */
+  List<? extends DJError> compileSources(Map<File, String> sources, Map<String, byte[]> classes, 
+                                         List<? extends File> classPath, 
+                                         List<? extends File> sourcePath, List<? extends File> bootClassPath, 
+                                         String sourceVersion, boolean showWarnings, Map<String, byte[]> classFiles);
+  
+  /** Check the given sources for errors without producing class files, giving up as soon as possible once the check
+    * is cancelled.  The other parameters are as for {@link #compileSources}.
+    * @param unsaved  The text of other sources, keyed by file, that is read in place of the files on the source path or
+    *                 class path, but is not itself checked.  If <code>null</code>, there are none.
+    * @param cancelled  Polled during the check, which stops when it becomes true.
+    * @return Errors that occurred, or <code>null</code> if the check was cancelled.
+    */
+  List<? extends DJError> checkSources(Map<File, String> sources, Map<File, String> unsaved, 
+                                       Map<String, byte[]> classes, List<? extends File> classPath, 
+                                       List<? extends File> sourcePath, List<? extends File> bootClassPath, 
+                                       String sourceVersion, boolean showWarnings, Condition cancelled);
+}
@@ -0,0 +1,247 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** A file manager for the javax.tools compilers that reads the sources being compiled from memory and, optionally,
+  * keeps the class files written in memory.  Sources on the source path or class path that are held in memory
+  * replace the versions on disk, so unsaved changes to other files are seen too, and class files held in memory (from
+  * earlier compilations in memory) are found ahead of the class path.  Besides the sources to compile, the text of
+  * other unsaved sources can be held in memory just to replace the versions on disk.  Everything else is delegated to
+  * a standard file manager.  Used by implementations of {@link InMemoryCompiler}.
+  * @version $Id$
+  */
+public class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+  
+  /** The sources held in memory, keyed by canonical file. */
+  private final Map<File, String> _sources;
+  
+  /** The canonical files of the sources to compile. */
+  private final List<File> _roots;
+  
+  /** The class files held in memory that are read in preference to the class path, keyed by binary name. */
+  private final Map<String, byte[]> _classes;
+  
+  /** Receives the class files written, keyed by binary name; null if they are discarded. */
+  private final Map<String, byte[]> _classFiles;
+  
+  /** 
+   * @param fileManager the file manager for everything not held in memory
+   * @param sources the text of the sources held in memory, keyed by file
+   * @param classFiles receives the class files written, keyed by binary class name; null to discard them
+   */
+  public MemoryFileManager(StandardJavaFileManager fileManager, Map<File, String> sources, 
+                           Map<String, byte[]> classFiles) {
+    this(fileManager, sources, Collections.<String, byte[]>emptyMap(), classFiles);
+  }
+  
+  /** 
+   * @param fileManager the file manager for everything not held in memory
+   * @param sources the text of the sources held in memory, keyed by file
+   * @param classes class files held in memory, keyed by binary class name, which are found ahead of the class path
+   * @param classFiles receives the class files written, keyed by binary class name; null to discard them
+   */
+  public MemoryFileManager(StandardJavaFileManager fileManager, Map<File, String> sources, 
+                           Map<String, byte[]> classes, Map<String, byte[]> classFiles) {
+    this(fileManager, sources, Collections.<File, String>emptyMap(), classes, classFiles);
+  }
+  
+  /** 
+   * @param fileManager the file manager for everything not held in memory
+   * @param sources the text of the sources to compile, keyed by file
+   * @param unsaved the text of other sources, keyed by file, that replaces them on the source path or class path
+   * @param classes class files held in memory, keyed by binary class name, which are found ahead of the class path
+   * @param classFiles receives the class files written, keyed by binary class name; null to discard them
+   */
+  public MemoryFileManager(StandardJavaFileManager fileManager, Map<File, String> sources, Map<File, String> unsaved,
+                           Map<String, byte[]> classes, Map<String, byte[]> classFiles) {
+    super(fileManager);
+    _sources = new HashMap<File, String>();
+    for (Map.Entry<File, String> e: unsaved.entrySet()) {
+      _sources.put(IOUtil.attemptCanonicalFile(e.getKey()), e.getValue());
+    }
+    _roots = new ArrayList<File>();
+    for (Map.Entry<File, String> e: sources.entrySet()) {
+      File f = IOUtil.attemptCanonicalFile(e.getKey());
+      _sources.put(f, e.getValue());
+      _roots.add(f);
+    }
+    _classes = classes;
+    _classFiles = classFiles;
+  }
+  
+  /** @return file objects for the sources to compile, to be passed to the compilation task */
+  public List<JavaFileObject> getSourceObjects() {
+    List<JavaFileObject> result = new ArrayList<JavaFileObject>();
+    for (File f: _roots) result.add(new SourceObject(f, _sources.get(f), null));
+    return result;
+  }
+  
+  public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, 
+                                       boolean recurse) throws IOException {
+    Iterable<JavaFileObject> result = super.list(location, packageName, kinds, recurse);
+    if (location == StandardLocation.CLASS_PATH && kinds.contains(JavaFileObject.Kind.CLASS) && ! _classes.isEmpty()) {
+      result = _withMemoryClasses(result, packageName, recurse);
+    }
+    if (! kinds.contains(JavaFileObject.Kind.SOURCE) || _sources.isEmpty()) return result;
+    List<JavaFileObject> replaced = new ArrayList<JavaFileObject>();
+    for (JavaFileObject fo: result) {
+      String text = (fo.getKind() == JavaFileObject.Kind.SOURCE) ? _sources.get(_fileOf(fo)) : null;
+      replaced.add((text == null) ? fo : new SourceObject(_fileOf(fo), text, fo));
+    }
+    return replaced;
+  }
+  
+  /** @return the class files held in memory that are in the given package, followed by the file objects in listed
+    *          that are not class files of the same classes */
+  private Iterable<JavaFileObject> _withMemoryClasses(Iterable<JavaFileObject> listed, String packageName, 
+                                                      boolean recurse) {
+    List<JavaFileObject> result = new ArrayList<JavaFileObject>();
+    for (Map.Entry<String, byte[]> e: _classes.entrySet()) {
+      String name = e.getKey();
+      int dot = name.lastIndexOf('.');
+      String pkg = (dot < 0) ? "" : name.substring(0, dot);
+      if (pkg.equals(packageName) || (recurse && (packageName.length() == 0 || pkg.startsWith(packageName + ".")))) {
+        result.add(new MemoryClassObject(name, e.getValue()));
+      }
+    }
+    for (JavaFileObject fo: listed) {
+      if (fo.getKind() != JavaFileObject.Kind.CLASS || 
+          ! _classes.containsKey(super.inferBinaryName(StandardLocation.CLASS_PATH, fo))) result.add(fo);
+    }
+    return result;
+  }
+  
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof MemoryClassObject) return ((MemoryClassObject) file)._name;
+    if (file instanceof SourceObject) {
+      JavaFileObject original = ((SourceObject) file)._original;
+      return (original == null) ? null : super.inferBinaryName(location, original);
+    }
+    return super.inferBinaryName(location, file);
+  }
+  
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof SourceObject || b instanceof SourceObject || a instanceof ClassObject || b instanceof ClassObject ||
+        a instanceof MemoryClassObject || b instanceof MemoryClassObject) {
+      return a.toUri().equals(b.toUri());
+    }
+    return super.isSameFile(a, b);
+  }
+  
+  public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, 
+                                             FileObject sibling) throws IOException {
+    if (location == StandardLocation.CLASS_OUTPUT && kind == JavaFileObject.Kind.CLASS) {
+      return new ClassObject(className);
+    }
+    return super.getJavaFileForOutput(location, className, kind, sibling);
+  }
+  
+  /** @return the canonical file of a file object from the standard file manager, or null */
+  private static File _fileOf(JavaFileObject fo) {
+    URI uri = fo.toUri();
+    if (! "file".equals(uri.getScheme())) return null;
+    return IOUtil.attemptCanonicalFile(new File(uri));
+  }
+  
+  /** A source file whose text is held in memory. */
+  private static class SourceObject extends SimpleJavaFileObject {
+    private final String _text;
+    private final JavaFileObject _original;  // the file object on disk that this one replaces, or null
+    SourceObject(File f, String text, JavaFileObject original) {
+      super(f.toURI(), JavaFileObject.Kind.SOURCE);
+      _text = text;
+      _original = original;
+    }
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) { return _text; }
+    /** The text is newer than any class file compiled from the file, which must not be read in its place. */
+    public long getLastModified() { return Long.MAX_VALUE; }
+  }
+  
+  /** A class file held in memory, read in preference to the class path. */
+  private static class MemoryClassObject extends SimpleJavaFileObject {
+    private final String _name;
+    private final byte[] _bytes;
+    MemoryClassObject(String name, byte[] bytes) {
+      super(URI.create("memory:///" + name.replace('.', '/') + JavaFileObject.Kind.CLASS.extension), 
+            JavaFileObject.Kind.CLASS);
+      _name = name;
+      _bytes = bytes;
+    }
+    public InputStream openInputStream() { return new ByteArrayInputStream(_bytes); }
+  }
+  
+  /** A class file written to memory. */
+  private class ClassObject extends SimpleJavaFileObject {
+    private final String _name;
+    ClassObject(String name) {
+      super(URI.create("memory:///" + name.replace('.', '/') + JavaFileObject.Kind.CLASS.extension), 
+            JavaFileObject.Kind.CLASS);
+      _name = name;
+    }
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        public void close() throws IOException {
+          super.close();
+          if (_classFiles != null) {
+            synchronized(_classFiles) { _classFiles.put(_name, toByteArray()); }
+          }
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.compiler;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.util.*;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests MemoryFileManager with the system Java compiler.
+  * @version $Id$
+  */
+public class MemoryFileManagerTest extends DrJavaTestCase {
+  
+  private File _src;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    _src = IOUtil.createAndMarkTempDirectory("memory", "");
+  }
+  
+  /** Compiles the given sources with _src as the source path and returns the number of errors. */
+  private int _compile(Map<File, String> sources, Map<String, byte[]> classFiles) throws Exception {
+    return _compile(sources, Collections.<String, byte[]>emptyMap(), classFiles);
+  }
+  
+  /** Compiles the given sources with _src as the source and class path and returns the number of errors. */
+  private int _compile(Map<File, String> sources, Map<String, byte[]> classes, 
+                       Map<String, byte[]> classFiles) throws Exception {
+    return _compile(sources, Collections.<File, String>emptyMap(), classes, classFiles);
+  }
+  
+  /** Compiles the given sources with _src as the source and class path and returns the number of errors. */
+  private int _compile(Map<File, String> sources, Map<File, String> unsaved, Map<String, byte[]> classes, 
+                       Map<String, byte[]> classFiles) throws Exception {
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    MemoryFileManager fm = new MemoryFileManager(javac.getStandardFileManager(diagnostics, null, null), sources, 
+                                                 unsaved, classes, classFiles);
+    assertEquals("compiled sources", sources.size(), fm.getSourceObjects().size());
+    List<String> options = Arrays.asList("-sourcepath", _src.getPath(), "-cp", _src.getPath(), "-implicit:class");
+    javac.getTask(null, fm, diagnostics, options, null, fm.getSourceObjects()).call();
+    fm.close();
+    return diagnostics.getDiagnostics().size();
+  }
+  
+  public void testCompileToMemory() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;  // running on a JRE
+    File a = new File(_src, "p/A.java");
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(a, "package p; public class A { Runnable r = new Runnable() { public void run() { } }; }");
+    Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+    assertEquals("errors", 0, _compile(sources, classFiles));
+    assertEquals("classes", new HashSet<String>(Arrays.asList("p.A", "p.A$1")), classFiles.keySet());
+    assertFalse("source not written", a.exists());
+    assertFalse("class not written", new File(_src, "p/A.class").exists());
+    
+    sources.put(a, "package p; public class A { int x = true; }");
+    classFiles.clear();
+    assertEquals("errors", 1, _compile(sources, null));
+  }
+  
+  public void testUnsavedSourcePath() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;  // running on a JRE
+    File b = new File(_src, "B.java");
+    IOUtil.writeStringToFile(b, "class B { }");
+    File c = new File(_src, "C.java");
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(c, "class C { int f() { return new B().g(); } }");
+    assertEquals("saved B has no g()", 1, _compile(sources, null));
+    
+    // B is on the source path; its unsaved text replaces the file on disk
+    sources.put(b, "class B { int g() { return 1; } }");
+    Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+    assertEquals("errors", 0, _compile(sources, classFiles));
+    assertEquals("classes", new HashSet<String>(Arrays.asList("B", "C")), classFiles.keySet());
+    assertEquals("B unchanged on disk", "class B { }", IOUtil.toString(b));
+  }
+  
+  public void testUnsavedNotCompiled() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;  // running on a JRE
+    File b = new File(_src, "B.java");
+    IOUtil.writeStringToFile(b, "class B { }");
+    b.setLastModified(System.currentTimeMillis() - 10000);
+    assertEquals("compiled to disk", 0, ToolProvider.getSystemJavaCompiler().run(null, null, null, b.getPath()));
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(new File(_src, "C.java"), "class C { int f() { return new B().g(); } }");
+    assertEquals("B on disk has no g()", 1, _compile(sources, null));
+    
+    // the unsaved text of B replaces both B.java and the newer B.class, but B is not a source to compile
+    Map<File, String> unsaved = Collections.singletonMap(b, "class B { int g() { return 1; } }");
+    assertEquals("errors", 0, _compile(sources, unsaved, Collections.<String, byte[]>emptyMap(), null));
+  }
+  
+  public void testMemoryClasses() throws Exception {
+    if (ToolProvider.getSystemJavaCompiler() == null) return;  // running on a JRE
+    File a = new File(_src, "p/A.java");
+    a.getParentFile().mkdirs();
+    IOUtil.writeStringToFile(a, "package p; public class A { }");
+    assertEquals("compiled to disk", 0, ToolProvider.getSystemJavaCompiler().run(null, null, null, a.getPath()));
+    assertTrue("only the class file of A is on disk", a.delete());
+    
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(a, "package p; public class A { public int f() { return 1; } }");
+    Map<String, byte[]> classes = new HashMap<String, byte[]>();
+    assertEquals("errors", 0, _compile(sources, classes));
+    
+    File b = new File(_src, "q/B.java");
+    sources.clear();
+    sources.put(b, "package q; class B { int g() { return new p.A().f(); } }");
+    assertEquals("A on disk has no f()", 1, _compile(sources, null));
+    Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+    assertEquals("memory A replaces the class file", 0, _compile(sources, classes, classFiles));
+    assertEquals("classes", Collections.singleton("q.B"), classFiles.keySet());
+  }
+}
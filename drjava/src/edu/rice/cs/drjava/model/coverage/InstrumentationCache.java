@@ -0,0 +1,193 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.coverage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/**
+ * Instruments class files for coverage runs, keeping the instrumented classes in a directory keyed by the content
+ * hash of the original class file, so that unchanged classes are instrumented only once, even across interpreter
+ * JVMs.  Cache misses are instrumented in parallel by a pool of daemon threads.  Since cached classes are run, the
+ * directory is created accessible only to its owner, and an entry is used only if it matches the digest stored with
+ * it; other entries are instrumented again.
+ */
+public class InstrumentationCache {
+
+    /** The default cache directory, in the user's home directory. */
+    public static final File DEFAULT_DIRECTORY =
+        new File(System.getProperty("user.home", "."), ".drjava.coverage-" + JaCoCo.VERSION);
+
+    /** The length of the SHA-1 digest of the instrumented class that starts each cache entry. */
+    private static final int DIGEST_LENGTH = 20;
+
+    /**
+     * A runtime whose key, which JaCoCo compiles into every instrumented class, is always the same, so that classes
+     * instrumented for one instance work with every other instance.  Only one instance may be started at a time.
+     */
+    public static class StableRuntime extends LoggerRuntime {
+        @Override public int hashCode() { return 0xD7A7A; }
+    }
+
+    private final File dir;
+    private final StableRuntime runtime = new StableRuntime();
+    private ExecutorService pool = null;
+
+    /**
+     * @param dir the cache directory; created if necessary
+     */
+    public InstrumentationCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Starts instrumenting the given class file.  The instrumented bytes work with any {@link StableRuntime}.
+     * If the class file cannot be instrumented, the result is the original class file.
+     *
+     * @param className name of the class
+     * @param classFile the class file
+     * @return the instrumented class, once it is available
+     */
+    public Future<byte[]> instrument(final String className, final File classFile) {
+        return pool().submit(new Callable<byte[]>() {
+            public byte[] call() throws IOException { return instrumentNow(className, classFile); }
+        });
+    }
+
+    private byte[] instrumentNow(String className, File classFile) throws IOException {
+        byte[] original = IOUtil.toByteArray(classFile);
+        File cached = new File(dir, hash(original) + ".class");
+        if (cached.isFile()) {
+            byte[] entry = readEntry(cached);
+            if (entry != null) { return entry; }
+            cached.delete(); // corrupt; instrument again
+        }
+
+        byte[] instrumented;
+        try { instrumented = new Instrumenter(runtime).instrument(original, className); }
+        catch (Exception e) { return original; }
+
+        // write to a temporary file first, so that readers never see a partial file
+        try {
+            if (!makeDirectory()) { return instrumented; }
+            File temp = File.createTempFile("instr", ".tmp", dir);
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(digest(instrumented));
+                out.write(instrumented);
+            }
+            finally { IOUtil.attemptClose(out); }
+            if (!temp.renameTo(cached)) { temp.delete(); }
+        }
+        catch (IOException e) { /* the cache is only an optimization */ }
+        return instrumented;
+    }
+
+    /** The class stored in the given cache entry, or null if the entry cannot be read or does not match its digest. */
+    private static byte[] readEntry(File entry) {
+        byte[] bytes;
+        try { bytes = IOUtil.toByteArray(entry); }
+        catch (IOException e) { return null; }
+        if (bytes.length <= DIGEST_LENGTH) { return null; }
+        byte[] instrumented = new byte[bytes.length - DIGEST_LENGTH];
+        System.arraycopy(bytes, DIGEST_LENGTH, instrumented, 0, instrumented.length);
+        byte[] stored = new byte[DIGEST_LENGTH];
+        System.arraycopy(bytes, 0, stored, 0, DIGEST_LENGTH);
+        return Arrays.equals(stored, digest(instrumented)) ? instrumented : null;
+    }
+
+    /**
+     * Creates the cache directory if it does not exist, readable, writable and searchable only by its owner where
+     * the file system supports that (the user's home directory is normally private anyway).
+     * @return whether the directory exists
+     */
+    private synchronized boolean makeDirectory() {
+        if (dir.isDirectory()) { return true; }
+        if (!dir.mkdirs()) { return dir.isDirectory(); }
+        dir.setReadable(false, false);
+        dir.setReadable(true, true);
+        dir.setWritable(false, false);
+        dir.setWritable(true, true);
+        dir.setExecutable(false, false);
+        dir.setExecutable(true, true);
+        return true;
+    }
+
+    private synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Coverage Instrumenter");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+
+    /** The SHA-1 hash of the given bytes as a hexadecimal string. */
+    private static String hash(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest(bytes)) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** The SHA-1 digest of the given bytes. */
+    private static byte[] digest(byte[] bytes) {
+        try { return MessageDigest.getInstance("SHA-1").digest(bytes); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+    }
+}
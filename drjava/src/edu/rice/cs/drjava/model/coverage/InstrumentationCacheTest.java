@@ -0,0 +1,138 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.coverage;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests the cache of instrumented classes.
+  * @version $Id$
+  */
+public class InstrumentationCacheTest extends DrJavaTestCase {
+  
+  private static final String CLASS_NAME = InstrumentationCacheTest.class.getName();
+  
+  private File _dir;
+  private File _cacheDir;
+  private File _classFile;
+  private byte[] _original;
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    _dir = IOUtil.createAndMarkTempDirectory("instrumentation", "");
+    _cacheDir = new File(_dir, "cache");
+    _classFile = new File(_dir, "InstrumentationCacheTest.class");
+    _original = IOUtil.toByteArray(InstrumentationCacheTest.class.getResourceAsStream("InstrumentationCacheTest.class"));
+    _write(_classFile, _original);
+  }
+  
+  public void tearDown() throws Exception {
+    IOUtil.deleteRecursively(_dir);
+    super.tearDown();
+  }
+  
+  private static void _write(File f, byte[] bytes) throws IOException {
+    OutputStream out = new FileOutputStream(f);
+    try { out.write(bytes); }
+    finally { out.close(); }
+  }
+  
+  private byte[] _instrument() throws Exception {
+    return new InstrumentationCache(_cacheDir).instrument(CLASS_NAME, _classFile).get();
+  }
+  
+  /** The single entry in the cache directory. */
+  private File _entry() {
+    File[] entries = _cacheDir.listFiles();
+    assertEquals("cache entries", 1, entries.length);
+    return entries[0];
+  }
+  
+  /** Tests that a miss instruments the class and stores it in a new directory accessible only to its owner. */
+  public void testMiss() throws Exception {
+    byte[] instrumented = _instrument();
+    assertFalse("instrumented", Arrays.equals(_original, instrumented));
+    assertTrue("cache directory created", _cacheDir.isDirectory());
+    assertTrue("entry named by hash", _entry().getName().endsWith(".class"));
+    if (File.separatorChar == '/') {
+      assertTrue("owner can write", _cacheDir.canWrite());
+    }
+    
+    InputStream other = DrJavaTestCase.class.getResourceAsStream("DrJavaTestCase.class");
+    _write(_classFile, IOUtil.toByteArray(other));
+    assertFalse("changed class is a miss", Arrays.equals(instrumented, _instrument()));
+    assertEquals("cache entries", 2, _cacheDir.listFiles().length);
+  }
+  
+  /** Tests that a second cache on the same directory uses the stored class without writing it again. */
+  public void testHit() throws Exception {
+    byte[] instrumented = _instrument();
+    File entry = _entry();
+    assertTrue(entry.setLastModified(1000000000L));
+    assertTrue("same class", Arrays.equals(instrumented, _instrument()));
+    assertEquals("entry not rewritten", 1000000000L, _entry().lastModified());
+  }
+  
+  /** Tests that entries that are truncated, altered or empty are instrumented again and replaced. */
+  public void testCorrupt() throws Exception {
+    byte[] instrumented = _instrument();
+    File entry = _entry();
+    byte[] stored = IOUtil.toByteArray(entry);
+    
+    _write(entry, Arrays.copyOf(stored, stored.length / 2));
+    assertTrue("truncated", Arrays.equals(instrumented, _instrument()));
+    assertTrue("entry replaced", Arrays.equals(stored, IOUtil.toByteArray(_entry())));
+    
+    byte[] altered = stored.clone();
+    altered[altered.length - 1] ^= 1;
+    _write(entry, altered);
+    assertTrue("altered", Arrays.equals(instrumented, _instrument()));
+    assertTrue("entry replaced", Arrays.equals(stored, IOUtil.toByteArray(_entry())));
+    
+    _write(entry, new byte[0]);
+    assertTrue("empty", Arrays.equals(instrumented, _instrument()));
+    assertTrue("entry replaced", Arrays.equals(stored, IOUtil.toByteArray(_entry())));
+  }
+}
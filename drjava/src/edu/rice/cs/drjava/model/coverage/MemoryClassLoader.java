@@ -2,15 +2,19 @@ package edu.rice.cs.drjava.model.coverage;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.lang.ClassLoader;
 
 /**
- * A class loader that loads classes from in-memory data.
+ * A class loader that loads classes from in-memory data.  The data of a
+ * class may still be in preparation when it is added; it is only needed
+ * when the class is first loaded.
  */
 public class MemoryClassLoader extends ClassLoader {
 
-    private final Map<String, byte[]> definitions = 
-        new HashMap<String, byte[]>();
+    private final Map<String, Future<byte[]>> definitions = 
+        new HashMap<String, Future<byte[]>>();
 
     /**
      * Add a in-memory representation of a class.
@@ -18,19 +22,29 @@ public class MemoryClassLoader extends ClassLoader {
      * @param name  name of the class
      * @param bytes class definition
      */
-    public void addDefinition(final String name, final byte[] bytes) {
+    public synchronized void addDefinition(final String name, final Future<byte[]> bytes) {
         definitions.put(name, bytes);
     }
 
     @Override
-    protected Class<?> loadClass(final String name, final boolean resolve)
+    protected synchronized Class<?> loadClass(final String name, final boolean resolve)
         throws ClassNotFoundException {
-        final byte[] bytes = definitions.get(name);
-        if (bytes != null) {
+        final Class<?> loaded = findLoadedClass(name);
+        if (loaded != null) {
+            return loaded;
+        }
+        final Future<byte[]> definition = definitions.get(name);
+        if (definition != null) {
+            final byte[] bytes;
+            try {
+                bytes = definition.get();
+            } catch (InterruptedException e) {
+                throw new ClassNotFoundException(name, e);
+            } catch (ExecutionException e) {
+                throw new ClassNotFoundException(name, e.getCause());
+            }
             return defineClass(name, bytes, 0, bytes.length);
         }
         return super.loadClass(name, resolve);
     }
 }
-
-
@@ -74,6 +74,9 @@ public interface DebugListener extends RegionManagerListener<Breakpoint> {
     */
   public void watchRemoved(DebugWatchData w);
   
+  /** Called when the values or types of one or more watches have changed.  Must be executed in event thread. */
+  public void watchesUpdated();
+  
   /** Called when a step is requested on the current thread.  Must be executed in event thread. */
   public void stepRequested();
   
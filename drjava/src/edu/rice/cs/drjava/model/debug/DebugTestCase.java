@@ -447,6 +447,7 @@ public abstract class DebugTestCase extends GlobalModelTestCase {
     protected volatile int regionRemovedCount = 0;
     protected volatile int watchSetCount = 0;
     protected volatile int watchRemovedCount = 0;
+    protected volatile int watchesUpdatedCount = 0;
     protected volatile int stepRequestedCount = 0;
     protected volatile int currThreadSuspendedCount = 0;
     protected volatile int currThreadResumedCount = 0;
@@ -546,6 +547,9 @@ public abstract class DebugTestCase extends GlobalModelTestCase {
     
     public void watchRemoved(DebugWatchData w) { fail("watchRemoved fired unexpectedly"); }
     
+    /** This won't fail because watch values are computed asynchronously, so updates may arrive at any time. */
+    public void watchesUpdated() { watchesUpdatedCount++; }
+    
     public void stepRequested() { fail("stepRequested fired unexpectedly"); }
     
     public void currThreadSuspended() { fail("currThreadSuspended fired unexpectedly"); }
@@ -40,6 +40,7 @@ import java.awt.EventQueue;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.TreeMap;
@@ -48,6 +49,9 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 // DrJava stuff
 import edu.rice.cs.util.UnexpectedException;
@@ -66,6 +70,7 @@ import edu.rice.cs.drjava.model.debug.*;
 import edu.rice.cs.drjava.DrJava;
 import edu.rice.cs.drjava.config.OptionConstants;
 import edu.rice.cs.plt.tuple.Pair;
+import edu.rice.cs.plt.tuple.Triple;
 
 import com.sun.jdi.*;
 import com.sun.jdi.connect.*;
@@ -119,6 +124,23 @@ public class JPDADebugger implements Debugger {
   /** Vector of all current Watches. */
   private final ArrayList<DebugWatchData> _watches = new ArrayList<DebugWatchData>();
   
+  /** The most recently computed (value, type) of each watched name, valid until the next _updateWatches.  Only
+    * accessed in the event thread. */
+  private final HashMap<String, Pair<String,String>> _watchCache = new HashMap<String, Pair<String,String>>();
+  
+  /** Incremented each time the watch values may have changed, so that the results of earlier evaluations can
+    * be discarded. */
+  private volatile int _watchGeneration = 0;
+  
+  /** Daemon thread on which watches are evaluated, in the order requested. */
+  private static final ExecutorService _watchEvaluator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "Debugger Watches");
+      t.setDaemon(true);
+      return t;
+    }
+  });
+  
   /** Keeps track of any DebugActions whose classes have not yet been loaded, so that EventRequests can be created when the correct
     * ClassPrepareEvent occurs.
     */
@@ -531,7 +553,10 @@ public class JPDADebugger implements Debugger {
     
     final DebugWatchData w = new DebugWatchData(field);
     _watches.add(w);
-    _updateWatches();
+    // another watch on the same name may already have a value; _evaluateWatches skips cached names
+    Pair<String,String> cached = _watchCache.get(field);
+    if (cached != null) _setWatchValue(w, cached.first(), cached.second());
+    _evaluateWatches();
     
 //    Utilities.invokeLater(new Runnable() { public void run() { 
       _notifier.watchSet(w); 
@@ -1465,47 +1490,77 @@ public class JPDADebugger implements Debugger {
     }
   }
   
-  /** Updates the stored value of each watched field and variable. Synchronization is necessary because this method is 
-    * called from unsynchronized listeners. */
-  private /* synchronized */ void _updateWatches() {
+  /** Updates the stored value of each watched field and variable.  Called whenever the values may have changed: the
+    * cached values are discarded, along with the results of any evaluation still in progress. */
+  private void _updateWatches() {
+    assert EventQueue.isDispatchThread();
+    _watchGeneration++;
+    _watchCache.clear();
+    _evaluateWatches();
+  }
+  
+  /** Evaluates each watch without a cached value in the active interpreter.  The values are computed by a single call
+    * to the interpreter JVM, made on a background thread so that stepping doesn't wait for it, and are then applied to
+    * the watches in the event thread.
+    */
+  private void _evaluateWatches() {
     assert EventQueue.isDispatchThread();
     if (! isReady()) return;
     
+    final List<String> names = new ArrayList<String>();
     for (DebugWatchData w : _watches) {
       String name = w.getName();
-      String val = "";
-      String type = "";
-//      ArrayList<Integer> arr_index = new ArrayList<Integer>();
-//      
-//      if(name.indexOf("[") != -1 && name.indexOf("]") != -1) {
-//        name = name.substring(0, name.indexOf("["));
-//        arr_index.add(Integer.parseInt(w.getName().substring(w.getName().indexOf("[")+1, w.getName().indexOf("]"))));      
-//        if(w.getName().indexOf("]")<(w.getName().length()-1)) {
-//          String iter = w.getName().substring(w.getName().indexOf("]")+1, w.getName().length());
-//          while(iter.indexOf("[") != -1 && iter.indexOf("]") != -1) {
-//            arr_index.add(Integer.parseInt(iter.substring(iter.indexOf("[")+1, iter.indexOf("]"))));      
-//            if(iter.indexOf("]")<(iter.length()-1))
-//              iter = iter.substring(iter.indexOf("]")+1, iter.length());
-//            else 
-//              iter = "";
-//          }
-//        }
-//      }
-//     
-//      int [] indices = new int[arr_index.size()];
-//      for (int i = 0; i < arr_index.size(); i++) {
-//        indices[i] = arr_index.get(i);
-//      }
-      Pair<String,String> pair = _model.getInteractionsModel().getVariableToString(name);
-      // System.out.println("pair==null? "+(pair==null));
-      val = pair.first();
-      type = pair.second();
-      
-      if (val == null) { w.setNoValue(); }
-      else { w.setValue(val); }
-      if (type == null) { w.setNoType(); }
-      else { w.setType(type); }
+      if (! _watchCache.containsKey(name) && ! names.contains(name)) names.add(name);
+    }
+    if (names.isEmpty()) return;
+    
+    final int generation = _watchGeneration;
+    final DefaultInteractionsModel interactionsModel = _model.getInteractionsModel();
+    final String interpreterName = interactionsModel.getActiveInterpreterName();
+    _watchEvaluator.execute(new Runnable() {
+      public void run() {
+        if (generation != _watchGeneration) return;  // superseded by a later update
+        final List<Triple<String,String,String>> values = interactionsModel.getVariablesToString(interpreterName, names);
+        EventQueue.invokeLater(new Runnable() { public void run() { _applyWatchValues(generation, values); } });
+      }
+    });
+  }
+  
+  /** Stores newly computed watch values and notifies listeners once if any watch changed.  Does nothing if the values
+    * have been superseded by a later call to {@link #_updateWatches}.
+    * @param generation the value of _watchGeneration when the values were requested
+    * @param values (name, value, type) triples; a null value or type means the watch is not in scope
+    */
+  private void _applyWatchValues(int generation, List<Triple<String,String,String>> values) {
+    assert EventQueue.isDispatchThread();
+    if (generation != _watchGeneration) return;
+    
+    for (Triple<String,String,String> v : values) {
+      _watchCache.put(v.first(), Pair.make(v.second(), v.third()));
     }
+    boolean changed = false;
+    for (Triple<String,String,String> v : values) {
+      for (DebugWatchData w : _watches) {
+        if (w.getName().equals(v.first())) { changed |= _setWatchValue(w, v.second(), v.third()); }
+      }
+    }
+    if (changed) _notifier.watchesUpdated();
+  }
+  
+  /** Sets the value and type of the given watch.
+    * @return whether the watch's value, type, or changed flag is different as a result
+    */
+  private static boolean _setWatchValue(DebugWatchData w, String value, String type) {
+    String oldValue = w.getValue();
+    String oldType = w.getType();
+    boolean oldChanged = w.isChanged();
+    
+    if (value == null) { w.setNoValue(); }
+    else { w.setValue(value); }
+    if (type == null) { w.setNoType(); }
+    else { w.setType(type); }
+    
+    return ! (oldValue.equals(w.getValue()) && oldType.equals(w.getType()) && oldChanged == w.isChanged());
   }
   
   /** 
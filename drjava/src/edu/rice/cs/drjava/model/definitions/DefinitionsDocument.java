@@ -344,11 +344,7 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
   public boolean isModifiedSinceSave() { return  _isModifiedSinceSave; }
   
   /** @return the current column of the cursor position. Uses a 0 based index. */
-  public int getCurrentCol() {
-    Element root = getDefaultRootElement();
-    int line = root.getElementIndex(_currentLocation);
-    return _currentLocation - root.getElement(line).getStartOffset();
-  }
+  public int getCurrentCol() { return _currentLocation - lineToOffset(offsetToLine(_currentLocation)); }
   
   /** @return the current line of the cursor position.  Uses a 1-based index. */
   public int getCurrentLine() { return getLineOfOffset(_currentLocation); }
@@ -357,7 +353,7 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
    * @param offset the offset for which to get the corresponding line
    * @return the line number corresponding to offset.  Uses a 1-based index. 
    */
-  public int getLineOfOffset(int offset) { return getDefaultRootElement().getElementIndex(offset) + 1; }
+  public int getLineOfOffset(int offset) { return offsetToLine(offset) + 1; }
   
   /** Returns the offset corresponding to the first character of the given line number, or -1 if the lineNum is not
     * found.  Line number counting begins with 1 not 0.  Assumes read lock is already held.
@@ -366,25 +362,7 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
     */
   public int _getOffset(int lineNum) {
     if (lineNum <= 0) return -1;
-    if (lineNum == 1) return 0;
-    
-//    synchronized(_reduced) {
-    final int origPos = getCurrentLocation();
-    try {
-      final int docLen = getLength();
-      
-      setCurrentLocation(0); // _currentLocation is candidate offset to return
-      int i;
-      for (i = 1; (i < lineNum) && (_currentLocation < docLen); i++) {
-        int dist = _reduced.getDistToNextNewline();     // or end of doc
-        if (_currentLocation + dist < docLen) dist++;  // skip newline
-        move(dist);  // updates _currentLocation to beginning of line # (i + 1)
-      }
-      if (i == lineNum) return _currentLocation;
-      else return -1;
-    }
-    finally { setCurrentLocation(origPos); }
-//    }
+    return lineToOffset(lineNum - 1);
   }
   
   
@@ -534,17 +512,9 @@ public class DefinitionsDocument extends AbstractDJDocument implements Finalizab
    * @param line the line to go to
    */
   public void gotoLine(int line) {
-    
-    int dist;
     if (line < 0) return;
-    
-    int len = getLength();
-    setCurrentLocation(0);
-    for (int i = 1; (i < line) && (_currentLocation < len); i++) {
-      dist = _reduced.getDistToNextNewline();
-      if (_currentLocation + dist < len) dist++;
-      move(dist);  // updates _currentLocation
-    }
+    if (line > getLineCount()) setCurrentLocation(getLength());  // past the last line
+    else setCurrentLocation(lineToOffset(Math.max(line, 1) - 1));
   }  
   
   /** 
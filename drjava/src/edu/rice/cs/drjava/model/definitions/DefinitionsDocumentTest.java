@@ -373,6 +373,76 @@ public final class DefinitionsDocumentTest extends DrJavaTestCase implements Red
     assertEquals("#0.0", 11, _doc.getCurrentLocation());
   }
   
+  /** 
+   * Tests that a cached failure to find a brace is dropped by a later edit that supplies the brace, and that the
+   * found brace is dropped again when the edit is removed.
+   * @throws BadLocationException if attempts to reference an invalid location
+   */
+  public void testCachedBraceMissInvalidated() throws BadLocationException {
+    final String text = "class A { void m() { foo(1, 2; } }";
+    _doc.insertString(0, text, null);
+    final int open = text.indexOf('(', text.indexOf("foo"));
+    final int close = text.indexOf(';');
+    assertEquals("#0.0", -1, _doc.findNextEnclosingBrace(open, '(', ')'));
+    assertEquals("#0.1", -1, _doc.findNextEnclosingBrace(open, '(', ')'));  // answered from the cache
+    
+    _doc.insertString(close, ")", null);
+    assertEquals("#1.0", close, _doc.findNextEnclosingBrace(open, '(', ')'));
+    
+    _doc.remove(close, 1);
+    assertEquals("#2.0", -1, _doc.findNextEnclosingBrace(open, '(', ')'));
+    
+    // a miss for a character on the line is dropped by an edit after the query position
+    final int start = text.indexOf("foo");
+    assertEquals("#3.0", -1, _doc.findCharOnLine(start, '!'));
+    _doc.insertString(close, "!", null);
+    assertEquals("#3.1", close, _doc.findCharOnLine(start, '!'));
+  }
+  
+  /** 
+   * Tests that the line/offset mapping follows insertions and removals.
+   * @throws BadLocationException if attempts to reference an invalid location
+   */
+  public void testLineToOffset() throws BadLocationException {
+    assertEquals("#0.0", 1, _doc.getLineCount());
+    assertEquals("#0.1", 0, _doc.lineToOffset(0));
+    assertEquals("#0.2", -1, _doc.lineToOffset(1));
+    
+    _doc.insertString(0, "11111\n2222\n33333\n44444", null);
+    assertEquals("#1.0", 4, _doc.getLineCount());
+    assertEquals("#1.1", 11, _doc.lineToOffset(2));
+    assertEquals("#1.2", 2, _doc.offsetToLine(11));
+    assertEquals("#1.3", 1, _doc.offsetToLine(10));
+    assertEquals("#1.4", 3, _doc.offsetToLine(_doc.getLength()));
+    assertEquals("#1.5", 17, _doc._getOffset(4));
+    assertEquals("#1.6", -1, _doc._getOffset(5));
+    
+    _doc.remove(4, 3);  // joins the first two lines
+    assertEquals("#2.0", "1111222\n33333\n44444", _doc.getText());
+    assertEquals("#2.1", 3, _doc.getLineCount());
+    assertEquals("#2.2", 8, _doc.lineToOffset(1));
+    assertEquals("#2.3", 0, _doc.offsetToLine(7));
+    
+    _doc.insertString(8, "a\nb\n", null);
+    assertEquals("#3.0", 5, _doc.getLineCount());
+    assertEquals("#3.1", 10, _doc.lineToOffset(2));
+    assertEquals("#3.2", 12, _doc.lineToOffset(3));
+    _doc.gotoLine(4);
+    assertEquals("#3.3", 12, _doc.getCurrentLocation());
+    assertEquals("#3.4", 0, _doc.getCurrentCol());
+    _doc.gotoLine(9);
+    assertEquals("#3.5", _doc.getLength(), _doc.getCurrentLocation());
+    
+    // agrees with a scan of the text at every offset
+    String text = _doc.getText();
+    int line = 0;
+    for (int i = 0; i <= text.length(); i++) {
+      assertEquals("#4.0 at " + i, line, _doc.offsetToLine(i));
+      if (i == 0 || text.charAt(i - 1) == '\n') assertEquals("#4.1 at " + i, i, _doc.lineToOffset(line));
+      if (i < text.length() && text.charAt(i) == '\n') line++;
+    }
+  }
+  
   /** Tests returning the current column in the document.
    * @throws BadLocationException if attempts to reference an invalid location
    */
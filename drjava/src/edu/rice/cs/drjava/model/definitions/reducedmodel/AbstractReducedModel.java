@@ -46,6 +46,9 @@ public abstract class AbstractReducedModel implements ReducedModelStates {
   /** The character that represents the cursor in toString(). @see #toString() */
   public static final char PTR_CHAR = '#';
   
+  /** How many tokens to the left of the cursor an edit (including the state update that follows it) may change. */
+  static final int EDIT_MARGIN = 4;
+  
   /** The reduced model for a document is a list of ReducedTokens (braces and gaps). */
   volatile TokenList _tokens;
   
@@ -83,6 +86,7 @@ public abstract class AbstractReducedModel implements ReducedModelStates {
    * @return the absolute offset of the cursor
    */
   public int absOffset(TokenList.Iterator cursor) {
+    if (_tokens.isSeekIndexEnabled()) return cursor.absOffset();
     int off = cursor.getBlockOffset();
     TokenList.Iterator it = cursor.copy();
     if (! it.atStart()) it.prev();
@@ -108,6 +112,29 @@ public abstract class AbstractReducedModel implements ReducedModelStates {
     return len;
   }
   
+  /** 
+   * Turns the seek index of the token list on or off. 
+   * @param enabled whether long cursor moves should use the seek index
+   */
+  public void setSeekIndexEnabled(boolean enabled) { _tokens.setSeekIndexEnabled(enabled); }
+  
+  /** 
+   * Replaces the token list of this model (keeping the seek index setting) and moves the cursor to the start.  Used
+   * to restore a model from a ReducedModelImage.
+   * @param tokens the new token list
+   */
+  void restore(TokenList tokens) {
+    tokens.setSeekIndexEnabled(_tokens.isSeekIndexEnabled());
+    _tokens = tokens;
+    _cursor = _tokens.getIterator();
+    _cursor.setBlockOffset(0);
+  }
+  
+  /** Discards the part of the seek index that an edit at the cursor may invalidate.  Called before and after every 
+    * insertion; deletions are handled by TokenList.Iterator.delete.
+    */
+  void _invalidateSeekIndex() { _tokens.invalidateSeekIndex(_cursor.pos() - EDIT_MARGIN); }
+  
   /** @return the shadowing state of _cursor; only makes sense for ReducedModelComment. */
   public ReducedModelState getState() { return _cursor.getStateAtCurrent(); }
   
@@ -167,6 +194,7 @@ public abstract class AbstractReducedModel implements ReducedModelStates {
     * @param length the length of the inserted text
     */
   public void _insertGap( int length ) {
+    _invalidateSeekIndex();
     if (_cursor.atStart()) {
       if (_gapToRight()) {
         _cursor.next();
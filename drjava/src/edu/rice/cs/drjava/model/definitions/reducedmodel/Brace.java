@@ -93,6 +93,20 @@ class Brace extends ReducedToken implements ReducedModelStates {
     _size = getType().length();
   }
 
+  /** Makes a brace from the internal type index returned by getTypeIndex.  Used to rebuild a reduced model from a
+    * ReducedModelImage; unlike MakeBrace, preserves the orientation of quote braces.
+    * @param type the internal type index
+    * @param state the state of the reduced model
+    * @return a new Brace
+    */
+  static Brace fromTypeIndex(int type, ReducedModelState state) {
+    if (type < 0 || type > BRACES_LENGTH) throw new BraceException("Invalid brace type index " + type);
+    return new Brace(type, state);
+  }
+  
+  /** @return the internal type index of this brace, which (unlike getType()) distinguishes open and closing quotes. */
+  int getTypeIndex() { return _type; }
+
   /** Get the text of the brace.
     * @return the text of the Brace
     */
@@ -112,8 +112,10 @@ class ModelList<T> {
    */
   public ModelIterator getIterator() { return new ModelIterator(); }
 
-  /** The Node class for ModelLists.  The _prev and _next pointers are mutable.  The _item field is null in _head and _tail. */
-  private static class Node<T> {
+  /** The Node class for ModelLists.  The _prev and _next pointers are mutable.  The _item field is null in _head and _tail.
+    * Package private so that subclasses (TokenList) can record nodes in auxiliary indices.
+    */
+  static class Node<T> {
     Node<T> _prev;
     Node<T> _next;
     T _item;
@@ -235,6 +237,20 @@ class ModelList<T> {
     }
     
     public int pos() { return _pos; }
+    
+    /** @return the current node; only used by auxiliary indices in subclasses. */
+    Node<T> point() { return _point; }
+    
+    /** 
+     * Forces this iterator to point at the given node, which must be in this list at position pos.  Only used by 
+     * auxiliary indices in subclasses, which are responsible for supplying a consistent (node, pos) pair.
+     * @param point the node to point at
+     * @param pos the position of point within the list
+     */
+    void jumpTo(Node<T> point, int pos) {
+      _point = point;
+      _pos = pos;
+    }
 
     /** 
      * Inserts an item before the current item.  If current is head, we need 
@@ -54,6 +54,7 @@ public class ReducedModelBrace extends AbstractReducedModel {
   }
   
   public void insertChar(char ch) {
+    _invalidateSeekIndex();
     switch(ch) {
       case '{':
       case '}':
@@ -67,6 +68,7 @@ public class ReducedModelBrace extends AbstractReducedModel {
         _insertGap(1);
         break;
     }
+    _invalidateSeekIndex();
   }
   
   /** Helper function for top level brace insert functions.
@@ -54,7 +54,13 @@ public class ReducedModelComment extends AbstractReducedModel {
     _walker = _cursor.copy();
   }
   
+  void restore(TokenList tokens) {
+    super.restore(tokens);
+    _walker = _cursor.copy();
+  }
+  
   public void insertChar(char ch) {
+    _invalidateSeekIndex();
     switch(ch) {
       case '*': insertSpecial("*"); break;
       case '/': insertSpecial("/"); break;
@@ -65,6 +71,7 @@ public class ReducedModelComment extends AbstractReducedModel {
       default:
         _insertGap(1); break;
     }
+    _invalidateSeekIndex();
   }
   
   /** Inserts one of three special chars, (*),(/), or (\).
@@ -427,6 +434,7 @@ public class ReducedModelComment extends AbstractReducedModel {
     _updateBasedOnCurrentState();
     // restore the cursor
     _cursor.move(movement);
+    _invalidateSeekIndex();
     return;
   }
   
@@ -63,12 +63,24 @@ public class ReducedModelControl implements BraceReduction {
   final ReducedModelComment _rmc; // the reduced comment model
   volatile int _offset;
   
-  /** Standard constructor. */
-  public ReducedModelControl() {
+  /** Standard constructor.  Enables the seek index, as the default setting of
+    * {@link edu.rice.cs.drjava.config.OptionConstants#REDUCED_MODEL_SEEK_INDEX} does. */
+  public ReducedModelControl() { this(true); }
+  
+  /** 
+   * Constructor that optionally enables the seek index in both sub-models (see TokenList).
+   * @param seekIndex whether long cursor moves should use the seek index instead of walking token by token
+   */
+  public ReducedModelControl(boolean seekIndex) {
     _rmb = new ReducedModelBrace(this);
     _rmc = new ReducedModelComment();
+    _rmb.setSeekIndexEnabled(seekIndex);
+    _rmc.setSeekIndexEnabled(seekIndex);
   }
   
+  /** @return the number of tokens in both sub-models; a measure of the memory occupied by this model. */
+  public int getTokenCount() { return _rmb._tokens.length() + _rmc._tokens.length(); }
+  
   /** @return the absolute offset of the cursor in the brace model, which is expensive.  Used for testing purposes only. 
     * This value should agree with commentCursorOffset(). 
     */
@@ -0,0 +1,118 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.definitions.reducedmodel;
+
+import java.io.Serializable;
+
+/** A compact, immutable image of the token lists of a ReducedModelControl.  Each token is encoded as a single int:
+  * bit 0 distinguishes braces from gaps, bits 1-3 hold the shadowing state, and the remaining bits hold the brace type
+  * index or the gap size.  Restoring a reduced model from its image is linear in the number of tokens rather than in
+  * the number of characters, and avoids re-lexing the document text.  An image is only meaningful together with the
+  * exact text from which the reduced model was built.
+  * @version $Id$
+  */
+public final class ReducedModelImage implements Serializable, ReducedModelStates {
+  
+  private static final ReducedModelState[] STATES = {
+    FREE, INSIDE_SINGLE_QUOTE, INSIDE_DOUBLE_QUOTE, INSIDE_LINE_COMMENT, INSIDE_BLOCK_COMMENT, STUTTER
+  };
+  
+  private final int[] _braceTokens;
+  private final int[] _commentTokens;
+  
+  private ReducedModelImage(int[] braceTokens, int[] commentTokens) {
+    _braceTokens = braceTokens;
+    _commentTokens = commentTokens;
+  }
+  
+  /** 
+   * Creates an image of the given reduced model.  Assumes the lock on rm is already held.
+   * @param rm the reduced model
+   * @return an image of rm
+   */
+  public static ReducedModelImage of(ReducedModelControl rm) {
+    return new ReducedModelImage(_encode(rm._rmb._tokens), _encode(rm._rmc._tokens));
+  }
+  
+  /** 
+   * Replaces the contents of the given reduced model by the tokens recorded in this image and moves its cursor to the
+   * start.  Assumes the lock on rm is already held.
+   * @param rm the reduced model
+   */
+  public void restore(ReducedModelControl rm) {
+    rm._rmb.restore(_decode(_braceTokens));
+    rm._rmc.restore(_decode(_commentTokens));
+  }
+  
+  /** @return the number of tokens recorded in this image */
+  public int getTokenCount() { return _braceTokens.length + _commentTokens.length; }
+  
+  /** @return the approximate number of bytes occupied by this image */
+  public int sizeInBytes() { return 48 + 4 * getTokenCount(); }
+  
+  private static int[] _encode(TokenList tokens) {
+    int[] result = new int[tokens.length()];
+    TokenList.Iterator it = tokens.getIterator();
+    it.next();
+    for (int i = 0; ! it.atEnd(); i++) {
+      ReducedToken t = it.current();
+      int state = _stateIndex(t.getState());
+      if (t.isGap()) result[i] = (t.getSize() << 4) | (state << 1);
+      else result[i] = (((Brace) t).getTypeIndex() << 4) | (state << 1) | 1;
+      it.next();
+    }
+    it.dispose();
+    return result;
+  }
+  
+  private static TokenList _decode(int[] image) {
+    TokenList tokens = new TokenList();
+    TokenList.Iterator it = tokens.getIterator();
+    for (int code: image) {
+      ReducedModelState state = STATES[(code >>> 1) & 0x7];
+      if ((code & 1) == 0) it.insert(new Gap(code >>> 4, state));
+      else it.insert(Brace.fromTypeIndex(code >>> 4, state));
+      it.next();
+    }
+    it.dispose();
+    return tokens;
+  }
+  
+  private static int _stateIndex(ReducedModelState state) {
+    for (int i = 0; i < STATES.length; i++) if (STATES[i] == state) return i;
+    throw new IllegalArgumentException("Unknown reduced model state " + state);
+  }
+}
@@ -0,0 +1,99 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.definitions.reducedmodel;
+
+import java.util.Random;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+/** Tests that a reduced model restored from a ReducedModelImage behaves exactly like the model it was taken from.
+  * @version $Id$
+  */
+public final class ReducedModelImageTest extends DrJavaTestCase {
+  
+  private static final String CHARS = "ab  {}()[]/*\n\\'\"";
+  
+  /** Tests restoring an empty model. */
+  public void testEmpty() {
+    ReducedModelControl original = new ReducedModelControl(false);
+    ReducedModelImage image = ReducedModelImage.of(original);
+    assertEquals("no tokens", 0, image.getTokenCount());
+    ReducedModelControl copy = new ReducedModelControl(true);
+    copy.insertChar('{');
+    image.restore(copy);
+    assertEquals("restored structure", original.simpleString(), copy.simpleString());
+    assertEquals("restored token count", 0, copy.getTokenCount());
+  }
+  
+  /** Tests that a restored model has the same structure and responds to edits like the original. */
+  public void testRestoreAndEdit() {
+    Random r = new Random(11);
+    ReducedModelControl original = new ReducedModelControl(false);
+    int length = 3000;
+    for (int i = 0; i < length; i++) original.insertChar(CHARS.charAt(r.nextInt(CHARS.length())));
+    original.move(-length);
+    
+    ReducedModelImage image = ReducedModelImage.of(original);
+    assertEquals("token count", original.getTokenCount(), image.getTokenCount());
+    ReducedModelControl copy = new ReducedModelControl(true);
+    image.restore(copy);
+    assertEquals("restored structure", original.simpleString(), copy.simpleString());
+    assertEquals("restored cursor", 0, copy.absOffset());
+    
+    int cursor = 0;
+    for (int i = 0; i < 1000; i++) {
+      int pos = r.nextInt(length + 1);
+      original.move(pos - cursor);
+      copy.move(pos - cursor);
+      cursor = pos;
+      if (r.nextBoolean()) {
+        char ch = CHARS.charAt(r.nextInt(CHARS.length()));
+        original.insertChar(ch);
+        copy.insertChar(ch);
+        length++;
+        cursor++;
+      }
+      else if (cursor < length) {
+        original.delete(1);
+        copy.delete(1);
+        length--;
+      }
+      assertEquals("structure after edit " + i, original.simpleString(), copy.simpleString());
+      assertEquals("state after edit " + i, original.getStateAtCurrent(), copy.getStateAtCurrent());
+      assertEquals("distance to start after edit " + i, original.getDistToStart(0), copy.getDistToStart(0));
+    }
+  }
+}
@@ -36,14 +36,124 @@
 
 package edu.rice.cs.drjava.model.definitions.reducedmodel;
 
-/** A list of reduced model tokens.  Uses ModelList as its base.
+import java.util.ArrayList;
+
+/** A list of reduced model tokens.  Uses ModelList as its base.  Optionally maintains a seek index: an array of anchors
+  * recording the node and absolute character offset of every ANCHOR_SPACING-th token.  The index is built lazily as
+  * far as the seeks require and is truncated by the reduced models at the point of each edit, so long cursor moves
+  * (and absolute offset queries) cost a binary search plus a bounded walk instead of a walk over every intervening 
+  * token.
   * @version $Id$
   */
 public class TokenList extends ModelList<ReducedToken> implements /*imports*/ ReducedModelStates {
   
+  /** Number of tokens between consecutive anchors in the seek index. */
+  static final int ANCHOR_SPACING = 32;
+  
+  /** Moves shorter than this many characters walk the list directly even if the seek index is enabled. */
+  static final int SEEK_THRESHOLD = 512;
+  
+  /** Whether the seek index is used. */
+  private volatile boolean _seekIndexEnabled = false;
+  
+  /** The valid prefix of the seek index; anchor k records the node at position 1 + k * ANCHOR_SPACING. */
+  private final ArrayList<Anchor> _anchors = new ArrayList<Anchor>();
+  
   /** Gets a TokenList.Iterator for this list.  Overrides the weaker method in {@code ModelList<ReducedToken>.Iterator}. */
   public Iterator getIterator() { return new Iterator(); }
   
+  /** @return true if the seek index is used by moves on this list. */
+  public boolean isSeekIndexEnabled() { return _seekIndexEnabled; }
+  
+  /** 
+   * Turns the seek index on or off.  Turning it off discards all anchors.
+   * @param enabled whether long moves should use the seek index
+   */
+  public void setSeekIndexEnabled(boolean enabled) {
+    _seekIndexEnabled = enabled;
+    _anchors.clear();
+  }
+  
+  /** 
+   * Discards all anchors at or after the given list position.  Must be called by every operation that changes the
+   * sizes or the order of tokens, with a position no greater than the leftmost token affected.
+   * @param pos the leftmost list position whose token may have changed
+   */
+  void invalidateSeekIndex(int pos) {
+    int keep = (pos <= 1) ? 0 : (pos - 2) / ANCHOR_SPACING + 1;
+    for (int i = _anchors.size() - 1; i >= keep; i--) _anchors.remove(i);
+  }
+  
+  /** @return the number of valid anchors in the seek index; used for testing purposes only. */
+  int anchorCount() { return _anchors.size(); }
+  
+  /** 
+   * Extends the seek index until it covers list position pos and character offset offset, or until it reaches the
+   * end of the list.
+   * @param pos the list position that must be covered
+   * @param offset the character offset that must be covered
+   */
+  private void _extendSeekIndex(int pos, int offset) {
+    Node<ReducedToken> node;
+    int nodePos;
+    int nodeOffset;
+    int n = _anchors.size();
+    if (n == 0) {
+      Iterator it = getIterator();
+      it.next();
+      node = it.point();
+      it.dispose();
+      if (node._item == null) return;  // empty list
+      nodePos = 1;
+      nodeOffset = 0;
+      _anchors.add(new Anchor(node, 0));
+    }
+    else {
+      Anchor last = _anchors.get(n - 1);
+      node = last._node;
+      nodePos = 1 + (n - 1) * ANCHOR_SPACING;
+      nodeOffset = last._offset;
+    }
+    // node is the last anchor; walk forward, recording a new anchor every ANCHOR_SPACING tokens
+    while (nodePos < pos || nodeOffset <= offset) {
+      for (int i = 0; i < ANCHOR_SPACING; i++) {
+        if (node._item == null) return;  // reached the tail
+        nodeOffset += node._item.getSize();
+        node = node._next;
+      }
+      if (node._item == null) return;
+      nodePos += ANCHOR_SPACING;
+      _anchors.add(new Anchor(node, nodeOffset));
+    }
+  }
+  
+  /** 
+   * @param offset a character offset in this list
+   * @return the index of the last anchor whose offset is at most offset, or -1 if the list is empty
+   */
+  private int _anchorAtOrBefore(int offset) {
+    _extendSeekIndex(0, offset);
+    int lo = 0;
+    int hi = _anchors.size() - 1;
+    if (hi < 0) return -1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (_anchors.get(mid)._offset <= offset) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+  
+  /** An entry of the seek index: a token node and the absolute offset of its first character. */
+  private static class Anchor {
+    final Node<ReducedToken> _node;
+    final int _offset;
+    Anchor(Node<ReducedToken> node, int offset) {
+      _node = node;
+      _offset = offset;
+    }
+  }
+  
   public class Iterator extends ModelIterator {
     
     private int _offset;
@@ -176,7 +286,44 @@ public class TokenList extends ModelList<ReducedToken> implements /*imports*/ Re
       * or end.
       * @param count indicates the direction and magnitude of cursor movement
       */
-    public void move(int count) { _offset = _move(count, _offset); }
+    public void move(int count) { 
+      if (_seekIndexEnabled && (count >= SEEK_THRESHOLD || count <= - SEEK_THRESHOLD)) _offset = _seek(count);
+      else _offset = _move(count, _offset);
+    }
+    
+    /** Computes the absolute character offset of this iterator using the seek index.  Assumes the index is enabled.
+      * @return the absolute offset of this iterator
+      */
+    int absOffset() {
+      int pos = pos();
+      if (pos == 0) return getBlockOffset();  // at head
+      _extendSeekIndex(pos, -1);
+      if (_anchors.isEmpty()) return getBlockOffset();  // empty list
+      int k = Math.min((pos - 1) / ANCHOR_SPACING, _anchors.size() - 1);
+      Anchor a = _anchors.get(k);
+      Node<ReducedToken> node = a._node;
+      int off = a._offset;
+      for (int i = 1 + k * ANCHOR_SPACING; i < pos; i++) {
+        off += node._item.getSize();
+        node = node._next;
+      }
+      return off + getBlockOffset();
+    }
+    
+    /** Moves this iterator count characters by jumping to the closest preceding anchor of the seek index and walking
+      * forward from there.  Leaves the iterator in exactly the position that _move would.  Assumes count is in range.
+      * @param count the number of chars to move.  Negative values move back, positive values move forward.
+      * @return the updated offset
+      */
+    private int _seek(int count) {
+      int target = absOffset() + count;
+      if (target < 0) throw new IllegalArgumentException("At Start");
+      int k = _anchorAtOrBefore(target);
+      if (k < 0) return _move(count, _offset);  // empty list; let _move report the error
+      Anchor a = _anchors.get(k);
+      jumpTo(a._node, 1 + k * ANCHOR_SPACING);
+      return _moveRight(target - a._offset, 0);
+    }
     
     /** Helper function for move(int).  Assumes that count is in range!
       * @param count  the number of chars to move.  Negative values move back, positive values move forward.
@@ -283,6 +430,7 @@ public class TokenList extends ModelList<ReducedToken> implements /*imports*/ Re
       // to = this iterator's copy
       _offset = _delete(count, copyCursor);
       copyCursor.dispose();
+      invalidateSeekIndex(pos() - AbstractReducedModel.EDIT_MARGIN);
       return;
     }
     
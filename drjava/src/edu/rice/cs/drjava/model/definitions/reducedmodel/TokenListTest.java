@@ -0,0 +1,130 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+package edu.rice.cs.drjava.model.definitions.reducedmodel;
+
+import java.util.Random;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+/** Tests the seek index of TokenList by running the same edits and moves on an indexed and an unindexed reduced model.
+  * @version $Id$
+  */
+public final class TokenListTest extends DrJavaTestCase {
+  
+  private static final String CHARS = "ab  {}()[]/*\n\\'\"";
+  
+  protected ReducedModelControl _plain;
+  protected ReducedModelControl _indexed;
+  protected int _length;
+  protected int _cursor;
+  
+  protected void setUp() throws Exception {
+    super.setUp();
+    _plain = new ReducedModelControl(false);
+    _indexed = new ReducedModelControl(true);
+    _length = 0;
+    _cursor = 0;
+  }
+  
+  private void _insert(char ch) {
+    _plain.insertChar(ch);
+    _indexed.insertChar(ch);
+    _length++;
+    _cursor++;
+  }
+  
+  private void _moveTo(int pos) {
+    _plain.move(pos - _cursor);
+    _indexed.move(pos - _cursor);
+    _cursor = pos;
+  }
+  
+  private void _delete(int count) {
+    _plain.delete(count);
+    _indexed.delete(count);
+    _length -= Math.abs(count);
+    if (count < 0) _cursor += count;
+  }
+  
+  private void _assertSame(String msg) {
+    assertEquals(msg + " structure", _plain.simpleString(), _indexed.simpleString());
+    assertEquals(msg + " offset", _cursor, _indexed.absOffset());
+    assertEquals(msg + " state", _plain.getStateAtCurrent(), _indexed.getStateAtCurrent());
+    assertEquals(msg + " distance to start", _plain.getDistToStart(0), _indexed.getDistToStart(0));
+  }
+  
+  /** Tests that long moves through a large model agree with the token-by-token walk. */
+  public void testLongMoves() {
+    Random r = new Random(17);
+    for (int i = 0; i < 20000; i++) _insert(CHARS.charAt(r.nextInt(CHARS.length())));
+    _assertSame("after inserts");
+    for (int i = 0; i < 500; i++) {
+      _moveTo(r.nextInt(_length + 1));
+      _assertSame("move " + i);
+    }
+    assertTrue("index was built", _indexed._rmc._tokens.anchorCount() > 0);
+    _moveTo(_length);
+    _assertSame("at end");
+    _moveTo(0);
+    _assertSame("at start");
+  }
+  
+  /** Tests that the index stays consistent under edits interleaved with long moves. */
+  public void testEditsAndMoves() {
+    Random r = new Random(42);
+    for (int i = 0; i < 5000; i++) _insert(CHARS.charAt(r.nextInt(CHARS.length())));
+    for (int i = 0; i < 2000; i++) {
+      _moveTo(r.nextInt(_length + 1));
+      int op = r.nextInt(3);
+      if (op == 0) _insert(CHARS.charAt(r.nextInt(CHARS.length())));
+      else if (op == 1 && _cursor < _length) _delete(1 + r.nextInt(Math.min(_length - _cursor, 40)));
+      else if (op == 2 && _cursor > 0) _delete(- 1 - r.nextInt(Math.min(_cursor, 40)));
+      _assertSame("edit " + i);
+    }
+  }
+  
+  /** Tests that the absolute offset computed from the index agrees with a walk of the list. */
+  public void testAbsOffset() {
+    Random r = new Random(3);
+    for (int i = 0; i < 3000; i++) _insert(CHARS.charAt(r.nextInt(CHARS.length())));
+    for (int i = 0; i < 100; i++) {
+      _moveTo(r.nextInt(_length + 1));
+      assertEquals("brace offset " + i, _cursor, _indexed.braceCursorOffset());
+      assertEquals("comment offset " + i, _cursor, _indexed.commentCursorOffset());
+      assertEquals("plain offset " + i, _cursor, _plain.absOffset());
+    }
+  }
+}
@@ -500,6 +500,7 @@ public class DefaultJUnitModel implements JUnitModel, JUnitModelCallback {
         // This, however, doesn't get executed because the event thread is still blocking --> deadlock.
         synchronized(_compilerModel.getCompilerLock()) {
           // synchronized over _compilerModel to ensure that compilation and junit testing are mutually exclusive.
+          _jvm.setTestThreads(edu.rice.cs.drjava.DrJava.getConfig().getSetting(OptionConstants.JUNIT_TEST_THREADS));
           /** Set up junit test suite on slave JVM; get TestCase classes forming that suite */
           List<String> tests = _jvm.findTestClasses(classNames, files, 
               coverageMetadata).unwrap(null);
@@ -40,10 +40,12 @@ import junit.framework.*;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -68,9 +70,7 @@ import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfoStore;
-import org.jacoco.core.instr.Instrumenter;
 import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.LoggerRuntime;
 import org.jacoco.core.runtime.RuntimeData;
 import edu.rice.cs.drjava.model.coverage.*;
 
@@ -102,6 +102,18 @@ public class JUnitTestManager {
   /** The list of files corresponding to testClassNames; null if no test is pending. */
   private List<File> _testFiles = null;
   
+  /** The parent of the class loaders used to run the pending test suite. */
+  private ClassLoader _suiteLoader = null;
+  
+  /** The number of threads among which the test classes of a suite are divided; 1 runs them sequentially. */
+  private volatile int _testThreads = 1;
+  
+  /** Instrumented classes for coverage runs. */
+  private final InstrumentationCache _instrumentation = new InstrumentationCache(InstrumentationCache.DEFAULT_DIRECTORY);
+  
+  /** The running times of test classes in earlier runs, used to divide test classes evenly among threads. */
+  private final TestDurations _durations;
+  
   // For JaCoCo
   private String coverageOutdir = null;
   private IRuntime runtime = null;
@@ -116,10 +128,30 @@ public class JUnitTestManager {
    * @param loaderFactory factory to create class loaders
    */
   public JUnitTestManager(JUnitModelCallback jmc, Lambda<ClassLoader, ClassLoader> loaderFactory) {
+    this(jmc, loaderFactory, new TestDurations(TestDurations.DEFAULT_FILE));
+  }
+  
+  /** 
+   * @param jmc a JUnitModelCallback
+   * @param loaderFactory factory to create class loaders
+   * @param durations the running times of test classes, used to divide the classes among threads
+   */
+  public JUnitTestManager(JUnitModelCallback jmc, Lambda<ClassLoader, ClassLoader> loaderFactory, 
+                          TestDurations durations) {
     _jmc = jmc;
     _loaderFactory = loaderFactory;
+    _durations = durations;
   }
 
+  /** Sets the number of threads used to run a test suite.  Each thread runs a share of the test classes, loaded by
+    * its own class loader, so static state is not shared between threads.  Suites with coverage are always run
+    * sequentially.
+    * @param threads the number of threads; 1 runs suites sequentially, and 0 uses one thread per processor
+    */
+  public void setTestThreads(int threads) {
+    _testThreads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+  }
+  
   /** @return result of the last JUnit run */  
   public JUnitResultTuple getLastResult() {
     return this.lastResult;
@@ -146,35 +178,24 @@ public class JUnitTestManager {
 
         // JaCoCo: Create instrumented versions of class files.
         this.coverageOutdir = coverageMetadata.getOutdirPath();
-        this.runtime = new LoggerRuntime();
+        this.runtime = new InstrumentationCache.StableRuntime();
         this.myData = new RuntimeData();
         this.classNames = classNames;
         this.files = files;
-        final ArrayList<byte[]> instrumenteds = new ArrayList<byte[]>();
 
         // The Instrumenter creates a modified version of our test target class
-        // that contains additional probes for execution data recording:
-        for (int i = 0 ; i< files.size() ; i++) {
-
-            // Instrument the i-th file
-            try {
-                final Instrumenter instr = new Instrumenter(this.runtime);
-                final byte[] instrumented = instr.instrument(
-                    new FileInputStream(files.get(i).getCanonicalPath().
-                    replace(".java", ".class")), classNames.get(i));
-                String[] pathParts = files.get(i).getAbsolutePath().split("/");
-                instrumenteds.add(instrumented);
-
-            } catch (Exception e) {
-                StringWriter stackTrace = new StringWriter();
-                e.printStackTrace(new PrintWriter(stackTrace));
-                //Utilities.show("Exception during instrumentation: " + stackTrace.toString());
-            }
-        }
-
+        // that contains additional probes for execution data recording.
+        // Unchanged classes come from the cache; the others are instrumented
+        // in the background, and a class is only waited for when it is loaded.
         loader = new MemoryClassLoader();
         for (int i = 0; i < classNames.size(); i++) {
-            ((MemoryClassLoader)loader).addDefinition(classNames.get(i), instrumenteds.get(i));
+            try {
+                File classFile = new File(files.get(i).getCanonicalPath().replace(".java", ".class"));
+                ((MemoryClassLoader)loader).addDefinition(classNames.get(i),
+                    _instrumentation.instrument(classNames.get(i), classFile));
+            } catch (IOException e) {
+                error.log(e);
+            }
         }
 
         try {
@@ -190,6 +211,7 @@ public class JUnitTestManager {
     if (_testClassNames != null && ! _testClassNames.isEmpty()) 
       throw new IllegalStateException("Test suite is still pending!");
     
+    _suiteLoader = loader;
     _testRunner = makeRunner(loader);
     
     _testClassNames = new ArrayList<String>();
@@ -239,22 +261,27 @@ public class JUnitTestManager {
     
     try {
 //      System.err.println("Calling _testRunner.runSuite(...)");
-      TestResult result = _testRunner.runSuite(_suite);
+      List<TestFailure> errs = new ArrayList<TestFailure>();
+      List<TestFailure> failures = new ArrayList<TestFailure>();
+      if (_testThreads > 1 && this.runtime == null && _testClassNames.size() > 1) {
+        _runShards(errs, failures);
+      }
+      else {
+        TestResult result = _testRunner.runSuite(_suite);
+        errs.addAll(Collections.list(result.errors()));
+        failures.addAll(Collections.list(result.failures()));
+      }
       
-      JUnitError[] errors = new JUnitError[result.errorCount() + result.failureCount()];
-      Enumeration<TestFailure> failures = result.failures();
-      Enumeration<TestFailure> errEnum = result.errors();
+      JUnitError[] errors = new JUnitError[errs.size() + failures.size()];
       
       int i = 0;
 
-      while (errEnum.hasMoreElements()) {
-        TestFailure tErr = errEnum.nextElement();
+      for (TestFailure tErr : errs) {
         errors[i] = _makeJUnitError(tErr, _testClassNames, true, _testFiles);
         i++;
       }
 
-      while (failures.hasMoreElements()) {
-        TestFailure tFail = failures.nextElement();
+      for (TestFailure tFail : failures) {
         errors[i] = _makeJUnitError(tFail, _testClassNames, false, _testFiles);
         i++;
       }
@@ -324,10 +351,118 @@ public class JUnitTestManager {
     return this.lastResult.getRetval();
   }
   
+  /** Runs the pending test suite in _testThreads threads.  The test classes are divided among the threads by their
+    * running times in earlier runs, and each thread loads its classes with a fresh class loader.  Progress is
+    * reported to _jmc one test class at a time, so the reports of different classes are not interleaved.  Errors
+    * and failures are listed in the order of the test classes in the suite, as in a sequential run.
+    * @param errors the list to which test errors are added
+    * @param failures the list to which test failures are added
+    */
+  private void _runShards(List<TestFailure> errors, List<TestFailure> failures) throws InterruptedException {
+    List<List<String>> shards = _durations.balance(_testClassNames, _testThreads);
+    _log.log("running " + _testClassNames.size() + " test classes in " + shards.size() + " threads");
+    _jmc.testSuiteStarted(_suite.countTestCases());
+    
+    final Map<String, TestResult> results = new HashMap<String, TestResult>();
+    final Map<String, Throwable> deaths = new HashMap<String, Throwable>();
+    Thread[] threads = new Thread[shards.size()];
+    for (int i = 0; i < threads.length; i++) {
+      final List<String> shard = shards.get(i);
+      threads[i] = new Thread("JUnit Shard " + i) {
+        public void run() {
+          try { _runShard(shard, results); }
+          catch (Throwable t) {
+            error.log("JUnit shard died", t);
+            synchronized (results) { for (String c : shard) { deaths.put(c, t); } }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread t : threads) { t.join(); }
+    _durations.save();
+    
+    for (String c : _testClassNames) {
+      TestResult result = results.get(c);
+      if (result == null) { // the shard's thread died before the class finished
+        Throwable cause = deaths.get(c);
+        if (cause == null) { cause = new RuntimeException("Test thread for " + c + " ended unexpectedly"); }
+        result = new TestResult();
+        result.addError(_classFailure(c), cause);
+      }
+      errors.addAll(Collections.list(result.errors()));
+      failures.addAll(Collections.list(result.failures()));
+    }
+  }
+  
+  /** Runs the given test classes one after the other, with their own class loader.  Results are put in results, and
+    * reported to _jmc, while holding the lock on results.
+    */
+  private void _runShard(List<String> classNames, Map<String, TestResult> results) {
+    ShardCallback callback = new ShardCallback();
+    JUnitTestRunner runner = new JUnitTestRunner(callback, _loaderFactory.value(_suiteLoader));
+    for (String c : classNames) {
+      long start = System.currentTimeMillis();
+      TestResult result;
+      try {
+        TestSuite suite = new TestSuite();
+        suite.addTest(new JUnit4TestAdapter(runner.loadPossibleTest(c)));
+        result = runner.runShard(suite);
+      }
+      catch (Throwable t) { // the class was loaded once already, so this is unlikely
+        result = new TestResult();
+        result.addError(_classFailure(c), t);
+      }
+      _durations.record(c, System.currentTimeMillis() - start);
+      
+      synchronized (results) {
+        callback.flush();
+        results.put(c, result);
+      }
+    }
+  }
+  
+  /** A stand-in for the tests of the given class in a failure that is not due to one of its tests.  It is named the
+    * way JUnit 4 names class-level failures, which _makeJUnitError can parse.
+    */
+  private static Test _classFailure(final String className) {
+    return new TestCase("initializationError") {
+      public String toString() { return getName() + "(" + className + ")"; }
+    };
+  }
+  
+  /** A callback for one thread of a sharded test run.  Progress reports are held back until {@link #flush} is
+    * called; all other calls go directly to _jmc.
+    */
+  private class ShardCallback implements JUnitModelCallback {
+    private final List<Runnable> _pending = new ArrayList<Runnable>();
+    
+    public void flush() {
+      for (Runnable r : _pending) { r.run(); }
+      _pending.clear();
+    }
+    
+    public void testStarted(final String testName) {
+      _pending.add(new Runnable() { public void run() { _jmc.testStarted(testName); } });
+    }
+    public void testEnded(final String testName, final boolean wasSuccessful, final boolean causedError) {
+      _pending.add(new Runnable() { public void run() { _jmc.testEnded(testName, wasSuccessful, causedError); } });
+    }
+    
+    public void testSuiteStarted(int numTests) { }
+    public void testSuiteEnded(JUnitError[] errors) { }
+    public void nonTestCase(boolean isTestAll, boolean didCompileFail) { _jmc.nonTestCase(isTestAll, didCompileFail); }
+    public void classFileError(ClassFileError e) { _jmc.classFileError(e); }
+    public File getFileForClassName(String className) { return _jmc.getFileForClassName(className); }
+    public Iterable<File> getClassPath() { return _jmc.getClassPath(); }
+    public void junitJVMReady() { }
+  }
+  
   private void _reset() {
     _suite = null;
     _testClassNames = null;
     _testFiles = null;
+    _suiteLoader = null;
     _log.log("test manager state reset");
   }
   
@@ -0,0 +1,192 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.junit;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.drjava.model.coverage.CoverageMetadata;
+import edu.rice.cs.util.classloader.ClassFileError;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.lambda.Lambda;
+import edu.rice.cs.plt.reflect.PathClassLoader;
+import edu.rice.cs.plt.reflect.ReflectUtil;
+import edu.rice.cs.plt.reflect.ShadowingClassLoader;
+
+import junit.framework.TestCase;
+
+/** Tests running test suites with JUnitTestManager, sequentially and in several threads.
+  * @version $Id$
+  */
+public class JUnitTestManagerTest extends DrJavaTestCase {
+  
+  public static class FirstSample extends TestCase {
+    public void testPass() { }
+    public void testFail() { fail("first"); }
+  }
+  
+  public static class SecondSample extends TestCase {
+    public void testPass() { }
+    public void testError() { throw new RuntimeException("second"); }
+  }
+  
+  public static class ThirdSample extends TestCase {
+    public void testOne() { }
+    public void testTwo() { }
+  }
+  
+  /** Static state that each class loader has its own copy of. */
+  public static class Counter {
+    public static int count = 0;
+  }
+  
+  public static class FirstCounting extends TestCase {
+    public void testCount() { Counter.count++; assertEquals("count", 1, Counter.count); }
+  }
+  
+  public static class SecondCounting extends TestCase {
+    public void testCount() { Counter.count++; assertEquals("count", 1, Counter.count); }
+  }
+  
+  /** Records the calls made by a JUnitTestManager. */
+  private static class RecordingCallback implements JUnitModelCallback {
+    final List<String> events = new ArrayList<String>();
+    volatile int suiteSize = -1;
+    volatile JUnitError[] errors = null;
+    /** A class whose tests cannot be reported, or null. */
+    volatile String brokenClass = null;
+    public void nonTestCase(boolean isTestAll, boolean didCompileFail) { }
+    public void classFileError(ClassFileError e) { }
+    public void testSuiteStarted(int numTests) { suiteSize = numTests; }
+    public synchronized void testStarted(String testName) {
+      if (brokenClass != null && testName.contains(brokenClass)) { throw new IllegalStateException("broken"); }
+      events.add("start " + testName);
+    }
+    public synchronized void testEnded(String testName, boolean wasSuccessful, boolean causedError) {
+      events.add("end " + testName);
+    }
+    public void testSuiteEnded(JUnitError[] errors) { this.errors = errors; }
+    public File getFileForClassName(String className) { return null; }
+    public Iterable<File> getClassPath() { return null; }
+    public void junitJVMReady() { }
+  }
+  
+  private static final List<String> CLASSES = Arrays.asList(FirstSample.class.getName(), SecondSample.class.getName(),
+                                                            ThirdSample.class.getName());
+  
+  /** Makes a new loader for the classes of this test each time it is applied, as ClassPathManager does for the
+    * user's classes in the interpreter JVM.
+    */
+  private static final Lambda<ClassLoader, ClassLoader> LOADERS = new Lambda<ClassLoader, ClassLoader>() {
+    public ClassLoader value(ClassLoader parent) {
+      ClassLoader hidden = ShadowingClassLoader.blackList(parent, JUnitTestManagerTest.class.getName());
+      return new PathClassLoader(hidden, ReflectUtil.SYSTEM_CLASS_PATH);
+    }
+  };
+  
+  private RecordingCallback _run(int threads) throws Exception {
+    return _run(CLASSES, threads, new RecordingCallback());
+  }
+  
+  private RecordingCallback _run(List<String> classes, int threads, RecordingCallback jmc) throws Exception {
+    File times = new File(IOUtil.createAndMarkTempDirectory("durations", ""), "times");
+    JUnitTestManager m = new JUnitTestManager(jmc, LOADERS, new TestDurations(times));
+    m.setTestThreads(threads);
+    List<File> files = new ArrayList<File>();
+    for (int i = 0; i < classes.size(); i++) { files.add(new File("Sample.java")); }
+    List<String> tests = m.findTestClasses(classes, files, new CoverageMetadata(false, ""));
+    assertEquals("test classes", classes, tests);
+    assertTrue("suite ran", m.runTestSuite());
+    return jmc;
+  }
+  
+  /** Tests that a suite run in several threads reports the same results as a sequential run, and reports the tests
+    * of each class together.
+    */
+  public void testShardedRun() throws Exception {
+    RecordingCallback sequential = _run(1);
+    RecordingCallback sharded = _run(3);
+    
+    assertEquals("suite size", 6, sequential.suiteSize);
+    assertEquals("suite size", 6, sharded.suiteSize);
+    assertEquals("events", sequential.events.size(), sharded.events.size());
+    assertEquals("errors", 2, sequential.errors.length);
+    assertEquals("errors", 2, sharded.errors.length);
+    assertEquals("error first", sequential.errors[0].message(), sharded.errors[0].message());
+    assertEquals("failure second", sequential.errors[1].message(), sharded.errors[1].message());
+    
+    // the events of each class are contiguous
+    List<String> seen = new ArrayList<String>();
+    String current = null;
+    for (String e : sharded.events) {
+      String c = e.substring(e.indexOf('(') + 1, e.indexOf(')'));
+      if (! c.equals(current)) {
+        assertFalse("class reported twice: " + c, seen.contains(c));
+        seen.add(c);
+        current = c;
+      }
+    }
+    assertEquals("all classes reported", 3, seen.size());
+  }
+  
+  /** Tests that each thread of a sharded run loads the test classes, and the classes they use, for itself. */
+  public void testShardsDoNotShareStatics() throws Exception {
+    List<String> classes = Arrays.asList(FirstCounting.class.getName(), SecondCounting.class.getName());
+    RecordingCallback sequential = _run(classes, 1, new RecordingCallback());
+    assertEquals("counter shared in a sequential run", 1, sequential.errors.length);
+    RecordingCallback sharded = _run(classes, 2, new RecordingCallback());
+    assertEquals("counter not shared between shards", 0, sharded.errors.length);
+    assertEquals("tests reported", 4, sharded.events.size());
+    assertEquals("main copy untouched", 0, Counter.count);
+  }
+  
+  /** Tests that a shard whose thread dies reports its unfinished classes as errors, and the other shards finish. */
+  public void testShardDies() throws Exception {
+    RecordingCallback jmc = new RecordingCallback();
+    jmc.brokenClass = ThirdSample.class.getName();
+    _run(CLASSES, 3, jmc);
+    assertEquals("errors", 3, jmc.errors.length);
+    boolean found = false;
+    for (JUnitError e : jmc.errors) { found |= e.message().endsWith("broken"); }
+    assertTrue("thread death reported", found);
+    assertEquals("other classes reported", 8, jmc.events.size());
+  }
+}
@@ -77,6 +77,15 @@ public class JUnitTestRunner extends BaseTestRunner {
   }
  
   public synchronized TestResult runSuite(TestSuite suite) {
+    _jmc.testSuiteStarted(suite.countTestCases());
+    return runShard(suite);
+  }
+  
+  /** Runs the given tests as one part of a larger suite, whose start has already been reported to the callback.
+    * @param shard the tests to run
+    * @return the accumulated result of the tests
+    */
+  public synchronized TestResult runShard(TestSuite shard) {
     // Reset all bookkeeping
     _errorCount = 0;
     _failureCount = 0;
@@ -84,8 +93,7 @@ public class JUnitTestRunner extends BaseTestRunner {
     // Run the test
     _result = new TestResult();
     _result.addListener(this);
-    _jmc.testSuiteStarted(suite.countTestCases());
-    suite.run(_result);
+    shard.run(_result);
     return _result;
   }
   
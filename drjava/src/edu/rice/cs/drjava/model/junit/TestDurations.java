@@ -0,0 +1,163 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.junit;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** The running times of test classes, as recorded in earlier test runs, and the division of a set of test classes
+  * into shards of roughly equal running time.  The times are kept in a properties file so that they survive resets
+  * of the interpreter JVM.  Instances are thread-safe.
+  * @version $Id$
+  */
+public class TestDurations {
+  
+  /** The default file in which durations are kept. */
+  public static final File DEFAULT_FILE = new File(System.getProperty("user.home", "."), ".drjava.testdurations");
+  
+  /** The estimated running time of a test class for which no time has been recorded and no other class has a time,
+    * in milliseconds. */
+  public static final long DEFAULT_ESTIMATE = 1000;
+  
+  /** The maximum number of classes to remember; beyond this, the table is cleared before it is saved. */
+  public static final int MAX_ENTRIES = 10000;
+  
+  private final File _file;
+  private final Map<String, Long> _durations = new HashMap<String, Long>();
+  private boolean _loaded = false;
+  
+  /** @param file the file in which durations are kept; need not exist */
+  public TestDurations(File file) { _file = file; }
+  
+  /** Records the running time of a test class.  Does not save the table; see {@link #save}.
+    * @param className the fully-qualified name of the test class
+    * @param millis its running time in milliseconds
+    */
+  public synchronized void record(String className, long millis) {
+    _load();
+    _durations.put(className, millis);
+  }
+  
+  /** @param className the fully-qualified name of a test class
+    * @return the recorded running time of the class, or the mean of the recorded times of the other classes (or
+    *         {@link #DEFAULT_ESTIMATE}) if the class has no recorded time
+    */
+  public synchronized long estimate(String className) {
+    _load();
+    Long d = _durations.get(className);
+    if (d != null) { return d; }
+    if (_durations.isEmpty()) { return DEFAULT_ESTIMATE; }
+    long sum = 0;
+    for (long l : _durations.values()) { sum += l; }
+    return sum / _durations.size();
+  }
+  
+  /** Divides the given test classes into at most {@code shards} non-empty lists of roughly equal estimated running
+    * time.  Classes are handed out longest first, each to the shard with the least total time so far; within each
+    * shard, they keep this order.
+    * @param classNames the fully-qualified names of the test classes
+    * @param shards the maximum number of shards; at least 1
+    * @return the shards, longest first
+    */
+  public synchronized List<List<String>> balance(List<String> classNames, int shards) {
+    final Map<String, Long> estimates = new HashMap<String, Long>();
+    for (String c : classNames) { estimates.put(c, estimate(c)); }
+    List<String> sorted = new ArrayList<String>(classNames);
+    Collections.sort(sorted, new Comparator<String>() {
+      public int compare(String a, String b) { return estimates.get(b).compareTo(estimates.get(a)); }
+    });
+    
+    int n = Math.max(1, Math.min(shards, sorted.size()));
+    List<List<String>> result = new ArrayList<List<String>>(n);
+    long[] totals = new long[n];
+    for (int i = 0; i < n; i++) { result.add(new ArrayList<String>()); }
+    for (String c : sorted) {
+      int min = 0;
+      for (int i = 1; i < n; i++) { if (totals[i] < totals[min]) { min = i; } }
+      result.get(min).add(c);
+      totals[min] += estimates.get(c);
+    }
+    return result;
+  }
+  
+  /** Writes the table to its file.  Failures are ignored: the durations only serve to balance shards. */
+  public synchronized void save() {
+    _load();
+    if (_durations.size() > MAX_ENTRIES) { _durations.clear(); }
+    Properties p = new Properties();
+    for (Map.Entry<String, Long> e : _durations.entrySet()) { p.setProperty(e.getKey(), e.getValue().toString()); }
+    OutputStream out = null;
+    try {
+      out = new FileOutputStream(_file);
+      p.store(out, "DrJava test class running times (ms)");
+    }
+    catch (IOException e) { /* ignore */ }
+    finally { if (out != null) { IOUtil.attemptClose(out); } }
+  }
+  
+  /** Reads the table from its file the first time it is needed. */
+  private void _load() {
+    if (_loaded) { return; }
+    _loaded = true;
+    if (! _file.isFile()) { return; }
+    Properties p = new Properties();
+    InputStream in = null;
+    try {
+      in = new FileInputStream(_file);
+      p.load(in);
+    }
+    catch (IOException e) { return; }
+    finally { if (in != null) { IOUtil.attemptClose(in); } }
+    for (String name : p.stringPropertyNames()) {
+      try { _durations.put(name, Long.valueOf(p.getProperty(name))); }
+      catch (NumberFormatException e) { /* skip malformed entry */ }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.drjava.model.junit;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.rice.cs.plt.io.IOUtil;
+
+/** Tests TestDurations.
+  * @version $Id$
+  */
+public class TestDurationsTest extends DrJavaTestCase {
+  
+  /** Tests that unknown classes are estimated by the mean of the known ones. */
+  public void testEstimate() throws Exception {
+    TestDurations d = new TestDurations(new File(IOUtil.createAndMarkTempDirectory("durations", ""), "times"));
+    assertEquals("default", TestDurations.DEFAULT_ESTIMATE, d.estimate("A"));
+    d.record("A", 100);
+    d.record("B", 300);
+    assertEquals("recorded", 300, d.estimate("B"));
+    assertEquals("mean", 200, d.estimate("C"));
+  }
+  
+  /** Tests that classes are divided into shards of similar total time. */
+  public void testBalance() throws Exception {
+    TestDurations d = new TestDurations(new File(IOUtil.createAndMarkTempDirectory("durations", ""), "times"));
+    d.record("A", 600);
+    d.record("B", 300);
+    d.record("C", 300);
+    d.record("D", 200);
+    d.record("E", 100);
+    List<List<String>> shards = d.balance(Arrays.asList("E", "D", "C", "B", "A"), 2);
+    assertEquals("two shards", 2, shards.size());
+    assertEquals("first shard", Arrays.asList("A", "D"), shards.get(0));
+    assertEquals("second shard", Arrays.asList("C", "B", "E"), shards.get(1));
+    
+    assertEquals("no empty shards", 1, d.balance(Arrays.asList("A"), 4).size());
+  }
+  
+  /** Tests that durations survive saving and loading. */
+  public void testSave() throws Exception {
+    File f = new File(IOUtil.createAndMarkTempDirectory("durations", ""), "times");
+    TestDurations d = new TestDurations(f);
+    d.record("p.ATest", 1234);
+    d.save();
+    assertTrue("file written", f.isFile());
+    assertEquals("loaded", 1234, new TestDurations(f).estimate("p.ATest"));
+  }
+}
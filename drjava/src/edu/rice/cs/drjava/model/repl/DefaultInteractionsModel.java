@@ -75,8 +75,7 @@ public class DefaultInteractionsModel extends RMIInteractionsModel {
     * @param wd  the working directory for interactions i/o
     */
   public DefaultInteractionsModel(DefaultGlobalModel model, MainJVM jvm, ConsoleDocumentInterface cDoc, File wd) {
-    super(jvm, cDoc, wd, DrJava.getConfig().getSetting(OptionConstants.HISTORY_MAX_SIZE).intValue(),
-          WRITE_DELAY);
+    super(jvm, cDoc, wd, DrJava.getConfig().getSetting(OptionConstants.HISTORY_MAX_SIZE).intValue());
     _model = model;
     // Set whether to allow "assert" statements to be run in the remote JVM.
     Boolean allow = DrJava.getConfig().getSetting(OptionConstants.RUN_WITH_ASSERT);
@@ -84,6 +83,11 @@ public class DefaultInteractionsModel extends RMIInteractionsModel {
     
     // Add option listeners  // WHEN ARE THESE EVER REMOVED?
     DrJava.getConfig().addOptionListener(OptionConstants.HISTORY_MAX_SIZE, _document.getHistoryOptionListener());
+    setOutputLimit(DrJava.getConfig().getSetting(OptionConstants.INTERACTIONS_OUTPUT_LIMIT).intValue());
+    DrJava.getConfig().addOptionListener(OptionConstants.INTERACTIONS_OUTPUT_LIMIT,
+                                         new OptionListener<Integer>() {
+      public void optionChanged(OptionEvent<Integer> oce) { setOutputLimit(oce.value.intValue()); }
+    });
     DrJava.getConfig().addOptionListener(OptionConstants.RUN_WITH_ASSERT,
                                          new OptionListener<Boolean>() {
       public void optionChanged(OptionEvent<Boolean> oce) {
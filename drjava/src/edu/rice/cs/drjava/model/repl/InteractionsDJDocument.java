@@ -223,6 +223,23 @@ public class InteractionsDJDocument extends AbstractDJDocument implements Consol
 //    }
   }
   
+  /** Drops the styles of the first count characters from the styles list and shifts the remaining styles to account
+    * for the removal of those characters.  Only runs in event thread. */
+  public void removeLeadingColoring(int count) {
+    synchronized(_stylesList) {
+      List<Pair<Pair<Integer,Integer>,String>> shifted = new LinkedList<Pair<Pair<Integer,Integer>,String>>();
+      for (Pair<Pair<Integer,Integer>,String> p: _stylesList) {
+        int start = p.first().first() - count;
+        int end = p.first().second() - count;
+        if (end > 0) shifted.add(new Pair<Pair<Integer,Integer>,String>
+                                   (new Pair<Integer,Integer>(Integer.valueOf(Math.max(start, 0)),
+                                                              Integer.valueOf(end)), p.second()));
+      }
+      _stylesList.clear();
+      _stylesList.addAll(shifted);
+    }
+  }
+  
   /** 
    * Accessor method used to copy contents of _stylesList to an array.  Used in test cases. 
    * @return a copy of the contents of _styleList
@@ -53,7 +53,7 @@ import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.swing.Utilities;
 import edu.rice.cs.util.text.ConsoleDocumentInterface;
 import edu.rice.cs.util.text.ConsoleDocument;
-import edu.rice.cs.util.text.EditDocumentException;
+import edu.rice.cs.util.text.ConsoleOutputBuffer;
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.drjava.DrJava;
 import edu.rice.cs.drjava.config.OptionConstants;
@@ -70,10 +70,6 @@ public abstract class InteractionsModel implements InteractionsModelCallback {
   /** Banner prefix. */
   public static final String BANNER_PREFIX = "Welcome to DrJava.";
 
-  /** Number of milliseconds to wait after each println, to prevent the JVM from being flooded
-    * with print calls. */
-  public static final int WRITE_DELAY = 50;
-  
   public static Log _log = new Log("Interactions.txt", false);
   
 //  public static final String _newLine = "\n"; // was StringOps.EOL; but Swing uses '\n' for newLine
@@ -93,12 +89,8 @@ public abstract class InteractionsModel implements InteractionsModelCallback {
   /** The working directory for the current interpreter. */
   protected volatile File _workingDirectory;
   
-  /** A lock object to prevent print calls to System.out or System.err from flooding the JVM, ensuring the UI remains
-    * responsive.  Only public for testing purposes. */
-  public final Object _writerLock;
-  
-  /** Number of milliseconds to wait after each println, to prevent the JVM from being flooded with print calls. */
-  private final int _writeDelay;
+  /** Batches System.out and System.err output of the interpreter for insertion into _document. */
+  private final ConsoleOutputBuffer _output;
   
   /** Port used by the debugger to connect to the Interactions JVM. Uniquely created in getDebugPort(). */
   private volatile int _debugPort;
@@ -142,18 +134,18 @@ public abstract class InteractionsModel implements InteractionsModelCallback {
     * @param cDoc document to use in the InteractionsDocument
     * @param wd Working directory for the interpreter
     * @param historySize Number of lines to store in the history
-    * @param writeDelay Number of milliseconds to wait after each println
     */
-  public InteractionsModel(ConsoleDocumentInterface cDoc, final File wd, int historySize, int writeDelay) {
+  public InteractionsModel(ConsoleDocumentInterface cDoc, final File wd, int historySize) {
     _document = new InteractionsDocument(cDoc, historySize);
     _cDoc = cDoc;
-    _writeDelay = writeDelay;
     _waitingForFirstInterpreter = true;
     _workingDirectory = wd;
-    _writerLock = new Object();
     _debugPort = -1;
     _debugPortSet = false;
     _inputListener = NoInputListener.ONLY;
+    _output = new ConsoleOutputBuffer(_document) {
+      protected void appended() { scrollToCaret(); }
+    };
     Utilities.invokeLater(new Runnable() {
       public void run() { _document.setBanner(generateBanner(wd));}
     });
@@ -546,42 +538,24 @@ public abstract class InteractionsModel implements InteractionsModelCallback {
     _debugPortSet = true;
   }
     
-  private static final int DELAY_INTERVAL = 10;
-  private volatile int delayCount = DELAY_INTERVAL;
-  
-  /** Called when the repl prints to System.out.  Includes a delay to prevent flooding the interactions document.  This
-    * method can safely be called from outside the event thread.
+  /** Called when the repl prints to System.out.  Output is appended to the interactions document in batches; if the
+    * event thread falls behind, this call waits for it to catch up.  This method can safely be called from outside
+    * the event thread.
     * @param s String to print
     */
-  public void replSystemOutPrint(final String s) {
-    Utilities.invokeLater(new Runnable() {
-      public void run() { _document.insertBeforeLastPrompt(s, ConsoleDocument.SYSTEM_OUT_STYLE); }
-    });
-    if (delayCount == 0) {
-      scrollToCaret();
-//      System.err.println(s + " printed; caretPostion = " + _pane.getCaretPosition());
-      _writerDelay();
-      delayCount = DELAY_INTERVAL;
-    }
-    else delayCount--;   
-  }
+  public void replSystemOutPrint(String s) { _output.print(s, ConsoleDocument.SYSTEM_OUT_STYLE); }
   
-  /** Called when the repl prints to System.err.  Includes a delay to prevent flooding the interactions document.  This
-    * method can safely be called from outside the event thread.
+  /** Called when the repl prints to System.err.  Output is appended to the interactions document in batches; if the
+    * event thread falls behind, this call waits for it to catch up.  This method can safely be called from outside
+    * the event thread.
     * @param s String to print 
     */
-  public void replSystemErrPrint(final String s) {
-      Utilities.invokeLater(new Runnable() {
-        public void run() { _document.insertBeforeLastPrompt(s, ConsoleDocument.SYSTEM_ERR_STYLE); } 
-      });
-      if (delayCount == 0) {
-        scrollToCaret();
-//      System.err.println(s + " printed; caretPostion = " + _pane.getCaretPosition());
-        _writerDelay();
-        delayCount = DELAY_INTERVAL;
-      }
-      else delayCount--;
-  }
+  public void replSystemErrPrint(String s) { _output.print(s, ConsoleDocument.SYSTEM_ERR_STYLE); }
+  
+  /** Sets the maximum number of characters retained in the interactions document; older output is discarded.
+    * @param limit the maximum number of characters, or 0 for no limit
+    */
+  public void setOutputLimit(int limit) { _output.setLimit(limit); }
   
   /** Returns a line of text entered by the user at the equivalent of System.in.  Only executes in the event thread. */
   public String getConsoleInput() { return _inputListener.getConsoleInput(); }
@@ -638,18 +612,6 @@ public abstract class InteractionsModel implements InteractionsModelCallback {
     scrollToCaret();
   }
   
-  /** Waits for a small amount of time on a shared writer lock. */
-  public void _writerDelay() {
-    synchronized(_writerLock) {
-      try {
-        // Wait to prevent being flooded with println's
-        _writerLock.wait(_writeDelay);
-      }
-      catch (EditDocumentException e) { throw new UnexpectedException(e); }
-      catch (InterruptedException e) { /* Not a problem. continue */}
-    }
-  }
-  
   /** Signifies that the most recent interpretation completed successfully, returning no value. */
   public void replReturnedVoid() {
     _secondToLastError = _lastError;
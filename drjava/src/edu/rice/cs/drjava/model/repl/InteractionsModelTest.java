@@ -717,7 +717,7 @@ public final class InteractionsModelTest extends DrJavaTestCase {
      */
     public TestInteractionsModel(InteractionsDJDocument adapter) {
       // Adapter, history size, write delay
-      super(adapter, new File(System.getProperty("user.dir")), 1000, 25);
+      super(adapter, new File(System.getProperty("user.dir")), 1000);
     }
     
     /** Sets toEval field and simulates successful interpretation. */
@@ -818,8 +818,8 @@ public final class InteractionsModelTest extends DrJavaTestCase {
      * @throws RemoteException if an exception occurs during communication with the remote JVM
      */
     public IncompleteInputInteractionsModel(InteractionsDJDocument adapter) throws RemoteException {
-      // MainJVM, Adapter, history size, write delay
-      super(new MainJVM(null), adapter, new File(System.getProperty("user.dir")), 1000, 25);
+      // MainJVM, Adapter, history size
+      super(new MainJVM(null), adapter, new File(System.getProperty("user.dir")), 1000);
       _jvm.setInteractionsModel(this); // _jvm is set to MainJVM(null) by super call;
       _jvm.startInterpreterJVM();
       continuationException = false;
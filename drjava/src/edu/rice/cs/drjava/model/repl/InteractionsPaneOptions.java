@@ -57,4 +57,7 @@ public class InteractionsPaneOptions extends Options {
   private volatile boolean _requireVariableType = false;
   public boolean requireVariableType() { return _requireVariableType; }
   public void setRequireVariableType(boolean require) { _requireVariableType = require; }
+  
+  /** Run the methods of interactively defined classes as bytecode where the compiler supports them. */
+  public boolean compileMethodBodies() { return true; }
 }
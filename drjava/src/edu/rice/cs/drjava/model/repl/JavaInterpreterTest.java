@@ -598,4 +598,26 @@ public class JavaInterpreterTest extends DrJavaTestCase {
     }
   }
 
+  /** Tests that re-entering code in an unchanged context reuses the earlier check, and still evaluates it again.
+   * @throws InterpreterException if an error occurs during interpretation
+   */
+  public void testRepeatedInteraction() throws InterpreterException {
+    interpret("int[] counter = { 0 };");
+    long misses = _interpreter.cacheMisses();
+    assertEquals(1, interpret("++counter[0]"));
+    assertEquals(2, interpret("++counter[0]"));
+    assertEquals(3, interpret("++counter[0]"));
+    assertEquals(misses + 1, _interpreter.cacheMisses());
+    assertEquals(2, _interpreter.cacheHits());
+    
+    // a declaration changes the context, so the same code must be checked again
+    interpret("int[] counter = { 10 };");
+    assertEquals(11, interpret("++counter[0]"));
+    assertEquals(2, _interpreter.cacheHits());
+    
+    _interpreter.clearCache();
+    assertEquals(12, interpret("++counter[0]"));
+    assertEquals(2, _interpreter.cacheHits());
+  }
+
 }
@@ -40,9 +40,13 @@ import edu.rice.cs.drjava.model.repl.newjvm.*;
 import edu.rice.cs.plt.iter.IterUtil;
 import edu.rice.cs.plt.tuple.Option;
 import edu.rice.cs.plt.tuple.Pair;
+import edu.rice.cs.plt.tuple.Triple;
 import edu.rice.cs.util.text.ConsoleDocumentInterface;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.awt.EventQueue;
 
 import static edu.rice.cs.plt.debug.DebugUtil.debug;
@@ -56,15 +60,17 @@ public abstract class RMIInteractionsModel extends InteractionsModel {
   /** RMI interface to the remote Java interpreter.*/
   protected final MainJVM _jvm;
   
+  /** Name of the interpreter most recently made active, or "" for the default interpreter. */
+  private volatile String _activeInterpreterName = "";
+  
   /** Constructs an InteractionsModel which can communicate with another JVM.
     * @param jvm RMI interface to the slave JVM
     * @param cDoc document to use in the InteractionsDocument
     * @param wd working directory
     * @param historySize Number of lines to store in the history
-    * @param writeDelay Number of milliseconds to wait after each println
     */
-  public RMIInteractionsModel(MainJVM jvm, ConsoleDocumentInterface cDoc, File wd, int historySize, int writeDelay) {
-    super(cDoc, wd, historySize, writeDelay);
+  public RMIInteractionsModel(MainJVM jvm, ConsoleDocumentInterface cDoc, File wd, int historySize) {
+    super(cDoc, wd, historySize);
     _jvm = jvm;
   }
   
@@ -89,6 +95,19 @@ public abstract class RMIInteractionsModel extends InteractionsModel {
     return retval;
   }
   
+  /** Gets the string representations of the values and types of several variables with a single call to the
+    * interpreter JVM.  Unlike {@link #getVariableToString}, this may be called from any thread; the variables are
+    * evaluated in the named interpreter even if another has since become active.
+    * @param name the name of the interpreter, as returned by {@link #getActiveInterpreterName}
+    * @param vars the names of the variables
+    * @return a (name, value, type) triple for each variable, in order, or an empty list if the interpreter is
+    *         unavailable
+    */
+  public List<Triple<String,String,String>> getVariablesToString(String name, List<String> vars) {
+    Option<List<Triple<String,String,String>>> result = _jvm.getVariablesToString(name, vars);
+    return result.unwrap(new ArrayList<Triple<String,String,String>>());
+  }
+  
   /** Adds the given path to the interpreter's class path.
     * @param f  the path to add
     */
@@ -114,6 +133,11 @@ public abstract class RMIInteractionsModel extends InteractionsModel {
     */
   public void addExtraClassPath(File f) { _jvm.addExtraClassPath(f); }
   
+  /** Replaces the class files compiled in memory, which the interpreter loads in preference to its class path.
+    * @param classes  the class files, keyed by binary class name
+    */
+  public void setMemoryClasses(Map<String, byte[]> classes) { _jvm.setMemoryClasses(classes); }
+  
   /** Resets the Java interpreter. */
   protected void _resetInterpreter(File wd, boolean force) {
     setToDefaultInterpreter();
@@ -139,6 +163,7 @@ public abstract class RMIInteractionsModel extends InteractionsModel {
   public void setActiveInterpreter(String name, String prompt) {
     Option<Pair<Boolean, Boolean>> result = _jvm.setActiveInterpreter(name);
     debug.logValue("result", result);
+    if (result.isSome()) { _activeInterpreterName = name; }
     if (result.isSome() && result.unwrap().first()) { // interpreter changed
       boolean inProgress = result.unwrap().second();
       _updateDocument(prompt, inProgress);
@@ -146,9 +171,13 @@ public abstract class RMIInteractionsModel extends InteractionsModel {
     }
   }
   
+  /** @return the name of the active interpreter, or "" if it is the default interpreter. */
+  public String getActiveInterpreterName() { return _activeInterpreterName; }
+  
   /** Sets the default interpreter to be the current one. */
   public void setToDefaultInterpreter() {
     Option<Pair<Boolean, Boolean>> result = _jvm.setToDefaultInterpreter();
+    _activeInterpreterName = "";
     if (result.isSome() && result.unwrap().first()) { // interpreter changed
       boolean inProgress = result.unwrap().second();
       _updateDocument(InteractionsDocument.DEFAULT_PROMPT, inProgress);
@@ -73,7 +73,7 @@ public class SimpleInteractionsModel extends InteractionsModel {
     * @param document Toolkit-independent document adapter
     */
   public SimpleInteractionsModel(InteractionsDJDocument document) {
-    super(document, new File(System.getProperty("user.dir")), 1000, WRITE_DELAY);
+    super(document, new File(System.getProperty("user.dir")), 1000);
     _classPathManager = new ClassPathManager(ReflectUtil.SYSTEM_CLASS_PATH);
     _interpreterOptions = new InteractionsPaneOptions();
     _interpreter = new Interpreter(_interpreterOptions, _classPathManager.makeClassLoader(null));
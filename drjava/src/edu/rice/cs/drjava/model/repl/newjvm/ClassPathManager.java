@@ -37,7 +37,12 @@
 package edu.rice.cs.drjava.model.repl.newjvm;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.lang.ClassLoader;
 import edu.rice.cs.plt.io.IOUtil;
 import edu.rice.cs.plt.iter.IterUtil;
@@ -62,6 +67,12 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
   
   private final Iterable<File> _fullPath;
   
+  /** Class files compiled in memory, keyed by binary name; they take precedence over the class path. */
+  private volatile Map<String, byte[]> _memoryClasses = Collections.emptyMap();
+  
+  /** Listeners notified of changes to the class path. */
+  private final List<Runnable> _listeners = new CopyOnWriteArrayList<Runnable>();
+  
   public ClassPathManager(Iterable<File> builtInCP) {
     _projectCP = new LinkedList<File>();
     _buildCP = new LinkedList<File>();
@@ -82,6 +93,18 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
     updateProperty();
   }
   
+  /** Adds a listener that is run whenever an entry is added to the class path.  Listeners are run while the lock
+    * on this ClassPathManager is held, so they must not block.
+    * @param listener the listener to be run
+    */
+  public void addChangeListener(Runnable listener) { _listeners.add(listener); }
+  
+  /** Updates the class path property and notifies the listeners of a change to the class path. */
+  private void _classPathChanged() {
+    updateProperty();
+    for (Runnable l: _listeners) { l.run(); }
+  }
+  
   public static final String INTERACTIONS_CLASS_PATH_PROPERTY = "edu.rice.cs.drjava.interactions.class.path";
   
   protected void updateProperty() {
@@ -99,7 +122,7 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
    * (this is the classpath specified in project properties)
    * @param f the file to be added to the classpath
    */
-  public synchronized void addProjectCP(File f) { _projectCP.addFirst(f); updateProperty(); }
+  public synchronized void addProjectCP(File f) { _projectCP.addFirst(f); _classPathChanged(); }
   
   public synchronized Iterable<File> getProjectCP() { return IterUtil.snapshot(_projectCP); }
   
@@ -110,7 +133,7 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
   public synchronized void addBuildDirectoryCP(File f) {
     _buildCP.remove(f); // eliminate duplicates
     _buildCP.addFirst(f);
-    updateProperty();
+    _classPathChanged();
   }
   
   public synchronized Iterable<File> getBuildDirectoryCP() { return IterUtil.snapshot(_buildCP); }
@@ -123,7 +146,7 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
   public synchronized void addProjectFilesCP(File f) {
     _projectFilesCP.remove(f); // eliminate duplicates
     _projectFilesCP.addFirst(f);
-    updateProperty();
+    _classPathChanged();
   }
   
   public synchronized Iterable<File> getProjectFilesCP() { return IterUtil.snapshot(_projectFilesCP); }
@@ -135,7 +158,7 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
   public synchronized void addExternalFilesCP(File f) {
     _externalFilesCP.remove(f); // eliminate duplicates
     _externalFilesCP.addFirst(f);
-    updateProperty();
+    _classPathChanged();
   }
   
   public synchronized Iterable<File> getExternalFilesCP() { return IterUtil.snapshot(_externalFilesCP); }
@@ -147,11 +170,23 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
   public synchronized void addExtraCP(File f) {
     _extraCP.remove(f); // eliminate duplicates
     _extraCP.addFirst(f);
-    updateProperty();
+    _classPathChanged();
   }
   
   public Iterable<File> getExtraCP() { return IterUtil.snapshot(_extraCP); }
   
+  /** 
+   * Replaces the class files compiled in memory.  Class loaders define these classes in preference to those
+   * found on the class path; classes that have already been loaded are not affected.
+   * @param classes the class files, keyed by binary class name
+   */
+  public synchronized void setMemoryClasses(Map<String, byte[]> classes) {
+    _memoryClasses = new HashMap<String, byte[]>(classes);
+    _classPathChanged();
+  }
+  
+  public Map<String, byte[]> getMemoryClasses() { return Collections.unmodifiableMap(_memoryClasses); }
+  
   /** Create a new class loader based on the given path.  The loader's path is dynamically updated
     * as changes are made in the ClassPathManager.  Each loader returned by this method will
     * have its own set of loaded classes, and will only share those classes that are loaded
@@ -162,7 +197,15 @@ public class ClassPathManager implements Lambda<ClassLoader, ClassLoader> {
     */
   public synchronized ClassLoader makeClassLoader(ClassLoader parent) {
     updateProperty();
-    return new PathClassLoader(parent, _fullPath);
+    return new PathClassLoader(parent, _fullPath) {
+      @Override protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = _memoryClasses.get(name);
+        if (bytes == null) { return super.findClass(name); }
+        Class<?> result = defineClass(name, bytes, 0, bytes.length);
+        definePackageForClass(name);
+        return result;
+      }
+    };
   }
   
   /** Lambda value method */
@@ -45,7 +45,7 @@ import java.rmi.*;
 //  (This class runs in a different JVM, and will not share the config object)
 
 
-import edu.rice.cs.util.OutputStreamRedirector;
+import edu.rice.cs.util.OutputCoalescer;
 import edu.rice.cs.util.InputStreamRedirector;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.classloader.ClassFileError;
@@ -55,6 +55,7 @@ import edu.rice.cs.plt.reflect.ReflectUtil;
 import edu.rice.cs.plt.tuple.Option;
 import edu.rice.cs.plt.tuple.OptionVisitor;
 import edu.rice.cs.plt.tuple.Pair;
+import edu.rice.cs.plt.tuple.Triple;
 import edu.rice.cs.plt.text.TextUtil;
 
 import edu.rice.cs.drjava.platform.PlatformFactory;
@@ -103,6 +104,8 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
   
   private final ClassPathManager _classPathManager;
   private final ClassLoader _interpreterLoader;
+  /** The classes of _interpreterLoader, shared by all interpreters; caches the results of class lookups. */
+  private final CachingLibrary _classLibrary;
   
   // Lock object for ensuring mutual exclusion on updates and compound accesses
   private final Object _stateLock = new Object();
@@ -113,12 +116,31 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
   /** Remote reference to the MainJVM class in DrJava's primary JVM.  Assigned ONLY once. */
   private volatile MainJVMRemoteI _mainJVM;
   
+  /** Maximum number of characters of System.out or System.err output sent to the main JVM in one call. */
+  public static final int OUTPUT_CHUNK_SIZE = 8192;
+  
+  /** Maximum number of milliseconds that output is held back to be merged with subsequent output. */
+  public static final long OUTPUT_DELAY = 20;
+  
+  private static final int STDOUT_CHANNEL = 0;
+  private static final int STDERR_CHANNEL = 1;
+  
+  /** Merges System.out and System.err output into chunks for the main JVM.  Assigned ONLY once, in handleStart. */
+  private volatile OutputCoalescer _output;
+  
   /** Private constructor; use the singleton ONLY instance. */
   private InterpreterJVM() {
     super("Reset Interactions Thread", "Poll DrJava Thread");
     
     _classPathManager = new ClassPathManager(ReflectUtil.SYSTEM_CLASS_PATH);
     _interpreterLoader = _classPathManager.makeClassLoader(null);
+    _classLibrary = new CachingLibrary(SymbolUtil.classLibrary(_interpreterLoader), _classPathManager.getClassPath());
+    _classPathManager.addChangeListener(new Runnable() {
+      public void run() {
+        _classLibrary.invalidate();
+        _clearInterpreterCaches();
+      }
+    });
     _junitTestManager = new JUnitTestManager(this, _classPathManager);
 
     // set the thread context class loader, this way NextGen and Mint can use the interpreter's class loader
@@ -126,7 +148,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     
     // _interpreterOptions = Options.DEFAULT;
     _interpreterOptions = new InteractionsPaneOptions();
-    _defaultInterpreter = new Interpreter(_interpreterOptions, _interpreterLoader);
+    _defaultInterpreter = _newInterpreter();
     _interpreters = new HashMap<String,Interpreter>();
     _busyInterpreters = new HashSet<Interpreter>();
 //    _environments = new HashMap<String, Pair<TypeContext, RuntimeBindings>>();
@@ -142,6 +164,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     // redirect stdin
     System.setIn(new InputStreamRedirector() {
       protected String _getInput() {
+        _flushOutput();  // show any prompt printed by the program before asking for input
         try { return _mainJVM.getConsoleInput(); }
         catch(RemoteException re) {
           error.log(re);
@@ -150,27 +173,25 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
       }
     });
     
-    // redirect stdout
-    System.setOut(new PrintStream(new OutputStreamRedirector() {
-      public void print(String s) {
-        try { _mainJVM.systemOutPrint(s); }
-        catch (RemoteException re) {
-          error.log(re);
-          throw new UnexpectedException("Main JVM can't be reached for output.\n" + re);
+    // redirect stdout and stderr through a shared coalescer, which preserves their relative order
+    _output = new OutputCoalescer(OUTPUT_CHUNK_SIZE, OUTPUT_DELAY) {
+      protected void deliver(int channel, String s) {
+        try {
+          if (channel == STDERR_CHANNEL) _mainJVM.systemErrPrint(s);
+          else _mainJVM.systemOutPrint(s);
         }
-      }
-    }));
-    
-    // redirect stderr
-    System.setErr(new PrintStream(new OutputStreamRedirector() {
-      public void print(String s) {
-        try { _mainJVM.systemErrPrint(s); }
         catch (RemoteException re) {
           error.log(re);
           throw new UnexpectedException("Main JVM can't be reached for output.\n" + re);
         }
       }
-    }));
+    };
+    System.setOut(new PrintStream(_output.channel(STDOUT_CHANNEL)));
+    System.setErr(new PrintStream(_output.channel(STDERR_CHANNEL)));
+    // a program that calls System.exit never returns to interpret, which would otherwise deliver its last output
+    Runtime.getRuntime().addShutdownHook(new Thread("Flush Output") {
+      public void run() { _flushOutputQuietly(); }
+    });
     
     /* On Windows, any frame or dialog opened from Interactions pane will appear *behind* DrJava's frame, unless a 
      * previous frame or dialog is shown here.  Not sure what the difference is, but this hack seems to work.  (I'd
@@ -185,6 +206,18 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     //_dialog("interpreter JVM started");
   }
   
+  /** Creates an interpreter that resolves class names through the shared _classLibrary. */
+  private Interpreter _newInterpreter() {
+    TypeContext ctx = new ImportContext(new LibraryContext(_classLibrary), _interpreterOptions);
+    return new Interpreter(_interpreterOptions, ctx, RuntimeBindings.EMPTY);
+  }
+  
+  /** Discards the interactions remembered by every interpreter, since their names may now resolve differently. */
+  private void _clearInterpreterCaches() {
+    _defaultInterpreter.clearCache();
+    synchronized(_interpreters) { for (Interpreter i : _interpreters.values()) { i.clearCache(); } }
+  }
+  
   /* Concurrent operations on _interpreters. */ 
   private Interpreter getInterpreter(String name) {
     synchronized(_interpreters) {return _interpreters.get(name); }
@@ -235,7 +268,29 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     return interpret(s, i);
   }
   
+  /** Interprets the given input, delivering all the output it produced before returning the result so that the
+    * output appears ahead of the result in the interactions pane. */
   private InterpretResult interpret(String input, Interpreter interpreter) {
+    try { return _interpret(input, interpreter); }
+    finally { _flushOutput(); }
+  }
+  
+  /** Delivers any System.out and System.err output that has not yet been sent to the main JVM. */
+  private void _flushOutput() {
+    OutputCoalescer output = _output;
+    if (output != null) output.flush();
+  }
+  
+  /** Delivers pending output like _flushOutput, logging instead of throwing if the main JVM can't be reached. */
+  private void _flushOutputQuietly() {
+    try { _flushOutput(); }
+    catch (RuntimeException e) { error.log(e); }
+  }
+  
+  /** Delivers pending output before this JVM quits, as it does when the interactions pane is reset. */
+  protected void beforeQuit() { _flushOutputQuietly(); }
+  
+  private InterpretResult _interpret(String input, Interpreter interpreter) {
     debug.logStart("Interpret " + input);
     
     boolean available = addBusyInterpreter(interpreter);
@@ -305,10 +360,15 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
    * @param var the variable to look up
    * @return the value and type string of var
    */
+  public Pair<Object,String>[] getVariable(String var) { return getVariable(var, _activeInterpreter.second()); }
+  
+  /** Gets the value and type string of the variable with the given name in the given interpreter.
+    * @see #getVariable(String)
+    */
   @SuppressWarnings({"unchecked","rawtypes"})
-  public Pair<Object,String>[] getVariable(String var) {
+  private Pair<Object,String>[] getVariable(String var, Interpreter interpreter) {
     synchronized(_stateLock) {
-      InterpretResult ir = interpret(var);
+      InterpretResult ir = interpret(var, interpreter);
       return ir.apply(new InterpretResult.Visitor<Pair<Object,String>[]>() {
         public Pair<Object,String>[] fail() { return new Pair[0]; }
 //        public Pair<Object,String>[] fail() { return (Pair<Object,String>[]) new Pair<?,?>[0]; }
@@ -336,9 +396,16 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     * otherwise its string representation; the second part is the string representation of the variable's type
     */
   public Pair<String,String> getVariableToString(String var) {
+    return getVariableToString(var, _activeInterpreter.second());
+  }
+  
+  /** Gets the string representation of the value of a variable in the given interpreter.
+    * @see #getVariableToString(String)
+    */
+  private Pair<String,String> getVariableToString(String var, Interpreter interpreter) {
     synchronized(_stateLock) {
 //    if (!isValidFieldName(var)) { return "<error in watch name>"; }
-      Pair<Object,String>[] val = getVariable(var);  // recursive locking
+      Pair<Object,String>[] val = getVariable(var, interpreter);  // recursive locking
       if (val.length == 0) { return new Pair<String,String>(null,null); }
       else {
         Object o = val[0].first();
@@ -347,6 +414,25 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
       }
     }
   }
+  
+  /** Gets the string representations of several variables at once; see {@link #getVariableToString(String)}.
+    * @param name the name of the interpreter in which to evaluate the variables, or "" for the default interpreter
+    * @param vars the names of the variables
+    * @return a (name, value, type) triple for each variable, in order, or an empty list if the named interpreter
+    *         no longer exists
+    */
+  public List<Triple<String,String,String>> getVariablesToString(String name, List<String> vars) {
+    synchronized(_stateLock) {
+      Interpreter interpreter = name.equals("") ? _defaultInterpreter : getInterpreter(name);
+      if (interpreter == null) { return new ArrayList<Triple<String,String,String>>(); }
+      List<Triple<String,String,String>> result = new ArrayList<Triple<String,String,String>>(vars.size());
+      for (String var : vars) {
+        Pair<String,String> val = getVariableToString(var, interpreter);
+        result.add(new Triple<String,String,String>(var, val.first(), val.second()));
+      }
+      return result;
+    }
+  }
 
   /** 
    * @param c the class to get the name of
@@ -388,7 +474,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
       if (isInterpreterName(name)) {
         throw new IllegalArgumentException("'" + name + "' is not a unique interpreter name");
       }
-      Interpreter i = new Interpreter(_interpreterOptions, _interpreterLoader);
+      Interpreter i = _newInterpreter();
       putInterpreter(name, i);
     }
   }
@@ -434,7 +520,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
         vars.add(new LocalVariable(localVarNames[i], varT, false));
       }
       
-      TypeContext ctx = new ImportContext(_interpreterLoader, _interpreterOptions);
+      TypeContext ctx = new ImportContext(new LibraryContext(_classLibrary), _interpreterOptions);
       if (pkg != null) { ctx = ctx.setPackage(pkg.getName()); }
       ctx = new ClassSignatureContext(ctx, c, _interpreterLoader);
       ctx = new ClassContext(ctx, c);
@@ -542,6 +628,11 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     */
   public boolean runTestSuite() throws RemoteException { return _junitTestManager.runTestSuite(); }
   
+  /** Sets the number of threads used to run a test suite.
+    * @param threads the number of threads; 1 runs tests sequentially, and 0 uses one thread per processor
+    */
+  public void setTestThreads(int threads) { _junitTestManager.setTestThreads(threads); }
+  
   /** Notifies Main JVM that JUnit has been invoked on a non TestCase class.  Unsynchronized because it contains a 
     * remote call and does not involve mutable local state.
     * @param isTestAll whether or not it was a use of the test all button
@@ -594,6 +685,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
     * @param errors The array of errors from all failed tests in the suite.
     */
   public void testSuiteEnded(JUnitError[] errors) {
+    _flushOutput();
     try { _mainJVM.testSuiteEnded(errors); }
     catch (RemoteException re) { error.log(re); }
   }
@@ -616,6 +708,7 @@ public class InterpreterJVM extends AbstractSlaveJVM implements InterpreterJVMRe
   public void addBuildDirectoryClassPath(File f) { _classPathManager.addBuildDirectoryCP(f); }
   public void addProjectFilesClassPath(File f) { _classPathManager.addProjectFilesCP(f); }
   public void addExternalFilesClassPath(File f) { _classPathManager.addExternalFilesCP(f); }
+  public void setMemoryClasses(Map<String, byte[]> classes) { _classPathManager.setMemoryClasses(classes); }
   public Iterable<File> getClassPath() {
     // need to make a serializable snapshot
     return IterUtil.snapshot(_classPathManager.getClassPath());
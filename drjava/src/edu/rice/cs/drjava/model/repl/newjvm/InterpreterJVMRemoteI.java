@@ -38,9 +38,11 @@ package edu.rice.cs.drjava.model.repl.newjvm;
 
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
 import java.io.File;
 
 import edu.rice.cs.plt.tuple.Pair;
+import edu.rice.cs.plt.tuple.Triple;
 import edu.rice.cs.util.newjvm.*;
 import edu.rice.cs.drjava.model.junit.JUnitResultTuple;
 import edu.rice.cs.drjava.model.coverage.CoverageMetadata;
@@ -54,6 +56,13 @@ public interface InterpreterJVMRemoteI extends SlaveRemote {
     List<File> files, CoverageMetadata coverageMetadata) throws RemoteException;
   
   public boolean runTestSuite() throws RemoteException;
+  
+  /** 
+   * @param threads the number of threads used to run a test suite; 1 runs tests sequentially, and 0 uses one 
+   *                thread per processor
+   * @throws RemoteException if communication over RMI fails
+   */
+  public void setTestThreads(int threads) throws RemoteException;
 
   //public JUnitResultTuple getLastJUnitResult();
 
@@ -127,6 +136,19 @@ public interface InterpreterJVMRemoteI extends SlaveRemote {
    */
   public Pair<String,String> getVariableToString(String var) throws RemoteException;
   
+  /** 
+   * Gets the string representations of the values and types of several variables in the named interpreter
+   * with a single remote call.
+   * @param name the name of the interpreter, or "" for the default interpreter
+   * @param vars the names of the variables
+   * @return a (name, value, type) triple for each variable, in order; as in {@link #getVariableToString}, the
+   *         value and type are null if the variable is not defined.  The list is empty if the interpreter
+   *         does not exist.
+   * @throws RemoteException if communication over RMI fails
+   */
+  public List<Triple<String,String,String>> getVariablesToString(String name, List<String> vars)
+    throws RemoteException;
+  
   /** 
    * @return the current class path.
    * @throws RemoteException if communication over RMI fails
@@ -173,4 +195,12 @@ public interface InterpreterJVMRemoteI extends SlaveRemote {
    */
   public void addExtraClassPath(File f) throws RemoteException;
   
+  /** 
+   * Replaces the class files compiled in memory, which are loaded in preference to the class path by ALL Java
+   * interpreters.
+   * @param classes the class files, keyed by binary class name
+   * @throws RemoteException if communication over RMI fails
+   */
+  public void setMemoryClasses(Map<String, byte[]> classes) throws RemoteException;
+  
 }
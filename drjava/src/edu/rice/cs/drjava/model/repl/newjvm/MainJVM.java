@@ -42,6 +42,7 @@ import java.net.SocketException;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
@@ -58,6 +59,7 @@ import edu.rice.cs.drjava.ui.DrJavaErrorHandler;
 
 import edu.rice.cs.util.ArgumentTokenizer;
 import edu.rice.cs.util.FileOps;
+import edu.rice.cs.util.Log;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.plt.io.IOUtil;
 import edu.rice.cs.plt.iter.IterUtil;
@@ -65,6 +67,7 @@ import edu.rice.cs.plt.reflect.ReflectUtil;
 import edu.rice.cs.plt.reflect.JavaVersion;
 import edu.rice.cs.plt.tuple.Option;
 import edu.rice.cs.plt.tuple.Pair;
+import edu.rice.cs.plt.tuple.Triple;
 import edu.rice.cs.plt.concurrent.JVMBuilder;
 import edu.rice.cs.plt.concurrent.StateMonitor;
 import edu.rice.cs.plt.concurrent.CompletionMonitor;
@@ -95,6 +98,8 @@ import static edu.rice.cs.plt.debug.DebugUtil.debug;
  */
 public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
   
+  public static final Log _log = new Log("MainJVM.txt", false);
+  
   /** Number of slave startup failures allowed before aborting the startup process. */
   private static final int MAX_STARTUP_FAILURES = 3;
   
@@ -128,6 +133,15 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
   /** Working directory for slave JVM */
   private volatile File _workingDir;
   
+  /** System.nanoTime() when the current reset was requested, or 0 if no reset is in progress. */
+  private volatile long _resetStartTime = 0;
+  
+  /** Duration of the last reset in milliseconds, or -1 if there has been no reset. */
+  private volatile long _lastResetTime = -1;
+  
+  /** The class files compiled in memory, passed to each new interpreter JVM. */
+  private volatile HashMap<String, byte[]> _memoryClasses = new HashMap<String, byte[]>();
+  
   /** 
    * Creates a new MainJVM to interface to another JVM;  the MainJVM has a 
    * link to the partially initialized global model.  The MainJVM but does 
@@ -335,14 +349,19 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
    * Sets whether the remote JVM will run "assert" statements after the next restart. 
    * @param allow true if the JVM will allow assertions after the next restart; false otherwise
    */
-  public void setAllowAssertions(boolean allow) { _allowAssertions = allow; }
+  public void setAllowAssertions(boolean allow) {
+    if (allow != _allowAssertions) { discardStandbySlaves(); }
+    _allowAssertions = allow;
+  }
   
   /**
    * Sets the class path to use for starting the interpreter JVM. Must include the classes for the interpreter.
    * @param classPath Class path for the interpreter JVM
    */
   public void setStartupClassPath(String classPath) {
-    _startupClassPath = IOUtil.parsePath(classPath);
+    Iterable<File> cp = IOUtil.parsePath(classPath);
+    if (! IterUtil.isEqual(cp, _startupClassPath)) { discardStandbySlaves(); }
+    _startupClassPath = cp;
   }
   
   /** 
@@ -350,9 +369,14 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
    * @param dir working directory to be set
    */
   public void setWorkingDirectory(File dir) {
+    if (! dir.equals(_workingDir)) { discardStandbySlaves(); }
     _workingDir = dir;
   }
   
+  /** @return the number of milliseconds the last reset took, from the request until the new interpreter was ready,
+    *         or -1 if there has been no reset */
+  public long getLastResetTime() { return _lastResetTime; }
+  
   /** 
    * Declared as a getter in order to allow subclasses to override the standard behavior. 
    * @return a visitor for the interpreter's results
@@ -396,6 +420,21 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     catch (RemoteException e) { _handleRemoteException(e); return Option.none(); }
   }
   
+  /**
+   * Gets the string representations of the values and types of several variables in the named interpreter
+   * with a single remote call, or "none" if the remote JVM is unavailable or an error occurs.  Blocks until the
+   * interpreter is connected.
+   * @param name the name of the interpreter, or "" for the default interpreter
+   * @param vars the names of the variables
+   * @return a (name, value, type) triple for each variable
+   */
+  public Option<List<Triple<String,String,String>>> getVariablesToString(String name, List<String> vars) {
+    InterpreterJVMRemoteI remote = _state.value().interpreter(false);
+    if (remote == null) { return Option.none(); }
+    try { return Option.some(remote.getVariablesToString(name, vars)); }
+    catch (RemoteException e) { _handleRemoteException(e); return Option.none(); }
+  }
+  
   /**
    * Blocks until the interpreter is connected. 
    * @param f file to be added to the class path
@@ -456,6 +495,36 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     catch (RemoteException e) { _handleRemoteException(e); return false; }
   }
   
+  /**
+   * Replaces the class files compiled in memory, which the interpreter JVM loads in preference to the class path.
+   * They are also passed to the interpreter JVMs started later; see {@link #sendMemoryClasses}.
+   * @param classes the class files, keyed by binary class name
+   * @return {@code true} if the change was successfully passed to the remote JVM.
+   */
+  public boolean setMemoryClasses(Map<String, byte[]> classes) {
+    HashMap<String, byte[]> copy = new HashMap<String, byte[]>(classes);
+    _memoryClasses = copy;
+    return _sendMemoryClasses(copy);
+  }
+  
+  /**
+   * Passes the class files compiled in memory to a newly started interpreter JVM.  Does nothing if there are none.
+   * Blocks until the interpreter is connected.
+   * @return {@code true} if the class files were successfully passed to the remote JVM.
+   */
+  public boolean sendMemoryClasses() {
+    HashMap<String, byte[]> classes = _memoryClasses;
+    return classes.isEmpty() || _sendMemoryClasses(classes);
+  }
+  
+  /** Blocks until the interpreter is connected. */
+  private boolean _sendMemoryClasses(HashMap<String, byte[]> classes) {
+    InterpreterJVMRemoteI remote = _state.value().interpreter(false);
+    if (remote == null) { return false; }
+    try { remote.setMemoryClasses(classes); return true; }
+    catch (RemoteException e) { _handleRemoteException(e); return false; }
+  }
+  
   /** 
    * Returns the current class path of the interpreter as a list of unique entries.  
    * The result is "none" if the remote JVM is unavailable or if an exception occurs. 
@@ -510,6 +579,19 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     catch (RemoteException e) { _handleRemoteException(e); return false; }
   }
   
+  /** 
+   * Sets the number of threads used to run a JUnit test suite.  
+   * Blocks until the interpreter is connected.
+   * @param threads the number of threads; 1 runs tests sequentially, and 0 uses one thread per processor
+   * @return {@code false} if the remote JVM is unavailable or if an exception occurs; true otherwise.
+   */
+  public boolean setTestThreads(int threads) {
+    InterpreterJVMRemoteI remote = _state.value().interpreter(false);
+    if (remote == null) { return false; }
+    try { remote.setTestThreads(threads); return true; }
+    catch (RemoteException e) { _handleRemoteException(e); return false; }
+  }
+  
 //  /** Updates the security manager in slave JVM */
 //  public void enableSecurityManager() throws RemoteException {
 //    _interpreterJVM().enableSecurityManager();
@@ -795,9 +877,22 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     
     jvmb = jvmb.properties(props);
     
+    // keep warm interpreter JVMs in reserve, unless they would compete for the debug port
+    int standby = DrJava.getConfig().getSetting(OptionConstants.SLAVE_JVM_STANDBY).intValue();
+    setStandbyCount((debugPort > -1) ? 0 : standby);
+    
     invokeSlave(jvmb);
   }
   
+  /** Records and logs the time taken by the reset that just completed, if any. */
+  private void _logResetTime() {
+    long start = _resetStartTime;
+    if (start == 0) { return; }
+    _resetStartTime = 0;
+    _lastResetTime = (System.nanoTime() - start) / 1000000;
+    _log.log("Reset to prompt took " + _lastResetTime + " ms; standby JVMs used so far: " + getStandbyUses());
+  }
+  
   /** @return the debug port to use, as specified by the model; returns -1 if no usable port could be found. */
   private int _getDebugPort() {
     int port = -1;
@@ -935,6 +1030,7 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
         // (Is the user ever going to see a working dir message that doesn't match the actual setting?)
         _interactionsModel.interpreterReady(_workingDir);
         _junitModel.junitJVMReady();        
+        _logResetTime();
       }
       else { _state.value().started(i); }
     }
@@ -966,8 +1062,17 @@ public class MainJVM extends AbstractMasterJVM implements MainJVMRemoteI {
     
     public void restart(boolean force) {
       if (_state.compareAndSet(this, new RestartingState())) {  // Advance to RestartingState
+        _resetStartTime = System.nanoTime();
         _interactionsModel.interpreterResetting();
-        quitSlave();
+        if (hasStandbySlave()) {
+          // Don't wait for the old JVM to exit; a standby JVM is ready to take over.  Like a slave exit, the
+          // startup is driven from a separate thread.
+          quitSlave(false);
+          new Thread("Start Standby JVM") {
+            public void run() { _state.value().stopped(0); }
+          }.start();
+        }
+        else { quitSlave(); }
       }
       else { _state.value().restart(force); }
     }
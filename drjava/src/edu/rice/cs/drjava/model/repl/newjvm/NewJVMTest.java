@@ -40,6 +40,7 @@ import edu.rice.cs.drjava.DrJavaTestCase;
 
 import edu.rice.cs.plt.concurrent.CompletionMonitor;
 import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.tuple.Triple;
 import edu.rice.cs.util.Log;
 import edu.rice.cs.util.UnexpectedException;
 
@@ -48,6 +49,8 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.List;
 
 import static edu.rice.cs.plt.debug.DebugUtil.debug;
 
@@ -97,6 +100,25 @@ public final class NewJVMTest extends DrJavaTestCase {
     debug.logEnd();
   }
 
+  /** Tests that output printed just before System.exit is delivered, although interpret never returns. */
+  public void testPrintThenExit() throws Throwable {
+    debug.logStart();
+    
+    _jvm.resetFlags();
+    assertFalse("interaction ended by exit", 
+                _jvm.interpret("System.err.print(\"err\"); System.out.print(\"bye\"); System.exit(0);"));
+    assertEquals("system out buffer", "bye", _jvm.awaitOutBuf("bye"));
+    assertEquals("system err buffer", "err", _jvm._errBuf);  // delivered ahead of the output to System.out
+    
+    // the interpreter JVM restarts; until the main JVM notices that it quit, interactions fail
+    _jvm.resetFlags();
+    long end = System.currentTimeMillis() + TestJVMExtension.WAIT_TIMEOUT;
+    while (! _jvm.interpret("4") && System.currentTimeMillis() < end) { Thread.sleep(50); }
+    assertEquals("result", "4", _jvm.returnBuf());
+    
+    debug.logEnd();
+  }
+
   public void testReturnConstant() throws Throwable {
     debug.logStart();
    _log.log("NewJVMTest.testReturnConstant executing");
@@ -207,6 +229,44 @@ public final class NewJVMTest extends DrJavaTestCase {
     debug.logEnd();
   }
 
+  /** Ensure that the values and types of several variables can be fetched at once from the default interpreter or
+    * a named one, as the debugger's watches are.
+    * @throws InterruptedException if execution was interrupted unexpectedly
+    */
+  public void testGetVariablesToString() throws InterruptedException {
+    debug.logStart();
+    
+    assertTrue(_jvm.interpret("int watchedInt = 7; String watchedString = \"seven\";"));
+    _jvm.addInterpreter("watches");
+    _jvm.setActiveInterpreter("watches");
+    assertTrue(_jvm.interpret("int watchedInt = 8;"));
+    _jvm.setToDefaultInterpreter();
+    
+    List<Triple<String,String,String>> vals =
+      _jvm.getVariablesToString("", Arrays.asList("watchedInt", "watchedString", "notDefined")).unwrap();
+    assertEquals("values", 3, vals.size());
+    assertEquals("name", "watchedInt", vals.get(0).first());
+    assertEquals("value", "7", vals.get(0).second());
+    assertEquals("type", "int or Integer", vals.get(0).third());
+    assertEquals("name", "watchedString", vals.get(1).first());
+    assertEquals("value", "seven", vals.get(1).second());
+    assertEquals("type", "java.lang.String", vals.get(1).third());
+    assertEquals("name", "notDefined", vals.get(2).first());
+    assertNull("undefined value", vals.get(2).second());
+    assertNull("undefined type", vals.get(2).third());
+    
+    vals = _jvm.getVariablesToString("watches", Arrays.asList("watchedInt", "watchedString")).unwrap();
+    assertEquals("values", 2, vals.size());
+    assertEquals("value in named interpreter", "8", vals.get(0).second());
+    assertNull("not defined in named interpreter", vals.get(1).second());
+    
+    assertTrue("removed", _jvm.removeInterpreter("watches"));
+    vals = _jvm.getVariablesToString("watches", Arrays.asList("watchedInt")).unwrap();
+    assertTrue("no values from a missing interpreter", vals.isEmpty());
+    
+    debug.logEnd();
+  }
+
   private static class TestJVMExtension extends MainJVM {
     private static final int WAIT_TIMEOUT = 30000; // time to wait for an interaction to complete
     
@@ -245,6 +305,17 @@ public final class NewJVMTest extends DrJavaTestCase {
       return _outBuf;
     }
 
+    /** Waits until the System.out output received equals expected, for at most WAIT_TIMEOUT milliseconds, without 
+      * waiting for the interaction to complete.
+      * @param expected the expected output
+      * @return the System.out output received
+      */
+    public String awaitOutBuf(String expected) throws InterruptedException {
+      long end = System.currentTimeMillis() + WAIT_TIMEOUT;
+      while (! _outBuf.equals(expected) && System.currentTimeMillis() < end) { Thread.sleep(10); }
+      return _outBuf;
+    }
+
     public String errBuf() {
       assertTrue(_done.attemptEnsureSignaled(WAIT_TIMEOUT));
       return _errBuf;
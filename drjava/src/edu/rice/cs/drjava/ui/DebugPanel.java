@@ -648,6 +648,9 @@ public class DebugPanel extends JPanel implements OptionConstants {
     public void breakpointReached(final Breakpoint bp) { }
     public void watchSet(final DebugWatchData w) { }
     public void watchRemoved(final DebugWatchData w) { }
+    
+    /** Called when watch values change.  Only runs in event thread. */
+    public void watchesUpdated() { ((AbstractTableModel)_watchTable.getModel()).fireTableDataChanged(); }
     public void stepRequested() { }
     public void regionAdded(Breakpoint r) { }
     public void regionChanged(Breakpoint r) { }
@@ -43,9 +43,11 @@ import javax.swing.text.*;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.util.List;
 import java.util.LinkedList;
 
+import edu.rice.cs.plt.io.IOUtil;
 import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.util.OperationCanceledException;
@@ -53,6 +55,7 @@ import edu.rice.cs.util.swing.HighlightManager;
 import edu.rice.cs.util.swing.RightClickMouseAdapter;
 import edu.rice.cs.util.text.SwingDocument;
 import edu.rice.cs.drjava.model.*;
+import edu.rice.cs.drjava.model.compiler.CompilerErrorModel;
 import edu.rice.cs.drjava.model.definitions.CompoundUndoManager;
 import edu.rice.cs.drjava.model.definitions.DefinitionsEditorKit;
 import edu.rice.cs.drjava.model.definitions.NoSuchDocumentException;
@@ -120,6 +123,13 @@ public class DefinitionsPane extends AbstractDJPane implements Finalizable<Defin
   /** Our current compiler error matching highlight. */
   private volatile HighlightManager.HighlightInfo _errorHighlightTag = null;
 
+  /** The underlines marking the errors found by background checking. */
+  private final List<HighlightManager.HighlightInfo> _errorMarkers = new LinkedList<HighlightManager.HighlightInfo>();
+
+  /** Highlight painter for the error markers. */
+  static volatile ReverseHighlighter.DefaultUnderlineHighlightPainter ERROR_MARKER_PAINTER =
+    new ReverseHighlighter.DefaultUnderlineHighlightPainter(DrJava.getConfig().getSetting(COMPILER_ERROR_COLOR), 2);
+
   /** Highlight painter for bookmarks. */
   static volatile ReverseHighlighter.DefaultUnderlineHighlightPainter BOOKMARK_PAINTER =
     new ReverseHighlighter.DefaultUnderlineHighlightPainter(DrJava.getConfig().getSetting(BOOKMARK_COLOR), 3);
@@ -250,12 +260,16 @@ public class DefinitionsPane extends AbstractDJPane implements Finalizable<Defin
   private class ErrorColorOptionListener implements OptionListener<Color> {
     public void optionChanged(OptionEvent<Color> oce) {
       ERROR_PAINTER = new ReverseHighlighter.DrJavaHighlightPainter(oce.value);
+      ERROR_MARKER_PAINTER = new ReverseHighlighter.DefaultUnderlineHighlightPainter(oce.value, 2);
       if (_errorHighlightTag != null) {
         int start = _errorHighlightTag.getStartOffset();
         int end = _errorHighlightTag.getEndOffset();
         _errorHighlightTag.remove();
         addErrorHighlight(start, end);
       }
+      if (! _errorMarkers.isEmpty()) {
+        updateErrorMarkers(_mainFrame.getModel().getCompilerModel().getCompilerErrorModel());
+      }
     }
   }
 
@@ -1005,6 +1019,35 @@ public class DefinitionsPane extends AbstractDJPane implements Finalizable<Defin
     }
   }
 
+  /** 
+   * Underlines the rest of the line at each compiler error in this pane's document, if background checking is on;
+   * otherwise removes the underlines.  Only runs in the event thread, after the positions of the errors are known.
+   * @param errorModel the current compiler errors
+   */
+  public void updateErrorMarkers(CompilerErrorModel errorModel) {
+    assert EventQueue.isDispatchThread();
+    for (HighlightManager.HighlightInfo marker: _errorMarkers) { marker.remove(); }
+    _errorMarkers.clear();
+    if (! DrJava.getConfig().getSetting(BACKGROUND_CHECKING).booleanValue() || _doc.isUntitled()) return;
+    
+    File docFile = IOUtil.attemptCanonicalFile(_doc.getRawFile());
+    String text = null;
+    for (int i = 0; i < errorModel.getNumErrors(); i++) {
+      DJError error = errorModel.getError(i);
+      if (error.isWarning() || error.file() == null || ! docFile.equals(IOUtil.attemptCanonicalFile(error.file()))) {
+        continue;
+      }
+      Position pos = errorModel.getPosition(error);
+      if (pos == null) continue;
+      if (text == null) text = _doc.getText();
+      int start = Math.min(pos.getOffset(), text.length());
+      int end = text.indexOf('\n', start);
+      if (end == -1) end = text.length();
+      if (start == end && start > 0) start--;  // mark the last character of the line
+      if (start < end) _errorMarkers.add(_highlightManager.addHighlight(start, end, ERROR_MARKER_PAINTER));
+    }
+  }
+
   public boolean hasWarnedAboutModified() { return _hasWarnedAboutModified; }
 
   public void hasWarnedAboutModified( boolean hasWarned) {
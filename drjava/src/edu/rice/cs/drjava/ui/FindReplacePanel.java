@@ -98,6 +98,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
   private JCheckBox _matchWholeWord;
   private JCheckBox _ignoreTestCases;
   private JCheckBox _searchSelectionOnly;
+  private JCheckBox _regex;
   
   /* MainFrame _frame is inherited from TabbedPanel */
   
@@ -413,6 +414,20 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
       }
     });
 
+    boolean regexSelected = DrJava.getConfig().getSetting(OptionConstants.FIND_REGEX);
+    _regex = new JCheckBox("Regular Expression", regexSelected);
+    _machine.setRegex(regexSelected);
+    _regex.addItemListener(new ItemListener() {
+      public void itemStateChanged(ItemEvent e) {
+        boolean isSelected = (e.getStateChange() == ItemEvent.SELECTED);
+        _machine.setRegex(isSelected);
+        DrJava.getConfig().setSetting(OptionConstants.FIND_REGEX, isSelected);
+        _findField.requestFocusInWindow();
+      }
+    });
+    
+    _machine.setUseIndex(DrJava.getConfig().getSetting(OptionConstants.FIND_TRIGRAM_INDEX));
+
     // We choose not to preserve backwards searching between sessions
     //_machine.setSearchBackwards(DrJava.getConfig().getSetting(OptionConstants.FIND_SEARCH_BACKWARDS));
     
@@ -440,6 +455,10 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     _ignoreTestCasesPanel.add(_searchSelectionOnly);
     _ignoreTestCasesPanel.setMaximumSize(new Dimension(200, 40));
     
+    JPanel _regexPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    _regexPanel.add(_regex);
+    _regexPanel.setMaximumSize(new Dimension(200, 40));
+    
     BorderlessScrollPane _findPane = new BorderlessScrollPane(_findField);
     BorderlessScrollPane _replacePane = new BorderlessScrollPane(_replaceField);
     _findPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
@@ -467,6 +486,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     optionsPanel.add(_matchCaseAndAllDocsPanel);
     optionsPanel.add(_lowerCheckPanel);
     optionsPanel.add(_ignoreTestCasesPanel);
+    optionsPanel.add(_regexPanel);
     optionsPanel.add(emptyPanel);
     
     c.fill = GridBagConstraints.HORIZONTAL;
@@ -476,6 +496,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     gbLayout.setConstraints(_matchCaseAndAllDocsPanel, c);
     gbLayout.setConstraints(_lowerCheckPanel, c);
     gbLayout.setConstraints(_ignoreTestCasesPanel, c);
+    gbLayout.setConstraints(_regexPanel, c);
     
     c.fill = GridBagConstraints.BOTH;
     c.anchor = GridBagConstraints.SOUTH;
@@ -574,10 +595,11 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     final FindResultsPanel panel = 
       _frame.createFindResultsPanel(rm, region, tabLabel, searchStr, searchAll, searchSelectionOnly, _machine.getMatchCase(), 
                                     _machine.getMatchWholeWord(), _machine.getIgnoreCommentsAndStrings(),
-                                    _ignoreTestCases.isSelected(), new WeakReference<OpenDefinitionsDocument>(startDoc),
-                                    this);
+                                    _ignoreTestCases.isSelected(), _regex.isSelected(), 
+                                    new WeakReference<OpenDefinitionsDocument>(startDoc), this);
     findAll(searchStr, searchAll, searchSelectionOnly, _machine.getMatchCase(), _machine.getMatchWholeWord(),
-            _machine.getIgnoreCommentsAndStrings(), _ignoreTestCases.isSelected(), startDoc, rm, region, panel);
+            _machine.getIgnoreCommentsAndStrings(), _ignoreTestCases.isSelected(), _regex.isSelected(), startDoc, rm, 
+            region, panel);
     _model.refreshActiveDocument();  // Rationale: a giant findAll left the definitions pane is a strange state
     panel.requestFocusInWindow();
     EventQueue.invokeLater(new Runnable() { public void run() { panel.getRegTree().scrollRowToVisible(0); } });
@@ -592,14 +614,15 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
    * @param wholeWord true if we want to match the whole word
    * @param noComments true if we want to ignore comments
    * @param noTestCases true if we want to ignore test cases
+   * @param regex true if searchStr is a regular expression
    * @param startDoc first document to search within
    * @param rm a RegionManager
    * @param region a MovingDocumentRegion
    * @param panel panel in which to display search results
    */
   public void findAll(String searchStr, final boolean searchAll, final boolean searchSelectionOnly, final boolean matchCase,
-                      final boolean wholeWord, final boolean noComments, final boolean noTestCases,
-                      final OpenDefinitionsDocument startDoc, final RegionManager<MovingDocumentRegion> rm, final MovingDocumentRegion region,
+                      final boolean wholeWord, final boolean noComments, final boolean noTestCases, 
+                      final boolean regex, final OpenDefinitionsDocument startDoc, final RegionManager<MovingDocumentRegion> rm, final MovingDocumentRegion region,
                       final FindResultsPanel panel) {
     
     _machine.setSearchBackwards(false);
@@ -617,6 +640,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     boolean oldWholeWord = _machine.getMatchWholeWord();
     boolean oldNoComments = _machine.getIgnoreCommentsAndStrings();
     boolean oldNoTestCases = _machine.getIgnoreTestCases();
+    boolean oldRegex = _machine.getRegex();
     int oldPosition = _machine.getCurrentOffset();
     
 //    _updateMachine();
@@ -630,11 +654,42 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     _machine.setIgnoreCommentsAndStrings(noComments);
     _machine.setPosition(startDoc.getCurrentLocation());
     _machine.setIgnoreTestCases(noTestCases);
+    _machine.setRegex(regex);
 
     _machine.setFindWord(searchStr);
     String replaceStr = _replaceField.getText();
     _machine.setReplaceWord(replaceStr);
     _frame.clearStatusMessage();
+    
+    final String patternError = _machine.getPatternError();
+    if (patternError != null) {
+      _restoreMachine(oldDoc, oldFirstDoc, oldFindWord, oldSearchAll, oldSearchSelectionOnly, oldMatchCase, oldWholeWord,
+                      oldNoComments, oldNoTestCases, oldRegex, oldPosition);
+      Toolkit.getDefaultToolkit().beep();
+      panel.freeResources();
+      _frame.setStatusMessage("Invalid regular expression: " + patternError);
+      return;
+    }
+    
+    if (searchAll) {
+      /* Search the documents in parallel, streaming the matches into the results panel as they are found. */
+      final boolean[] shown = { false };
+      _machine.processAllInParallel(new Runnable1<FindResult>() {
+        public void run(FindResult fr) { 
+          _addFindResultRegion(fr, rm);
+          if (! shown[0]) {
+            shown[0] = true;
+            _frame.showFindResultsPanel(panel);
+          }
+        }
+      }, new Runnable1<Integer>() {
+        public void run(Integer count) { _findAllDone(count, panel); }
+      });
+      _restoreMachine(oldDoc, oldFirstDoc, oldFindWord, oldSearchAll, oldSearchSelectionOnly, oldMatchCase, oldWholeWord,
+                      oldNoComments, oldNoTestCases, oldRegex, oldPosition);
+      return;
+    }
+    
     final List<FindResult> results = new ArrayList<FindResult>();
     
     _frame.hourglassOn();
@@ -644,17 +699,8 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
         public void run(FindResult fr) { results.add(fr); }
       }, region);
       
-      _machine.setDocument(oldDoc);
-      _machine.setFirstDoc(oldFirstDoc);
-      _machine.setFindWord(oldFindWord);
-      _machine.setSearchAllDocuments(oldSearchAll);
-      _machine.setSearchSelectionOnly(oldSearchSelectionOnly);
-      _machine.setMatchCase(oldMatchCase);
-      if (oldWholeWord) { _machine.setMatchWholeWord(); }
-      else { _machine.setFindAnyOccurrence(); }
-      _machine.setIgnoreCommentsAndStrings(oldNoComments);
-      _machine.setIgnoreTestCases(oldNoTestCases);
-      _machine.setPosition(oldPosition);
+      _restoreMachine(oldDoc, oldFirstDoc, oldFindWord, oldSearchAll, oldSearchSelectionOnly, oldMatchCase, oldWholeWord,
+                      oldNoComments, oldNoTestCases, oldRegex, oldPosition);
 
       for (FindResult fr: results) {
          
@@ -663,22 +709,13 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
         if (_model.getActiveDocument() != doc) _model.setActiveDocument(doc);
         else _model.refreshActiveDocument();
         
-        int end = fr.getFoundOffset();
-        int start = end - searchLen;
-        int lineStart = doc._getLineStartPos(start);
-        int lineEnd = doc._getLineEndPos(end);
-        
-        rm.addRegion(new MovingDocumentRegion(doc, start, end, lineStart, lineEnd));                       
+        _addFindResultRegion(fr, rm);
       }
       
 //      EventQueue.invokeLater(new Runnable() {
 //        public void run() {
       if (count > 0) _frame.showFindResultsPanel(panel);
-      else { 
-        Toolkit.getDefaultToolkit().beep();
-        panel.freeResources(); 
-      }
-      _frame.setStatusMessage("Found " + count + " occurrence" + ((count == 1) ? "" : "s") + ".");
+      _findAllDone(count, panel);
 //        }
 //      });
           
@@ -700,6 +737,44 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     }
   }
   
+  /** Restores the settings of the machine that findAll changed. */
+  private void _restoreMachine(OpenDefinitionsDocument doc, OpenDefinitionsDocument firstDoc, String findWord, 
+                               boolean searchAll, boolean searchSelectionOnly, boolean matchCase, boolean wholeWord, 
+                               boolean noComments, boolean noTestCases, boolean regex, int position) {
+    _machine.setDocument(doc);
+    _machine.setFirstDoc(firstDoc);
+    _machine.setFindWord(findWord);
+    _machine.setSearchAllDocuments(searchAll);
+    _machine.setSearchSelectionOnly(searchSelectionOnly);
+    _machine.setMatchCase(matchCase);
+    if (wholeWord) { _machine.setMatchWholeWord(); }
+    else { _machine.setFindAnyOccurrence(); }
+    _machine.setIgnoreCommentsAndStrings(noComments);
+    _machine.setIgnoreTestCases(noTestCases);
+    _machine.setRegex(regex);
+    _machine.setPosition(position);
+  }
+  
+  /** Adds the region of the match described by fr to rm. */
+  private static void _addFindResultRegion(FindResult fr, RegionManager<MovingDocumentRegion> rm) {
+    final OpenDefinitionsDocument doc = fr.getDocument();
+    int end = fr.getFoundOffset();
+    int start = end - fr.getMatchLength();
+    int lineStart = doc._getLineStartPos(start);
+    int lineEnd = doc._getLineEndPos(end);
+    
+    rm.addRegion(new MovingDocumentRegion(doc, start, end, lineStart, lineEnd));                       
+  }
+  
+  /** Reports the outcome of a "find all" that found count matches and disposes of panel if it is empty. */
+  private void _findAllDone(int count, FindResultsPanel panel) {
+    if (count == 0) { 
+      Toolkit.getDefaultToolkit().beep();
+      panel.freeResources(); 
+    }
+    _frame.setStatusMessage("Found " + count + " occurrence" + ((count == 1) ? "" : "s") + ".");
+  }
+  
   /** Performs the "replace all" command. */
   private void _replaceAll() {
     _frame.updateStatusField("Replacing All");
@@ -740,7 +815,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     boolean replaced = _machine.replaceCurrent();
     // and finds the next word
     if (replaced) {
-      _selectFoundOrReplacedItem(replaceWord.length());
+      _selectFoundOrReplacedItem(_machine.getReplacementLength());
       findNext();
       _replaceFindNextButton.requestFocusInWindow();
     }
@@ -769,7 +844,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     boolean replaced = _machine.replaceCurrent();
     // and finds the previous word
     if (replaced) {
-      _selectFoundOrReplacedItem(replaceWord.length());
+      _selectFoundOrReplacedItem(_machine.getReplacementLength());
       findPrevious();
       _replaceFindPreviousButton.requestFocusInWindow();
     }
@@ -814,7 +889,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
     
     // replaces the occurrence at the current position
     boolean replaced = _machine.replaceCurrent();
-    if (replaced) _selectFoundOrReplacedItem(replaceWord.length());
+    if (replaced) _selectFoundOrReplacedItem(_machine.getReplacementLength());
     _replaceAction.setEnabled(false);
     _replaceFindNextAction.setEnabled(false);
     _replaceFindPreviousAction.setEnabled(false);
@@ -881,6 +956,13 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
       _frame.clearStatusMessage(); // _message.setText(""); // JL
       final boolean searchAll = _machine.getSearchAllDocuments();
       
+      final String patternError = _machine.getPatternError();
+      if (patternError != null) {
+        Toolkit.getDefaultToolkit().beep();
+        _frame.setStatusMessage("Invalid regular expression: " + patternError);
+        return;
+      }
+      
       // FindResult contains the document that the result was found in, offset to the next occurrence of 
       // the string, and a flag indicating whether the end of the document was wrapped around while searching
       // for the string.
@@ -921,7 +1003,7 @@ class FindReplacePanel extends TabbedPanel implements ClipboardOwner {
           
           final Runnable command = new Runnable() {
             public void run() {
-              _selectFoundOrReplacedItem(findWord.length());
+              _selectFoundOrReplacedItem(_machine.getMatchLength());
               _replaceAction.setEnabled(true);
               _replaceFindNextAction.setEnabled(true);
               _replaceFindPreviousAction.setEnabled(true);
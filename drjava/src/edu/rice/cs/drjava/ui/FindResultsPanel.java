@@ -75,6 +75,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
   private final boolean _wholeWord;
   private final boolean _noComments;
   private final boolean _noTestCases;
+  private final boolean _regex;
   private final WeakReference<OpenDefinitionsDocument> _doc;
   private final FindReplacePanel _findReplace;
   private final MovingDocumentRegion _region; //document region used for search limited selection function
@@ -104,12 +105,14 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
    * @param wholeWord whether the search was looking for a match on the whole word
    * @param noComments whether the search ignored comments
    * @param noTestCases whether the search ignored test cases
+   * @param regex whether the search string is a regular expression
    * @param doc weak reference to the document in which the search occurred (or started, if all documents were searched)
    * @param findReplace the FindReplacePanel that created this FindResultsPanel
    */
   public FindResultsPanel(MainFrame frame, RegionManager<MovingDocumentRegion> regionManager, MovingDocumentRegion region, String title, 
                           String searchString, boolean searchAll, boolean searchSelectionOnly, boolean matchCase, boolean wholeWord, 
-                          boolean noComments, boolean noTestCases, WeakReference<OpenDefinitionsDocument> doc, 
+                          boolean noComments, boolean noTestCases, boolean regex, 
+                          WeakReference<OpenDefinitionsDocument> doc, 
                           FindReplacePanel findReplace) {
     super(frame, title, regionManager);
     
@@ -122,6 +125,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     _wholeWord    = wholeWord;
     _noComments   = noComments;
     _noTestCases  = noTestCases;
+    _regex        = regex;
     _doc          = doc;
     _findReplace  = findReplace;
     
@@ -137,6 +141,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
     if (_wholeWord) sb.append("<br>Whole words only.");
     if (_noComments) sb.append("<br>No comments or strings.");
     if (_noTestCases) sb.append("<br>No test cases.");
+    if (_regex) sb.append("<br>Regular expression.");
     sb.append("</html>");
     _findAgainButton.setToolTipText(sb.toString());
 
@@ -291,7 +296,7 @@ public class FindResultsPanel extends RegionsTreePanel<MovingDocumentRegion> {
       _lastSelectedRegion = null;
 //      _requestFocusInWindow();
 //      System.err.println("Root has been cleared; child count = " + getRootNode().getChildCount());
-      _findReplace.findAll(_searchString, _searchAll, _searchSelectionOnly, _matchCase, _wholeWord, _noComments, _noTestCases, odd, 
+      _findReplace.findAll(_searchString, _searchAll, _searchSelectionOnly, _matchCase, _wholeWord, _noComments, _noTestCases, _regex, odd, 
                            getRegionManager(), _region, this);
       getRegTree().scrollRowToVisible(0);  // Scroll to the first line in the new panel
       _requestFocusInWindow();
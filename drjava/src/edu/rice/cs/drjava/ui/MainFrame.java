@@ -79,6 +79,7 @@ import edu.rice.cs.drjava.config.*;
 import edu.rice.cs.drjava.model.*;
 import edu.rice.cs.drjava.model.compiler.CompilerListener;
 import edu.rice.cs.drjava.model.compiler.CompilerModel;
+import edu.rice.cs.drjava.model.compiler.CompilerErrorModel;
 import edu.rice.cs.drjava.model.definitions.ClassNameNotFoundException;
 import edu.rice.cs.drjava.model.definitions.DefinitionsDocument;
 import edu.rice.cs.drjava.model.definitions.DocumentUIListener;
@@ -892,6 +893,30 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     }
   };
   
+  /** Compiles the document in the definitions pane without saving it. */
+  private volatile AbstractAction _compileInMemoryAction = new AbstractAction("Compile Without Saving") {
+    { _addGUIAvailabilityListener(this, GUIAvailabilityListener.ComponentType.COMPILER); }  // init
+    public void actionPerformed(ActionEvent ae) { 
+      if (_mainSplit.getDividerLocation() > _mainSplit.getMaximumDividerLocation()) 
+        _mainSplit.resetToPreferredSizes(); 
+      updateStatusField("Compiling " + _fileTitle + " without saving");
+      _compileInMemory();
+      updateStatusField("Compilation of current document completed");
+    }
+  };
+  
+  /** Checks the document in the definitions pane for compiler errors. */
+  private volatile AbstractAction _checkAction = new AbstractAction("Check Current Document") {
+    { _addGUIAvailabilityListener(this, GUIAvailabilityListener.ComponentType.COMPILER); }  // init
+    public void actionPerformed(ActionEvent ae) { 
+      if (_mainSplit.getDividerLocation() > _mainSplit.getMaximumDividerLocation()) 
+        _mainSplit.resetToPreferredSizes(); 
+      updateStatusField("Checking " + _fileTitle);
+      _check();
+      updateStatusField("Check of current document completed");
+    }
+  };
+  
   /** Compiles all the project. */
   private volatile AbstractAction _compileProjectAction = new AbstractAction("Compile Project") {
     { _addGUIAvailabilityListener(this,                                             // init
@@ -2731,6 +2756,7 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
    * @param wholeWord whether matches must be against the whole word
    * @param noComments whether comments should be ignored
    * @param noTestCases whether test cases should be ignored
+   * @param regex whether the search string is a regular expression
    * @param doc weak reference to document in which search occurred (or started, if all documents were searched)
    * @param findReplace the FindReplacePanel that created this FindResultsPanel
    * @return new find results tab.
@@ -2739,12 +2765,13 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
                                                  MovingDocumentRegion region, String title,
                                                  String searchString, boolean searchAll, boolean searchSelectionOnly, 
                                                  boolean matchCase, boolean wholeWord, boolean noComments, 
-                                                 boolean noTestCases, WeakReference<OpenDefinitionsDocument> doc,
+                                                 boolean noTestCases, boolean regex, 
+                                                 WeakReference<OpenDefinitionsDocument> doc,
                                                  FindReplacePanel findReplace) {
     
     final FindResultsPanel panel = new FindResultsPanel(this, rm, region, title, searchString, searchAll, 
                                                         searchSelectionOnly, matchCase, wholeWord, noComments, 
-                                                        noTestCases, doc, findReplace);
+                                                        noTestCases, regex, doc, findReplace);
     
     final AbstractMap<MovingDocumentRegion, HighlightManager.HighlightInfo> highlights =
       new IdentityHashMap<MovingDocumentRegion, HighlightManager.HighlightInfo>();
@@ -3633,6 +3660,10 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
         }
       });
       
+      config.addOptionListener(BACKGROUND_CHECKING, new OptionListener<Boolean>() {
+        public void optionChanged(OptionEvent<Boolean> oce) { _updateErrorMarkers(); }
+      });
+      
       // The OptionListener for JAVADOC_API_REF_VERSION.
       OptionListener<String> choiceOptionListener = new OptionListener<String>() {
         public void optionChanged(OptionEvent<String> oce) {
@@ -5653,6 +5684,23 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
 //    update(getGraphics());
   }
   
+  private void _compileInMemory() {
+    _cleanUpDebugger();
+    hourglassOn();
+    try { _model.getCompilerModel().compileInMemory(_model.getDocumentNavigator().getSelectedDocuments()); }
+    catch (FileMovedException fme) { _showFileMovedError(fme); }
+    catch (IOException ioe) { MainFrameStatics.showIOError(MainFrame.this, ioe); }
+    finally { hourglassOff(); }
+  }
+  
+  private void _check() {
+    hourglassOn();
+    try { _model.getCompilerModel().check(_model.getActiveDocument()); }
+    catch (FileMovedException fme) { _showFileMovedError(fme); }
+    catch (IOException ioe) { MainFrameStatics.showIOError(MainFrame.this, ioe); }
+    finally { hourglassOff(); }
+  }
+  
   private void _compileFolder() {
     _cleanUpDebugger();
     hourglassOn();
@@ -6404,6 +6452,9 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     _setUpAction(_cleanAction, "Clean", "Clean Build directory");
     _setUpAction(_autoRefreshAction, "Auto-Refresh", "Auto-refresh project");
     _setUpAction(_compileAction, "Compile Current Document", "Compile the current document");
+    _setUpAction(_compileInMemoryAction, "Compile Without Saving", 
+                 "Compile the current document without saving it, for use in the Interactions Pane");
+    _setUpAction(_checkAction, "Check Current Document", "Check the current document for errors without saving it");
     _setUpAction(_compileAllAction, "Compile", "Compile all open documents");
     _setUpAction(_printDefDocAction, "Print", "Print the current document");
     _setUpAction(_printConsoleAction, "Print", "Print the Console pane");
@@ -6847,6 +6898,8 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     // Compile, Test, Javadoc
     _addMenuItem(toolsMenu, _compileAllAction, KEY_COMPILE_ALL, updateKeyboardManager);
     _addMenuItem(toolsMenu, _compileAction, KEY_COMPILE, updateKeyboardManager);
+    _addMenuItem(toolsMenu, _compileInMemoryAction, KEY_COMPILE_IN_MEMORY, updateKeyboardManager);
+    _addMenuItem(toolsMenu, _checkAction, KEY_CHECK, updateKeyboardManager);
     _addMenuItem(toolsMenu, _junitAllAction, KEY_TEST_ALL, updateKeyboardManager);
     _addMenuItem(toolsMenu, _junitAction, KEY_TEST, updateKeyboardManager);
     toolsMenu.addSeparator();
@@ -8451,6 +8504,19 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     return pane;
   }
   
+  /** Updates the error markers in all definitions panes once the positions of the current errors are known. */
+  private void _updateErrorMarkers() {
+    // the positions are computed by a task that the CompilerErrorModel queued in the event thread
+    EventQueue.invokeLater(new Runnable() {
+      public void run() {
+        CompilerErrorModel errorModel = _model.getCompilerModel().getCompilerErrorModel();
+        for (JScrollPane scroll: _defScrollPanes.values()) {
+          if (scroll != null) ((DefinitionsPane) scroll.getViewport().getView()).updateErrorMarkers(errorModel);
+        }
+      }
+    });
+  }
+  
   /** Addresses Mac OS X bug where the scrollbars are disabled in one document after opening another. */
   private void _reenableScrollBar() {
     JScrollPane scroll = _defScrollPanes.get(_model.getActiveDocument());
@@ -8960,6 +9026,7 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
     public void regionRemoved(final Breakpoint bp) { }    
     public void watchSet(final DebugWatchData w) { }
     public void watchRemoved(final DebugWatchData w) { }
+    public void watchesUpdated() { }
     public void threadStarted() { }
     public void nonCurrThreadDied() { }
   }
@@ -9433,6 +9500,14 @@ public class MainFrame extends SwingFrame implements ClipboardOwner, DropTargetL
       }
       if (_junitPanel.isDisplayed()) _resetJUnit();
       _model.refreshActiveDocument();
+      _updateErrorMarkers();
+    }
+    
+    /** Called after a background check has replaced the errors in checked files. */
+    public void backgroundCheckEnded(List<? extends File> checkedFiles) {
+      assert EventQueue.isDispatchThread();
+      _compilerErrorPanel.reset();
+      _updateErrorMarkers();
     }
     
     /** Called if a compilation is aborted. */
@@ -535,6 +535,11 @@ public class ConfigDescriptions {
         "The maximum heap the Interactions JVM can use. Select blank for default");
     add(OptionConstants.SLAVE_JVM_ARGS, "JVM Args for Interactions JVM",
         "The command-line arguments to pass to the Interactions JVM.");    
+    add(OptionConstants.SLAVE_JVM_STANDBY, "Standby Interactions JVMs",
+        "<html>The number of Interactions JVMs to keep started in reserve.<br>"+
+        "Resetting the Interactions Pane switches to a reserve JVM,<br>"+
+        "which is much faster than starting a new one, at the cost<br>"+
+        "of the memory used by the reserve JVMs. Zero disables them.</html>");
     
     /** Adds all of the components for the Compiler Options Panel of the preferences window
       */
@@ -561,6 +566,15 @@ public class ConfigDescriptions {
     add(OptionConstants.SHOW_FALLTHROUGH_WARNINGS, "Show Fall-Through Warnings",
         "<html>Warn about <code>switch</code> block cases that fall through to the next case.</html>");
     
+    
+    add(OptionConstants.INCREMENTAL_COMPILATION, "Compile Incrementally",
+        "<html>When a build directory is set, only recompile the files that changed since the<br>"+
+        "last compilation and the files that depend on classes whose API changed.</html>");
+    
+    add(OptionConstants.BACKGROUND_CHECKING, "Check for Errors While Typing",
+        "<html>Check edited documents, and the open documents that depend on them, for compiler<br>"+
+        "errors shortly after typing stops, and mark the errors in the editor.</html>");
+    
     /*
      * The drop down box containing the compiler names
      */
@@ -589,6 +603,10 @@ public class ConfigDescriptions {
     
     add(OptionConstants.HISTORY_MAX_SIZE, "Size of Interactions History",
         "The number of interactions to remember in the history.");
+    add(OptionConstants.INTERACTIONS_OUTPUT_LIMIT, "Maximum Output Kept",
+        "<html>The number of characters of output to keep in the Interactions Pane<br>"+
+        "and the Console. When output exceeds it, the oldest lines are removed.<br>"+
+        "Zero keeps all output.</html>");
     add(OptionConstants.DIALOG_AUTOIMPORT_ENABLED, 
         "Enable the \"Auto Import\" Dialog",
         "<html>Whether DrJava should open the \"Auto Import\" dialog when<br>"+
@@ -639,6 +657,12 @@ public class ConfigDescriptions {
     add(OptionConstants.FORCE_TEST_SUFFIX,
         "Require test classes in projects to end in \"Test\"",
         "Whether to force test classes in projects to end in \"Test\".");
+    
+    add(OptionConstants.JUNIT_TEST_THREADS, "Threads for Running Tests",
+        "<html>The number of threads that run test classes at the same time.<br>"+
+        "Each thread loads its test classes separately, so they do not<br>"+
+        "share static fields. 1 runs the tests one at a time, and 0 uses<br>"+
+        "one thread per processor. Tests with coverage run one at a time.</html>");
 
     add(OptionConstants.LANGUAGE_LEVEL,
         "Language Level",
@@ -1104,6 +1104,8 @@ public class ConfigFrame extends SwingFrame {
                        newForcedChoiceOptionComponent(OptionConstants.SLAVE_JVM_XMX));
     addOptionComponent(panel, 
                        newStringOptionComponent(OptionConstants.SLAVE_JVM_ARGS));    
+    addOptionComponent(panel, 
+                       newIntegerOptionComponent(OptionConstants.SLAVE_JVM_STANDBY));
     panel.displayComponents();
   }
 
@@ -1243,6 +1245,12 @@ public class ConfigFrame extends SwingFrame {
     addOptionComponent(panel, 
                        newBooleanOptionComponent(OptionConstants.SHOW_FALLTHROUGH_WARNINGS, false)
                          .setEntireColumn(true));
+    addOptionComponent(panel, 
+                       newBooleanOptionComponent(OptionConstants.INCREMENTAL_COMPILATION, false)
+                         .setEntireColumn(true));
+    addOptionComponent(panel, 
+                       newBooleanOptionComponent(OptionConstants.BACKGROUND_CHECKING, false)
+                         .setEntireColumn(true));
     addOptionComponent(panel, 
                        new LabelComponent("<html><br><br>Note: Some of these options may not be effective, depending on the<br>"+
                                           "compiler you are using.</html>",
@@ -1313,6 +1321,7 @@ public class ConfigFrame extends SwingFrame {
     addOptionComponent(panel, new LabelComponent("<html>&nbsp;</html>", this, true));
       
     addOptionComponent(panel, newIntegerOptionComponent(OptionConstants.HISTORY_MAX_SIZE));
+    addOptionComponent(panel, newIntegerOptionComponent(OptionConstants.INTERACTIONS_OUTPUT_LIMIT));
     addOptionComponent(panel, newBooleanOptionComponent(OptionConstants.DIALOG_AUTOIMPORT_ENABLED));
     VectorStringOptionComponent autoImportClasses =
       new VectorStringOptionComponent(OptionConstants.INTERACTIONS_AUTO_IMPORT_CLASSES,
@@ -1597,6 +1606,7 @@ public class ConfigFrame extends SwingFrame {
       newBooleanOptionComponent(OptionConstants.FORCE_TEST_SUFFIX,false)
       .setEntireColumn(true);
     addOptionComponent(panel, forceTestSuffix);
+    addOptionComponent(panel, newIntegerOptionComponent(OptionConstants.JUNIT_TEST_THREADS));
     
     panel.displayComponents();
   }
@@ -0,0 +1,164 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.util;
+
+import java.io.OutputStream;
+
+/** Merges the text written to one or more output channels (such as System.out and System.err) into chunks, so
+  * that a program printing in a tight loop results in a few large deliveries rather than one per print call.  A
+  * chunk is delivered when it reaches the maximum chunk size, when text arrives on a different channel (so that the
+  * relative order of the channels is preserved), when {@link #flush} is called, or at most a fixed delay after its
+  * first character was written.  Chunks are delivered one at a time by {@link #deliver}; a writer that fills a chunk
+  * while the previous one is still being delivered waits for it, so a slow receiver slows the writer down instead of
+  * letting the buffered text grow without bound.
+  * @version $Id$
+  */
+public abstract class OutputCoalescer {
+  
+  /** Maximum number of characters in a chunk. */
+  private final int _maxChunk;
+  
+  /** Maximum number of milliseconds that text may wait in a partially filled chunk. */
+  private final long _delay;
+  
+  /** The text of the chunk being assembled.  Guarded by this. */
+  private final StringBuilder _chunk = new StringBuilder();
+  
+  /** The channel of the chunk being assembled.  Guarded by this. */
+  private int _channel = -1;
+  
+  /** Held while a chunk is delivered, which serializes deliveries and keeps them in order. */
+  private final Object _deliveryLock = new Object();
+  
+  /** The daemon thread delivering chunks whose delay has expired; null once this coalescer is closed. */
+  private volatile Thread _flusher;
+  
+  /** Creates a new coalescer.
+    * @param maxChunk  maximum number of characters in a chunk
+    * @param delay  maximum number of milliseconds text waits before it is delivered
+    */
+  public OutputCoalescer(int maxChunk, long delay) {
+    if (maxChunk <= 0) throw new IllegalArgumentException("maxChunk must be positive");
+    _maxChunk = maxChunk;
+    _delay = delay;
+    Thread flusher = new Thread(new Runnable() { public void run() { _flushLoop(); } }, "Output Coalescer");
+    flusher.setDaemon(true);
+    _flusher = flusher;
+    flusher.start();
+  }
+  
+  /** Delivers a chunk.  Called with at most one chunk in progress at any time, in the order the text was written.
+    * @param channel  the channel the text was written to
+    * @param text  the text of the chunk
+    */
+  protected abstract void deliver(int channel, String text);
+  
+  /** Returns a stream whose output is written to the given channel of this coalescer.
+    * @param channel  a non-negative channel number, passed back to {@link #deliver}
+    * @return an output stream for the channel
+    */
+  public OutputStream channel(final int channel) {
+    if (channel < 0) throw new IllegalArgumentException("channel must be non-negative");
+    return new OutputStreamRedirector() {
+      public void print(String s) { OutputCoalescer.this.print(channel, s); }
+    };
+  }
+  
+  /** Appends text to the given channel.
+    * @param channel  the channel the text is written to
+    * @param s  the text to append
+    */
+  public void print(int channel, String s) {
+    if (s.length() == 0) return;
+    boolean full;
+    synchronized(this) {
+      if (_channel != channel && _chunk.length() > 0) {
+        // Deliver the other channel's text first so that the channels stay in order
+        full = true;
+      }
+      else {
+        boolean wasEmpty = _chunk.length() == 0;
+        _channel = channel;
+        _chunk.append(s);
+        if (wasEmpty) notifyAll();  // start the flusher's delay
+        full = _chunk.length() >= _maxChunk;
+        s = null;
+      }
+    }
+    if (full) {
+      flush();
+      if (s != null) print(channel, s);
+    }
+  }
+  
+  /** Delivers any buffered text immediately, waiting for a delivery that is in progress to complete first. */
+  public void flush() {
+    synchronized(_deliveryLock) {
+      String text;
+      int channel;
+      synchronized(this) {
+        if (_chunk.length() == 0) return;
+        text = _chunk.toString();
+        channel = _channel;
+        _chunk.setLength(0);
+      }
+      deliver(channel, text);
+    }
+  }
+  
+  /** Delivers any buffered text and stops the flusher thread.  Text written later is only delivered by explicit
+    * calls to {@link #flush} or when a chunk fills up. */
+  public void close() {
+    Thread flusher = _flusher;
+    _flusher = null;
+    if (flusher != null) flusher.interrupt();
+    flush();
+  }
+  
+  /** Body of the flusher thread: waits for text to arrive, gives it the delay to accumulate, then delivers it. */
+  private void _flushLoop() {
+    try {
+      while (_flusher == Thread.currentThread()) {
+        synchronized(this) { while (_chunk.length() == 0) wait(); }
+        Thread.sleep(_delay);
+        try { flush(); }
+        catch (RuntimeException e) { /* the writer reports delivery failures; this thread keeps running */ }
+      }
+    }
+    catch (InterruptedException e) { /* closed */ }
+  }
+}
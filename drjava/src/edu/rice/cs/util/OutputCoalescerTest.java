@@ -0,0 +1,93 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.util;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Tests OutputCoalescer.
+  * @version $Id$
+  */
+public class OutputCoalescerTest extends DrJavaTestCase {
+  
+  /** Records the deliveries made by a coalescer. */
+  private static class RecordingCoalescer extends OutputCoalescer {
+    final List<String> chunks = new ArrayList<String>();
+    RecordingCoalescer(int maxChunk, long delay) { super(maxChunk, delay); }
+    protected synchronized void deliver(int channel, String text) { chunks.add(channel + ":" + text); }
+    synchronized List<String> chunks() { return new ArrayList<String>(chunks); }
+  }
+  
+  /** Tests that many small writes are delivered as a few chunks, in order, after a flush. */
+  public void testCoalescesWrites() {
+    RecordingCoalescer c = new RecordingCoalescer(1000, 60000);
+    PrintStream out = new PrintStream(c.channel(0));
+    for (int i = 0; i < 10; i++) out.print(i);
+    assertEquals("nothing delivered before flush", 0, c.chunks().size());
+    c.flush();
+    assertEquals("one chunk", 1, c.chunks().size());
+    assertEquals("chunk text", "0:0123456789", c.chunks().get(0));
+    c.close();
+  }
+  
+  /** Tests that a full chunk is delivered by the writer and that channel changes preserve order. */
+  public void testChunkSizeAndChannelOrder() {
+    RecordingCoalescer c = new RecordingCoalescer(4, 60000);
+    c.print(0, "ab");
+    c.print(0, "cd");
+    assertEquals("full chunk delivered", 1, c.chunks().size());
+    c.print(0, "e");
+    c.print(1, "f");
+    c.print(0, "g");
+    c.close();
+    List<String> chunks = c.chunks();
+    assertEquals("chunks", "[0:abcd, 0:e, 1:f, 0:g]", chunks.toString());
+  }
+  
+  /** Tests that buffered text is delivered after the delay without a flush. */
+  public void testDelayedDelivery() throws InterruptedException {
+    RecordingCoalescer c = new RecordingCoalescer(1000, 10);
+    c.print(1, "late");
+    long deadline = System.currentTimeMillis() + 5000;
+    while (c.chunks().isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals("delivered by the flusher", "[1:late]", c.chunks().toString());
+    c.close();
+  }
+}
@@ -40,7 +40,12 @@ import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import edu.rice.cs.util.UnexpectedException;
 import edu.rice.cs.plt.collect.CollectUtil;
@@ -92,11 +97,59 @@ public abstract class AbstractMasterJVM implements MasterRemote {
     }
   }
   
+  /** A slave JVM process launched by this master, and the listener for its exit.  The exit of a process is only
+    * reported to the subclass while it is the active slave; standby slaves that exit are simply dropped, as are
+    * slaves that were detached by {@link #quitSlave(boolean)}. */
+  private final class SlaveProcess implements Runnable1<Process> {
+    /** Identifies the settings the process was launched with; see {@link #_keyOf}. */
+    final List<Object> key;
+    /** The remote stub of the slave; set once the process has exported it. */
+    volatile SlaveRemote remote;
+    /** Whether this is the active slave.  Guarded by _spares. */
+    boolean active;
+    /** Whether the process has exited.  Guarded by _spares. */
+    boolean exited = false;
+    SlaveProcess(List<Object> k, boolean a) { key = k; active = a; }
+    
+    public void run(Process p) {
+      synchronized(_spares) {
+        exited = true;
+        if (! active) {
+          _spares.remove(this);
+          debug.log("Standby or detached JVM quit");
+          return;
+        }
+      }
+      debug.log("Remote JVM quit");
+      _monitor.set(State.FRESH);
+      //debug.log("Entered state " + State.FRESH);
+      debug.logStart("handleSlaveQuit");
+      handleSlaveQuit(p.exitValue());
+      debug.logEnd("handleSlaveQuit");
+    }
+  }
+  
   private final StateMonitor<State> _monitor;
   private final SlaveFactory _slaveFactory;
   private final LazyThunk<MasterRemote> _masterStub;
   /** The slave JVM remote stub (non-null when the state is RUNNING). */
   private volatile SlaveRemote _slave;
+  /** The process of the active slave (non-null when the state is RUNNING). */
+  private volatile SlaveProcess _slaveProcess;
+  
+  /** Slave JVMs that have been launched and connected but not started, ready to replace the active slave.  Also
+    * serves as the lock for all standby state. */
+  private final LinkedList<SlaveProcess> _spares = new LinkedList<SlaveProcess>();
+  /** Number of standby slaves to keep.  Guarded by _spares. */
+  private int _standbyCount = 0;
+  /** The JVMBuilder for new standby slaves, and its key; null if no standby slaves should be launched.
+    * Guarded by _spares. */
+  private JVMBuilder _standbyBuilder = null;
+  private List<Object> _standbyKey = null;
+  /** Whether a thread is launching standby slaves.  Guarded by _spares. */
+  private boolean _launching = false;
+  /** Number of times a standby slave has been used by {@link #invokeSlave}. */
+  private volatile int _standbyUses = 0;
   
   /**
    * Set up the master JVM object.  Does not start a slave JVM.
@@ -158,34 +211,35 @@ public abstract class AbstractMasterJVM implements MasterRemote {
     // include props, but shadow them with any definitions in jvmBuilder
     final JVMBuilder tweakedJVMBuilder = jvmBuilder.properties(CollectUtil.union(props, jvmBuilder.properties()));
 
+    List<Object> key = _keyOf(tweakedJVMBuilder);
+    SlaveProcess process = _takeStandby(key);
     SlaveRemote newSlave = null;
-    try {
-      debug.logStart("invoking remote JVM process");
-      newSlave =
-        (SlaveRemote) ConcurrentUtil.exportInProcess(_slaveFactory, tweakedJVMBuilder, new Runnable1<Process>() {
-          public void run(Process p) {
-            debug.log("Remote JVM quit");
-            _monitor.set(State.FRESH);
-            //debug.log("Entered state " + State.FRESH);
-            debug.logStart("handleSlaveQuit");
-            handleSlaveQuit(p.exitValue());
-            debug.logEnd("handleSlaveQuit");
-          }
-        });
-      debug.logEnd("invoking remote JVM process");
+    if (process != null) {
+      debug.log("Using standby JVM");
+      newSlave = process.remote;
+      _standbyUses++;
     }
-    catch (Exception e) {
-      debug.log(e);
-      debug.logEnd("invoking remote JVM process (failed)");
-      _monitor.set(State.FRESH);
-      //debug.log("Entered state " + State.FRESH);
-      handleSlaveWontStart(e);
+    else {
+      process = new SlaveProcess(key, true);
+      try {
+        debug.logStart("invoking remote JVM process");
+        newSlave = (SlaveRemote) ConcurrentUtil.exportInProcess(_slaveFactory, tweakedJVMBuilder, process);
+        debug.logEnd("invoking remote JVM process");
+      }
+      catch (Exception e) {
+        debug.log(e);
+        debug.logEnd("invoking remote JVM process (failed)");
+        _monitor.set(State.FRESH);
+        //debug.log("Entered state " + State.FRESH);
+        handleSlaveWontStart(e);
+      }
     }
 
     if (newSlave != null) {
       try { newSlave.start(_masterStub.value()); }
       catch (RemoteException e) {
         debug.log(e);
+        synchronized(_spares) { process.active = false; }
         attemptQuit(newSlave);
         _monitor.set(State.FRESH);
         //debug.log("Entered state " + State.FRESH);
@@ -195,18 +249,161 @@ public abstract class AbstractMasterJVM implements MasterRemote {
       
       handleSlaveConnected(newSlave);
       _slave = newSlave;
+      _slaveProcess = process;
       _monitor.set(State.RUNNING);
       //debug.log("Entered state " + State.RUNNING);
+      _launchStandby(tweakedJVMBuilder, key);
+    }
+  }
+  
+  /** Sets the number of slave JVMs to keep in reserve.  Each time a slave is invoked, standby slaves with the same
+    * settings are launched in the background, so that the next {@link #invokeSlave} can start one of them instead
+    * of waiting for a new JVM to boot.  Extra standby slaves are quit.
+    * @param count  the number of standby slaves; 0 disables standby slaves
+    */
+  protected final void setStandbyCount(int count) {
+    List<SlaveProcess> extra = new ArrayList<SlaveProcess>();
+    synchronized(_spares) {
+      _standbyCount = count;
+      while (_spares.size() > count) { extra.add(_spares.removeLast()); }
+    }
+    for (SlaveProcess p: extra) { attemptQuit(p.remote); }
+  }
+  
+  /** Quits all standby slaves and stops launching new ones until the next {@link #invokeSlave}.  Should be called
+    * when the settings for the next slave change. */
+  protected final void discardStandbySlaves() {
+    List<SlaveProcess> spares;
+    synchronized(_spares) {
+      _standbyBuilder = null;
+      _standbyKey = null;
+      spares = new ArrayList<SlaveProcess>(_spares);
+      _spares.clear();
+    }
+    for (SlaveProcess p: spares) { attemptQuit(p.remote); }
+  }
+  
+  /** @return true iff a standby slave is ready to be started */
+  protected final boolean hasStandbySlave() {
+    synchronized(_spares) {
+      for (SlaveProcess p: _spares) { if (! p.exited) { return true; } }
+      return false;
+    }
+  }
+  
+  /** @return the number of times a standby slave was started instead of launching a new JVM */
+  protected final int getStandbyUses() { return _standbyUses; }
+  
+  /** Removes and returns a live standby slave launched with the given settings, quitting any standby slaves
+    * launched with other settings.
+    * @param key  the settings of the slave to be started
+    * @return the standby slave, now marked active, or null if there is none
+    */
+  private SlaveProcess _takeStandby(List<Object> key) {
+    SlaveProcess result = null;
+    List<SlaveProcess> stale = new ArrayList<SlaveProcess>();
+    synchronized(_spares) {
+      Iterator<SlaveProcess> it = _spares.iterator();
+      while (it.hasNext()) {
+        SlaveProcess p = it.next();
+        if (p.exited) { it.remove(); }
+        else if (! p.key.equals(key)) { it.remove(); stale.add(p); }
+        else if (result == null) {
+          it.remove();
+          p.active = true;
+          result = p;
+        }
+      }
+    }
+    for (SlaveProcess p: stale) { attemptQuit(p.remote); }
+    return result;
+  }
+  
+  /** Makes sure a background thread is launching standby slaves with the given settings, until the number of
+    * standby slaves reaches the standby count.
+    * @param jvmBuilder  the JVMBuilder for the standby slaves
+    * @param key  the key of jvmBuilder
+    */
+  private void _launchStandby(JVMBuilder jvmBuilder, List<Object> key) {
+    synchronized(_spares) {
+      _standbyBuilder = jvmBuilder;
+      _standbyKey = key;
+      if (_launching || _spares.size() >= _standbyCount) { return; }
+      _launching = true;
     }
+    Thread launcher = new Thread("Launch Standby JVM") {
+      public void run() {
+        while (true) {
+          JVMBuilder builder;
+          SlaveProcess process;
+          synchronized(_spares) {
+            if (_standbyBuilder == null || _spares.size() >= _standbyCount || isDisposed()) {
+              _launching = false;
+              return;
+            }
+            builder = _standbyBuilder;
+            process = new SlaveProcess(_standbyKey, false);
+          }
+          try {
+            debug.logStart("launching standby JVM");
+            SlaveRemote slave = (SlaveRemote) ConcurrentUtil.exportInProcess(_slaveFactory, builder, process);
+            process.remote = slave;
+            slave.standby(_masterStub.value());
+            debug.logEnd("launching standby JVM");
+          }
+          catch (Exception e) {
+            debug.log(e);
+            debug.logEnd("launching standby JVM (failed)");
+            if (process.remote != null) { attemptQuit(process.remote); }
+            synchronized(_spares) { _launching = false; }
+            return;  // don't keep trying; the next invokeSlave will try again
+          }
+          boolean keep;
+          synchronized(_spares) {
+            keep = process.key.equals(_standbyKey) && _spares.size() < _standbyCount && ! isDisposed();
+            if (keep) { _spares.add(process); }
+          }
+          if (! keep) { attemptQuit(process.remote); }
+        }
+      }
+    };
+    launcher.setDaemon(true);
+    launcher.start();
   }
   
+  /** Computes a key identifying the settings of a JVMBuilder: two slaves with equal keys are interchangeable.
+    * @param jvmBuilder the JVMBuilder
+    * @return the key
+    */
+  private static List<Object> _keyOf(JVMBuilder jvmBuilder) {
+    List<Object> key = new ArrayList<Object>();
+    key.add(jvmBuilder.javaCommand());
+    key.add(CollectUtil.makeArrayList(jvmBuilder.jvmArguments()));
+    key.add(CollectUtil.makeArrayList(jvmBuilder.classPath()));
+    key.add(jvmBuilder.directory());
+    key.add(new TreeMap<String, String>(jvmBuilder.properties()));
+    Map<String, String> env = jvmBuilder.environment();  // null means the current environment
+    key.add((env == null) ? null : new TreeMap<String, String>(env));
+    return key;
+  }
+  
+  /** Quits slave JVM.  If a slave is not currently started and running, blocks until that state is reached.
+    * @throws IllegalStateException  If this object has been disposed.
+    */
+  protected final void quitSlave() { quitSlave(true); }
+  
   /** Quits slave JVM.  If a slave is not currently started and running, blocks until that state is reached.
+    * @param reportExit  Whether {@link #handleSlaveQuit} should be called when the slave's process exits.  If false,
+    *                    the slave is detached: a new slave may be invoked immediately, without waiting for the old
+    *                    process to exit.
     * @throws IllegalStateException  If this object has been disposed.
     */
-  protected final void quitSlave() {
+  protected final void quitSlave(boolean reportExit) {
     transition(State.RUNNING, State.QUITTING);
+    if (! reportExit) { synchronized(_spares) { _slaveProcess.active = false; } }
     attemptQuit(_slave);
     _slave = null;
+    _slaveProcess = null;
     _monitor.set(State.FRESH);
     //debug.log("Entered state " + State.FRESH);
   }
@@ -227,6 +424,7 @@ public abstract class AbstractMasterJVM implements MasterRemote {
    */
   protected void dispose() {
     transition(State.FRESH, State.DISPOSED);
+    discardStandbySlaves();
     if (_masterStub.isResolved()) { 
       try { UnicastRemoteObject.unexportObject(this, true); }
       catch (NoSuchObjectException e) { error.log(e); }
@@ -54,6 +54,8 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
   /** Name of the thread to periodically poll the master. */
   private final String _pollMasterThreadName;
   private boolean _started;
+  /** Whether the thread polling the master has been started. */
+  private boolean _polling;
   
   public AbstractSlaveJVM() {
     this("Quit SlaveJVM Thread", "Poll MasterJVM Thread");
@@ -63,6 +65,7 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
     _quitSlaveThreadName = quitSlaveThreadName;
     _pollMasterThreadName = pollMasterThreadName;
     _started = false;
+    _polling = false;
   }
   
   /** Quits the slave JVM, calling {@link #beforeQuit} before it does. */
@@ -91,7 +94,27 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
   public final synchronized void start(final MasterRemote master) throws RemoteException {
     if (_started) { throw new IllegalArgumentException("start() has already been invoked"); }
     master.checkStillAlive(); // verify that two-way communication works; may throw RemoteException
-
+    _started = true;
+    _pollMaster(master);
+    handleStart(master);
+  }
+  
+  /** 
+   * Keeps this slave waiting in reserve for a later call to {@link #start}: 
+   * starts the background thread that polls the master JVM, so that the 
+   * slave quits if the master dies before it is started.
+   * @param master link to the master JVM
+   * @throws RemoteException if communication over RMI fails
+   */
+  public final synchronized void standby(MasterRemote master) throws RemoteException {
+    master.checkStillAlive(); // verify that two-way communication works; may throw RemoteException
+    _pollMaster(master);
+  }
+  
+  /** Starts the thread polling the master, unless it is already running.  Only runs while holding this. */
+  private void _pollMaster(final MasterRemote master) {
+    if (_polling) { return; }
+    _polling = true;
     Thread checkMaster = new Thread(_pollMasterThreadName) {
       public void run() {
         while (true) {
@@ -108,7 +131,6 @@ public abstract class AbstractSlaveJVM implements SlaveRemote {
     };
     checkMaster.setDaemon(true);
     checkMaster.start();
-    handleStart(master);
   }
   
   /** This method is called just before the JVM is quit.  It can be overridden to provide cleanup code, etc. */
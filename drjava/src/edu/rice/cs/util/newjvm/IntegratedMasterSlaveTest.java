@@ -73,6 +73,9 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
     for (int i = 0; i < 5; i++)  _testMaster.runImmediateQuitTest();
   }
   
+  // this test uses thread pools and starts a THRAD_EXECUTOR-n thread that we cannot join
+  public void testStandby_NOJOIN() throws Exception { _testMaster.runStandbyTest(); }
+  
   private static class TestMasterJVM extends AbstractMasterJVM implements TestMasterRemote {
     
     private static final int WAIT_TIMEOUT = 10000; 
@@ -136,6 +139,30 @@ public class IntegratedMasterSlaveTest extends DrJavaTestCase {
       _currentTest = "";
     }
     
+    /** Tests that a standby slave is launched in the background and used by the next invokeSlave. */
+    public void runStandbyTest() throws Exception {
+      _currentTest = "runStandbyTest";
+      _justQuit.reset();
+      _slave = null;
+      _letter = 'a';
+      setStandbyCount(1);
+      
+      invokeSlave(JVMBuilder.DEFAULT);
+      assertEquals("first slave", 0, _slave.getNumber());
+      long deadline = System.currentTimeMillis() + 3 * WAIT_TIMEOUT;
+      while (! hasStandbySlave() && System.currentTimeMillis() < deadline) { Thread.sleep(50); }
+      assertTrue("standby slave launched", hasStandbySlave());
+      
+      quitSlave(false);  // the exit of a detached slave is not reported
+      invokeSlave(JVMBuilder.DEFAULT);
+      assertEquals("standby slave used", 1, getStandbyUses());
+      assertEquals("second slave is a new JVM", 0, _slave.getNumber());
+      
+      quitSlave();
+      assertTrue(_justQuit.attemptEnsureSignaled(WAIT_TIMEOUT));
+      _currentTest = "";
+    }
+    
     public char getLetter() {
       synchronized(_letterLock) {
         char ret = _letter;
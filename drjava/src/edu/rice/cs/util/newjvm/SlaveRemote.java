@@ -52,6 +52,14 @@ public interface SlaveRemote extends Remote {
    * @throws RemoteException if communication over RMI fails
    */
   public void start(MasterRemote master) throws RemoteException;
+  
+  /**
+   * This method is called when the slave JVM is kept in reserve, to be started later.  The slave monitors the
+   * master and quits if it dies.
+   * @param master  The remote link to the master JVM.
+   * @throws RemoteException if communication over RMI fails
+   */
+  public void standby(MasterRemote master) throws RemoteException;
 
   /** Quits the slave JVM. 
    * @throws RemoteException if communication over RMI fails
@@ -221,6 +221,33 @@ public class ConsoleDocument implements ConsoleDocumentInterface {
     catch (EditDocumentException ble) { throw new UnexpectedException(ble); }
   }
   
+  /** Removes the oldest lines of the document until it is no longer than maxLength characters.  Never removes the
+    * prompt or anything after it, and removes whole lines where possible.  Only runs in the event thread.
+    * @param maxLength the maximum length of the document
+    * @return the number of characters removed
+    */
+  public int truncate(int maxLength) {
+/* */ assert Utilities.TEST_MODE || EventQueue.isDispatchThread();
+    try {
+      int excess = _document.getLength() - maxLength;
+      if (excess <= 0) return 0;
+      int end = _getPositionBeforePrompt();
+      int count = Math.min(excess, end);
+      if (count <= 0) return 0;
+      // Extend the removal to the end of the line it stops in
+      int lineEnd = count - 1;
+      String rest = _document.getDocText(lineEnd, end - lineEnd);
+      int nl = rest.indexOf('\n');
+      if (nl >= 0) count = lineEnd + nl + 1;
+
+      _promptPos = Math.max(_promptPos - count, 0);
+      forceRemoveText(0, count);
+      if (_document instanceof SwingDocument) ((SwingDocument)_document).removeLeadingColoring(count);
+      return count;
+    }
+    catch (EditDocumentException e) { throw new UnexpectedException(e); }
+  }
+
   /** Inserts a string into the document at the given offset and named style, if the edit condition allows it.
     * @param offs Offset into the document
     * @param str String to be inserted
@@ -0,0 +1,163 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.util.text;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+
+import edu.rice.cs.util.swing.Utilities;
+
+/** Collects output destined for a console document (such as System.out and System.err text coming from the
+  * interpreter JVM) and appends it in the event thread in batches: all the text that arrives while an append is
+  * pending is inserted by that same append, with one edit per run of identically styled text.  Writers outside the
+  * event thread that get too far ahead of the event thread are made to wait, so the amount of pending output stays
+  * bounded.  Optionally the document is limited to a maximum length by discarding its oldest lines.
+  * @version $Id$
+  */
+public class ConsoleOutputBuffer {
+  
+  /** Default number of pending characters at which writers start to wait for the event thread. */
+  public static final int DEFAULT_MAX_PENDING = 1 << 16;
+  
+  /** Longest time in milliseconds a writer is held back by one call; prevents a stalled event thread from
+    * stalling the writer forever. */
+  public static final long MAX_WAIT = 2000;
+  
+  /** The document receiving the output. */
+  private final ConsoleDocument _doc;
+  
+  /** Number of pending characters at which writers start to wait. */
+  private final int _maxPending;
+  
+  /** Maximum length of the document, or 0 for no limit. */
+  private volatile int _limit = 0;
+  
+  /** The pending runs of text in the order they were printed; consecutive runs have different styles.
+    * Guarded by this. */
+  private ArrayList<Run> _runs = new ArrayList<Run>();
+  
+  /** Number of pending characters.  Guarded by this. */
+  private int _pending = 0;
+  
+  /** Whether the append task has been queued on the event thread.  Guarded by this. */
+  private boolean _scheduled = false;
+  
+  /** Appends the pending text; runs in the event thread. */
+  private final Runnable _appendTask = new Runnable() { public void run() { _append(); } };
+  
+  /** Creates a buffer for the given document.
+    * @param doc  the document receiving the output
+    */
+  public ConsoleOutputBuffer(ConsoleDocument doc) { this(doc, DEFAULT_MAX_PENDING); }
+  
+  /** Creates a buffer for the given document.
+    * @param doc  the document receiving the output
+    * @param maxPending  number of pending characters at which writers start to wait for the event thread
+    */
+  public ConsoleOutputBuffer(ConsoleDocument doc, int maxPending) {
+    _doc = doc;
+    _maxPending = maxPending;
+  }
+  
+  /** Sets the maximum length of the document.  When output makes the document longer, its oldest lines are removed.
+    * @param limit  the maximum number of characters, or 0 for no limit
+    */
+  public void setLimit(int limit) { _limit = limit; }
+  
+  /** @return the maximum length of the document, or 0 if there is no limit */
+  public int getLimit() { return _limit; }
+  
+  /** Queues text to be inserted before the last prompt of the document.  May be called in any thread; if the call
+    * is not made in the event thread and too much output is already pending, it waits (up to {@link #MAX_WAIT}
+    * milliseconds) for the event thread to catch up.
+    * @param s  the text to insert
+    * @param style  the name of the style of the text
+    */
+  public void print(String s, String style) {
+    if (s.length() == 0) return;
+    synchronized(this) {
+      if (_pending >= _maxPending && ! EventQueue.isDispatchThread()) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT;
+        try {
+          long remaining;
+          while (_pending >= _maxPending && (remaining = deadline - System.currentTimeMillis()) > 0) wait(remaining);
+        }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+      }
+      int n = _runs.size();
+      Run last = (n == 0) ? null : _runs.get(n - 1);
+      if (last != null && _sameStyle(last.style, style)) last.text.append(s);
+      else _runs.add(new Run(s, style));
+      _pending += s.length();
+      if (_scheduled) return;
+      _scheduled = true;
+    }
+    Utilities.invokeLater(_appendTask);
+  }
+  
+  /** @return the number of characters printed but not yet inserted into the document */
+  public synchronized int getPendingLength() { return _pending; }
+  
+  /** Called in the event thread after a batch of output has been inserted into the document.  Does nothing by
+    * default. */
+  protected void appended() { }
+  
+  /** Inserts all pending text into the document.  Only runs in the event thread. */
+  private void _append() {
+    ArrayList<Run> runs;
+    synchronized(this) {
+      runs = _runs;
+      _runs = new ArrayList<Run>();
+      _pending = 0;
+      _scheduled = false;
+      notifyAll();
+    }
+    for (Run r: runs) _doc.insertBeforeLastPrompt(r.text.toString(), r.style);
+    int limit = _limit;
+    if (limit > 0) _doc.truncate(limit);
+    appended();
+  }
+  
+  private static boolean _sameStyle(String s1, String s2) { return (s1 == null) ? s2 == null : s1.equals(s2); }
+  
+  /** A pending run of identically styled text. */
+  private static class Run {
+    final StringBuilder text;
+    final String style;
+    Run(String s, String st) { text = new StringBuilder(s); style = st; }
+  }
+}
@@ -0,0 +1,111 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+package edu.rice.cs.util.text;
+
+import edu.rice.cs.drjava.DrJavaTestCase;
+import edu.rice.cs.util.swing.Utilities;
+
+/** Tests ConsoleOutputBuffer and the truncation of ConsoleDocument.
+  * @version $Id$
+  */
+public class ConsoleOutputBufferTest extends DrJavaTestCase {
+  protected ConsoleDocument _doc;
+  
+  /** A plain Swing console document; avoids the configuration needed by InteractionsDJDocument. */
+  private static class PlainConsoleDocument extends SwingDocument implements ConsoleDocumentInterface {
+    private volatile boolean _hasPrompt = false;
+    public boolean hasPrompt() { return _hasPrompt; }
+    public void setHasPrompt(boolean val) { _hasPrompt = val; }
+  }
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    _doc = new ConsoleDocument(new PlainConsoleDocument());
+  }
+  
+  public void tearDown() throws Exception {
+    _doc = null;
+    super.tearDown();
+  }
+  
+  /** Tests that output printed outside the event thread is inserted in order, before the prompt. */
+  public void testPrintBeforePrompt() {
+    Utilities.invokeAndWait(new Runnable() { public void run() {
+      _doc.setPrompt("> ");
+      _doc.insertPrompt();
+    } });
+    ConsoleOutputBuffer buffer = new ConsoleOutputBuffer(_doc);
+    for (int i = 0; i < 100; i++) buffer.print(i + "\n", ConsoleDocument.SYSTEM_OUT_STYLE);
+    buffer.print("err\n", ConsoleDocument.SYSTEM_ERR_STYLE);
+    Utilities.clearEventQueue();
+    assertEquals("nothing pending", 0, buffer.getPendingLength());
+    String text = _doc.getText();
+    assertTrue("starts with first line", text.startsWith("0\n1\n2\n"));
+    assertTrue("ends with prompt", text.endsWith("98\n99\nerr\n> "));
+    assertEquals("prompt position", text.length(), _doc.getPromptPos());
+  }
+  
+  /** Tests that writers are held back while too much output is pending. */
+  public void testBackPressure() throws InterruptedException {
+    final ConsoleOutputBuffer buffer = new ConsoleOutputBuffer(_doc, 10);
+    final Object block = new Object();
+    // Occupy the event thread so that output cannot be inserted
+    synchronized(block) {
+      Utilities.invokeLater(new Runnable() { public void run() { synchronized(block) { } } });
+      buffer.print("0123456789", null);
+      Thread writer = new Thread() { public void run() { buffer.print("abc", null); } };
+      writer.start();
+      writer.join(200);
+      assertTrue("writer waits", writer.isAlive());
+      assertEquals("second print not accepted yet", 10, buffer.getPendingLength());
+    }
+    Utilities.clearEventQueue();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (buffer.getPendingLength() > 0 && System.currentTimeMillis() < deadline) Utilities.clearEventQueue();
+    assertEquals("all output inserted", "0123456789abc", _doc.getText());
+  }
+  
+  /** Tests that the oldest whole lines are removed when the limit is exceeded. */
+  public void testLimit() {
+    ConsoleOutputBuffer buffer = new ConsoleOutputBuffer(_doc);
+    buffer.setLimit(10);
+    buffer.print("line1\nline2\nline3\n", null);
+    Utilities.clearEventQueue();
+    assertEquals("oldest lines removed", "line3\n", _doc.getText());
+    assertEquals("prompt position moved", 6, _doc.getPromptPos());
+  }
+}
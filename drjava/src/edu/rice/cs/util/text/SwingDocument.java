@@ -99,6 +99,13 @@ public class SwingDocument extends DefaultStyledDocument implements EditDocument
    */
   public void addColoring(int start, int end, String style) { }
   
+  /** 
+   * Updates the styles list after the first count characters of the document
+   * have been removed. Not supported in SwingDocument. Only runs in event thread. 
+   * @param count the number of characters removed from the start of the document
+   */
+  public void removeLeadingColoring(int count) { }
+  
   /** Gets the object which can determine whether an insert or remove edit should be applied, based on the inputs.
     * @return an Object to determine legality of inputs
     */
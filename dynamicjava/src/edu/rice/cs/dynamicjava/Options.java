@@ -37,4 +37,19 @@ public class Options {
   public boolean prohibitBoxing() { return false; }
   /** Disallow unchecked casting conversion. */
   public boolean prohibitUncheckedCasts() { return true; }
+  /**
+   * Compile the bodies of methods declared in the interpreter to bytecode where possible, rather than
+   * interpreting them on each invocation.  (See {@link edu.rice.cs.dynamicjava.interpreter.TreeCompiler}.)
+   */
+  public boolean compileMethodBodies() { return false; }
+  /**
+   * Memoize the type system's subtyping, join, and erasure results.  (Disabling the cache is useful for
+   * checking that it doesn't change any results.)
+   */
+  public boolean cacheTypeQueries() { return true; }
+  /**
+   * The number of checked interactions each {@link edu.rice.cs.dynamicjava.interpreter.Interpreter} retains,
+   * so that re-entering the same code in an unchanged context skips parsing and checking.  0 disables the cache.
+   */
+  public int interactionCacheSize() { return 64; }
 }
@@ -40,6 +40,7 @@ public class BaseContext implements TypeContext {
   public DJClass initializingClass() { return null; }
   public boolean localFunctionExists(String name, TypeSystem ts) { return false; }
   public boolean localVariableExists(String name, TypeSystem ts) { return false; }
+  public RuntimeBindings.Slot localVariableSlot(LocalVariable var) { return new RuntimeBindings.Slot(var); }
   public String makeAnonymousClassName() { throw new UnsupportedOperationException(); }
   public String makeClassName(String n) { throw new UnsupportedOperationException(); }
   public boolean memberClassExists(String name, TypeSystem ts) { return false; }
@@ -58,6 +58,8 @@ public class ClassChecker {
       }
     }
     finally { debug.logEnd(); }
+    // any results computed with the stub supertypes are now stale
+    _opt.typeSystem().invalidateCaches();
     initializeNestedClassSignatures(ast.getMembers(), sigContext);
   }
   
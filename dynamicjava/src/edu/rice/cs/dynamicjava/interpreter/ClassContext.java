@@ -100,6 +100,11 @@ public class ClassContext extends DelegatingContext {
     return hasField(name, ts) ? null : super.getLocalVariable(name, ts);
   }
   
+  /** Variables of enclosing scopes are reached through the bindings captured by the class. */
+  @Override public RuntimeBindings.Slot localVariableSlot(LocalVariable var) {
+    return new RuntimeBindings.Slot(var);
+  }
+  
   private boolean hasField(String name, TypeSystem ts) {
     return ts.containsField(_thisType, name, accessModule());
   }
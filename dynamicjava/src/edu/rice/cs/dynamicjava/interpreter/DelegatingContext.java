@@ -136,6 +136,11 @@ public abstract class DelegatingContext implements TypeContext {
     return _next.getLocalVariable(name, ts);
   }
   
+  /** Locate the run-time frame in which {@code var} will be bound. */
+  public RuntimeBindings.Slot localVariableSlot(LocalVariable var) {
+    return _next.localVariableSlot(var);
+  }
+  
   
   /* FUNCTIONS: METHODS AND LOCAL FUNCTIONS */
   
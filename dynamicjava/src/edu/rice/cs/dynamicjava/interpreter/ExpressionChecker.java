@@ -119,8 +119,11 @@ import static edu.rice.cs.plt.debug.DebugUtil.debug;
  * <li>FIELD on all {@code FieldAccess}es</li>
  * <li>METHOD on all {@code MethodCall}s</li>
  * <li>VARIABLE on all {@code VariableAccess}es, {@code VariableDeclarations}, and {@code FormalParameters}</li>
+ * <li>VARIABLE_SLOT on all {@code VariableAccess}es</li>
  * <li>OPERATION on all {@code AddExpression}s, {@code AddAssignExpression}s, {@code EqualExpression}s, and 
  *     {@code NotEqualExpression}s</li>
+ * <li>PRIMITIVE_TYPE on numeric, relational, and equality expressions, numeric operator-assignments, and
+ *     increments and decrements that operate on {@code int}, {@code long}, or {@code double} values</li>
  * </ul>
  */
 // TODO: Handle non-literal constant expressions
@@ -504,6 +507,7 @@ public class ExpressionChecker {
     @Override public Type visit(VariableAccess node) {
       LocalVariable v = context.getLocalVariable(node.getVariableName(), ts);
       setVariable(node, v);
+      setVariableSlot(node, context.localVariableSlot(v));
       setVariableType(node, v.type());
       return setType(node, ts.capture(v.type()));
     }
@@ -1211,6 +1215,7 @@ public class ExpressionChecker {
           node.setRightExpression(promoted.second());
           setOperation(node, ExpressionEvaluator.ADD);
           Type result = setType(node, getType(promoted.first()));
+          setPrimitiveTypeIfSupported(node, result);
           evaluateConstantExpression(node);
           return result;
         }
@@ -1249,6 +1254,7 @@ public class ExpressionChecker {
           setLeftExpression(node, promoted.first()); // not to be confused with node.setLeftExpression(...)
           node.setRightExpression(promoted.second());
           setOperation(node, ExpressionEvaluator.ADD);
+          if (ts.isEqual(leftT, getType(promoted.first()))) { setPrimitiveTypeIfSupported(node, leftT); }
         }
         catch (UnsupportedConversionException e) {
           throw new ExecutionError("addition.type", node);
@@ -1284,6 +1290,7 @@ public class ExpressionChecker {
         node.setLeftExpression(promoted.first());
         node.setRightExpression(promoted.second());
         Type result = setType(node, getType(promoted.first()));
+        setPrimitiveTypeIfSupported(node, result);
         evaluateConstantExpression(node);
         return result;
       }
@@ -1317,6 +1324,7 @@ public class ExpressionChecker {
         }
         setLeftExpression(node, promoted.first()); // not to be confused with node.setLeftExpression(...)
         node.setRightExpression(promoted.second());
+        if (ts.isEqual(result, getType(promoted.first()))) { setPrimitiveTypeIfSupported(node, result); }
         return setType(node, result);
       }
       catch (UnsupportedConversionException e) {
@@ -1365,6 +1373,7 @@ public class ExpressionChecker {
             right = promoted.second();
             node.setLeftExpression(promoted.first());
             node.setRightExpression(promoted.second());
+            setPrimitiveTypeIfSupported(node, getType(left));
           }
           else {
             TypePrinter printer = ts.typePrinter();
@@ -1405,6 +1414,7 @@ public class ExpressionChecker {
         Pair<Expression, Expression> promoted = ts.binaryPromote(left, right);
         node.setLeftExpression(promoted.first());
         node.setRightExpression(promoted.second());
+        setPrimitiveTypeIfSupported(node, getType(promoted.first()));
         setType(node, TypeSystem.BOOLEAN);
         evaluateConstantExpression(node);
         return TypeSystem.BOOLEAN;
@@ -1714,6 +1724,7 @@ public class ExpressionChecker {
         }
         
         setLeftExpression(node, exp);
+        setPrimitiveTypeIfSupported(node, result);
         return setType(node, result);
       }
       catch (UnsupportedConversionException e) {
@@ -1721,6 +1732,16 @@ public class ExpressionChecker {
       }
     }
     
+    /**
+     * Set PRIMITIVE_TYPE on an operation carried out in type {@code t}, if {@code t} is {@code int},
+     * {@code long}, or {@code double}, so that it can be evaluated without boxing intermediate results.
+     */
+    private void setPrimitiveTypeIfSupported(Expression node, Type t) {
+      if (ts.isEqual(t, TypeSystem.INT)) { setPrimitiveType(node, int.class); }
+      else if (ts.isEqual(t, TypeSystem.LONG)) { setPrimitiveType(node, long.class); }
+      else if (ts.isEqual(t, TypeSystem.DOUBLE)) { setPrimitiveType(node, double.class); }
+    }
+    
     /**
      * Visits a CastExpression.  JLS 15.16.
      * @return  The type of the expression
@@ -11,7 +11,6 @@ import koala.dynamicjava.tree.*;
 import koala.dynamicjava.tree.visitor.*;
 
 import edu.rice.cs.dynamicjava.Options;
-import edu.rice.cs.dynamicjava.symbol.LocalVariable;
 
 import static koala.dynamicjava.interpreter.NodeProperties.*;
 
@@ -25,6 +24,7 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
   
   private final RuntimeBindings _bindings;
   private final Options _options;
+  private PrimitiveEvaluator _primitives; // created lazily
 
   public ExpressionEvaluator(RuntimeBindings bindings, Options options) {
     _bindings = bindings;
@@ -35,6 +35,7 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     Object result;
     if (hasValue(n)) { result = getValue(n); }
     else if (hasTranslation(n)) { result = value(getTranslation(n)); }
+    else if (hasPrimitiveType(n)) { result = primitives().value((Expression) n); }
     else { result = n.acceptVisitor(this); }
     if (hasConvertedType(n)) { result = convert(result, getConvertedType(n).value()); }
     if (hasCheckedType(n)) {
@@ -47,9 +48,18 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     return result;
   }
   
+  /** The evaluator for expressions with a PRIMITIVE_TYPE, which share this evaluator's bindings. */
+  private PrimitiveEvaluator primitives() {
+    if (_primitives == null) { _primitives = new PrimitiveEvaluator(this, _bindings); }
+    return _primitives;
+  }
+  
   @Override public Object visit(Literal node) { return node.getValue(); }
   
-  @Override public Object visit(VariableAccess node) { return new LValueVisitor().visit(node).value(); }
+  @Override public Object visit(VariableAccess node) {
+    if (hasVariableSlot(node)) { return _bindings.get(getVariableSlot(node)); }
+    else { return _bindings.get(getVariable(node)); }
+  }
 
   @Override public Object visit(SimpleFieldAccess node) { return new LValueVisitor().visit(node).value(); }
   
@@ -412,10 +422,11 @@ public class ExpressionEvaluator extends AbstractVisitor<Object> implements Lamb
     }
     
     @Override public Box<Object> visit(VariableAccess node) {
-      final LocalVariable var = getVariable(node);
+      final RuntimeBindings.Slot slot = hasVariableSlot(node) ? getVariableSlot(node) :
+                                                                  new RuntimeBindings.Slot(getVariable(node));
       return new Box<Object>() {
-        public Object value() { return _bindings.get(var); }
-        public void set(Object val) { _bindings.set(var, val); }
+        public Object value() { return _bindings.get(slot); }
+        public void set(Object val) { _bindings.set(slot, val); }
       };
     }
 
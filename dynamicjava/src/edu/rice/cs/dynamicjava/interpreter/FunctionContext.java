@@ -46,6 +46,16 @@ public class FunctionContext extends DelegatingContext {
     return (getParameter(name) == null) ? super.typeContainingField(name, ts) : null;
   }
   
+  /** Parameters are bound in a single frame; other variables are reached through the caller's bindings. */
+  @Override public RuntimeBindings.Slot localVariableSlot(LocalVariable var) {
+    int i = 0;
+    for (LocalVariable v : _f.parameters()) {
+      if (v == var) { return new RuntimeBindings.Slot(var, 0, i); }
+      i++;
+    }
+    return new RuntimeBindings.Slot(var);
+  }
+  
   private LocalVariable getParameter(String name) {
     for (LocalVariable v : _f.parameters()) {
       if (v.declaredName().equals(name)) { return v; }
@@ -10,22 +10,33 @@ import koala.dynamicjava.interpreter.error.ExecutionError;
 import koala.dynamicjava.parser.wrapper.JavaCCParser;
 import koala.dynamicjava.parser.wrapper.ParseError;
 import edu.rice.cs.dynamicjava.Options;
+import edu.rice.cs.dynamicjava.symbol.TypeQueryCache;
 
 import static edu.rice.cs.plt.debug.DebugUtil.debug;
 
 /**
- * The external interface for the interpreter.
+ * The external interface for the interpreter.  Each successfully checked interaction is remembered
+ * (up to {@link Options#interactionCacheSize}), keyed by its source code and the context it was checked
+ * in; when the same code is entered again in the same context, parsing and checking are skipped.
  */
 public class Interpreter {
 
   private final Options _opt;
   private TypeContext _typeContext;
   private RuntimeBindings _bindings;
+  /** Checked trees and their resulting contexts; null if caching is disabled. */
+  private final TypeQueryCache.Table<Pair<String, TypeContext>, Pair<Iterable<Node>, TypeContext>> _checked;
   
   public Interpreter(Options opt, TypeContext typeContext, RuntimeBindings bindings) {
     _opt = opt;
     _typeContext = typeContext;
     _bindings = bindings;
+    int cacheSize = opt.interactionCacheSize();
+    if (cacheSize > 0) {
+      _checked = new TypeQueryCache.Table<Pair<String, TypeContext>, Pair<Iterable<Node>, TypeContext>>(
+                   "interaction", cacheSize);
+    }
+    else { _checked = null; }
     // Force potentially expensive objects/classes to initialize now:
     _opt.typeSystem();
     new JavaCCParser(new StringReader(""), _opt).parseStream();
@@ -40,11 +51,9 @@ public class Interpreter {
   }
   
   public Option<Object> interpret(String code) throws InterpreterException {
-    Iterable<Node> tree = parse(code);
-    debug.logValue("Parse result", tree);
-    TypeContext tcResult = typeCheck(tree);
-    debug.log("Static phase successful");
-    Pair<RuntimeBindings, Option<Object>> evalResult = evaluate(tree);
+    Pair<Iterable<Node>, TypeContext> checked = check(code);
+    TypeContext tcResult = checked.second();
+    Pair<RuntimeBindings, Option<Object>> evalResult = evaluate(checked.first());
     // We don't commit an environment change until evaluation has completed successfully.  This
     // helps to guarantee that _typeContext and _bindings are in sync.  Effects:
     // - If there's a static error in the entire tree, nothing runs.
@@ -58,6 +67,36 @@ public class Interpreter {
     return evalResult.second();
   }
   
+  /**
+   * Discard all remembered interactions.  Must be called when the classes visible to the interpreter
+   * change (for example, when the class path is extended), since that can change how names resolve.
+   */
+  public void clearCache() {
+    if (_checked != null) { _checked.clear(); }
+  }
+  
+  /** The number of interactions that reused an earlier parse and check. */
+  public long cacheHits() { return (_checked == null) ? 0 : _checked.hits(); }
+  
+  /** The number of interactions that were parsed and checked (including those that failed). */
+  public long cacheMisses() { return (_checked == null) ? 0 : _checked.misses(); }
+  
+  /** Parse and check the given code in the current context, or get the result of an earlier identical check. */
+  private Pair<Iterable<Node>, TypeContext> check(String code) throws InterpreterException {
+    Pair<String, TypeContext> key = Pair.make(code, _typeContext);
+    if (_checked != null) {
+      Pair<Iterable<Node>, TypeContext> cached = _checked.get(key);
+      if (cached != null) { debug.log("Reusing checked tree"); return cached; }
+    }
+    Iterable<Node> tree = parse(code);
+    debug.logValue("Parse result", tree);
+    TypeContext tcResult = typeCheck(tree);
+    debug.log("Static phase successful");
+    Pair<Iterable<Node>, TypeContext> result = Pair.make(tree, tcResult);
+    if (_checked != null) { _checked.put(key, result); }
+    return result;
+  }
+  
   private Iterable<Node> parse(String code) throws InterpreterException {
     try {
       return new JavaCCParser(new StringReader(code), _opt).parseStream();
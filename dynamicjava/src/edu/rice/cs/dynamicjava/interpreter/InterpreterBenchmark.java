@@ -0,0 +1,364 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import koala.dynamicjava.tree.IntegerLiteral;
+import koala.dynamicjava.tree.Node;
+import koala.dynamicjava.interpreter.NodeProperties;
+import koala.dynamicjava.parser.wrapper.JavaCCParser;
+import edu.rice.cs.dynamicjava.Options;
+import edu.rice.cs.dynamicjava.symbol.TypeSystem;
+import edu.rice.cs.plt.lambda.LambdaUtil;
+import edu.rice.cs.plt.lambda.Thunk;
+
+/**
+ * Throughput benchmarks for the phases of interpretation: parsing, checking, evaluation, class
+ * compilation, and complete {@link Interpreter#interpret} round trips.  Each benchmark is run for a
+ * number of timed warmup iterations followed by measured iterations (in the manner of JMH); results
+ * are average times per operation, written in JMH's CSV format so that they can be compared
+ * mechanically against a saved baseline.  Run with {@code ant benchmark}, or directly:
+ * <pre>java InterpreterBenchmark [filter [output.csv [baseline.csv]]]</pre>
+ * where {@code filter} is a comma-delimited list of substrings of benchmark names, or {@code *}.
+ * The system properties {@code benchmark.warmups}, {@code benchmark.iterations}, and
+ * {@code benchmark.time} (milliseconds per iteration) control the run length.  Scores depend on the
+ * machine, so the checked-in baseline ({@code testFiles/benchmark/baseline.csv}) is only meaningful when
+ * regenerated locally before making a change: {@code ant benchmark -Dbenchmark-output=testFiles/benchmark/baseline.csv}.
+ */
+public class InterpreterBenchmark {
+
+  private static final String PREFIX = InterpreterBenchmark.class.getName() + ".";
+  private static final String CSV_HEADER =
+    "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\"";
+  /** Results more than this fraction slower than the baseline (beyond the error bounds) are flagged. */
+  private static final double REGRESSION_THRESHOLD = 0.10;
+
+  /** Destination for benchmark results, so that the work being measured can't be optimized away. */
+  private static volatile Object _sink;
+
+  private static final Options OPTIONS = Options.DEFAULT;
+
+  private static final Options UNCACHED_OPTIONS = new Options() {
+    @Override public int interactionCacheSize() { return 0; }
+  };
+
+  private static final String SMALL_SOURCE = "int x = 3; String s = \"x = \" + (x * 2 + 1); s.length()";
+
+  private static final String LARGE_SOURCE = largeSource(100);
+
+  private static final String GENERIC_SOURCE =
+    "java.util.Map<String, java.util.List<Integer>> m = new java.util.HashMap<String, java.util.List<Integer>>();\n" +
+    "for (String s : java.util.Arrays.asList(\"a\", \"bb\", \"ccc\")) {\n" +
+    "  java.util.List<Integer> l = new java.util.ArrayList<Integer>();\n" +
+    "  l.add(s.length());\n" +
+    "  m.put(s, l);\n" +
+    "}\n" +
+    "java.util.List<java.util.Map.Entry<String, java.util.List<Integer>>> es =\n" +
+    "  new java.util.ArrayList<java.util.Map.Entry<String, java.util.List<Integer>>>(m.entrySet());\n" +
+    "Integer best = java.util.Collections.max(java.util.Arrays.asList(1, 2, 3));\n" +
+    "java.util.Comparator<String> c = java.util.Collections.reverseOrder();\n" +
+    "java.util.Collections.sort(java.util.Arrays.asList(\"x\", \"y\"), c);\n" +
+    "java.util.Set<java.util.Map.Entry<String, java.util.List<Integer>>> entries = m.entrySet();\n" +
+    "int total = 0;\n" +
+    "for (java.util.Map.Entry<String, java.util.List<Integer>> e : entries) { total += e.getValue().get(0); }\n";
+
+  private static final String ARITHMETIC_SOURCE =
+    "int s = 0; for (int i = 0; i < 1000; i++) { s += (i * 31) % 7 - i / 3; } long l = s * 7L; double d = l / 3.0;";
+
+  private static final String CALL_SOURCE =
+    "java.util.List<Integer> l = new java.util.ArrayList<Integer>();\n" +
+    "for (int i = 0; i < 200; i++) { l.add(Math.abs(i - 100)); if (l.size() > 50) { l.clear(); } }\n" +
+    "String s = String.valueOf(l.size()).concat(\"!\").trim();\n";
+
+  private static final String CLASS_SOURCE =
+    "class Point {\n" +
+    "  private final int x, y;\n" +
+    "  Point(int x, int y) { this.x = x; this.y = y; }\n" +
+    "  int dot(Point p) { return x * p.x + y * p.y; }\n" +
+    "  Point plus(Point p) { return new Point(x + p.x, y + p.y); }\n" +
+    "}\n" +
+    "Point acc = new Point(0, 0);\n" +
+    "for (int i = 0; i < 100; i++) { acc = acc.plus(new Point(i, 1)); }\n" +
+    "acc.dot(acc)";
+
+  private static final String ROUND_TRIP_SOURCE = "Math.max(3, 4) + \"abc\".length() * 2";
+
+  /** The number of nodes annotated in the node property benchmarks. */
+  private static final int NODE_COUNT = 200000;
+
+
+  /** A single benchmark. */
+  private static abstract class Case {
+    public final String name;
+    public Case(String n) { name = n; }
+    /** Produce the input for a single operation; not timed. */
+    public Object setUp() throws Exception { return null; }
+    /** Perform a single operation; timed. */
+    public abstract Object run(Object input) throws Exception;
+  }
+
+  private static List<Case> cases() {
+    List<Case> result = new ArrayList<Case>();
+
+    result.add(new Case("parseSmall") {
+      public Object run(Object input) { return parse(SMALL_SOURCE); }
+    });
+
+    result.add(new Case("parseLarge") {
+      public Object run(Object input) { return parse(LARGE_SOURCE); }
+    });
+
+    result.add(new Case("checkGenerics") {
+      private final TypeContext _context = newContext(OPTIONS);
+      public Object setUp() { return parse(GENERIC_SOURCE); }
+      @SuppressWarnings("unchecked") public Object run(Object input) {
+        return new StatementChecker(_context, OPTIONS).checkList((List<Node>) input);
+      }
+    });
+
+    result.add(new Case("evaluateArithmetic") {
+      private final List<Node> _tree = checked(ARITHMETIC_SOURCE);
+      public Object run(Object input) { return evaluate(_tree); }
+    });
+
+    result.add(new Case("evaluateMethodCalls") {
+      private final List<Node> _tree = checked(CALL_SOURCE);
+      public Object run(Object input) { return evaluate(_tree); }
+    });
+
+    result.add(new Case("compileClass") {
+      public Object setUp() { return new Interpreter(UNCACHED_OPTIONS); }
+      public Object run(Object input) throws InterpreterException {
+        return ((Interpreter) input).interpret(CLASS_SOURCE);
+      }
+    });
+
+    result.add(new Case("interpret") {
+      private final Interpreter _interpreter = new Interpreter(UNCACHED_OPTIONS);
+      public Object run(Object input) throws InterpreterException { return _interpreter.interpret(ROUND_TRIP_SOURCE); }
+    });
+
+    result.add(new Case("interpretRepeated") {
+      private final Interpreter _interpreter = new Interpreter(OPTIONS);
+      public Object run(Object input) throws InterpreterException { return _interpreter.interpret(ROUND_TRIP_SOURCE); }
+    });
+
+    result.add(new Case("nodePropertiesSet") {
+      public Object setUp() { return newNodes(NODE_COUNT); }
+      @SuppressWarnings("unchecked") public Object run(Object input) { return annotate((List<Node>) input); }
+    });
+
+    result.add(new Case("nodePropertiesGet") {
+      private final List<Node> _nodes = annotate(newNodes(NODE_COUNT));
+      public Object run(Object input) {
+        int found = 0;
+        for (Node n : _nodes) {
+          if (NodeProperties.hasType(n) && NodeProperties.getValue(n) != null &&
+              NodeProperties.getConvertedType(n) != null) { found++; }
+        }
+        return found;
+      }
+    });
+
+    return result;
+  }
+
+  private static String largeSource(int methods) {
+    StringBuilder result = new StringBuilder();
+    result.append("class Large {\n");
+    for (int i = 0; i < methods; i++) {
+      result.append("  int m" + i + "(int[] a, java.util.List<String> l) {\n");
+      result.append("    int r = " + i + ";\n");
+      result.append("    for (int j = 0; j < a.length; j++) { if (a[j] % 2 == 0) r += a[j] * j; else r -= l.size(); }\n");
+      result.append("    return r > 0 ? r : -r;\n");
+      result.append("  }\n");
+    }
+    result.append("}\n");
+    return result.toString();
+  }
+
+  private static List<Node> newNodes(int count) {
+    List<Node> result = new ArrayList<Node>(count);
+    for (int i = 0; i < count; i++) { result.add(new IntegerLiteral("1")); }
+    return result;
+  }
+
+  /** Give each node six properties, as the checker annotates a typical expression. */
+  private static List<Node> annotate(List<Node> nodes) {
+    Thunk<Class<?>> intClass = LambdaUtil.<Class<?>>valueLambda(int.class);
+    int i = 0;
+    for (Node n : nodes) {
+      NodeProperties.setType(n, TypeSystem.INT);
+      NodeProperties.setValue(n, i++);
+      NodeProperties.setConvertedType(n, intClass);
+      NodeProperties.setAssertedType(n, intClass);
+      NodeProperties.setCheckedType(n, intClass);
+      NodeProperties.setErasedType(n, intClass);
+    }
+    return nodes;
+  }
+
+  private static TypeContext newContext(Options opt) {
+    return new ImportContext(InterpreterBenchmark.class.getClassLoader(), opt);
+  }
+
+  private static List<Node> parse(String code) {
+    return new JavaCCParser(new StringReader(code), OPTIONS).parseStream();
+  }
+
+  private static List<Node> checked(String code) {
+    List<Node> result = parse(code);
+    new StatementChecker(newContext(OPTIONS), OPTIONS).checkList(result);
+    return result;
+  }
+
+  private static Object evaluate(List<Node> tree) {
+    return new StatementEvaluator(RuntimeBindings.EMPTY, OPTIONS).evaluateSequence(tree);
+  }
+
+
+  /** Summary of a benchmark's measured iterations, in microseconds per operation. */
+  private static class Result {
+    public final String name;
+    public final int samples;
+    public final double score;
+    public final double error;
+    public Result(String n, int s, double sc, double e) { name = n; samples = s; score = sc; error = e; }
+  }
+
+  /** Run {@code c} for {@code time} milliseconds; return the average time per operation in microseconds. */
+  private static double iteration(Case c, long time) throws Exception {
+    long deadline = System.nanoTime() + time * 1000000L;
+    long elapsed = 0;
+    long ops = 0;
+    do {
+      Object input = c.setUp();
+      long start = System.nanoTime();
+      _sink = c.run(input);
+      elapsed += System.nanoTime() - start;
+      ops++;
+    } while (System.nanoTime() < deadline);
+    return elapsed / 1000.0 / ops;
+  }
+
+  private static Result measure(Case c, int warmups, int iterations, long time) throws Exception {
+    for (int i = 0; i < warmups; i++) {
+      System.out.println("# Warmup iteration " + (i+1) + ": " + format(iteration(c, time)) + " us/op");
+    }
+    double[] scores = new double[iterations];
+    double sum = 0;
+    for (int i = 0; i < iterations; i++) {
+      scores[i] = iteration(c, time);
+      sum += scores[i];
+      System.out.println("Iteration " + (i+1) + ": " + format(scores[i]) + " us/op");
+    }
+    double mean = sum / iterations;
+    double error = Double.NaN;
+    if (iterations > 1) {
+      double squares = 0;
+      for (double s : scores) { squares += (s - mean) * (s - mean); }
+      double stdDev = Math.sqrt(squares / (iterations - 1));
+      error = studentT999(iterations - 1) * stdDev / Math.sqrt(iterations);
+    }
+    return new Result(PREFIX + c.name, iterations, mean, error);
+  }
+
+  /** The two-sided 99.9% quantile of Student's t distribution with the given degrees of freedom. */
+  private static double studentT999(int degrees) {
+    double[] table = { 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+                       4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850 };
+    return (degrees <= table.length) ? table[degrees-1] : 3.291;
+  }
+
+  private static String format(double d) { return String.format("%.3f", d); }
+
+  private static boolean matches(String name, String filter) {
+    if (filter.equals("*")) { return true; }
+    for (String f : filter.split(",")) {
+      if (f.trim().length() > 0 && name.contains(f.trim())) { return true; }
+    }
+    return false;
+  }
+
+  private static void writeResults(List<Result> results, File f) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(f));
+    try {
+      out.println(CSV_HEADER);
+      for (Result r : results) {
+        out.println("\"" + r.name + "\",\"avgt\",1," + r.samples + "," + format(r.score) + "," +
+                    (Double.isNaN(r.error) ? "NaN" : format(r.error)) + ",\"us/op\"");
+      }
+    }
+    finally { out.close(); }
+  }
+
+  /** Read a results file produced by {@link #writeResults}; each value is a (score, error) pair. */
+  private static Map<String, double[]> readResults(File f) throws IOException {
+    Map<String, double[]> result = new HashMap<String, double[]>();
+    BufferedReader in = new BufferedReader(new FileReader(f));
+    try {
+      String line = in.readLine(); // header
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split(",");
+        if (fields.length == 7) {
+          result.put(fields[0].replace("\"", ""),
+                     new double[]{ Double.parseDouble(fields[4]), Double.parseDouble(fields[5]) });
+        }
+      }
+    }
+    finally { in.close(); }
+    return result;
+  }
+
+  private static void compare(List<Result> results, File baselineFile) throws IOException {
+    Map<String, double[]> baseline = readResults(baselineFile);
+    System.out.println();
+    System.out.println("Comparison with " + baselineFile + ":");
+    for (Result r : results) {
+      double[] b = baseline.get(r.name);
+      if (b == null) { System.out.println(r.name + ": no baseline"); continue; }
+      double change = (r.score - b[0]) / b[0];
+      double slack = (Double.isNaN(r.error) ? 0 : r.error) + (Double.isNaN(b[1]) ? 0 : b[1]);
+      boolean regression = change > REGRESSION_THRESHOLD && r.score - b[0] > slack;
+      System.out.println(r.name + ": " + format(r.score) + " us/op vs. " + format(b[0]) + " (" +
+                         (change >= 0 ? "+" : "") + String.format("%.1f", change * 100) + "%)" +
+                         (regression ? "  REGRESSION" : ""));
+    }
+  }
+
+  public static void main(String... args) throws Exception {
+    String filter = (args.length > 0 && args[0].length() > 0) ? args[0] : "*";
+    File output = (args.length > 1 && args[1].length() > 0) ? new File(args[1]) : null;
+    File baseline = (args.length > 2 && args[2].length() > 0) ? new File(args[2]) : null;
+    int warmups = Integer.getInteger("benchmark.warmups", 5);
+    int iterations = Integer.getInteger("benchmark.iterations", 5);
+    long time = Long.getLong("benchmark.time", 1000L);
+
+    List<Result> results = new ArrayList<Result>();
+    for (Case c : cases()) {
+      if (matches(c.name, filter)) {
+        System.out.println("# Benchmark: " + PREFIX + c.name);
+        Result r = measure(c, warmups, iterations, time);
+        System.out.println("Result: " + format(r.score) + " +/- " + format(r.error) + " us/op");
+        System.out.println();
+        results.add(r);
+      }
+    }
+
+    if (output != null) { writeResults(results, output); System.out.println("Results written to " + output); }
+    if (baseline != null) {
+      if (baseline.exists()) { compare(results, baseline); }
+      else { System.out.println("Baseline " + baseline + " does not exist"); }
+    }
+  }
+
+}
@@ -109,6 +109,17 @@ public class LocalContext extends DelegatingContext {
     return (declaredVariable(name) == null) ? super.typeContainingField(name, ts) : null;
   }
   
+  /** A context declaring variables corresponds to a frame; other local contexts have no run-time effect. */
+  @Override public RuntimeBindings.Slot localVariableSlot(LocalVariable var) {
+    if (IterUtil.isEmpty(_vars)) { return super.localVariableSlot(var); }
+    int i = 0;
+    for (LocalVariable v : _vars) {
+      if (v == var) { return new RuntimeBindings.Slot(var, 0, i); }
+      i++;
+    }
+    return super.localVariableSlot(var).outer();
+  }
+  
   private LocalVariable declaredVariable(String name) {
     for (LocalVariable v : _vars) {
       if (v.declaredName().equals(name)) { return v; }
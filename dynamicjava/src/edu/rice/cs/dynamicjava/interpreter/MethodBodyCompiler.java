@@ -0,0 +1,949 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import java.util.*;
+import edu.rice.cs.plt.iter.IterUtil;
+import edu.rice.cs.plt.tuple.Pair;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import edu.rice.cs.dynamicjava.symbol.*;
+import koala.dynamicjava.tree.*;
+import koala.dynamicjava.tree.visitor.*;
+
+import static org.objectweb.asm.Opcodes.*;
+import static koala.dynamicjava.interpreter.NodeProperties.*;
+
+/**
+ * Compiles the body of a method declared in the interpreter directly to bytecode, as an alternative
+ * to the forwarding stub produced by {@link TreeCompiler}.  Only a conservative subset of the language is
+ * supported: the body may only refer to its own parameters and local variables, to fields of the class
+ * being compiled, and to methods of that class or public static library methods; all values must have
+ * primitive or primitive array types; and the only statements permitted are blocks, local variable
+ * declarations, expression statements, {@code if}, {@code while}, {@code do}, {@code for},
+ * {@code break}, {@code continue}, and {@code return}.  Bodies outside this subset are left to the
+ * interpreter.  The checked AST's conversion properties ({@code CONVERTED_TYPE}, {@code TRANSLATION},
+ * {@code VALUE}) are honored, so the compiled code computes the same results as the interpreter.
+ */
+class MethodBodyCompiler {
+
+  private final TreeCompiler _compiler;
+  private final TreeClass _treeClass;
+  private final String _className;
+  private final MethodDeclaration _ast;
+  private final boolean _isStatic;
+
+  private MethodVisitor _mv;
+  private TreeCompiler.StackSizeTracker _stack;
+  private Type _returnType;
+  private Map<LocalVariable, Integer> _locals;
+  private LinkedList<JumpTarget> _targets;
+
+  public MethodBodyCompiler(TreeCompiler compiler, TreeClass treeClass, MethodDeclaration ast, boolean isStatic) {
+    _compiler = compiler;
+    _treeClass = treeClass;
+    _className = TreeCompiler.className(treeClass);
+    _ast = ast;
+    _isStatic = isStatic;
+  }
+
+  /**
+   * Emit the method body, including the {@code visitMaxs} call, if it is entirely supported.  The body
+   * is first compiled to a visitor that discards its input; if that succeeds, it is compiled again to
+   * {@code mv}.  Otherwise, nothing is written to {@code mv}.
+   * @return  {@code true} iff the body was compiled
+   */
+  public boolean compile(MethodVisitor mv) {
+    try { emit(new MethodVisitor(ASM5) {}); }
+    catch (UnsupportedException e) { return false; }
+    emit(mv);
+    return true;
+  }
+
+  private void emit(MethodVisitor mv) {
+    _mv = mv;
+    _locals = new HashMap<LocalVariable, Integer>();
+    _targets = new LinkedList<JumpTarget>();
+    _returnType = asmType(getType(_ast.getReturnType()));
+
+    List<FormalParameter> params = _ast.getParameters();
+    int index = 1; // "this" or the static method's RuntimeBindings
+    for (FormalParameter p : params) {
+      LocalVariable var = getVariable(p);
+      _locals.put(var, index);
+      index += asmType(var.type()).getSize();
+    }
+    _stack = new TreeCompiler.StackSizeTracker(index);
+
+    _ast.getBody().acceptVisitor(new StatementCompiler());
+    // if we didn't return, produce a zero value, as the interpreter does
+    if (_returnType.getSort() != Type.VOID) { emitDefault(_returnType); }
+    _mv.visitInsn(_returnType.getOpcode(IRETURN));
+    _mv.visitMaxs(_stack.maxStack(), _stack.maxLocals());
+  }
+
+
+  /* Statements */
+
+  private class StatementCompiler extends AbstractVisitor<Void> {
+
+    @Override public Void defaultCase(Node node) { throw new UnsupportedException(); }
+
+    private void compile(Node node) {
+      if (hasStatementTranslation(node)) { throw new UnsupportedException(); }
+      node.acceptVisitor(this);
+    }
+
+    private void compileAll(Iterable<? extends Node> nodes) {
+      if (nodes != null) { for (Node n : nodes) { compile(n); } }
+    }
+
+    @Override public Void visit(EmptyStatement node) { return null; }
+
+    @Override public Void visit(BlockStatement node) { compileAll(node.getStatements()); return null; }
+
+    @Override public Void visit(VariableDeclaration node) {
+      LocalVariable var = getVariable(node);
+      Type t = asmType(var.type());
+      int index = (t.getSize() == 2) ? _stack.newBigVariable() : _stack.newVariable();
+      // the variable is not yet mapped while its initializer is compiled, so a (legal, but
+      // unverifiable) reference to the uninitialized variable is left to the interpreter
+      if (node.getInitializer() == null) { emitDefault(t); }
+      else { emitConvert(value(node.getInitializer()), t); }
+      _locals.put(var, index);
+      _mv.visitVarInsn(t.getOpcode(ISTORE), index);
+      _stack.adjust(-t.getSize());
+      return null;
+    }
+
+    @Override public Void visit(ExpressionStatement node) {
+      effect(node.getExpression());
+      return null;
+    }
+
+    @Override public Void visit(IfThenStatement node) {
+      Label end = new Label();
+      emitBranch(node.getCondition(), end, false);
+      compile(node.getThenStatement());
+      _mv.visitLabel(end);
+      return null;
+    }
+
+    @Override public Void visit(IfThenElseStatement node) {
+      Label elseLabel = new Label();
+      Label end = new Label();
+      emitBranch(node.getCondition(), elseLabel, false);
+      compile(node.getThenStatement());
+      _mv.visitJumpInsn(GOTO, end);
+      _mv.visitLabel(elseLabel);
+      compile(node.getElseStatement());
+      _mv.visitLabel(end);
+      return null;
+    }
+
+    @Override public Void visit(WhileStatement node) {
+      JumpTarget target = new JumpTarget(node, null);
+      Label top = new Label();
+      _mv.visitJumpInsn(GOTO, target.continueLabel);
+      _mv.visitLabel(top);
+      compileLoopBody(node.getBody(), target);
+      _mv.visitLabel(target.continueLabel);
+      emitBranch(node.getCondition(), top, true);
+      _mv.visitLabel(target.breakLabel);
+      return null;
+    }
+
+    @Override public Void visit(DoStatement node) {
+      JumpTarget target = new JumpTarget(node, null);
+      Label top = new Label();
+      _mv.visitLabel(top);
+      compileLoopBody(node.getBody(), target);
+      _mv.visitLabel(target.continueLabel);
+      emitBranch(node.getCondition(), top, true);
+      _mv.visitLabel(target.breakLabel);
+      return null;
+    }
+
+    @Override public Void visit(ForStatement node) {
+      JumpTarget target = new JumpTarget(node, null);
+      Label top = new Label();
+      Label test = new Label();
+      compileAll(node.getInitialization());
+      _mv.visitJumpInsn(GOTO, test);
+      _mv.visitLabel(top);
+      compileLoopBody(node.getBody(), target);
+      _mv.visitLabel(target.continueLabel);
+      compileAll(node.getUpdate());
+      _mv.visitLabel(test);
+      if (node.getCondition() == null) { _mv.visitJumpInsn(GOTO, top); }
+      else { emitBranch(node.getCondition(), top, true); }
+      _mv.visitLabel(target.breakLabel);
+      return null;
+    }
+
+    private void compileLoopBody(Node body, JumpTarget target) {
+      _targets.addFirst(target);
+      compile(body);
+      _targets.removeFirst();
+    }
+
+    @Override public Void visit(LabeledStatement node) {
+      JumpTarget target = new JumpTarget(null, node.getLabel());
+      _targets.addFirst(target);
+      compile(node.getStatement());
+      _targets.removeFirst();
+      _mv.visitLabel(target.breakLabel);
+      return null;
+    }
+
+    @Override public Void visit(BreakStatement node) {
+      for (JumpTarget t : _targets) {
+        if (t.matches(node.getLabel())) { _mv.visitJumpInsn(GOTO, t.breakLabel); return null; }
+      }
+      throw new UnsupportedException();
+    }
+
+    @Override public Void visit(ContinueStatement node) {
+      for (JumpTarget t : _targets) {
+        if (t.continueLabel != null && t.matches(node.getLabel())) {
+          _mv.visitJumpInsn(GOTO, t.continueLabel);
+          return null;
+        }
+      }
+      throw new UnsupportedException();
+    }
+
+    @Override public Void visit(ReturnStatement node) {
+      if (node.getExpression() != null) {
+        emitConvert(value(node.getExpression()), _returnType);
+        _stack.adjust(-_returnType.getSize());
+      }
+      _mv.visitInsn(_returnType.getOpcode(IRETURN));
+      return null;
+    }
+
+  }
+
+  /**
+   * The destination of a {@code break} or {@code continue} statement.  Loops are targets of both unlabeled
+   * and (matching) labeled statements; labeled statements are targets of matching {@code break}s.
+   */
+  private static class JumpTarget {
+    public final ContinueTarget loop; // null for a labeled statement
+    public final String label; // null for a loop
+    public final Label breakLabel;
+    public final Label continueLabel; // null for a labeled statement
+    public JumpTarget(ContinueTarget l, String lab) {
+      loop = l;
+      label = lab;
+      breakLabel = new Label();
+      continueLabel = (l == null) ? null : new Label();
+    }
+    public boolean matches(String jumpLabel) {
+      if (jumpLabel == null) { return loop != null; }
+      else if (loop != null) { return loop.hasLabel(jumpLabel); }
+      else { return jumpLabel.equals(label); }
+    }
+  }
+
+
+  /* Expressions */
+
+  /**
+   * Push the value of the given expression, applying any conversion the type checker attached to it.
+   * @return  The type of the value left on the stack
+   */
+  private Type value(Expression exp) {
+    Type result;
+    if (hasValue(exp)) { result = emitConstant(getValue(exp)); }
+    else if (hasTranslation(exp)) { result = value(getTranslation(exp)); }
+    else { result = exp.acceptVisitor(new ExpressionCompiler()); }
+    if (hasConvertedType(exp)) {
+      Type target = Type.getType(getConvertedType(exp).value());
+      emitConvert(result, target);
+      result = target;
+    }
+    if (hasCheckedType(exp)) { throw new UnsupportedException(); }
+    return result;
+  }
+
+  /** Evaluate the given expression for its side effects, discarding any result. */
+  private void effect(Expression exp) {
+    if (hasValue(exp) || hasTranslation(exp) || hasConvertedType(exp) || hasCheckedType(exp)) {
+      emitPop(value(exp));
+    }
+    else {
+      Type result = exp.acceptVisitor(new ExpressionCompiler(false));
+      if (result != null) { emitPop(result); }
+    }
+  }
+
+  private class ExpressionCompiler extends AbstractVisitor<Type> {
+
+    /**
+     * Whether the result of an assignment or increment is needed.  If not, the visit methods for these
+     * expressions leave nothing on the stack and return {@code null}.
+     */
+    private final boolean _needValue;
+
+    public ExpressionCompiler() { this(true); }
+    public ExpressionCompiler(boolean needValue) { _needValue = needValue; }
+
+    @Override public Type defaultCase(Node node) { throw new UnsupportedException(); }
+
+    @Override public Type visit(VariableAccess node) { return load(node); }
+    @Override public Type visit(SimpleFieldAccess node) { return load(node); }
+    @Override public Type visit(ArrayAccess node) { return load(node); }
+
+    @Override public Type visit(ObjectFieldAccess node) {
+      if (getField(node) == ArrayLengthField.INSTANCE) {
+        Type arrayT = value(node.getExpression());
+        if (arrayT.getSort() != Type.ARRAY) { throw new UnsupportedException(); }
+        _mv.visitInsn(ARRAYLENGTH);
+        return Type.INT_TYPE;
+      }
+      else { return load(node); }
+    }
+
+    private Type load(Expression node) {
+      LValue lv = lvalue(node);
+      lv.prepare();
+      lv.load();
+      return lv.type;
+    }
+
+    @Override public Type visit(CastExpression node) {
+      // conversions are handled by value()
+      return value(node.getExpression());
+    }
+
+    @Override public Type visit(SimpleMethodCall node) {
+      DJMethod m = getMethod(node);
+      if (m.isStatic()) { return staticCall(m, node.getArguments()); }
+      else if (hasDJClass(node) && getDJClass(node).equals(_treeClass)) {
+        return instanceCall(m, node.getArguments());
+      }
+      else { throw new UnsupportedException(); }
+    }
+
+    @Override public Type visit(StaticMethodCall node) {
+      return staticCall(getMethod(node), node.getArguments());
+    }
+
+    @Override public Type visit(ArrayAllocation node) {
+      Type arrayT = asmType(getType(node));
+      if (node.getInitialization() != null) { return value(node.getInitialization()); }
+      for (Expression size : node.getSizes()) { emitConvert(value(size), Type.INT_TYPE); }
+      int dims = node.getSizes().size();
+      if (dims == 1) { emitNewArray(Type.getType(arrayT.getDescriptor().substring(1))); }
+      else {
+        _mv.visitMultiANewArrayInsn(arrayT.getDescriptor(), dims);
+        _stack.adjust(-dims + 1);
+      }
+      return arrayT;
+    }
+
+    @Override public Type visit(ArrayInitializer node) {
+      Type arrayT = asmType(getType(node));
+      Type elementT = Type.getType(arrayT.getDescriptor().substring(1));
+      emitInt(node.getCells().size());
+      emitNewArray(elementT);
+      int i = 0;
+      for (Expression cell : node.getCells()) {
+        _mv.visitInsn(DUP);
+        _stack.adjust(1);
+        emitInt(i++);
+        emitConvert(value(cell), elementT);
+        _mv.visitInsn(elementT.getOpcode(IASTORE));
+        _stack.adjust(-2 - elementT.getSize());
+      }
+      return arrayT;
+    }
+
+    /* Operators */
+
+    @Override public Type visit(NotExpression node) { return booleanValue(node); }
+    @Override public Type visit(AndExpression node) { return booleanValue(node); }
+    @Override public Type visit(OrExpression node) { return booleanValue(node); }
+    @Override public Type visit(EqualExpression node) { return booleanValue(node); }
+    @Override public Type visit(NotEqualExpression node) { return booleanValue(node); }
+    @Override public Type visit(LessExpression node) { return booleanValue(node); }
+    @Override public Type visit(LessOrEqualExpression node) { return booleanValue(node); }
+    @Override public Type visit(GreaterExpression node) { return booleanValue(node); }
+    @Override public Type visit(GreaterOrEqualExpression node) { return booleanValue(node); }
+
+    @Override public Type visit(PlusExpression node) {
+      Type t = primitiveType(node);
+      emitConvert(value(node.getExpression()), t);
+      return t;
+    }
+
+    @Override public Type visit(MinusExpression node) {
+      Type t = primitiveType(node);
+      emitConvert(value(node.getExpression()), t);
+      _mv.visitInsn(t.getOpcode(INEG));
+      return t;
+    }
+
+    @Override public Type visit(ComplementExpression node) {
+      Type t = primitiveType(node);
+      emitConvert(value(node.getExpression()), t);
+      if (t.getSize() == 2) { _mv.visitLdcInsn(-1L); }
+      else { _mv.visitInsn(ICONST_M1); }
+      _stack.adjust(t.getSize());
+      _mv.visitInsn(t.getOpcode(IXOR));
+      _stack.adjust(-t.getSize());
+      return t;
+    }
+
+    @Override public Type visit(AddExpression node) { return binary(node, IADD); }
+    @Override public Type visit(SubtractExpression node) { return binary(node, ISUB); }
+    @Override public Type visit(MultiplyExpression node) { return binary(node, IMUL); }
+    @Override public Type visit(DivideExpression node) { return binary(node, IDIV); }
+    @Override public Type visit(RemainderExpression node) { return binary(node, IREM); }
+    @Override public Type visit(BitAndExpression node) { return binary(node, IAND); }
+    @Override public Type visit(BitOrExpression node) { return binary(node, IOR); }
+    @Override public Type visit(ExclusiveOrExpression node) { return binary(node, IXOR); }
+    @Override public Type visit(ShiftLeftExpression node) { return binary(node, ISHL); }
+    @Override public Type visit(ShiftRightExpression node) { return binary(node, ISHR); }
+    @Override public Type visit(UnsignedShiftRightExpression node) { return binary(node, IUSHR); }
+
+    private Type binary(BinaryExpression node, int intOpcode) {
+      Type t = primitiveType(node);
+      emitConvert(value(node.getLeftExpression()), t);
+      emitOperation(value(node.getRightExpression()), t, intOpcode);
+      return t;
+    }
+
+    @Override public Type visit(ConditionalExpression node) {
+      Type t = asmType(getType(node));
+      Label elseLabel = new Label();
+      Label end = new Label();
+      emitBranch(node.getConditionExpression(), elseLabel, false);
+      emitConvert(value(node.getIfTrueExpression()), t);
+      _mv.visitJumpInsn(GOTO, end);
+      _stack.adjust(-t.getSize());
+      _mv.visitLabel(elseLabel);
+      emitConvert(value(node.getIfFalseExpression()), t);
+      _mv.visitLabel(end);
+      return t;
+    }
+
+    /* Assignments */
+
+    @Override public Type visit(SimpleAssignExpression node) {
+      LValue lv = lvalue(node.getLeftExpression());
+      lv.prepare();
+      emitConvert(value(node.getRightExpression()), lv.type);
+      return store(lv);
+    }
+
+    @Override public Type visit(AddAssignExpression node) { return opAssign(node, IADD); }
+    @Override public Type visit(SubtractAssignExpression node) { return opAssign(node, ISUB); }
+    @Override public Type visit(MultiplyAssignExpression node) { return opAssign(node, IMUL); }
+    @Override public Type visit(DivideAssignExpression node) { return opAssign(node, IDIV); }
+    @Override public Type visit(RemainderAssignExpression node) { return opAssign(node, IREM); }
+    @Override public Type visit(BitAndAssignExpression node) { return opAssign(node, IAND); }
+    @Override public Type visit(BitOrAssignExpression node) { return opAssign(node, IOR); }
+    @Override public Type visit(ExclusiveOrAssignExpression node) { return opAssign(node, IXOR); }
+    @Override public Type visit(ShiftLeftAssignExpression node) { return opAssign(node, ISHL); }
+    @Override public Type visit(ShiftRightAssignExpression node) { return opAssign(node, ISHR); }
+    @Override public Type visit(UnsignedShiftRightAssignExpression node) { return opAssign(node, IUSHR); }
+
+    /**
+     * Compile a compound assignment.  The checker records the (promoted) left operand as the
+     * LEFT_EXPRESSION property; its type is the type in which the operation is performed.
+     */
+    private Type opAssign(AssignExpression node, int intOpcode) {
+      if (!hasLeftExpression(node)) { throw new UnsupportedException(); }
+      Type opT = primitiveType(getLeftExpression(node));
+      LValue lv = lvalue(node.getLeftExpression());
+      lv.prepare();
+      lv.dupPrefix();
+      lv.load();
+      emitConvert(lv.type, opT);
+      emitOperation(value(node.getRightExpression()), opT, intOpcode);
+      emitConvert(opT, lv.type);
+      return store(lv);
+    }
+
+    @Override public Type visit(PreIncrement node) { return increment(node, IADD, true); }
+    @Override public Type visit(PreDecrement node) { return increment(node, ISUB, true); }
+    @Override public Type visit(PostIncrement node) { return increment(node, IADD, false); }
+    @Override public Type visit(PostDecrement node) { return increment(node, ISUB, false); }
+
+    private Type increment(UnaryExpression node, int intOpcode, boolean isPrefix) {
+      LValue lv = lvalue(node.getExpression());
+      if (lv.type.getSort() == Type.INT && lv instanceof LocalLValue) {
+        int index = ((LocalLValue) lv).index;
+        if (_needValue && !isPrefix) { lv.load(); }
+        _mv.visitIincInsn(index, (intOpcode == IADD) ? 1 : -1);
+        if (_needValue && isPrefix) { lv.load(); }
+        return _needValue ? lv.type : null;
+      }
+      else {
+        Type opT = promotedType(lv.type);
+        lv.prepare();
+        lv.dupPrefix();
+        lv.load();
+        if (_needValue && !isPrefix) { lv.dupValue(); }
+        emitConvert(lv.type, opT);
+        emitOne(opT);
+        _mv.visitInsn(opT.getOpcode(intOpcode));
+        _stack.adjust(-opT.getSize());
+        emitConvert(opT, lv.type);
+        if (_needValue && isPrefix) { lv.dupValue(); }
+        lv.store();
+        return _needValue ? lv.type : null;
+      }
+    }
+
+    /** Store the value on top of the stack, preserving a copy if the result is needed. */
+    private Type store(LValue lv) {
+      if (_needValue) { lv.dupValue(); }
+      lv.store();
+      return _needValue ? lv.type : null;
+    }
+
+  }
+
+  /**
+   * Invoke a static method.  Methods of the class being compiled take the current RuntimeBindings as an
+   * additional first argument; otherwise, only public static methods of public (non-interpreted)
+   * classes are supported.
+   */
+  private Type staticCall(DJMethod m, List<Expression> args) {
+    DJClass c = m.declaringClass();
+    DJMethod declared = m.declaredSignature();
+    if (c == null || !IterUtil.isEmpty(declared.typeParameters())) { throw new UnsupportedException(); }
+    String descriptor;
+    int argSize = 0;
+    if (c.equals(_treeClass)) {
+      if (_isStatic) { _mv.visitVarInsn(ALOAD, 0); _stack.adjust(1); }
+      else { _compiler.emitLoadBindings(_mv, 0, _className, _stack); }
+      argSize++;
+      descriptor = _compiler.methodDescriptor(declared);
+    }
+    else if (!(c instanceof TreeClass) && !c.isInterface() && c.accessibility().equals(Access.PUBLIC) &&
+             m.accessibility().equals(Access.PUBLIC)) {
+      descriptor = Type.getMethodDescriptor(asmType(declared.returnType()),
+                                            IterUtil.toArray(paramTypes(declared), Type.class));
+    }
+    else { throw new UnsupportedException(); }
+    argSize += emitArgs(declared, args);
+    Type returnT = asmType(declared.returnType());
+    _mv.visitMethodInsn(INVOKESTATIC, TreeCompiler.className(c), declared.declaredName(), descriptor, false);
+    _stack.adjust(-argSize + returnT.getSize());
+    return returnT;
+  }
+
+  /** Invoke an instance method of the class being compiled on {@code this}. */
+  private Type instanceCall(DJMethod m, List<Expression> args) {
+    DJMethod declared = m.declaredSignature();
+    if (_isStatic || !_treeClass.equals(m.declaringClass()) || !IterUtil.isEmpty(declared.typeParameters())) {
+      throw new UnsupportedException();
+    }
+    _mv.visitVarInsn(ALOAD, 0);
+    _stack.adjust(1);
+    int argSize = 1 + emitArgs(declared, args);
+    Type returnT = asmType(declared.returnType());
+    int opcode = declared.accessibility().equals(Access.PRIVATE) ? INVOKESPECIAL : INVOKEVIRTUAL;
+    _mv.visitMethodInsn(opcode, _className, declared.declaredName(), _compiler.methodDescriptor(declared), false);
+    _stack.adjust(-argSize + returnT.getSize());
+    return returnT;
+  }
+
+  /** @return  The stack size of the arguments */
+  private int emitArgs(DJMethod declared, List<Expression> args) {
+    if (args == null) { args = Collections.emptyList(); }
+    Iterable<Type> paramTs = paramTypes(declared);
+    if (IterUtil.sizeOf(paramTs) != args.size()) { throw new UnsupportedException(); }
+    int result = 0;
+    for (Pair<Type, Expression> p : IterUtil.zip(paramTs, args)) {
+      emitConvert(value(p.second()), p.first());
+      result += p.first().getSize();
+    }
+    return result;
+  }
+
+  private Iterable<Type> paramTypes(DJMethod m) {
+    List<Type> result = new ArrayList<Type>();
+    for (LocalVariable v : m.parameters()) { result.add(asmType(v.type())); }
+    return result;
+  }
+
+
+  /* Conditions */
+
+  /** Push 1 or 0, depending on the value of the given boolean expression. */
+  private Type booleanValue(Expression exp) {
+    Label trueLabel = new Label();
+    Label end = new Label();
+    emitBranch(exp, trueLabel, true);
+    _mv.visitInsn(ICONST_0);
+    _mv.visitJumpInsn(GOTO, end);
+    _mv.visitLabel(trueLabel);
+    _mv.visitInsn(ICONST_1);
+    _mv.visitLabel(end);
+    _stack.adjust(1);
+    return Type.BOOLEAN_TYPE;
+  }
+
+  /** Jump to {@code target} if the boolean expression evaluates to {@code jumpIf}; otherwise fall through. */
+  private void emitBranch(Expression exp, Label target, boolean jumpIf) {
+    if (hasValue(exp) || hasTranslation(exp) || hasConvertedType(exp) || hasCheckedType(exp)) {
+      emitTest(exp, target, jumpIf);
+    }
+    else if (exp instanceof NotExpression) {
+      emitBranch(((NotExpression) exp).getExpression(), target, !jumpIf);
+    }
+    else if (exp instanceof AndExpression || exp instanceof OrExpression) {
+      BinaryExpression bin = (BinaryExpression) exp;
+      // "a && b" jumps when true iff both jump; "a || b" jumps when false iff both jump
+      boolean isAnd = exp instanceof AndExpression;
+      if (isAnd == jumpIf) {
+        Label skip = new Label();
+        emitBranch(bin.getLeftExpression(), skip, !jumpIf);
+        emitBranch(bin.getRightExpression(), target, jumpIf);
+        _mv.visitLabel(skip);
+      }
+      else {
+        emitBranch(bin.getLeftExpression(), target, jumpIf);
+        emitBranch(bin.getRightExpression(), target, jumpIf);
+      }
+    }
+    else if (exp instanceof EqualExpression) { emitCompare((BinaryExpression) exp, IFEQ, target, jumpIf); }
+    else if (exp instanceof NotEqualExpression) { emitCompare((BinaryExpression) exp, IFNE, target, jumpIf); }
+    else if (exp instanceof LessExpression) { emitCompare((BinaryExpression) exp, IFLT, target, jumpIf); }
+    else if (exp instanceof LessOrEqualExpression) { emitCompare((BinaryExpression) exp, IFLE, target, jumpIf); }
+    else if (exp instanceof GreaterExpression) { emitCompare((BinaryExpression) exp, IFGT, target, jumpIf); }
+    else if (exp instanceof GreaterOrEqualExpression) { emitCompare((BinaryExpression) exp, IFGE, target, jumpIf); }
+    else { emitTest(exp, target, jumpIf); }
+  }
+
+  private void emitTest(Expression exp, Label target, boolean jumpIf) {
+    emitConvert(value(exp), Type.BOOLEAN_TYPE);
+    _mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+    _stack.adjust(-1);
+  }
+
+  /**
+   * Compare two primitive operands (which the checker has already promoted to a common type).
+   * @param cond  One of IFEQ, IFNE, IFLT, IFGE, IFGT, or IFLE
+   */
+  private void emitCompare(BinaryExpression exp, int cond, Label target, boolean jumpIf) {
+    if (!hasType(exp.getLeftExpression()) || !hasType(exp.getRightExpression())) {
+      throw new UnsupportedException();
+    }
+    Type t = primitiveType(exp.getLeftExpression());
+    if (!t.equals(primitiveType(exp.getRightExpression()))) { throw new UnsupportedException(); }
+    emitConvert(value(exp.getLeftExpression()), t);
+    emitConvert(value(exp.getRightExpression()), t);
+    int jump = jumpIf ? cond : negate(cond);
+    switch (t.getSort()) {
+      case Type.LONG:
+        _mv.visitInsn(LCMP);
+        break;
+      case Type.FLOAT:
+        // choose the NaN result so that every comparison involving NaN is false
+        _mv.visitInsn((cond == IFLT || cond == IFLE) ? FCMPG : FCMPL);
+        break;
+      case Type.DOUBLE:
+        _mv.visitInsn((cond == IFLT || cond == IFLE) ? DCMPG : DCMPL);
+        break;
+      default:
+        _mv.visitJumpInsn(jump + (IF_ICMPEQ - IFEQ), target);
+        _stack.adjust(-2);
+        return;
+    }
+    _stack.adjust(-2 * t.getSize() + 1);
+    _mv.visitJumpInsn(jump, target);
+    _stack.adjust(-1);
+  }
+
+  private static int negate(int cond) {
+    switch (cond) {
+      case IFEQ: return IFNE;
+      case IFNE: return IFEQ;
+      case IFLT: return IFGE;
+      case IFGE: return IFLT;
+      case IFGT: return IFLE;
+      case IFLE: return IFGT;
+      default: throw new IllegalArgumentException();
+    }
+  }
+
+
+  /* Variables */
+
+  /**
+   * A location that can be read or written.  Accessing the location involves three steps:
+   * {@link #prepare} pushes any receiver or array and index ({@code prefixSize} stack entries), and
+   * {@link #load} or {@link #store} consume them.
+   */
+  private abstract class LValue {
+    public final Type type;
+    private final int _prefixSize;
+    protected LValue(Type t, int prefixSize) { type = t; _prefixSize = prefixSize; }
+    public abstract void prepare();
+    public abstract void load();
+    public abstract void store();
+
+    /** Duplicate the prepared prefix, so that it can be used by both a load and a store. */
+    public void dupPrefix() {
+      if (_prefixSize == 1) { _mv.visitInsn(DUP); }
+      else if (_prefixSize == 2) { _mv.visitInsn(DUP2); }
+      _stack.adjust(_prefixSize);
+    }
+
+    /** Copy the value on top of the stack beneath the prepared prefix. */
+    public void dupValue() {
+      boolean big = type.getSize() == 2;
+      switch (_prefixSize) {
+        case 0: _mv.visitInsn(big ? DUP2 : DUP); break;
+        case 1: _mv.visitInsn(big ? DUP2_X1 : DUP_X1); break;
+        default: _mv.visitInsn(big ? DUP2_X2 : DUP_X2); break;
+      }
+      _stack.adjust(type.getSize());
+    }
+  }
+
+  private class LocalLValue extends LValue {
+    public final int index;
+    public LocalLValue(Type t, int i) { super(t, 0); index = i; }
+    public void prepare() {}
+    public void load() { _mv.visitVarInsn(type.getOpcode(ILOAD), index); _stack.adjust(type.getSize()); }
+    public void store() { _mv.visitVarInsn(type.getOpcode(ISTORE), index); _stack.adjust(-type.getSize()); }
+  }
+
+  private class FieldLValue extends LValue {
+    private final String _name;
+    private final boolean _isStatic;
+    public FieldLValue(Type t, String name, boolean isStatic) {
+      super(t, isStatic ? 0 : 1);
+      _name = name;
+      _isStatic = isStatic;
+    }
+    public void prepare() {
+      if (!_isStatic) { _mv.visitVarInsn(ALOAD, 0); _stack.adjust(1); }
+    }
+    public void load() {
+      _mv.visitFieldInsn(_isStatic ? GETSTATIC : GETFIELD, _className, _name, type.getDescriptor());
+      _stack.adjust(type.getSize() - (_isStatic ? 0 : 1));
+    }
+    public void store() {
+      _mv.visitFieldInsn(_isStatic ? PUTSTATIC : PUTFIELD, _className, _name, type.getDescriptor());
+      _stack.adjust(-type.getSize() - (_isStatic ? 0 : 1));
+    }
+  }
+
+  private class ArrayLValue extends LValue {
+    private final Expression _array;
+    private final Expression _index;
+    public ArrayLValue(Type t, Expression array, Expression index) {
+      super(t, 2);
+      _array = array;
+      _index = index;
+    }
+    public void prepare() {
+      if (value(_array).getSort() != Type.ARRAY) { throw new UnsupportedException(); }
+      emitConvert(value(_index), Type.INT_TYPE);
+    }
+    public void load() {
+      _mv.visitInsn(type.getOpcode(IALOAD));
+      _stack.adjust(type.getSize() - 2);
+    }
+    public void store() {
+      _mv.visitInsn(type.getOpcode(IASTORE));
+      _stack.adjust(-type.getSize() - 2);
+    }
+  }
+
+  private LValue lvalue(Expression exp) {
+    if (hasTranslation(exp)) { return lvalue(getTranslation(exp)); }
+    else if (exp instanceof VariableAccess) {
+      LocalVariable var = getVariable(exp);
+      Integer index = _locals.get(var);
+      if (index == null) { throw new UnsupportedException(); } // defined in an enclosing scope
+      return new LocalLValue(asmType(var.type()), index);
+    }
+    else if (exp instanceof SimpleFieldAccess) {
+      boolean onThis = hasDJClass(exp) && getDJClass(exp).equals(_treeClass);
+      return fieldLValue(getField(exp), onThis);
+    }
+    else if (exp instanceof ObjectFieldAccess) {
+      Expression receiver = ((ObjectFieldAccess) exp).getExpression();
+      // the checker may wrap the receiver in an (unchecked) upcast
+      while (receiver instanceof CastExpression && !hasConvertedType(receiver) && !hasCheckedType(receiver)) {
+        receiver = ((CastExpression) receiver).getExpression();
+      }
+      boolean onThis = receiver instanceof ThisExpression && !hasTranslation(receiver) &&
+        hasDJClass(receiver) && getDJClass(receiver).equals(_treeClass);
+      if (!onThis) { throw new UnsupportedException(); }
+      return fieldLValue(getField(exp), true);
+    }
+    else if (exp instanceof ArrayAccess) {
+      ArrayAccess access = (ArrayAccess) exp;
+      return new ArrayLValue(asmType(getType(exp)), access.getExpression(), access.getCellNumber());
+    }
+    else { throw new UnsupportedException(); }
+  }
+
+  private LValue fieldLValue(DJField f, boolean onThis) {
+    if (!_treeClass.equals(f.declaringClass())) { throw new UnsupportedException(); }
+    if (!f.isStatic() && (!onThis || _isStatic)) { throw new UnsupportedException(); }
+    return new FieldLValue(asmType(f.type()), f.declaredName(), f.isStatic());
+  }
+
+
+  /* Helpers */
+
+  /**
+   * Map the erasure of the given type to its bytecode representation.
+   * @throws UnsupportedException  If the type is not a primitive, a primitive array, or void
+   */
+  private Type asmType(edu.rice.cs.dynamicjava.symbol.type.Type t) {
+    Type result = Type.getType(_compiler.typeDescriptor(t));
+    Type base = (result.getSort() == Type.ARRAY) ? result.getElementType() : result;
+    if (base.getSort() == Type.OBJECT) { throw new UnsupportedException(); }
+    return result;
+  }
+
+  /** The type of the given node, which must be a primitive. */
+  private Type primitiveType(Node node) {
+    Type result = asmType(getType(node));
+    if (result.getSort() == Type.ARRAY || result.getSort() == Type.VOID) { throw new UnsupportedException(); }
+    return result;
+  }
+
+  /** The result of unary numeric promotion: {@code byte}, {@code short}, and {@code char} become {@code int}. */
+  private static Type promotedType(Type t) {
+    switch (t.getSort()) {
+      case Type.BYTE: case Type.SHORT: case Type.CHAR: return Type.INT_TYPE;
+      default: return t;
+    }
+  }
+
+  /**
+   * Apply the operation to the value on the stack and a right operand of type {@code rightT}.
+   * Shift distances are converted to {@code int}; other operands to {@code t}.
+   */
+  private void emitOperation(Type rightT, Type t, int intOpcode) {
+    boolean isShift = intOpcode == ISHL || intOpcode == ISHR || intOpcode == IUSHR;
+    Type operandT = isShift ? Type.INT_TYPE : t;
+    emitConvert(rightT, operandT);
+    _mv.visitInsn(t.getOpcode(intOpcode));
+    _stack.adjust(-operandT.getSize());
+  }
+
+  /** Convert between primitive types (or check that two reference types match). */
+  private void emitConvert(Type from, Type to) {
+    if (from.equals(to)) { return; }
+    int fromSort = promotedType(from).getSort();
+    int toSort = to.getSort();
+    if (fromSort == Type.BOOLEAN || toSort == Type.BOOLEAN || fromSort == Type.ARRAY || toSort == Type.ARRAY ||
+        fromSort == Type.VOID || toSort == Type.VOID) {
+      throw new UnsupportedException();
+    }
+    int toIntSort = (toSort == Type.BYTE || toSort == Type.SHORT || toSort == Type.CHAR) ? Type.INT : toSort;
+    if (fromSort != toIntSort) {
+      switch (fromSort) {
+        case Type.INT: _mv.visitInsn(toIntSort == Type.LONG ? I2L : toIntSort == Type.FLOAT ? I2F : I2D); break;
+        case Type.LONG: _mv.visitInsn(toIntSort == Type.INT ? L2I : toIntSort == Type.FLOAT ? L2F : L2D); break;
+        case Type.FLOAT: _mv.visitInsn(toIntSort == Type.INT ? F2I : toIntSort == Type.LONG ? F2L : F2D); break;
+        case Type.DOUBLE: _mv.visitInsn(toIntSort == Type.INT ? D2I : toIntSort == Type.LONG ? D2L : D2F); break;
+        default: throw new UnsupportedException();
+      }
+      _stack.adjust(to.getSize() - from.getSize());
+    }
+    // narrowing to a small type; widening from a smaller type needs no instruction
+    if (toSort == Type.BYTE) { _mv.visitInsn(I2B); }
+    else if (toSort == Type.CHAR) { _mv.visitInsn(I2C); }
+    else if (toSort == Type.SHORT && from.getSort() != Type.BYTE) { _mv.visitInsn(I2S); }
+  }
+
+  /** @return  The type of the pushed value */
+  private Type emitConstant(Object val) {
+    if (val instanceof Boolean) { emitInt(((Boolean) val) ? 1 : 0); return Type.BOOLEAN_TYPE; }
+    else if (val instanceof Character) { emitInt((Character) val); return Type.CHAR_TYPE; }
+    else if (val instanceof Byte) { emitInt((Byte) val); return Type.BYTE_TYPE; }
+    else if (val instanceof Short) { emitInt((Short) val); return Type.SHORT_TYPE; }
+    else if (val instanceof Integer) { emitInt((Integer) val); return Type.INT_TYPE; }
+    else if (val instanceof Long) {
+      long l = (Long) val;
+      if (l == 0L || l == 1L) { _mv.visitInsn(l == 0L ? LCONST_0 : LCONST_1); }
+      else { _mv.visitLdcInsn(val); }
+      _stack.adjust(2);
+      return Type.LONG_TYPE;
+    }
+    else if (val instanceof Float) {
+      _mv.visitLdcInsn(val);
+      _stack.adjust(1);
+      return Type.FLOAT_TYPE;
+    }
+    else if (val instanceof Double) {
+      _mv.visitLdcInsn(val);
+      _stack.adjust(2);
+      return Type.DOUBLE_TYPE;
+    }
+    else { throw new UnsupportedException(); }
+  }
+
+  private void emitOne(Type t) {
+    switch (t.getSort()) {
+      case Type.LONG: _mv.visitInsn(LCONST_1); break;
+      case Type.FLOAT: _mv.visitInsn(FCONST_1); break;
+      case Type.DOUBLE: _mv.visitInsn(DCONST_1); break;
+      default: _mv.visitInsn(ICONST_1); break;
+    }
+    _stack.adjust(t.getSize());
+  }
+
+  private void emitInt(int val) {
+    if (val >= -1 && val <= 5) { _mv.visitInsn(ICONST_0 + val); }
+    else if (val >= Byte.MIN_VALUE && val <= Byte.MAX_VALUE) { _mv.visitIntInsn(BIPUSH, val); }
+    else if (val >= Short.MIN_VALUE && val <= Short.MAX_VALUE) { _mv.visitIntInsn(SIPUSH, val); }
+    else { _mv.visitLdcInsn(val); }
+    _stack.adjust(1);
+  }
+
+  /** Push the initial value of a variable of the given type. */
+  private void emitDefault(Type t) {
+    switch (t.getSort()) {
+      case Type.LONG: _mv.visitInsn(LCONST_0); break;
+      case Type.FLOAT: _mv.visitInsn(FCONST_0); break;
+      case Type.DOUBLE: _mv.visitInsn(DCONST_0); break;
+      case Type.ARRAY: _mv.visitInsn(ACONST_NULL); break;
+      default: _mv.visitInsn(ICONST_0); break;
+    }
+    _stack.adjust(t.getSize());
+  }
+
+  private void emitPop(Type t) {
+    if (t.getSize() == 2) { _mv.visitInsn(POP2); }
+    else if (t.getSize() == 1) { _mv.visitInsn(POP); }
+    _stack.adjust(-t.getSize());
+  }
+
+  /** Create an array with the given element type and the length on top of the stack. */
+  private void emitNewArray(Type elementT) {
+    switch (elementT.getSort()) {
+      case Type.BOOLEAN: _mv.visitIntInsn(NEWARRAY, T_BOOLEAN); break;
+      case Type.CHAR: _mv.visitIntInsn(NEWARRAY, T_CHAR); break;
+      case Type.BYTE: _mv.visitIntInsn(NEWARRAY, T_BYTE); break;
+      case Type.SHORT: _mv.visitIntInsn(NEWARRAY, T_SHORT); break;
+      case Type.INT: _mv.visitIntInsn(NEWARRAY, T_INT); break;
+      case Type.LONG: _mv.visitIntInsn(NEWARRAY, T_LONG); break;
+      case Type.FLOAT: _mv.visitIntInsn(NEWARRAY, T_FLOAT); break;
+      case Type.DOUBLE: _mv.visitIntInsn(NEWARRAY, T_DOUBLE); break;
+      default: _mv.visitTypeInsn(ANEWARRAY, elementT.getInternalName()); break;
+    }
+  }
+
+  /** Signals that the method body uses a construct that this compiler does not handle. */
+  private static class UnsupportedException extends RuntimeException {
+    public UnsupportedException() { super(); }
+  }
+
+}
@@ -0,0 +1,337 @@
+package edu.rice.cs.dynamicjava.interpreter;
+
+import edu.rice.cs.plt.lambda.WrappedException;
+
+import edu.rice.cs.dynamicjava.symbol.type.*;
+
+import koala.dynamicjava.tree.*;
+
+import static koala.dynamicjava.interpreter.NodeProperties.*;
+
+/**
+ * Evaluates expressions tagged by the checker with a PRIMITIVE_TYPE (int, long, or double) using unboxed
+ * arithmetic.  {@link ExpressionEvaluator} represents every intermediate value as an object; here, the
+ * operands of tagged expressions -- constants, local variables, elements of primitive arrays, conversions
+ * between int, long, and double, and nested tagged expressions -- are computed as primitives, and only the
+ * final result (and any value stored in a variable or array) is boxed.  Any other operand is evaluated by
+ * the ExpressionEvaluator and unboxed.
+ */
+public class PrimitiveEvaluator {
+
+  private final ExpressionEvaluator _evaluator;
+  private final RuntimeBindings _bindings;
+
+  public PrimitiveEvaluator(ExpressionEvaluator evaluator, RuntimeBindings bindings) {
+    _evaluator = evaluator;
+    _bindings = bindings;
+  }
+
+  /**
+   * Evaluate an expression that has a PRIMITIVE_TYPE, producing the same (boxed) result as would
+   * {@code node.acceptVisitor(evaluator)}.  The caller is responsible for any conversion of the result.
+   */
+  public Object value(Expression node) {
+    Class<?> t = getPrimitiveType(node);
+    if (node instanceof AssignExpression) { return assign((AssignExpression) node, t); }
+    else if (node instanceof PostIncrement || node instanceof PreIncrement ||
+             node instanceof PostDecrement || node instanceof PreDecrement) {
+      return increment((UnaryExpression) node, t);
+    }
+    else if (isComparison(node)) { return compare((BinaryExpression) node, t); }
+    else if (t == int.class) { return intRaw(node); }
+    else if (t == long.class) { return longRaw(node); }
+    else { return doubleRaw(node); }
+  }
+
+
+  /** The value of {@code e}, which has type int after any conversion. */
+  private int intValue(Expression e) {
+    if (hasConvertedType(e)) { return ((Number) _evaluator.value(e)).intValue(); }
+    else { return intRaw(e); }
+  }
+
+  /** The value of {@code e}, which has type long after any conversion. */
+  private long longValue(Expression e) {
+    if (hasConvertedType(e)) {
+      if (rawType(e) == int.class) { return intRaw(e); }
+      else { return ((Number) _evaluator.value(e)).longValue(); }
+    }
+    else { return longRaw(e); }
+  }
+
+  /** The value of {@code e}, which has type double after any conversion. */
+  private double doubleValue(Expression e) {
+    if (hasConvertedType(e)) {
+      Class<?> raw = rawType(e);
+      if (raw == int.class) { return intRaw(e); }
+      else if (raw == long.class) { return longRaw(e); }
+      else { return ((Number) _evaluator.value(e)).doubleValue(); }
+    }
+    else { return doubleRaw(e); }
+  }
+
+  /**
+   * The type of {@code e}'s value before its own conversion, if that type is int, long, or double and
+   * can be determined cheaply; otherwise, {@code null}.
+   */
+  private Class<?> rawType(Expression e) {
+    if (hasValue(e)) { return null; }
+    else if (hasTranslation(e)) { return finalType(getTranslation(e)); }
+    else if (e instanceof CastExpression) { return finalType(((CastExpression) e).getExpression()); }
+    else if (hasPrimitiveType(e) && !isComparison(e)) { return getPrimitiveType(e); }
+    else if (e instanceof VariableAccess || e instanceof ArrayAccess) {
+      Type t = getType(e);
+      if (t instanceof IntType) { return int.class; }
+      else if (t instanceof LongType) { return long.class; }
+      else if (t instanceof DoubleType) { return double.class; }
+      else { return null; }
+    }
+    else { return null; }
+  }
+
+  /** The type of {@code e}'s value after any conversion, as in {@link #rawType}. */
+  private Class<?> finalType(Expression e) {
+    if (hasConvertedType(e)) { return getConvertedType(e).value(); }
+    else { return rawType(e); }
+  }
+
+  /** The value of {@code e}, which has type int, ignoring any conversion of {@code e} itself. */
+  private int intRaw(Expression e) {
+    if (hasValue(e)) { return (Integer) getValue(e); }
+    else if (hasTranslation(e)) { return intValue(getTranslation(e)); }
+    else if (e instanceof VariableAccess) { return (Integer) read((VariableAccess) e); }
+    else if (e instanceof CastExpression) { return intValue(((CastExpression) e).getExpression()); }
+    else if (e instanceof ArrayAccess) {
+      Object array = _evaluator.value(((ArrayAccess) e).getExpression());
+      if (array == null || array instanceof int[]) {
+        int index = intValue(((ArrayAccess) e).getCellNumber());
+        try { return ((int[]) array)[index]; }
+        catch (NullPointerException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+        catch (ArrayIndexOutOfBoundsException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+      }
+    }
+    else if (hasPrimitiveType(e) && e instanceof BinaryExpression) {
+      BinaryExpression b = (BinaryExpression) e;
+      if (e instanceof AddExpression) { return intValue(b.getLeftExpression()) + intValue(b.getRightExpression()); }
+      else if (e instanceof SubtractExpression) {
+        return intValue(b.getLeftExpression()) - intValue(b.getRightExpression());
+      }
+      else if (e instanceof MultiplyExpression) {
+        return intValue(b.getLeftExpression()) * intValue(b.getRightExpression());
+      }
+      else if (e instanceof DivideExpression || e instanceof RemainderExpression) {
+        int left = intValue(b.getLeftExpression());
+        int right = intValue(b.getRightExpression());
+        try { return (e instanceof DivideExpression) ? left / right : left % right; }
+        catch (ArithmeticException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+      }
+    }
+    return (Integer) (hasPrimitiveType(e) ? value(e) : e.acceptVisitor(_evaluator));
+  }
+
+  /** The value of {@code e}, which has type long, ignoring any conversion of {@code e} itself. */
+  private long longRaw(Expression e) {
+    if (hasValue(e)) { return (Long) getValue(e); }
+    else if (hasTranslation(e)) { return longValue(getTranslation(e)); }
+    else if (e instanceof VariableAccess) { return (Long) read((VariableAccess) e); }
+    else if (e instanceof CastExpression) { return longValue(((CastExpression) e).getExpression()); }
+    else if (e instanceof ArrayAccess) {
+      Object array = _evaluator.value(((ArrayAccess) e).getExpression());
+      if (array == null || array instanceof long[]) {
+        int index = intValue(((ArrayAccess) e).getCellNumber());
+        try { return ((long[]) array)[index]; }
+        catch (NullPointerException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+        catch (ArrayIndexOutOfBoundsException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+      }
+    }
+    else if (hasPrimitiveType(e) && e instanceof BinaryExpression) {
+      BinaryExpression b = (BinaryExpression) e;
+      if (e instanceof AddExpression) { return longValue(b.getLeftExpression()) + longValue(b.getRightExpression()); }
+      else if (e instanceof SubtractExpression) {
+        return longValue(b.getLeftExpression()) - longValue(b.getRightExpression());
+      }
+      else if (e instanceof MultiplyExpression) {
+        return longValue(b.getLeftExpression()) * longValue(b.getRightExpression());
+      }
+      else if (e instanceof DivideExpression || e instanceof RemainderExpression) {
+        long left = longValue(b.getLeftExpression());
+        long right = longValue(b.getRightExpression());
+        try { return (e instanceof DivideExpression) ? left / right : left % right; }
+        catch (ArithmeticException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+      }
+    }
+    return (Long) (hasPrimitiveType(e) ? value(e) : e.acceptVisitor(_evaluator));
+  }
+
+  /** The value of {@code e}, which has type double, ignoring any conversion of {@code e} itself. */
+  private double doubleRaw(Expression e) {
+    if (hasValue(e)) { return (Double) getValue(e); }
+    else if (hasTranslation(e)) { return doubleValue(getTranslation(e)); }
+    else if (e instanceof VariableAccess) { return (Double) read((VariableAccess) e); }
+    else if (e instanceof CastExpression) { return doubleValue(((CastExpression) e).getExpression()); }
+    else if (e instanceof ArrayAccess) {
+      Object array = _evaluator.value(((ArrayAccess) e).getExpression());
+      if (array == null || array instanceof double[]) {
+        int index = intValue(((ArrayAccess) e).getCellNumber());
+        try { return ((double[]) array)[index]; }
+        catch (NullPointerException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+        catch (ArrayIndexOutOfBoundsException ex) { throw new WrappedException(new EvaluatorException(ex)); }
+      }
+    }
+    else if (hasPrimitiveType(e) && e instanceof BinaryExpression) {
+      BinaryExpression b = (BinaryExpression) e;
+      double left = doubleValue(b.getLeftExpression());
+      double right = doubleValue(b.getRightExpression());
+      if (e instanceof AddExpression) { return left + right; }
+      else if (e instanceof SubtractExpression) { return left - right; }
+      else if (e instanceof MultiplyExpression) { return left * right; }
+      else if (e instanceof DivideExpression) { return left / right; }
+      else if (e instanceof RemainderExpression) { return left % right; }
+    }
+    return (Double) (hasPrimitiveType(e) ? value(e) : e.acceptVisitor(_evaluator));
+  }
+
+
+  private static boolean isComparison(Node node) {
+    return node instanceof LessExpression || node instanceof LessOrEqualExpression ||
+           node instanceof GreaterExpression || node instanceof GreaterOrEqualExpression ||
+           node instanceof EqualExpression || node instanceof NotEqualExpression;
+  }
+
+  /** Evaluate a comparison whose operands have type {@code t}. */
+  private Object compare(BinaryExpression node, Class<?> t) {
+    int cmp; // the sign of left - right, or 2 if the operands are unordered (NaN)
+    if (t == int.class) {
+      int left = intValue(node.getLeftExpression());
+      int right = intValue(node.getRightExpression());
+      cmp = (left < right) ? -1 : ((left == right) ? 0 : 1);
+    }
+    else if (t == long.class) {
+      long left = longValue(node.getLeftExpression());
+      long right = longValue(node.getRightExpression());
+      cmp = (left < right) ? -1 : ((left == right) ? 0 : 1);
+    }
+    else {
+      double left = doubleValue(node.getLeftExpression());
+      double right = doubleValue(node.getRightExpression());
+      cmp = (left < right) ? -1 : ((left == right) ? 0 : ((left > right) ? 1 : 2));
+    }
+    boolean result;
+    if (node instanceof LessExpression) { result = cmp == -1; }
+    else if (node instanceof LessOrEqualExpression) { result = cmp == -1 || cmp == 0; }
+    else if (node instanceof GreaterExpression) { result = cmp == 1; }
+    else if (node instanceof GreaterOrEqualExpression) { result = cmp == 1 || cmp == 0; }
+    else if (node instanceof EqualExpression) { result = cmp == 0; }
+    else { result = cmp != 0; }
+    return result;
+  }
+
+
+  /**
+   * Evaluate a numeric operator-assignment in which the variable has type {@code t}.  Unlike
+   * {@link ExpressionEvaluator}, the array and index of an array element are evaluated only once.
+   */
+  private Object assign(AssignExpression node, Class<?> t) {
+    Expression lhs = translate(node.getLeftExpression());
+    Expression left = getLeftExpression(node);
+    Expression right = node.getRightExpression();
+    if (lhs instanceof VariableAccess && left == node.getLeftExpression()) {
+      Object result;
+      if (t == int.class) { result = combine(node, intValue(left), intValue(right)); }
+      else if (t == long.class) { result = combine(node, longValue(left), longValue(right)); }
+      else { result = combine(node, doubleValue(left), doubleValue(right)); }
+      write((VariableAccess) lhs, result);
+      return result;
+    }
+    else if (lhs instanceof ArrayAccess && left == node.getLeftExpression()) {
+      Object array = _evaluator.value(((ArrayAccess) lhs).getExpression());
+      int index = intValue(((ArrayAccess) lhs).getCellNumber());
+      try {
+        if (t == int.class && (array == null || array instanceof int[])) {
+          int[] a = (int[]) array;
+          int result = (Integer) combine(node, a[index], intValue(right));
+          a[index] = result;
+          return result;
+        }
+        else if (t == long.class && (array == null || array instanceof long[])) {
+          long[] a = (long[]) array;
+          long result = (Long) combine(node, a[index], longValue(right));
+          a[index] = result;
+          return result;
+        }
+        else if (t == double.class && (array == null || array instanceof double[])) {
+          double[] a = (double[]) array;
+          double result = (Double) combine(node, a[index], doubleValue(right));
+          a[index] = result;
+          return result;
+        }
+      }
+      catch (NullPointerException e) { throw new WrappedException(new EvaluatorException(e)); }
+      catch (ArrayIndexOutOfBoundsException e) { throw new WrappedException(new EvaluatorException(e)); }
+    }
+    return node.acceptVisitor(_evaluator);
+  }
+
+  private Object combine(AssignExpression node, int left, int right) {
+    if (node instanceof AddAssignExpression) { return left + right; }
+    else if (node instanceof SubtractAssignExpression) { return left - right; }
+    else if (node instanceof MultiplyAssignExpression) { return left * right; }
+    else {
+      try { return (node instanceof DivideAssignExpression) ? left / right : left % right; }
+      catch (ArithmeticException e) { throw new WrappedException(new EvaluatorException(e)); }
+    }
+  }
+
+  private Object combine(AssignExpression node, long left, long right) {
+    if (node instanceof AddAssignExpression) { return left + right; }
+    else if (node instanceof SubtractAssignExpression) { return left - right; }
+    else if (node instanceof MultiplyAssignExpression) { return left * right; }
+    else {
+      try { return (node instanceof DivideAssignExpression) ? left / right : left % right; }
+      catch (ArithmeticException e) { throw new WrappedException(new EvaluatorException(e)); }
+    }
+  }
+
+  private Object combine(AssignExpression node, double left, double right) {
+    if (node instanceof AddAssignExpression) { return left + right; }
+    else if (node instanceof SubtractAssignExpression) { return left - right; }
+    else if (node instanceof MultiplyAssignExpression) { return left * right; }
+    else if (node instanceof DivideAssignExpression) { return left / right; }
+    else { return left % right; }
+  }
+
+  /** Evaluate an increment or decrement of a variable of type {@code t}. */
+  private Object increment(UnaryExpression node, Class<?> t) {
+    Expression lhs = translate(node.getExpression());
+    if (lhs instanceof VariableAccess && getLeftExpression(node) == node.getExpression()) {
+      VariableAccess var = (VariableAccess) lhs;
+      Object old = read(var);
+      int delta = (node instanceof PostIncrement || node instanceof PreIncrement) ? 1 : -1;
+      Object result;
+      if (t == int.class) { result = (Integer) old + delta; }
+      else if (t == long.class) { result = (Long) old + delta; }
+      else { result = (Double) old + delta; }
+      write(var, result);
+      return (node instanceof PostIncrement || node instanceof PostDecrement) ? old : result;
+    }
+    else { return node.acceptVisitor(_evaluator); }
+  }
+
+
+  /** Follow the TRANSLATION of an ambiguous name, if any. */
+  private static Expression translate(Expression e) {
+    while (hasTranslation(e)) { e = getTranslation(e); }
+    return e;
+  }
+
+  private Object read(VariableAccess var) {
+    if (hasVariableSlot(var)) { return _bindings.get(getVariableSlot(var)); }
+    else { return _bindings.get(getVariable(var)); }
+  }
+
+  private void write(VariableAccess var, Object val) {
+    if (hasVariableSlot(var)) { _bindings.set(getVariableSlot(var), val); }
+    else { _bindings.set(getVariable(var), val); }
+  }
+
+}
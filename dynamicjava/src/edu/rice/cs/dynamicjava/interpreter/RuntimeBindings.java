@@ -3,7 +3,6 @@ package edu.rice.cs.dynamicjava.interpreter;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
-import edu.rice.cs.plt.tuple.Pair;
 import edu.rice.cs.plt.iter.IterUtil;
 
 import edu.rice.cs.dynamicjava.symbol.*;
@@ -16,60 +15,116 @@ import edu.rice.cs.dynamicjava.symbol.type.VariableType;
   * the calling context.  Without this flexibility, it would have to be determined at what point
   * (if any) in the calling context's chain of environments the function declaration and the calling
   * context share a common lexical scope.
+  * 
+  * <p>Each instance is a frame holding a small array of variables; frames are never copied.  Where the
+  * type checker has been able to determine a variable's position in the chain of frames (a {@link Slot}),
+  * lookups go directly to that position.  Otherwise (or if the frames at run time don't match the
+  * checker's expectations), the chain is searched by variable identity.</p>
   */
 public class RuntimeBindings {
   
+  private static final LocalVariable[] NO_VARS = new LocalVariable[0];
+  private static final Object[] NO_VALS = new Object[0];
+  
   public static final RuntimeBindings EMPTY = new RuntimeBindings();
   
   private final RuntimeBindings _parent;
-  private final Map<LocalVariable, Object> _vars;
+  private final LocalVariable[] _vars;
+  private final Object[] _vals;
   private final Map<VariableType, Type> _tvars; // might be useful someday...
   private final Map<DJClass, Object> _thisVals;
   
   public RuntimeBindings(RuntimeBindings parent, Map<LocalVariable, Object> vars,
                          Map<VariableType, Type> tvars, Map<DJClass, Object> thisVals) {
     _parent = parent;
-    _vars = new HashMap<LocalVariable, Object>(vars);
-    _tvars = new HashMap<VariableType, Type>(tvars);
-    _thisVals = new HashMap<DJClass, Object>(thisVals);
+    _vars = new LocalVariable[vars.size()];
+    _vals = new Object[vars.size()];
+    int i = 0;
+    for (Map.Entry<LocalVariable, Object> e : vars.entrySet()) {
+      _vars[i] = e.getKey();
+      _vals[i] = e.getValue();
+      i++;
+    }
+    _tvars = tvars.isEmpty() ? Collections.<VariableType, Type>emptyMap() : new HashMap<VariableType, Type>(tvars);
+    _thisVals = thisVals.isEmpty() ? Collections.<DJClass, Object>emptyMap() : new HashMap<DJClass, Object>(thisVals);
+  }
+  
+  /**
+   * Create a frame binding {@code vars} to {@code vals}.  The arrays are used directly (not copied) and
+   * must have the same length.
+   */
+  public RuntimeBindings(RuntimeBindings parent, LocalVariable[] vars, Object[] vals) {
+    if (vars.length != vals.length) { throw new IllegalArgumentException("Mismatched variables and values"); }
+    _parent = parent;
+    _vars = vars;
+    _vals = vals;
+    _tvars = Collections.emptyMap();
+    _thisVals = Collections.emptyMap();
   }
   
   private RuntimeBindings() {
-    this(null, Collections.<LocalVariable, Object>emptyMap(),
-         Collections.<VariableType, Type>emptyMap(), Collections.<DJClass, Object>emptyMap());
+    this(null, NO_VARS, NO_VALS);
   }
   
   public RuntimeBindings(RuntimeBindings parent, LocalVariable var, Object val) {
-    this(parent, Collections.singletonMap(var, val), Collections.<VariableType, Type>emptyMap(),
-         Collections.<DJClass, Object>emptyMap());
+    this(parent, new LocalVariable[]{ var }, new Object[]{ val });
   }
   
   public RuntimeBindings(RuntimeBindings parent, Iterable<LocalVariable> vars, Iterable<Object> vals) {
-    this(parent, makeMap(vars, vals), Collections.<VariableType, Type>emptyMap(),
-         Collections.<DJClass, Object>emptyMap());
-  }
-  
-  private static <K, V> Map<K, V> makeMap(Iterable<? extends K> keys, Iterable<? extends V> vals) {
-    Map<K, V> result = new HashMap<K, V>();
-    for (Pair<K, V> entry : IterUtil.zip(keys, vals)) { result.put(entry.first(), entry.second()); }
-    return result;
+    this(parent, IterUtil.toArray(vars, LocalVariable.class), IterUtil.toArray(vals, Object.class));
   }
   
   public RuntimeBindings(RuntimeBindings parent, DJClass thisClass, Object thisObj) {
-      this(parent, Collections.<LocalVariable, Object>emptyMap(),
-           Collections.<VariableType, Type>emptyMap(), Collections.singletonMap(thisClass, thisObj));
+    _parent = parent;
+    _vars = NO_VARS;
+    _vals = NO_VALS;
+    _tvars = Collections.emptyMap();
+    _thisVals = Collections.singletonMap(thisClass, thisObj);
   }
   
   public Object get(LocalVariable v) {
-    if (_vars.containsKey(v)) { return _vars.get(v); }
-    else if (_parent != null) { return _parent.get(v); }
-    else { throw new IllegalArgumentException("Variable " + v + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      int i = b.indexOf(v);
+      if (i >= 0) { return b._vals[i]; }
+    }
+    throw new IllegalArgumentException("Variable " + v + " is undefined");
   }
   
   public void set(LocalVariable v, Object val) {
-    if (_vars.containsKey(v)) { _vars.put(v, val); }
-    else if (_parent != null) { _parent.set(v, val); }
-    else { throw new IllegalArgumentException("Variable " + v + " is undefined"); }
+    for (RuntimeBindings b = this; b != null; b = b._parent) {
+      int i = b.indexOf(v);
+      if (i >= 0) { b._vals[i] = val; return; }
+    }
+    throw new IllegalArgumentException("Variable " + v + " is undefined");
+  }
+  
+  /** Get the value of the variable at the given slot, falling back to {@link #get(LocalVariable)}. */
+  public Object get(Slot s) {
+    RuntimeBindings b = frame(s);
+    return (b == null) ? get(s.variable()) : b._vals[s.index()];
+  }
+  
+  /** Set the value of the variable at the given slot, falling back to {@link #set(LocalVariable, Object)}. */
+  public void set(Slot s, Object val) {
+    RuntimeBindings b = frame(s);
+    if (b == null) { set(s.variable(), val); }
+    else { b._vals[s.index()] = val; }
+  }
+  
+  /** The frame in which {@code s} is bound, or {@code null} if it does not match this chain of frames. */
+  private RuntimeBindings frame(Slot s) {
+    if (s.depth() < 0) { return null; }
+    RuntimeBindings b = this;
+    for (int d = s.depth(); d > 0 && b != null; d--) { b = b._parent; }
+    if (b != null && s.index() < b._vars.length && b._vars[s.index()] == s.variable()) { return b; }
+    else { return null; }
+  }
+  
+  private int indexOf(LocalVariable v) {
+    for (int i = 0; i < _vars.length; i++) {
+      if (_vars[i] == v) { return i; }
+    }
+    return -1;
   }
 
   public Type get(VariableType v) {
@@ -83,5 +138,31 @@ public class RuntimeBindings {
     else if (_parent != null) { return _parent.getThis(c); }
     else { throw new IllegalArgumentException("This value " + c + " is undefined"); }
   }
+  
+  
+  /**
+   * The statically-determined location of a local variable: {@code depth} frames up the chain from the
+   * point of reference, at position {@code index} of that frame.  A negative depth indicates that the
+   * location is unknown.  See {@link TypeContext#localVariableSlot}.
+   */
+  public static final class Slot {
+    private final LocalVariable _var;
+    private final int _depth;
+    private final int _index;
+    
+    public Slot(LocalVariable var, int depth, int index) { _var = var; _depth = depth; _index = index; }
+    
+    /** A slot whose location is unknown. */
+    public Slot(LocalVariable var) { this(var, -1, -1); }
+    
+    public LocalVariable variable() { return _var; }
+    public int depth() { return _depth; }
+    public int index() { return _index; }
+    
+    /** The same location, as seen from a frame nested one level deeper. */
+    public Slot outer() { return (_depth < 0) ? this : new Slot(_var, _depth + 1, _index); }
+    
+    public String toString() { return "Slot(" + _var.declaredName() + ": " + _depth + ", " + _index + ")"; }
+  }
 
 }
@@ -81,14 +81,12 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
   @Override public Result visit(MethodDeclaration node) { return new Result(_bindings); }
 
   @Override public Result visit(VariableDeclaration node) {
-    // even when an initializer is present, there may be a reference to the uninitialized
-    // variable in the initializer
-    Object init = SymbolUtil.initialValue(getErasedType(node).value());
-    RuntimeBindings newB = new RuntimeBindings(_bindings, getVariable(node), init);
-    if (node.getInitializer() != null) {
-      newB.set(getVariable(node), new ExpressionEvaluator(newB, _opt).value(node.getInitializer()));
-    }
-    return new Result(newB);
+    // the initializer is checked in the enclosing context (the variable is not in scope), so
+    // it is evaluated in the enclosing bindings; variable slots depend on this
+    Object init;
+    if (node.getInitializer() == null) { init = SymbolUtil.initialValue(getErasedType(node).value()); }
+    else { init = new ExpressionEvaluator(_bindings, _opt).value(node.getInitializer()); }
+    return new Result(new RuntimeBindings(_bindings, getVariable(node), init));
   }
   
   
@@ -132,8 +130,7 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
     // expression (that was done in a previous implementation), but it is 
     // easier to just evaluate this directly
     LocalVariable param = getVariable(node.getParameter());
-    RuntimeBindings newB = new RuntimeBindings(_bindings, param, null);
-    final Object iterable = new ExpressionEvaluator(newB, _opt).value(node.getCollection());
+    final Object iterable = new ExpressionEvaluator(_bindings, _opt).value(node.getCollection());
     if (iterable == null) { throw new WrappedException(new EvaluatorException(new NullPointerException())); }
     Iterator<?> iter;
     if (iterable.getClass().isArray()) {
@@ -159,6 +156,7 @@ public class StatementEvaluator extends AbstractVisitor<StatementEvaluator.Resul
       catch (InvocationTargetException e) { throw new WrappedException(new EvaluatorException(e.getCause())); }
     }
     
+    RuntimeBindings newB = new RuntimeBindings(_bindings, param, null);
     StatementEvaluator seval = new StatementEvaluator(newB, _opt);
     try {
       while (true) {
@@ -30,18 +30,32 @@ public class TopLevelTest {
     "java5/ExplicitGenericMethods.jlbench"
   };
   
+  /** Options for re-running all benchmarks with method bodies compiled to bytecode where possible. */
+  private static final Options COMPILED_OPTIONS = new Options() {
+    @Override public boolean compileMethodBodies() { return true; }
+  };
+  
+  /** Options for re-running the Java 5 benchmarks without memoized type system results. */
+  private static final Options UNCACHED_OPTIONS = new Options() {
+    @Override public boolean cacheTypeQueries() { return false; }
+  };
+  
   public static Test suite() throws IOException {
     Iterable<String> excludes = IterUtil.asIterable(notYetSupported);
     ZipFile jlbenchJar = new ZipFile("lib/buildlib/jlbench-base.jar");
     LinkedList<Iterable<Benchmark>> benchmarks = new LinkedList<Iterable<Benchmark>>();
     benchmarks.add(JLBench.benchmarksForZipEntries(jlbenchJar, "edu/rice/cs/jlbench/benchmarks/java/", excludes));
-    benchmarks.add(JLBench.benchmarksForZipEntries(jlbenchJar, "edu/rice/cs/jlbench/benchmarks/java5/", excludes));
+    Iterable<Benchmark> java5 = IterUtil.snapshot(
+      JLBench.benchmarksForZipEntries(jlbenchJar, "edu/rice/cs/jlbench/benchmarks/java5/", excludes));
+    benchmarks.add(java5);
     benchmarks.add(JLBench.benchmarksForFiles(new File("testFiles/jlbench/"), excludes));
     
     TestSuite result = new TestSuite();
     for (Benchmark b : IterUtil.collapse(benchmarks)) {
       result.addTest(new JLBenchTestWrapper(b, Options.DEFAULT));
+      result.addTest(new JLBenchTestWrapper(b, COMPILED_OPTIONS));
     }
+    for (Benchmark b : java5) { result.addTest(new JLBenchTestWrapper(b, UNCACHED_OPTIONS)); }
     return result;
   }
   
@@ -72,7 +86,11 @@ public class TopLevelTest {
       finally { result.endTest(this); }
     }
     
-    public String toString() { return "<" + _b.name() + ">"; }
+    public String toString() {
+      if (_opt == COMPILED_OPTIONS) { return "<" + _b.name() + " (compiled)>"; }
+      else if (_opt == UNCACHED_OPTIONS) { return "<" + _b.name() + " (uncached)>"; }
+      else { return "<" + _b.name() + ">"; }
+    }
     
     private void turnOffLogging(TestResult result) {
       try {
@@ -67,6 +67,8 @@ import static koala.dynamicjava.tree.ModifierSet.Modifier.*;
  * 
  * }
  * </pre>
+ * If {@link Options#compileMethodBodies} is set, a method whose body falls within the subset supported by
+ * {@link MethodBodyCompiler} is instead compiled directly to bytecode, and does not call the adapter.
  */
 public class TreeCompiler {
   
@@ -630,40 +632,47 @@ public class TreeCompiler {
       String key = ast.getName() + methodDescriptor;
       _methods.put(key, ast);
       
-      int[] paramLocations = computeParamLocations(params, 1);
-      StackSizeTracker stack = new StackSizeTracker(paramLocations[params.size()]);
       mv.visitCode();
-      
-      int boxedParamsVar = emitBoxParams(mv, params, paramLocations, stack);
-      
-      mv.visitFieldInsn(GETSTATIC, _name, ADAPTER_FIELD, EVALUATION_ADAPTER_DESCRIPTOR);
-      mv.visitLdcInsn(key);
-      stack.adjust(2);
-      if (isStatic) { mv.visitVarInsn(ALOAD, 0); stack.adjust(1); }
-      else { emitLoadBindings(mv, 0, _name, stack); }
-      mv.visitVarInsn(ALOAD, boxedParamsVar);
-      stack.adjust(1);
-      mv.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_ADAPTER_NAME, "evaluateMethod",
-                         EVALUATE_METHOD_DESCRIPTOR);
-      stack.adjust(-3);
-      
-      stack.mark();
-      emitConvert(mv, returnT, stack);
-      _opt.typeSystem().erase(returnT).apply(new TypeAbstractVisitor_void() {
-        @Override public void forReferenceType(ReferenceType t) { mv.visitInsn(ARETURN); }
-        @Override public void forPrimitiveType(PrimitiveType t) { mv.visitInsn(IRETURN); }
-        @Override public void forLongType(LongType t) { mv.visitInsn(LRETURN); }
-        @Override public void forFloatType(FloatType t) { mv.visitInsn(FRETURN); }
-        @Override public void forDoubleType(DoubleType t) { mv.visitInsn(DRETURN); }
-        @Override public void forVoidType(VoidType t) { mv.visitInsn(RETURN); }
-      });
-      stack.reset();
-      
-      mv.visitMaxs(stack.maxStack(), stack.maxLocals());
+      boolean compiled = !isInterface && _opt.compileMethodBodies() &&
+                         new MethodBodyCompiler(this, _treeClass, ast, isStatic).compile(mv);
+      if (!compiled) { compileMethodStub(mv, key, params, returnT, isStatic); }
     }
     mv.visitEnd();
   }
   
+  /** Emit a method body that forwards its arguments to the interpreter. */
+  private void compileMethodStub(final MethodVisitor mv, String key, List<FormalParameter> params,
+                                 Type returnT, boolean isStatic) {
+    int[] paramLocations = computeParamLocations(params, 1);
+    StackSizeTracker stack = new StackSizeTracker(paramLocations[params.size()]);
+    int boxedParamsVar = emitBoxParams(mv, params, paramLocations, stack);
+    
+    mv.visitFieldInsn(GETSTATIC, _name, ADAPTER_FIELD, EVALUATION_ADAPTER_DESCRIPTOR);
+    mv.visitLdcInsn(key);
+    stack.adjust(2);
+    if (isStatic) { mv.visitVarInsn(ALOAD, 0); stack.adjust(1); }
+    else { emitLoadBindings(mv, 0, _name, stack); }
+    mv.visitVarInsn(ALOAD, boxedParamsVar);
+    stack.adjust(1);
+    mv.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_ADAPTER_NAME, "evaluateMethod",
+                       EVALUATE_METHOD_DESCRIPTOR);
+    stack.adjust(-3);
+    
+    stack.mark();
+    emitConvert(mv, returnT, stack);
+    _opt.typeSystem().erase(returnT).apply(new TypeAbstractVisitor_void() {
+      @Override public void forReferenceType(ReferenceType t) { mv.visitInsn(ARETURN); }
+      @Override public void forPrimitiveType(PrimitiveType t) { mv.visitInsn(IRETURN); }
+      @Override public void forLongType(LongType t) { mv.visitInsn(LRETURN); }
+      @Override public void forFloatType(FloatType t) { mv.visitInsn(FRETURN); }
+      @Override public void forDoubleType(DoubleType t) { mv.visitInsn(DRETURN); }
+      @Override public void forVoidType(VoidType t) { mv.visitInsn(RETURN); }
+    });
+    stack.reset();
+    
+    mv.visitMaxs(stack.maxStack(), stack.maxLocals());
+  }
+  
   private void compileField(final FieldDeclaration ast, boolean isInterface) {
     int access = isInterface ? ast.getModifiers().getBitVector(STATIC, FINAL) : ast.getModifiers().getBitVector();
     if (isInterface) { access = defaultToPublicAccess(access); }
@@ -820,8 +829,7 @@ public class TreeCompiler {
   }
   
   /** Invoke "var.$bindingsFactory.value(var)", for some local variable with the given class name. */
-  private void emitLoadBindings(MethodVisitor mv, int thisVar, String thisClassName,
-                                StackSizeTracker stack) {
+  void emitLoadBindings(MethodVisitor mv, int thisVar, String thisClassName, StackSizeTracker stack) {
     mv.visitVarInsn(ALOAD, thisVar);
     stack.adjust(1);
     mv.visitFieldInsn(GETFIELD, thisClassName, BINDINGS_FACTORY_FIELD, BINDINGS_FACTORY_DESCRIPTOR);
@@ -1008,9 +1016,15 @@ public class TreeCompiler {
   private static String typeSignature(Type t) { return encodeType(t); }
   
   /** Nonstatic because it depends on field _opt. */
-  private String typeDescriptor(Type t) { return encodeType(_opt.typeSystem().erase(t)); }
+  String typeDescriptor(Type t) { return encodeType(_opt.typeSystem().erase(t)); }
+
+  /** The descriptor of a method declared by a compiled class (static methods take an extra RuntimeBindings). */
+  String methodDescriptor(DJMethod m) {
+    String extraArg = m.isStatic() ? RUNTIME_BINDINGS_DESCRIPTOR : "";
+    return paramListDescriptor(extraArg, m.parameters()) + typeDescriptor(m.returnType());
+  }
   
-  private static String className(DJClass c) { return c.fullName().replace('.', '/'); }
+  static String className(DJClass c) { return c.fullName().replace('.', '/'); }
   
   private static DJClass extractClass(Type t) {
     if (t instanceof ClassType) { return ((ClassType) t).ofClass(); }
@@ -1212,7 +1226,7 @@ public class TreeCompiler {
    * Simplifies calculating the stack size that must be allocated for a method.  Keeps track
    * of both local variable allocations and stack growth as code is generated.
    */
-  private static class StackSizeTracker {
+  static class StackSizeTracker {
     private int _maxStack;
     private int _maxLocals;
     private int _currentStack;
@@ -1355,9 +1369,12 @@ public class TreeCompiler {
       return new BindingsFactory(bindings, _treeClass);
     }
     
+    /** Bind the parameters in a new frame.  {@code args} is created fresh by the stub, so it is used directly. */
     private RuntimeBindings bindArgs(RuntimeBindings parent, List<FormalParameter> params,
                                      Object[] args) {
-      return new RuntimeBindings(parent, extractVars(params), IterUtil.asIterable(args));
+      LocalVariable[] vars = new LocalVariable[params.size()];
+      for (int i = 0; i < vars.length; i++) { vars[i] = NodeProperties.getVariable(params.get(i)); }
+      return new RuntimeBindings(parent, vars, args);
     }
     
     private Object evaluateExpression(Expression exp, RuntimeBindings bindings) throws Throwable {
@@ -87,6 +87,13 @@ public interface TypeContext {
   /** Return the variable object for the given name, or {@code null} if it does not exist. */
   public LocalVariable getLocalVariable(String name, TypeSystem ts);
   
+  /**
+   * Locate the run-time frame in which {@code var} will be bound, relative to the innermost frame of
+   * this context.  Locations are only tracked within a single function body; if {@code var} is declared
+   * outside of it (or is not in scope), the result is a slot with an unknown location.
+   */
+  public RuntimeBindings.Slot localVariableSlot(LocalVariable var);
+  
   
   /* FUNCTIONS: METHODS AND LOCAL FUNCTIONS */
   
@@ -0,0 +1,64 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.rice.cs.plt.iter.IterUtil;
+
+/**
+ * A library that remembers the results of another library's lookups, so that names that fail to resolve (such as
+ * the probes made for each on-demand import) cost a hash lookup rather than a failed class load.  Results are kept
+ * until {@link #invalidate} is called, which must be done whenever the class path of the underlying loader changes.
+ * If the class path is known, a name that previously failed to resolve is looked up again if the class path index
+ * (which is rebuilt after each invalidation) lists a class file for it.
+ */
+public class CachingLibrary implements Library {
+  
+  private final Library _delegate;
+  /** Index of the loader's class path; null if the path is unknown. */
+  private final ClassPathIndex _index;
+  private final Map<String, Iterable<DJClass>> _found;
+  private final Set<String> _missing;
+  
+  /** Cache the results of {@code delegate}. */
+  public CachingLibrary(Library delegate) { this(delegate, null); }
+  
+  /**
+   * Cache the results of {@code delegate}, whose class loader loads classes from the given (dynamic) class path,
+   * in addition to its parent loaders.
+   */
+  public CachingLibrary(Library delegate, Iterable<? extends File> classPath) {
+    _delegate = delegate;
+    _index = (classPath == null) ? null : new ClassPathIndex(classPath);
+    _found = new HashMap<String, Iterable<DJClass>>();
+    _missing = new HashSet<String>();
+  }
+  
+  public Iterable<DJClass> declaredClasses(String fullName) {
+    synchronized (this) {
+      Iterable<DJClass> result = _found.get(fullName);
+      if (result != null) { return result; }
+      if (_missing.contains(fullName) && (_index == null || !_index.contains(fullName))) {
+        return IterUtil.empty();
+      }
+    }
+    Iterable<DJClass> result = _delegate.declaredClasses(fullName);
+    synchronized (this) {
+      if (IterUtil.isEmpty(result)) { _missing.add(fullName); }
+      else { _missing.remove(fullName); _found.put(fullName, result); }
+    }
+    return result;
+  }
+  
+  /** Forget all cached results.  Must be called when the class path of the underlying loader changes. */
+  public synchronized void invalidate() {
+    _found.clear();
+    _missing.clear();
+    if (_index != null) { _index.invalidate(); }
+  }
+  
+  public ClassLoader classLoader() { return _delegate.classLoader(); }
+}
@@ -0,0 +1,78 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.iter.IterUtil;
+
+public class CachingLibraryTest extends TestCase {
+  
+  /** A library that records each lookup made of it and defines the names in {@code defined}. */
+  private static class CountingLibrary implements Library {
+    public final List<String> lookups = new ArrayList<String>();
+    public final List<String> defined = new ArrayList<String>();
+    public Iterable<DJClass> declaredClasses(String fullName) {
+      lookups.add(fullName);
+      if (defined.contains(fullName)) { return IterUtil.<DJClass>singleton(new JavaClass(Object.class)); }
+      else { return IterUtil.empty(); }
+    }
+    public ClassLoader classLoader() { return CachingLibraryTest.class.getClassLoader(); }
+  }
+  
+  private File _dir;
+  
+  public void setUp() throws IOException {
+    _dir = IOUtil.createAndMarkTempDirectory("cachinglibrary", "");
+  }
+  
+  public void tearDown() { IOUtil.deleteRecursively(_dir); }
+  
+  public void testCachesHitsAndMisses() {
+    CountingLibrary delegate = new CountingLibrary();
+    delegate.defined.add("p.A");
+    CachingLibrary lib = new CachingLibrary(delegate);
+    Iterable<DJClass> a = lib.declaredClasses("p.A");
+    assertEquals(1, IterUtil.sizeOf(a));
+    assertSame(a, lib.declaredClasses("p.A"));
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    assertEquals(Arrays.asList("p.A", "p.B"), delegate.lookups);
+    
+    delegate.defined.add("p.B");
+    assertTrue("miss is cached", IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    lib.invalidate();
+    assertEquals(1, IterUtil.sizeOf(lib.declaredClasses("p.B")));
+    assertEquals(1, IterUtil.sizeOf(lib.declaredClasses("p.A")));
+    assertEquals(Arrays.asList("p.A", "p.B", "p.B", "p.A"), delegate.lookups);
+  }
+  
+  /** A cached miss is retried if the class path index lists the class, and the index is refreshed on invalidation. */
+  public void testMissRetriedFromIndex() throws IOException {
+    File classes = new File(_dir, "classes");
+    new File(classes, "p").mkdirs();
+    IOUtil.writeStringToFile(new File(classes, "p/A.class"), "");
+    CountingLibrary delegate = new CountingLibrary();
+    CachingLibrary lib = new CachingLibrary(delegate, IterUtil.make(classes));
+    
+    // listed in the index but not (yet) loadable: every probe goes to the delegate
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.A")));
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.A")));
+    // not listed: the miss is cached
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    assertTrue(IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    assertEquals(Arrays.asList("p.A", "p.A", "p.B"), delegate.lookups);
+    
+    IOUtil.writeStringToFile(new File(classes, "p/B.class"), "");
+    delegate.defined.add("p.B");
+    assertTrue("directory is listed once per invalidation", IterUtil.isEmpty(lib.declaredClasses("p.B")));
+    lib.invalidate();
+    assertEquals(1, IterUtil.sizeOf(lib.declaredClasses("p.B")));
+    assertEquals(Arrays.asList("p.A", "p.A", "p.B", "p.B"), delegate.lookups);
+  }
+  
+}
@@ -0,0 +1,116 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import edu.rice.cs.plt.iter.IterUtil;
+
+import static edu.rice.cs.plt.debug.DebugUtil.debug;
+
+/**
+ * An index from package names to the names of the classes found in a class path of jar files and directories.
+ * Jar files are read once, when the index is first used.  Directories are listed a package at a time, on demand,
+ * and each package directory is listed at most once until the next {@link #invalidate}, so that a lookup does not
+ * touch the file system once the packages it names have been seen.  All methods are thread-safe.
+ */
+public class ClassPathIndex {
+  
+  private final Iterable<? extends File> _path;
+  
+  /** Classes in the jar files of the path, by package; null until the index is built. */
+  private Map<String, Set<String>> _jarClasses;
+  /** Directories of the path; null until the index is built. */
+  private List<File> _dirs;
+  /** Cached listings of package directories (names without the ".class" suffix). */
+  private final Map<File, Set<String>> _dirListings;
+  
+  /**
+   * @param path  The class path.  It is traversed (and a snapshot taken) when the index is first used, and again
+   *              after each {@link #invalidate}.
+   */
+  public ClassPathIndex(Iterable<? extends File> path) {
+    _path = path;
+    _jarClasses = null;
+    _dirs = null;
+    _dirListings = new HashMap<File, Set<String>>();
+  }
+  
+  /**
+   * Discard the index, so that it is rebuilt from the current contents of the path when next used.  Must be called
+   * when classes are added to a directory of the path that has already been listed.
+   */
+  public synchronized void invalidate() {
+    _jarClasses = null;
+    _dirs = null;
+    _dirListings.clear();
+  }
+  
+  /** Whether the path contains a class file for the given fully-qualified (binary) class name. */
+  public synchronized boolean contains(String fullName) {
+    int dot = fullName.lastIndexOf('.');
+    String pkg = (dot < 0) ? "" : fullName.substring(0, dot);
+    String name = fullName.substring(dot + 1);
+    build();
+    Set<String> inJars = _jarClasses.get(pkg);
+    if (inJars != null && inJars.contains(name)) { return true; }
+    String pkgPath = pkg.replace('.', File.separatorChar);
+    for (File dir : _dirs) {
+      if (dirClasses(new File(dir, pkgPath)).contains(name)) { return true; }
+    }
+    return false;
+  }
+  
+  private void build() {
+    if (_jarClasses != null) { return; }
+    debug.logStart("Indexing class path");
+    _jarClasses = new HashMap<String, Set<String>>();
+    _dirs = new ArrayList<File>();
+    for (File f : IterUtil.snapshot(_path)) {
+      if (f.isDirectory()) { _dirs.add(f); }
+      else if (f.isFile()) { indexJar(f); }
+    }
+    debug.logEnd("Indexing class path");
+  }
+  
+  private void indexJar(File f) {
+    try {
+      ZipFile jar = new ZipFile(f);
+      try {
+        Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+          String entry = entries.nextElement().getName();
+          if (entry.endsWith(".class") && !entry.startsWith("META-INF/")) {
+            int slash = entry.lastIndexOf('/');
+            String pkg = (slash < 0) ? "" : entry.substring(0, slash).replace('/', '.');
+            String name = entry.substring(slash + 1, entry.length() - ".class".length());
+            Set<String> names = _jarClasses.get(pkg);
+            if (names == null) { names = new HashSet<String>(); _jarClasses.put(pkg, names); }
+            names.add(name);
+          }
+        }
+      }
+      finally { jar.close(); }
+    }
+    catch (IOException e) { debug.log("Can't index " + f, e); }
+  }
+  
+  /** The classes in the given package directory, which is listed the first time it is requested. */
+  private Set<String> dirClasses(File pkgDir) {
+    Set<String> names = _dirListings.get(pkgDir);
+    if (names == null) {
+      names = new HashSet<String>();
+      String[] files = pkgDir.list(); // null if it doesn't exist
+      if (files != null) {
+        for (String file : files) {
+          if (file.endsWith(".class")) { names.add(file.substring(0, file.length() - ".class".length())); }
+        }
+      }
+      _dirListings.put(pkgDir, names);
+    }
+    return names;
+  }
+  
+}
@@ -0,0 +1,78 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import edu.rice.cs.plt.io.IOUtil;
+import edu.rice.cs.plt.iter.IterUtil;
+
+public class ClassPathIndexTest extends TestCase {
+  
+  private File _dir;
+  
+  public void setUp() throws IOException {
+    _dir = IOUtil.createAndMarkTempDirectory("classpathindex", "");
+  }
+  
+  public void tearDown() { IOUtil.deleteRecursively(_dir); }
+  
+  private static void touch(File f) throws IOException {
+    f.getParentFile().mkdirs();
+    IOUtil.writeStringToFile(f, "");
+  }
+  
+  public void testDirectory() throws IOException {
+    File classes = new File(_dir, "classes");
+    touch(new File(classes, "Top.class"));
+    touch(new File(classes, "p/q/A.class"));
+    touch(new File(classes, "p/q/A$Inner.class"));
+    touch(new File(classes, "p/q/B.java"));
+    ClassPathIndex index = new ClassPathIndex(IterUtil.make(classes));
+    assertTrue(index.contains("Top"));
+    assertTrue(index.contains("p.q.A"));
+    assertTrue(index.contains("p.q.A$Inner"));
+    assertFalse(index.contains("p.q.B"));
+    assertFalse(index.contains("p.A"));
+    assertFalse(index.contains("r.A"));
+  }
+  
+  public void testJar() throws IOException {
+    File jar = new File(_dir, "lib.jar");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      for (String entry : new String[]{ "META-INF/Manifest.class", "p/J.class", "p/r.txt", "K.class" }) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.closeEntry();
+      }
+    }
+    finally { out.close(); }
+    ClassPathIndex index = new ClassPathIndex(IterUtil.make(jar, new File(_dir, "missing")));
+    assertTrue(index.contains("p.J"));
+    assertTrue(index.contains("K"));
+    assertFalse(index.contains("META-INF.Manifest"));
+    assertFalse(index.contains("p.r"));
+    assertFalse(index.contains("p.K"));
+  }
+  
+  /** A listed directory is not read again until the index is invalidated. */
+  public void testInvalidate() throws IOException {
+    File classes = new File(_dir, "classes");
+    touch(new File(classes, "p/A.class"));
+    ClassPathIndex index = new ClassPathIndex(IterUtil.make(classes));
+    assertTrue(index.contains("p.A"));
+    assertFalse(index.contains("p.B"));
+    assertFalse(index.contains("q.C"));
+    touch(new File(classes, "p/B.class"));
+    touch(new File(classes, "q/C.class"));
+    assertFalse("p listed once", index.contains("p.B"));
+    assertFalse("q listed once", index.contains("q.C"));
+    index.invalidate();
+    assertTrue(index.contains("p.B"));
+    assertTrue(index.contains("q.C"));
+  }
+  
+}
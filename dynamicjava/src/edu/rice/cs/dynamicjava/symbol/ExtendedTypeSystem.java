@@ -112,7 +112,7 @@ public class ExtendedTypeSystem extends StandardTypeSystem {
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
    * (in terms of {@link #isEqual}), transitive relation.
    */
-  public boolean isSubtype(Type subT, Type superT) {
+  protected boolean uncachedIsSubtype(Type subT, Type superT) {
     NormSubtyper sub = new NormSubtyper();
     Normalizer norm = new Normalizer(sub);
     return sub.contains(norm.value(subT), norm.value(superT));
@@ -414,7 +414,7 @@ public class ExtendedTypeSystem extends StandardTypeSystem {
     }
   };
   
-  public Type join(Iterable<? extends Type> ts) {
+  protected Type uncachedJoin(Iterable<? extends Type> ts) {
     NormSubtyper sub = new NormSubtyper();
     return new NormJoiner(sub).value(map(ts, new Normalizer(sub)));
   }
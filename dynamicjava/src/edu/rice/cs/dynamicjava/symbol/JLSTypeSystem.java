@@ -239,7 +239,7 @@ public class JLSTypeSystem extends StandardTypeSystem {
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
    * (in terms of {@link #isEqual}), transitive relation.
    */
-  public boolean isSubtype(Type subT, Type superT) { return new Subtyper().contains(subT, superT); }
+  protected boolean uncachedIsSubtype(Type subT, Type superT) { return new Subtyper().contains(subT, superT); }
   
   /**
    * Tests subtyping.  Due to its use of internal state, unrelated (and possibly parallel)
@@ -483,7 +483,7 @@ public class JLSTypeSystem extends StandardTypeSystem {
   
   
   /** Join implementation based on the JLS specification (15.12.2.7). */
-  public Type join(Iterable<? extends Type> ts) {
+  protected Type uncachedJoin(Iterable<? extends Type> ts) {
     return join(ts, new PrecomputedRecursionStack<Set<Type>, Wildcard>(Wrapper.<Set<Type>>factory()));
   }
   
@@ -3,6 +3,9 @@ package edu.rice.cs.dynamicjava.symbol;
 import java.lang.reflect.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.lang.ref.SoftReference;
 import edu.rice.cs.plt.lambda.Lambda;
 import edu.rice.cs.plt.lambda.Thunk;
 import edu.rice.cs.plt.lambda.LazyThunk;
@@ -25,6 +28,17 @@ public class Java5Class extends JavaClass {
   
   public Java5Class(Class<?> c) { super(c); }
   
+  /** Shared instances; see {@link JavaClass#make}. */
+  private static final Map<Class<?>, SoftReference<Java5Class>> SHARED =
+    new WeakHashMap<Class<?>, SoftReference<Java5Class>>();
+  
+  private static final Lambda<Class<?>, Java5Class> FACTORY = new Lambda<Class<?>, Java5Class>() {
+    public Java5Class value(Class<?> c) { return new Java5Class(c); }
+  };
+  
+  /** Get the shared Java5Class for {@code c}. */
+  public static Java5Class make(Class<?> c) { return shared(SHARED, FACTORY, c); }
+  
   @Override public String declaredName() {
     if (_c.isAnonymousClass()) {
       throw new IllegalArgumentException("Anonymous class has no declared name");
@@ -36,12 +50,12 @@ public class Java5Class extends JavaClass {
     Class<?> result = _c;
     Class<?> outer = result.getEnclosingClass();
     while (outer != null) { result = outer; outer = result.getEnclosingClass(); }
-    return new Java5Class(result);
+    return make(result);
   }
 
   @Override public DJClass declaringClass() {
     Class<?> outer = _c.getDeclaringClass();
-    return (outer == null) ? null : new Java5Class(outer);
+    return (outer == null) ? null : make(outer);
   }
   
   /** List all type variables declared by this class (but not by its enclosing classes) */
@@ -56,17 +70,17 @@ public class Java5Class extends JavaClass {
     return superC == null ? superIs : IterUtil.compose(superC, superIs);
   }
   
-  @Override public Iterable<DJField> declaredFields() {
+  @Override protected Iterable<DJField> convertFields() {
     // CONVERT_FIELD is shadowed here to create a Java5Field
     return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredFields()), CONVERT_FIELD);
   }
   
-  @Override public Iterable<DJConstructor> declaredConstructors() {
+  @Override protected Iterable<DJConstructor> convertConstructors() {
     // CONVERT_CONSTRUCTOR is shadowed here to create a Java5Constructor
     return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredConstructors()), CONVERT_CONSTRUCTOR);
   }
   
-  @Override public Iterable<DJMethod> declaredMethods() {
+  @Override protected Iterable<DJMethod> convertMethods() {
     // CONVERT_METHOD is shadowed here to create a Java5Method
     Iterable<Method> ms = IterUtil.filter(IterUtil.asIterable(_c.getDeclaredMethods()), IS_NOT_BRIDGE);
     return IterUtil.mapSnapshot(ms, CONVERT_METHOD);
@@ -125,7 +139,7 @@ public class Java5Class extends JavaClass {
     if (c.isPrimitive()) { return SymbolUtil.typeOfPrimitiveClass(c); }
     else if (c.isArray()) { return new SimpleArrayType(classAsType(c.getComponentType())); }
     else {
-      DJClass djc = new Java5Class(c);
+      DJClass djc = make(c);
       // This logic is performed here, rather than deferring to SymbolUtil.allTypeParameters(djc),
       // in order to avoid a potential infinite loop: to create a type for c, we would first have
       // to create the types of the parameters, which may in turn refer to c.
@@ -254,7 +268,7 @@ public class Java5Class extends JavaClass {
   
   @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Class[] in Java 5 (fixed in Java 6)
   private static final Lambda<Class, DJClass> CONVERT_CLASS = new Lambda<Class, DJClass>() {
-    public DJClass value(Class c) { return new Java5Class(c); }
+    public DJClass value(Class c) { return make(c); }
   };
   
   /** Non-static because Java5Field is non-static. */
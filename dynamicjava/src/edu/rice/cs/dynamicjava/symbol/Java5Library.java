@@ -13,7 +13,7 @@ public class Java5Library implements Library {
   }
 
   public Iterable<DJClass> declaredClasses(String fullName) {
-    try { Class<?> c = _loader.loadClass(fullName); return IterUtil.<DJClass>singleton(new Java5Class(c)); }
+    try { Class<?> c = _loader.loadClass(fullName); return IterUtil.<DJClass>singleton(Java5Class.make(c)); }
     catch (ClassNotFoundException e) { return IterUtil.empty(); }
     catch (LinkageError e) { return IterUtil.empty(); }
   }
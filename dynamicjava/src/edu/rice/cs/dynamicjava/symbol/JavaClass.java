@@ -2,6 +2,9 @@ package edu.rice.cs.dynamicjava.symbol;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.*;
 
 import edu.rice.cs.dynamicjava.Options;
@@ -24,14 +27,50 @@ import static edu.rice.cs.plt.debug.DebugUtil.debug;
 /**
  * DJClass implementation that wraps a Java reflection Class object.  The {@link Java5Class} version
  * should be used instead if the class object supports Java 5 methods like
- * {@link Class#getTypeParameters}.
+ * {@link Class#getTypeParameters}.  Instances created with {@link #make} are shared, so that the
+ * member tables (built on first use) and the reflection objects they wrap are reused.
  */
 public class JavaClass implements DJClass {
   
   protected Class<?> _c;
   
+  // member tables; built on first use (a race may build a table twice, which is harmless)
+  private volatile Iterable<DJField> _fields;
+  private volatile Iterable<DJConstructor> _constructors;
+  private volatile Iterable<DJMethod> _methods;
+  
   public JavaClass(Class<?> c) { _c = c; }
   
+  /**
+   * Shared instances, keyed by class.  Keys are weak and values are soft.  Since each wrapper refers to its class,
+   * the weak key alone does not free an entry: a class, its wrapper, and the class loader that defined the class
+   * (such as the loader of an earlier interpreter session) stay reachable until the garbage collector clears the
+   * soft reference, which it does only when memory is short.  The entry is then removed along with the key.
+   */
+  private static final Map<Class<?>, SoftReference<JavaClass>> SHARED =
+    new WeakHashMap<Class<?>, SoftReference<JavaClass>>();
+  
+  private static final Lambda<Class<?>, JavaClass> FACTORY = new Lambda<Class<?>, JavaClass>() {
+    public JavaClass value(Class<?> c) { return new JavaClass(c); }
+  };
+  
+  /** Get the shared JavaClass for {@code c}. */
+  public static JavaClass make(Class<?> c) { return shared(SHARED, FACTORY, c); }
+  
+  /** Get the instance recorded in {@code cache} for {@code c}, using {@code factory} to create it if necessary. */
+  protected static <T extends JavaClass> T shared(Map<Class<?>, SoftReference<T>> cache,
+                                                  Lambda<? super Class<?>, ? extends T> factory, Class<?> c) {
+    synchronized (cache) {
+      SoftReference<T> ref = cache.get(c);
+      T result = (ref == null) ? null : ref.get();
+      if (result == null) {
+        result = factory.value(c);
+        cache.put(c, new SoftReference<T>(result));
+      }
+      return result;
+    }
+  }
+  
   public String packageName() {
     String name = _c.getName();
     int dot = name.lastIndexOf('.');
@@ -63,12 +102,12 @@ public class JavaClass implements DJClass {
     Class<?> result = _c;
     Class<?> outer = result.getDeclaringClass();
     while (outer != null) { result = outer; outer = result.getDeclaringClass(); }
-    return new JavaClass(result);
+    return make(result);
   }
 
   public DJClass declaringClass() {
     Class<?> outer = _c.getDeclaringClass();
-    return (outer == null) ? null : new JavaClass(outer);
+    return (outer == null) ? null : make(outer);
   }
   
   /** List all type variables declared by this class (but not by its enclosing classes) */
@@ -84,14 +123,35 @@ public class JavaClass implements DJClass {
   }
   
   public Iterable<DJField> declaredFields() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredFields()), CONVERT_FIELD);
+    Iterable<DJField> result = _fields;
+    if (result == null) { result = convertFields(); _fields = result; }
+    return result;
   }
   
   public Iterable<DJConstructor> declaredConstructors() {
-    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredConstructors()), CONVERT_CONSTRUCTOR);
+    Iterable<DJConstructor> result = _constructors;
+    if (result == null) { result = convertConstructors(); _constructors = result; }
+    return result;
   }
   
   public Iterable<DJMethod> declaredMethods() {
+    Iterable<DJMethod> result = _methods;
+    if (result == null) { result = convertMethods(); _methods = result; }
+    return result;
+  }
+  
+  /** Wrap the class's declared fields.  Invoked once, by {@link #declaredFields}. */
+  protected Iterable<DJField> convertFields() {
+    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredFields()), CONVERT_FIELD);
+  }
+  
+  /** Wrap the class's declared constructors.  Invoked once, by {@link #declaredConstructors}. */
+  protected Iterable<DJConstructor> convertConstructors() {
+    return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredConstructors()), CONVERT_CONSTRUCTOR);
+  }
+  
+  /** Wrap the class's declared methods.  Invoked once, by {@link #declaredMethods}. */
+  protected Iterable<DJMethod> convertMethods() {
     return IterUtil.mapSnapshot(IterUtil.asIterable(_c.getDeclaredMethods()), CONVERT_METHOD);
   }
   
@@ -125,7 +185,7 @@ public class JavaClass implements DJClass {
   private static Type classAsType(Class<?> c) {
     if (c.isPrimitive()) { return SymbolUtil.typeOfPrimitiveClass(c); }
     else if (c.isArray()) { return new SimpleArrayType(classAsType(c.getComponentType())); }
-    else { return new SimpleClassType(new JavaClass(c)); }
+    else { return new SimpleClassType(make(c)); }
   }
   
   @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Class[] in Java 5 (fixed in Java 6)
@@ -137,7 +197,7 @@ public class JavaClass implements DJClass {
   
   @SuppressWarnings("unchecked") // java.lang.Class methods return (raw) type Class[] in Java 5 (fixed in Java 6)
   private static final Lambda<Class, DJClass> CONVERT_CLASS = new Lambda<Class, DJClass>() {
-    public DJClass value(Class c) { return new JavaClass(c); }
+    public DJClass value(Class c) { return make(c); }
   };
   
   /** Non-static because JavaField is non-static. */
@@ -159,7 +219,8 @@ public class JavaClass implements DJClass {
 
   protected class JavaField implements DJField {
     protected final Field _f;
-    public JavaField(Field f) { _f = f; }
+    private volatile boolean _accessible; // whether setAccessible has been attempted
+    public JavaField(Field f) { _f = f; _accessible = false; }
     public String declaredName() { return _f.getName(); }
     public DJClass declaringClass() { return JavaClass.this; }
     public Type type() { return classAsType(_f.getType()); }
@@ -187,8 +248,7 @@ public class JavaClass implements DJClass {
           if (!isStatic() && receiver == null) {
             throw new WrappedException(new EvaluatorException(new NullPointerException()));
           }
-          try { _f.setAccessible(true); }
-          catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+          makeAccessible();
           try { return _f.get(receiver); }
           catch (IllegalAccessException e) {
             // should have been caught by static analysis
@@ -208,8 +268,7 @@ public class JavaClass implements DJClass {
           if (!isStatic() && receiver == null) {
             throw new WrappedException(new EvaluatorException(new NullPointerException()));
           }
-          try { _f.setAccessible(true); }
-          catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+          makeAccessible();
           try { _f.set(receiver, o); }
           catch (IllegalAccessException e) {
             // should have been caught by static analysis
@@ -228,6 +287,14 @@ public class JavaClass implements DJClass {
       };
     }
       
+    private void makeAccessible() {
+      if (!_accessible) {
+        try { _f.setAccessible(true); }
+        catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _accessible = true;
+      }
+    }
+      
     public String toString() { return "JavaField(" + declaredName() + ")"; }
 }
 
@@ -253,9 +320,11 @@ public class JavaClass implements DJClass {
     protected final Constructor<?> _k;
     protected final Type _outerType;
     private final Thunk<Iterable<LocalVariable>> _params;
+    private volatile boolean _accessible; // whether setAccessible has been attempted
     
     public JavaConstructor(Constructor<?> k) {
       _k = k;
+      _accessible = false;
       DJClass outer = SymbolUtil.dynamicOuterClass(JavaClass.this);
       _outerType = (outer == null) ? null : SymbolUtil.thisType(outer);
       _params = makeParamThunk(); /* allows overriding */
@@ -290,8 +359,11 @@ public class JavaClass implements DJClass {
         args = IterUtil.compose(outer, args);
       }
       
-      try { _k.setAccessible(true); }
-      catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+      if (!_accessible) {
+        try { _k.setAccessible(true); }
+        catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _accessible = true;
+      }
       
       Object[] argsArray = IterUtil.toArray(args, Object.class);
       try {
@@ -331,7 +403,8 @@ public class JavaClass implements DJClass {
   protected class JavaMethod implements DJMethod {
     protected final Method _m;
     private final Thunk<Iterable<LocalVariable>> _params;
-    public JavaMethod(Method m) { _m = m; _params = makeParamThunk(); /* allows overriding */ }
+    private volatile boolean _accessible; // whether setAccessible has been attempted
+    public JavaMethod(Method m) { _m = m; _params = makeParamThunk(); /* allows overriding */ _accessible = false; }
     protected Thunk<Iterable<LocalVariable>> makeParamThunk() { return paramFactory(_m.getParameterTypes()); }
     public String declaredName() { return _m.getName(); }
     public DJClass declaringClass() { return JavaClass.this; }
@@ -354,8 +427,11 @@ public class JavaClass implements DJClass {
         throw new WrappedException(new EvaluatorException(new NullPointerException()));
       }
       
-      try { _m.setAccessible(true); }
-      catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+      if (!_accessible) {
+        try { _m.setAccessible(true); }
+        catch (SecurityException e) { debug.log(e); /* ignore -- we can't relax accessibility */ }
+        _accessible = true;
+      }
       
       Object[] argsArray = IterUtil.toArray(args, Object.class);
       try {
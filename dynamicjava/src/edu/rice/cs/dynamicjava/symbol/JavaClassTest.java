@@ -0,0 +1,43 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import junit.framework.TestCase;
+import edu.rice.cs.plt.iter.IterUtil;
+
+public class JavaClassTest extends TestCase {
+  
+  /** A wrapper that counts the conversions of its members. */
+  private static class CountingClass extends JavaClass {
+    public int fields = 0;
+    public int constructors = 0;
+    public int methods = 0;
+    public CountingClass(Class<?> c) { super(c); }
+    protected Iterable<DJField> convertFields() { fields++; return super.convertFields(); }
+    protected Iterable<DJConstructor> convertConstructors() { constructors++; return super.convertConstructors(); }
+    protected Iterable<DJMethod> convertMethods() { methods++; return super.convertMethods(); }
+  }
+  
+  public void testMakeIsShared() {
+    JavaClass c = JavaClass.make(String.class);
+    assertSame(c, JavaClass.make(String.class));
+    assertSame(c.declaredMethods(), JavaClass.make(String.class).declaredMethods());
+    
+    Java5Class c5 = Java5Class.make(String.class);
+    assertSame(c5, Java5Class.make(String.class));
+    assertSame(c5.declaredFields(), Java5Class.make(String.class).declaredFields());
+    assertNotSame("separate caches", c, c5);
+    assertSame("enclosing class", Java5Class.make(java.util.Map.class), 
+               Java5Class.make(java.util.Map.Entry.class).declaringClass());
+  }
+  
+  public void testMembersConvertedOnce() {
+    CountingClass c = new CountingClass(StringBuilder.class);
+    Iterable<DJMethod> methods = c.declaredMethods();
+    assertFalse(IterUtil.isEmpty(methods));
+    assertSame(methods, c.declaredMethods());
+    assertSame(c.declaredFields(), c.declaredFields());
+    assertSame(c.declaredConstructors(), c.declaredConstructors());
+    assertEquals(1, c.methods);
+    assertEquals(1, c.fields);
+    assertEquals(1, c.constructors);
+  }
+}
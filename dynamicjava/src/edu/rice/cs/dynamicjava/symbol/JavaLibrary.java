@@ -11,7 +11,7 @@ public class JavaLibrary implements Library {
   }
 
   public Iterable<DJClass> declaredClasses(String fullName) {
-    try { Class<?> c = _loader.loadClass(fullName); return IterUtil.<DJClass>singleton(new JavaClass(c)); }
+    try { Class<?> c = _loader.loadClass(fullName); return IterUtil.<DJClass>singleton(JavaClass.make(c)); }
     catch (ClassNotFoundException e) { return IterUtil.empty(); }
     catch (LinkageError e) { return IterUtil.empty(); }
   }
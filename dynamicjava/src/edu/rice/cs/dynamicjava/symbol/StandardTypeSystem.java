@@ -52,12 +52,23 @@ public abstract class StandardTypeSystem extends TypeSystem {
    */
   private final boolean _strictClassEquality;
   
+  /** Memoized subtyping, join, and erasure results; null if caching is disabled. */
+  private final TypeQueryCache _cache;
+  
   protected StandardTypeSystem(Options opt, boolean boxingInMostSpecific, boolean useExplicitTypeArgs,
                                 boolean strictClassEquality) {
     _opt  = opt;
     _boxingInMostSpecific = boxingInMostSpecific;
     _useExplicitTypeArgs = useExplicitTypeArgs;
     _strictClassEquality = strictClassEquality;
+    _cache = opt.cacheTypeQueries() ? new TypeQueryCache() : null;
+  }
+  
+  /** The cache of query results (exposing its statistics), or {@code null} if caching is disabled. */
+  public TypeQueryCache cache() { return _cache; }
+  
+  @Override public void invalidateCaches() {
+    if (_cache != null) { _cache.clear(); }
   }
   
   /** Determine if the type is well-formed. */
@@ -70,10 +81,34 @@ public abstract class StandardTypeSystem extends TypeSystem {
    * Determine if {@code subT} is a subtype of {@code superT}.  This is a recursive
    * (in terms of {@link #isEqual}), transitive relation.
    */
-  public abstract boolean isSubtype(Type subT, Type superT);
+  public boolean isSubtype(Type subT, Type superT) {
+    if (_cache == null) { return uncachedIsSubtype(subT, superT); }
+    Pair<Type, Type> key = Pair.make(subT, superT);
+    Boolean result = _cache.subtypes().get(key);
+    if (result == null) {
+      result = uncachedIsSubtype(subT, superT);
+      _cache.subtypes().put(key, result);
+    }
+    return result;
+  }
+  
+  /** Determine if {@code subT} is a subtype of {@code superT}, without consulting the cache. */
+  protected abstract boolean uncachedIsSubtype(Type subT, Type superT);
   
   /** Compute a common supertype of the given list of types. */
-  public abstract Type join(Iterable<? extends Type> ts);
+  public Type join(Iterable<? extends Type> ts) {
+    if (_cache == null) { return uncachedJoin(ts); }
+    List<Type> key = CollectUtil.makeArrayList(ts);
+    Type result = _cache.joins().get(key);
+    if (result == null) {
+      result = uncachedJoin(key);
+      _cache.joins().put(key, result);
+    }
+    return result;
+  }
+  
+  /** Compute a common supertype of the given list of types, without consulting the cache. */
+  protected abstract Type uncachedJoin(Iterable<? extends Type> ts);
 
   /** Compute a common subtype of the given list of types. */
   public abstract Type meet(Iterable<? extends Type> ts);
@@ -439,7 +474,15 @@ public abstract class StandardTypeSystem extends TypeSystem {
    * Compute the erased type of {@code t}.  The result is guaranteed to be reifiable (according
    * to {@link #isReifiable}) and a supertype of {@code t}.
    */
-  public Type erase(Type t) { return t.apply(ERASE); }
+  public Type erase(Type t) {
+    if (_cache == null) { return t.apply(ERASE); }
+    Type result = _cache.erasures().get(t);
+    if (result == null) {
+      result = t.apply(ERASE);
+      _cache.erasures().put(t, result);
+    }
+    return result;
+  }
   
   private static final TypeVisitorLambda<Type> ERASE = new TypeAbstractVisitor<Type>() {
     public Type defaultCase(Type t) { return t; }
@@ -148,16 +148,11 @@ public class SymbolUtil {
   /**
    * Create an appropriate DJClass for the given Class, based on the available reflection APIs.
    * If Java 5 is available, returns a {@link Java5Class}.  Otherwise, returns a {@link JavaClass}.
+   * Instances are shared (see {@link JavaClass#make}).
    */
   public static DJClass wrapClass(Class<?> c) {
-    if (JavaVersion.CURRENT.supports(JavaVersion.JAVA_5)) {
-      try {
-        return (DJClass) ReflectUtil.loadObject(DJClass.class.getClassLoader(),
-                                                "edu.rice.cs.dynamicjava.symbol.Java5Class", c);
-      }
-      catch (ReflectException e) { throw new RuntimeException("Unable to create a Java5Class"); }
-    }
-    else { return new JavaClass(c); }
+    if (JavaVersion.CURRENT.supports(JavaVersion.JAVA_5)) { return Java5Class.make(c); }
+    else { return JavaClass.make(c); }
   }
   
   /**
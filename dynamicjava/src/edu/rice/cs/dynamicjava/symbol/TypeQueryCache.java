@@ -0,0 +1,90 @@
+package edu.rice.cs.dynamicjava.symbol;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.rice.cs.plt.tuple.Pair;
+
+import edu.rice.cs.dynamicjava.symbol.type.Type;
+
+/**
+ * Bounded memo tables for the results of a type system's pure queries.  Keys are compared by {@link Type#equals},
+ * which is structural (with symbols and classes compared by identity) and uses cached hash codes, so equal types
+ * built independently share entries.  Each table discards its least-recently-used entries when full.  Results
+ * that depend on the class hierarchy are only valid while the hierarchy is fixed; see {@link #clear}.
+ */
+public class TypeQueryCache {
+
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final Table<Pair<Type, Type>, Boolean> _subtypes;
+  private final Table<List<Type>, Type> _joins;
+  private final Table<Type, Type> _erasures;
+
+  public TypeQueryCache() { this(DEFAULT_CAPACITY); }
+
+  /** Create a cache whose tables each hold at most {@code capacity} entries. */
+  public TypeQueryCache(int capacity) {
+    _subtypes = new Table<Pair<Type, Type>, Boolean>("subtype", capacity);
+    _joins = new Table<List<Type>, Type>("join", capacity);
+    _erasures = new Table<Type, Type>("erase", capacity);
+  }
+
+  /** Results of {@link TypeSystem#isSubtype}, keyed by (subtype, supertype). */
+  public Table<Pair<Type, Type>, Boolean> subtypes() { return _subtypes; }
+
+  /** Results of {@link TypeSystem#join}, keyed by the list of joined types. */
+  public Table<List<Type>, Type> joins() { return _joins; }
+
+  /** Results of {@link TypeSystem#erase}. */
+  public Table<Type, Type> erasures() { return _erasures; }
+
+  /** Discard all entries.  Must be called when the supertypes of a class become known or change. */
+  public void clear() {
+    _subtypes.clear();
+    _joins.clear();
+    _erasures.clear();
+  }
+
+  public String toString() { return _subtypes + ", " + _joins + ", " + _erasures; }
+
+
+  /** A single bounded, thread-safe memo table, with hit and miss statistics. */
+  public static class Table<K, V> {
+    private final String _name;
+    private final Map<K, V> _entries;
+    private long _hits;
+    private long _misses;
+
+    public Table(String name, final int capacity) {
+      _name = name;
+      _entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) { return size() > capacity; }
+      };
+      _hits = 0;
+      _misses = 0;
+    }
+
+    /** The cached result for {@code key}, or {@code null} if there is none. */
+    public synchronized V get(K key) {
+      V result = _entries.get(key);
+      if (result == null) { _misses++; }
+      else { _hits++; }
+      return result;
+    }
+
+    public synchronized void put(K key, V value) { _entries.put(key, value); }
+
+    public synchronized void clear() { _entries.clear(); }
+
+    public synchronized int size() { return _entries.size(); }
+    public synchronized long hits() { return _hits; }
+    public synchronized long misses() { return _misses; }
+
+    public synchronized String toString() {
+      return _name + ": " + _entries.size() + " entries, " + _hits + " hits, " + _misses + " misses";
+    }
+  }
+
+}
@@ -174,6 +174,12 @@ public abstract class TypeSystem {
 
   /** Compute a common subtype of the given list of types. */
   public abstract Type meet(Iterable<? extends Type> ts);
+  
+  /**
+   * Discard any memoized results that depend on the class hierarchy.  Must be called when the supertypes of
+   * a class become known (after they are first referenced) or change.
+   */
+  public void invalidateCaches() {}
 
   /** Compute a common supertype of the given pair of types. */
   public Type meet(Type t1, Type t2) { return meet(IterUtil.make(t1, t2)); }
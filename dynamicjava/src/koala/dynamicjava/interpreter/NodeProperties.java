@@ -32,6 +32,7 @@ import koala.dynamicjava.interpreter.error.ExecutionError;
 import koala.dynamicjava.tree.Node;
 import koala.dynamicjava.tree.Expression;
 import edu.rice.cs.dynamicjava.interpreter.TypeContext;
+import edu.rice.cs.dynamicjava.interpreter.RuntimeBindings;
 import edu.rice.cs.dynamicjava.symbol.*;
 import edu.rice.cs.dynamicjava.symbol.type.Type;
 import edu.rice.cs.dynamicjava.symbol.type.VariableType;
@@ -48,10 +49,10 @@ import edu.rice.cs.plt.lambda.Lambda2;
 public class NodeProperties {
 
     /** The Type of an expression */
-    public final static String TYPE = "type";
+    public final static Node.Property<Type> TYPE = Node.Property.named("type");
 
     public static Type getType(Node n) {
-        return (Type)n.getProperty(TYPE);
+        return n.getProperty(TYPE);
     }
     
     public static Type setType(Node n, Type t) {
@@ -69,10 +70,10 @@ public class NodeProperties {
     
 
     /** The Type of an expression when treated as a variable (an lvalue) */
-    public final static String VARIABLE_TYPE = "variableType";
+    public final static Node.Property<Type> VARIABLE_TYPE = Node.Property.named("variableType");
 
     public static Type getVariableType(Node n) {
-        return (Type)n.getProperty(VARIABLE_TYPE);
+        return n.getProperty(VARIABLE_TYPE);
     }
     
     public static Type setVariableType(Node n, Type t) {
@@ -89,10 +90,10 @@ public class NodeProperties {
      * The Type extended by an AnonymousInnerAllocation (not necessary for AnonymousAllocations
      * and TypeDeclarations, because the type is expressed in the syntax).
      */
-    public final static String SUPER_TYPE = "superType";
+    public final static Node.Property<Type> SUPER_TYPE = Node.Property.named("superType");
 
     public static Type getSuperType(Node n) {
-        return (Type)n.getProperty(SUPER_TYPE);
+        return n.getProperty(SUPER_TYPE);
     }
     
     public static Type setSuperType(Node n, Type t) {
@@ -106,11 +107,10 @@ public class NodeProperties {
     
 
     /** A Thunk<Class<?>> representing the converted type of a primitive cast */
-    public final static String CONVERTED_TYPE = "convertedType";
+    public final static Node.Property<Thunk<Class<?>>> CONVERTED_TYPE = Node.Property.named("convertedType");
 
-    @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getConvertedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(CONVERTED_TYPE);
+        return n.getProperty(CONVERTED_TYPE);
     }
     
     public static Thunk<Class<?>> setConvertedType(Node n, Thunk<Class<?>> c) {
@@ -124,11 +124,10 @@ public class NodeProperties {
     
 
     /** A Thunk<Class<?>> representing the asserted type of an upcast (for diagnostic purposes). */
-    public final static String ASSERTED_TYPE = "assertedType";
+    public final static Node.Property<Thunk<Class<?>>> ASSERTED_TYPE = Node.Property.named("assertedType");
 
-    @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getAssertedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(ASSERTED_TYPE);
+        return n.getProperty(ASSERTED_TYPE);
     }
     
     public static Thunk<Class<?>> setAssertedType(Node n, Thunk<Class<?>> c) {
@@ -142,11 +141,10 @@ public class NodeProperties {
     
 
     /** A Thunk<Class<?>> representing the checked cast type of a cast, method, or field */
-    public final static String CHECKED_TYPE = "checkedType";
+    public final static Node.Property<Thunk<Class<?>>> CHECKED_TYPE = Node.Property.named("checkedType");
 
-    @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getCheckedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(CHECKED_TYPE);
+        return n.getProperty(CHECKED_TYPE);
     }
     
     public static Thunk<Class<?>> setCheckedType(Node n, Thunk<Class<?>> c) {
@@ -160,11 +158,10 @@ public class NodeProperties {
     
 
     /** A Thunk<Class<?>> representing the erased type of certain expressions and statements. */
-    public final static String ERASED_TYPE = "erasedType";
+    public final static Node.Property<Thunk<Class<?>>> ERASED_TYPE = Node.Property.named("erasedType");
 
-    @SuppressWarnings("unchecked")
     public static Thunk<Class<?>> getErasedType(Node n) {
-        return (Thunk<Class<?>>) n.getProperty(ERASED_TYPE);
+        return n.getProperty(ERASED_TYPE);
     }
     
     public static Thunk<Class<?>> setErasedType(Node n, Thunk<Class<?>> c) {
@@ -182,10 +179,10 @@ public class NodeProperties {
      * or increment/decrement in which the value of the left expression is used to calculate
      * the new value
      */
-    public final static String LEFT_EXPRESSION = "leftExpression";
+    public final static Node.Property<Expression> LEFT_EXPRESSION = Node.Property.named("leftExpression");
 
     public static Expression getLeftExpression(Node n) {
-        return (Expression) n.getProperty(LEFT_EXPRESSION);
+        return n.getProperty(LEFT_EXPRESSION);
     }
     
     public static Expression setLeftExpression(Node n, Expression exp) {
@@ -201,10 +198,10 @@ public class NodeProperties {
     /**
      * An Expression representing the translated equivalent of the tagged Expression
      */
-    public final static String TRANSLATION = "translation";
+    public final static Node.Property<Expression> TRANSLATION = Node.Property.named("translation");
 
     public static Expression getTranslation(Node n) {
-        return (Expression) n.getProperty(TRANSLATION);
+        return n.getProperty(TRANSLATION);
     }
     
     public static Expression setTranslation(Node n, Expression exp) {
@@ -219,10 +216,10 @@ public class NodeProperties {
     /**
      * A Node representing the translated equivalent of the tagged statement (or declaration)
      */
-    public final static String STATEMENT_TRANSLATION = "statementTranslation";
+    public final static Node.Property<Node> STATEMENT_TRANSLATION = Node.Property.named("statementTranslation");
 
     public static Node getStatementTranslation(Node n) {
-        return (Node) n.getProperty(STATEMENT_TRANSLATION);
+        return n.getProperty(STATEMENT_TRANSLATION);
     }
     
     public static Node setStatementTranslation(Node n, Node s) {
@@ -236,7 +233,7 @@ public class NodeProperties {
     
 
     /** An Object value of a constant expression */
-    public final static String VALUE = "value";
+    public final static Node.Property<Object> VALUE = Node.Property.named("value");
 
     public static Object getValue(Node n) {
         return n.getProperty(VALUE);
@@ -255,10 +252,10 @@ public class NodeProperties {
     /**
      * The errorStrings property contains an array of additional messages (Strings)
      */
-    public final static String ERROR_STRINGS = "errorStrings";
+    public final static Node.Property<String[]> ERROR_STRINGS = Node.Property.named("errorStrings");
 
     public static String[] getErrorStrings(Node n) {
-      return (String[]) n.getProperty(ERROR_STRINGS);
+      return n.getProperty(ERROR_STRINGS);
     }
     
     public static String[] setErrorStrings(Node n, String... strings) {
@@ -272,10 +269,10 @@ public class NodeProperties {
 
 
     /** A LocalVariable corresponding to the variable declared by the given node */
-    public final static String VARIABLE = "variable";
+    public final static Node.Property<LocalVariable> VARIABLE = Node.Property.named("variable");
     
     public static LocalVariable getVariable(Node n) {
-      return (LocalVariable) n.getProperty(VARIABLE);
+      return n.getProperty(VARIABLE);
     }
     
     public static LocalVariable setVariable(Node n, LocalVariable v) {
@@ -292,11 +289,28 @@ public class NodeProperties {
     };
     
     
+    /** The location in the run-time bindings of a variable referenced by the given node */
+    public final static Node.Property<RuntimeBindings.Slot> VARIABLE_SLOT = Node.Property.named("variableSlot");
+    
+    public static RuntimeBindings.Slot getVariableSlot(Node n) {
+      return n.getProperty(VARIABLE_SLOT);
+    }
+    
+    public static RuntimeBindings.Slot setVariableSlot(Node n, RuntimeBindings.Slot s) {
+      n.setProperty(VARIABLE_SLOT, s);
+      return s;
+    }
+    
+    public static boolean hasVariableSlot(Node n) {
+      return n.hasProperty(VARIABLE_SLOT);
+    }
+    
+    
     /** DJConstructor used by a constructor invocation */
-    public final static String CONSTRUCTOR = "constructor";
+    public final static Node.Property<DJConstructor> CONSTRUCTOR = Node.Property.named("constructor");
 
     public static DJConstructor getConstructor(Node n) {
-      return (DJConstructor) n.getProperty(CONSTRUCTOR);
+      return n.getProperty(CONSTRUCTOR);
     }
     
     public static DJConstructor setConstructor(Node n, DJConstructor c) {
@@ -310,10 +324,10 @@ public class NodeProperties {
 
 
     /** DJField used by a field access or declared by a field declaration */
-    public final static String FIELD = "field";
+    public final static Node.Property<DJField> FIELD = Node.Property.named("field");
 
     public static DJField getField(Node n) {
-      return (DJField) n.getProperty(FIELD);
+      return n.getProperty(FIELD);
     }
     
     public static DJField setField(Node n, DJField f) {
@@ -326,10 +340,10 @@ public class NodeProperties {
     }
 
     /** Method used by a method invocation or declared by a method declaration */
-    public final static String METHOD = "method";
+    public final static Node.Property<DJMethod> METHOD = Node.Property.named("method");
     
     public static DJMethod getMethod(Node n) {
-      return (DJMethod) n.getProperty(METHOD);
+      return n.getProperty(METHOD);
     }
     
     public static DJMethod setMethod(Node n, DJMethod m) {
@@ -343,10 +357,10 @@ public class NodeProperties {
 
 
     /** DJClass declared by a class declaration or referenced by "this" */
-    public final static String DJCLASS = "djclass";
+    public final static Node.Property<DJClass> DJCLASS = Node.Property.named("djclass");
     
     public static DJClass getDJClass(Node n) {
-      return (DJClass) n.getProperty(DJCLASS);
+      return n.getProperty(DJCLASS);
     }
     
     public static DJClass setDJClass(Node n, DJClass c) {
@@ -360,10 +374,10 @@ public class NodeProperties {
 
 
     /** This DJClass of "this" used implicitly as the enclosing object of an allocation. */
-    public final static String ENCLOSING_THIS = "enclosingThis";
+    public final static Node.Property<DJClass> ENCLOSING_THIS = Node.Property.named("enclosingThis");
     
     public static DJClass getEnclosingThis(Node n) {
-      return (DJClass) n.getProperty(ENCLOSING_THIS);
+      return n.getProperty(ENCLOSING_THIS);
     }
     
     public static DJClass setEnclosingThis(Node n, DJClass c) {
@@ -377,10 +391,10 @@ public class NodeProperties {
 
 
     /** VariableType declared in a class or method signature */
-    public final static String TYPE_VARIABLE = "typeVariable";
+    public final static Node.Property<VariableType> TYPE_VARIABLE = Node.Property.named("typeVariable");
 
     public static VariableType getTypeVariable(Node n) {
-      return (VariableType) n.getProperty(TYPE_VARIABLE);
+      return n.getProperty(TYPE_VARIABLE);
     }
     
     public static VariableType setTypeVariable(Node n, VariableType v) {
@@ -398,10 +412,10 @@ public class NodeProperties {
     
     
     /** An ExecutionError that occurred at the given node. */
-    public final static String ERROR = "error";
+    public final static Node.Property<ExecutionError> ERROR = Node.Property.named("error");
 
     public static ExecutionError getError(Node n) {
-      return (ExecutionError) n.getProperty(ERROR);
+      return n.getProperty(ERROR);
     }
     
     public static ExecutionError setError(Node n, ExecutionError e) {
@@ -414,10 +428,10 @@ public class NodeProperties {
     }
 
     /** The new context that would have been the result had there not been an error. */
-    public final static String ERROR_CONTEXT = "errorContext";
+    public final static Node.Property<TypeContext> ERROR_CONTEXT = Node.Property.named("errorContext");
 
     public static TypeContext getErrorContext(Node n) {
-      return (TypeContext) n.getProperty(ERROR_CONTEXT);
+      return n.getProperty(ERROR_CONTEXT);
     }
     
     public static TypeContext setErrorContext(Node n, TypeContext c) {
@@ -433,11 +447,10 @@ public class NodeProperties {
      * A Lambda2<Object, Object, Object> -- determines the operation to be used where it is 
      * ambiguous (for example, a PlusExpression might require addition or concatenation)
      */
-    public final static String OPERATION = "operation";
+    public final static Node.Property<Lambda2<Object, Object, Object>> OPERATION = Node.Property.named("operation");
 
-    @SuppressWarnings("unchecked")
     public static Lambda2<Object, Object, Object> getOperation(Node n) {
-      return (Lambda2<Object, Object, Object>) n.getProperty(OPERATION);
+      return n.getProperty(OPERATION);
     }
     
     public static Lambda2<Object, Object, Object> setOperation(Node n, 
@@ -450,6 +463,27 @@ public class NodeProperties {
       return n.hasProperty(OPERATION);
     }
 
+    /**
+     * The primitive type ({@code int.class}, {@code long.class}, or {@code double.class}) in which a
+     * numeric operation, comparison, operator-assignment, or increment is carried out, when it can be
+     * evaluated without boxing intermediate results (see 
+     * {@link edu.rice.cs.dynamicjava.interpreter.PrimitiveEvaluator})
+     */
+    public final static Node.Property<Class<?>> PRIMITIVE_TYPE = Node.Property.named("primitiveType");
+
+    public static Class<?> getPrimitiveType(Node n) {
+      return n.getProperty(PRIMITIVE_TYPE);
+    }
+    
+    public static Class<?> setPrimitiveType(Node n, Class<?> c) {
+      n.setProperty(PRIMITIVE_TYPE, c);
+      return c;
+    }
+    
+    public static boolean hasPrimitiveType(Node n) {
+      return n.hasProperty(PRIMITIVE_TYPE);
+    }
+
     /**
      * This class contains only static method and constants,
      * so it is not useful to create instances of it.
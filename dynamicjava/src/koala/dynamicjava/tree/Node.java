@@ -76,14 +76,18 @@ import koala.dynamicjava.tree.visitor.*;
  */
 
 public abstract class Node implements SourceInfo.Wrapper {
-  private final Map<String,Object> properties;
+  /**
+   * Property values, indexed by {@link Property#index}; {@code null} until the first property is set.
+   * Unset entries are {@code null}, and a property explicitly set to {@code null} holds {@link #NULL_VALUE}.
+   */
+  private Object[] properties;
   private SourceInfo sourceInfo;
   
   
   protected Node(SourceInfo si) {
     assert si != null;
     sourceInfo = si;
-    properties = new HashMap<String, Object>();
+    properties = null;
   } 
   
   /** Returns the sourceInfo. */
@@ -103,25 +107,67 @@ public abstract class Node implements SourceInfo.Wrapper {
   
   // Properties support //////////////////////////////////////////////////
   
+  /** Stands for an explicit {@code null} property value, which is distinct from an unset property. */
+  private static final Object NULL_VALUE = new Object();
+  
+  /**
+   * Sets the value of a property
+   * @param prop  the property key
+   * @param value the new value to set
+   */
+  public <T> void setProperty(Property<T> prop, T value) {
+    int i = prop.index();
+    if (properties == null) { properties = new Object[Math.max(Property.count(), i+1)]; }
+    else if (i >= properties.length) {
+      Object[] newProps = new Object[Math.max(Property.count(), i+1)];
+      System.arraycopy(properties, 0, newProps, 0, properties.length);
+      properties = newProps;
+    }
+    properties[i] = (value == null) ? NULL_VALUE : value;
+  }
+  
+  /**
+   * Returns the value of a property
+   * @param prop  the property key
+   * @throws IllegalStateException  if the property was not previously set
+   */
+  @SuppressWarnings("unchecked") public <T> T getProperty(Property<T> prop) {
+    Object result = rawProperty(prop.index());
+    if (result == null) {
+      throw new IllegalStateException("Property '" + prop.name() + "' is not initialized");
+    }
+    return (result == NULL_VALUE) ? null : (T) result;
+  }
+  
+  /**
+   * Returns true if a property is defined for this node
+   * @param prop the property key
+   */
+  public boolean hasProperty(Property<?> prop) {
+    return rawProperty(prop.index()) != null;
+  }
+  
+  private Object rawProperty(int i) {
+    Object[] props = properties;
+    return (props == null || i >= props.length) ? null : props[i];
+  }
+  
   /**
    * Sets the value of a property
    * @param name  the property name
    * @param value the new value to set
    */
   public void setProperty(String name, Object value) {
-    properties.put(name, value);
+    setProperty(Property.named(name), value);
   }
   
   /**
    * Returns the value of a property
    * @param name  the property name
-   * @return null if the property was not previously set
+   * @throws IllegalStateException  if the property was not previously set
    */
   public Object getProperty(String name) {
-    if (!properties.containsKey(name)) { 
-      throw new IllegalStateException("Property '" + name + "' is not initialized");
-    }
-    return properties.get(name);
+    return getProperty(Property.named(name));
   }
   
   /**
@@ -129,7 +175,13 @@ public abstract class Node implements SourceInfo.Wrapper {
    * @return a set of string
    */
   public Set<String> getProperties() {
-    return properties.keySet();
+    Set<String> result = new LinkedHashSet<String>();
+    if (properties != null) {
+      for (int i = 0; i < properties.length; i++) {
+        if (properties[i] != null) { result.add(Property.get(i).name()); }
+      }
+    }
+    return result;
   }
   
   /**
@@ -137,15 +189,62 @@ public abstract class Node implements SourceInfo.Wrapper {
    * @param name the name of the property
    */
   public boolean hasProperty(String name) {
-    return properties.containsKey(name);
+    return hasProperty(Property.named(name));
   }
   
   /** Change the names of all properties by prefixing each name with the given string. */
   public void archiveProperties(String prefix) {
-    Map<String, Object> newProps = new HashMap<String, Object>();
-    for (Map.Entry<String, Object> e : properties.entrySet()) { newProps.put(prefix + e.getKey(), e.getValue()); }
-    properties.clear();
-    properties.putAll(newProps);
+    if (properties == null) { return; }
+    Object[] oldProps = properties;
+    properties = null;
+    for (int i = 0; i < oldProps.length; i++) {
+      if (oldProps[i] != null) {
+        setProperty(Property.named(prefix + Property.get(i).name()), oldProps[i]);
+      }
+    }
+  }
+  
+  
+  /**
+   * A key for a node property.  Each distinct name is registered once and assigned a small index, so
+   * a node stores its properties in a dense array rather than a hash table, and typed access through
+   * a key requires neither hashing nor a cast at the call site.  Keys should be created once and held
+   * in static fields (see {@code NodeProperties}); {@link #named} returns the existing key for a name
+   * that is already registered.
+   */
+  public static final class Property<T> {
+    private static final Map<String, Property<?>> BY_NAME = new HashMap<String, Property<?>>();
+    private static volatile Property<?>[] BY_INDEX = new Property<?>[0];
+    
+    private final String _name;
+    private final int _index;
+    
+    private Property(String name, int index) { _name = name; _index = index; }
+    
+    public String name() { return _name; }
+    public int index() { return _index; }
+    public String toString() { return _name; }
+    
+    /** Get the key registered for {@code name}, registering a new key if necessary. */
+    @SuppressWarnings("unchecked") public static <T> Property<T> named(String name) {
+      synchronized (BY_NAME) {
+        Property<?> result = BY_NAME.get(name);
+        if (result == null) {
+          result = new Property<Object>(name, BY_INDEX.length);
+          Property<?>[] byIndex = new Property<?>[BY_INDEX.length + 1];
+          System.arraycopy(BY_INDEX, 0, byIndex, 0, BY_INDEX.length);
+          byIndex[result._index] = result;
+          BY_INDEX = byIndex;
+          BY_NAME.put(name, result);
+        }
+        return (Property<T>) result;
+      }
+    }
+    
+    /** The number of keys registered so far. */
+    public static int count() { return BY_INDEX.length; }
+    
+    private static Property<?> get(int index) { return BY_INDEX[index]; }
   }
   
   /**
@@ -0,0 +1,96 @@
+/*BEGIN_COPYRIGHT_BLOCK
+ *
+ * Copyright (c) 2001-2010, JavaPLT group at Rice University (drjava@rice.edu)
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *    * Redistributions of source code must retain the above copyright
+ *      notice, this list of conditions and the following disclaimer.
+ *    * Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *    * Neither the names of DrJava, the JavaPLT group, Rice University, nor the
+ *      names of its contributors may be used to endorse or promote products
+ *      derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * This software is Open Source Initiative approved Open Source Software.
+ * Open Source Initative Approved is a trademark of the Open Source Initiative.
+ * 
+ * This file is part of DrJava.  Download the current version of this project
+ * from http://www.drjava.org/ or http://sourceforge.net/projects/drjava/
+ * 
+ * END_COPYRIGHT_BLOCK*/
+
+
+package koala.dynamicjava.tree;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import junit.framework.TestCase;
+
+/** JUnit tests for the property support in {@link Node}. */
+public class NodeTest extends TestCase {
+  
+  private static final Node.Property<String> COLOR = Node.Property.named("NodeTest.color");
+  private static final Node.Property<Integer> SIZE = Node.Property.named("NodeTest.size");
+  
+  public void testTypedProperties() {
+    Node n = new IntegerLiteral("1");
+    assertFalse(n.hasProperty(COLOR));
+    assertTrue(n.getProperties().isEmpty());
+    n.setProperty(COLOR, "red");
+    n.setProperty(SIZE, 3);
+    assertTrue(n.hasProperty(COLOR));
+    assertEquals("red", n.getProperty(COLOR));
+    assertEquals(Integer.valueOf(3), n.getProperty(SIZE));
+    n.setProperty(COLOR, "blue");
+    assertEquals("blue", n.getProperty(COLOR));
+    try { new IntegerLiteral("2").getProperty(COLOR); fail("Unset property should be rejected"); }
+    catch (IllegalStateException e) { /* expected */ }
+  }
+  
+  public void testNullValue() {
+    Node n = new IntegerLiteral("1");
+    n.setProperty(COLOR, null);
+    assertTrue(n.hasProperty(COLOR));
+    assertNull(n.getProperty(COLOR));
+  }
+  
+  public void testNamedProperties() {
+    Node n = new IntegerLiteral("1");
+    assertSame(COLOR, Node.Property.named("NodeTest.color"));
+    n.setProperty("NodeTest.color", "green");
+    assertEquals("green", n.getProperty(COLOR));
+    assertTrue(n.hasProperty("NodeTest.color"));
+    // a key registered after the node's properties were allocated
+    n.setProperty("NodeTest.late", 7);
+    assertEquals(7, n.getProperty("NodeTest.late"));
+    assertEquals(new HashSet<String>(Arrays.asList("NodeTest.color", "NodeTest.late")), n.getProperties());
+  }
+  
+  public void testArchiveProperties() {
+    Node n = new IntegerLiteral("1");
+    n.setProperty(COLOR, "red");
+    n.setProperty(SIZE, null);
+    n.archiveProperties("old.");
+    assertFalse(n.hasProperty(COLOR));
+    assertFalse(n.hasProperty(SIZE));
+    assertEquals("red", n.getProperty("old.NodeTest.color"));
+    assertTrue(n.hasProperty("old.NodeTest.size"));
+    assertNull(n.getProperty("old.NodeTest.size"));
+  }
+  
+}
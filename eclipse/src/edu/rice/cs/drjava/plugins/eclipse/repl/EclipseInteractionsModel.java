@@ -82,9 +82,6 @@ public class EclipseInteractionsModel extends RMIInteractionsModel {
  /** Number of lines to remember in the history */
  protected static final int HISTORY_SIZE = 1000;
  
- /** Milliseconds to wait after each println */
- protected static final int WRITE_DELAY = 50;
-
  public static final File WORKING_DIR = new File(System.getProperty("user.home", ""));
  
  /** Whether to print System.out and System.err to files for debugging. */
@@ -117,7 +114,7 @@ public class EclipseInteractionsModel extends RMIInteractionsModel {
    * @param adapter SWTDocumentAdapter to use for the document
    */
  public EclipseInteractionsModel(MainJVM control, SWTDocumentAdapter adapter) {
-   super(control, adapter, WORKING_DIR, HISTORY_SIZE, WRITE_DELAY);
+   super(control, adapter, WORKING_DIR, HISTORY_SIZE);
    _listeners = new LinkedList<InteractionsListener>();
    _warnedToReset = false;
    if (DEBUG) _debugSystemOutAndErr();
@@ -38,22 +38,28 @@ import java.io.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Iterator;
 
 // Uses JDK 1.7.0 tools classes
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaCompiler;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
 
 // DJError class is not in the same package as this
 import edu.rice.cs.drjava.model.DJError;
 
+import edu.rice.cs.plt.lambda.Condition;
 import edu.rice.cs.plt.reflect.JavaVersion;
 import edu.rice.cs.plt.io.IOUtil;
 
@@ -65,7 +71,10 @@ import static edu.rice.cs.plt.debug.DebugUtil.error;
  * **TODO** Rename this class as Javac170PlusCompiler.java
  *  @version $Id$
  */
-public class Javac170Compiler extends JavacCompiler { // Javac170FilteringCompiler {
+public class Javac170Compiler extends JavacCompiler implements InMemoryCompiler { // Javac170FilteringCompiler {
+  
+  /** The compiler and its file manager, kept between compilations; null until the first compilation. */
+  private volatile FileManagerCache _cache = null;
   
   public Javac170Compiler(JavaVersion.FullVersion version, String location, List<? extends File> defaultBootClassPath) {
     super(version, location, defaultBootClassPath);
@@ -115,41 +124,150 @@ public class Javac170Compiler extends JavacCompiler { // Javac170FilteringCompil
       "sourceVersion", "showWarnings" },
                     this, files, classPath, sourcePath, destination, bootClassPath, sourceVersion, showWarnings);
 
-    Iterable<String> options = _createOptions(classPath, sourcePath, destination, bootClassPath, sourceVersion, showWarnings);
+    Iterable<String> options = _createOptions(classPath, sourcePath, destination, bootClassPath, sourceVersion, 
+                                              showWarnings);
     LinkedList<DJError> errors = new LinkedList<DJError>();
-
+    FileManagerCache cache = _getCache(errors);
+    if (cache == null) return errors;
+    
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    synchronized(cache) {
+      StandardJavaFileManager fileManager = cache.get(classPath, _bootClassPath(bootClassPath), sourcePath, 
+                                                          destination, diagnostics);
+      Iterable<? extends JavaFileObject> fileObjects = fileManager.getJavaFileObjectsFromFiles(files);
+      _compile(cache, fileManager, diagnostics, options, fileObjects, errors, null);
+    }
+    
+    debug.logEnd("compile()");
+    return errors;
+  }
+  
+  /** Compile the given sources without reading or writing them on disk.  See {@link InMemoryCompiler}. */
+  public List<? extends DJError> compileSources(Map<File, String> sources, Map<String, byte[]> classes, 
+                                                List<? extends File> classPath, List<? extends File> sourcePath, 
+                                                List<? extends File> bootClassPath, String sourceVersion, 
+                                                boolean showWarnings, Map<String, byte[]> classFiles) {
+    return _compileSources(sources, null, classes, classPath, sourcePath, bootClassPath, sourceVersion, showWarnings, 
+                           classFiles, null);
+  }
+  
+  /** Check the given sources for errors, stopping early if cancelled.  See {@link InMemoryCompiler}. */
+  public List<? extends DJError> checkSources(Map<File, String> sources, Map<File, String> unsaved, 
+                                              Map<String, byte[]> classes, 
+                                              List<? extends File> classPath, List<? extends File> sourcePath, 
+                                              List<? extends File> bootClassPath, String sourceVersion, 
+                                              boolean showWarnings, Condition cancelled) {
+    return _compileSources(sources, unsaved, classes, classPath, sourcePath, bootClassPath, sourceVersion, 
+                           showWarnings, null, cancelled);
+  }
+  
+  private List<? extends DJError> _compileSources(Map<File, String> sources, Map<File, String> unsaved, 
+                                                  Map<String, byte[]> classes, 
+                                                  List<? extends File> classPath, List<? extends File> sourcePath, 
+                                                  List<? extends File> bootClassPath, String sourceVersion, 
+                                                  boolean showWarnings, Map<String, byte[]> classFiles, 
+                                                  Condition cancelled) {
+    debug.logStart("compileSources()");
+    debug.logValues(new String[]{ "this", "sources", "classPath", "sourcePath", "bootClassPath", "sourceVersion", 
+      "showWarnings" },
+                    this, sources.keySet(), classPath, sourcePath, bootClassPath, sourceVersion, showWarnings);
+    
+    LinkedList<String> options = _createOptions(classPath, sourcePath, null, bootClassPath, sourceVersion, showWarnings);
+    // When checking, stop after attribution and flow analysis of all the classes, skipping code generation.
+    if (classFiles == null) { options.add("-XDcompilePolicy=check"); }
+    LinkedList<DJError> errors = new LinkedList<DJError>();
+    FileManagerCache cache = _getCache(errors);
+    if (cache == null) return errors;
+    
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    boolean completed;
+    synchronized(cache) {
+      if (unsaved == null) { unsaved = Collections.emptyMap(); }
+      if (classes == null) { classes = Collections.emptyMap(); }
+      MemoryFileManager fileManager = new MemoryFileManager(cache.get(classPath, _bootClassPath(bootClassPath), 
+                                                                      sourcePath, null, diagnostics), 
+                                                            sources, unsaved, classes, classFiles);
+      completed = _compile(cache, fileManager, diagnostics, options, fileManager.getSourceObjects(), errors, cancelled);
+    }
+    
+    debug.logEnd("compileSources()");
+    return completed ? errors : null;
+  }
+  
+  /** 
+   * @param errors receives an error if the compiler cannot be created
+   * @return the cache holding the compiler, creating both if necessary, or null if the compiler cannot be created
+   */
+  private FileManagerCache _getCache(LinkedList<DJError> errors) {
+    FileManagerCache cache = _cache;
+    if (cache == null) {
+      synchronized(this) {
+        if (_cache == null) {
+          JavaCompiler compiler = _makeCompiler(errors);
+          if (compiler != null) { _cache = new FileManagerCache(compiler); }
+        }
+        cache = _cache;
+      }
+    }
+    return cache;
+  }
+  
+  /** @return the given boot class path, or the default if it is null */
+  private List<? extends File> _bootClassPath(List<? extends File> bootClassPath) {
+    return (bootClassPath == null) ? _defaultBootClassPath : bootClassPath;
+  }
+  
+  /** 
+   * @param errors receives an error if the compiler cannot be created
+   * @return a new compiler, or null if it cannot be created
+   */
+  private static JavaCompiler _makeCompiler(LinkedList<DJError> errors) {
     // This is the class that javax.tools.ToolProvider.getSystemJavaCompiler() uses.
     // We create an instance of that class directly, bypassing ToolProvider, because ToolProvider returns null
     // if DrJava is started with just the JRE, instead of with the JDK, even if tools.jar is later made available
     // to the class loader.
-    JavaCompiler compiler = null;
     try {
-      compiler = (JavaCompiler)(Class.forName("com.sun.tools.javac.api.JavacTool").newInstance());
+      return (JavaCompiler)(Class.forName("com.sun.tools.javac.api.JavacTool").newInstance());
     }
     catch(ClassNotFoundException e) {
       errors.addFirst(new DJError("Compile exception: " + e, false));
       error.log(e);
-      return errors;
     }
     catch(InstantiationException e) {
       errors.addFirst(new DJError("Compile exception: " + e, false));
       error.log(e);
-      return errors;
     }
     catch(IllegalAccessException e) {
       errors.addFirst(new DJError("Compile exception: " + e, false));
       error.log(e);
-      return errors;
     }
-    
-    /** Default FileManager provided by Context class */
-    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
-    StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);    
-    Iterable<? extends JavaFileObject> fileObjects = fileManager.getJavaFileObjectsFromFiles(files);
-    
+    return null;
+  }
+  
+  /** Thrown by the task listener of a cancelled compilation to stop the compiler. */
+  private static class CancelledException extends RuntimeException { }
+  
+  /** Runs a compilation task with the cached compiler and adds the diagnostics it reports to errors.  Flushes and
+    * releases the file manager, which stays open for the next compilation if the cache reuses it and the compiler does
+    * not fail.  Assumes the lock on cache is held.
+    * @param cancelled checked between the phases of the compiler, which is stopped when it becomes true; may be null
+    * @return false if the compilation was cancelled
+    */
+  private static boolean _compile(FileManagerCache cache, JavaFileManager fileManager, 
+                                  DiagnosticCollector<JavaFileObject> diagnostics, Iterable<String> options, 
+                                  Iterable<? extends JavaFileObject> fileObjects, LinkedList<DJError> errors,
+                                  final Condition cancelled) {
     try {
 //      System.err.println("Calling '" + compiler + "' with options " + options);
-      compiler.getTask(null, fileManager, diagnostics, options, null, fileObjects).call();
+      JavaCompiler.CompilationTask task = 
+        cache.getCompiler().getTask(null, fileManager, diagnostics, options, null, fileObjects);
+      if (cancelled != null) {
+        ((JavacTask) task).setTaskListener(new TaskListener() {
+          public void started(TaskEvent e) { if (cancelled.isTrue()) throw new CancelledException(); }
+          public void finished(TaskEvent e) { if (cancelled.isTrue()) throw new CancelledException(); }
+        });
+      }
+      task.call();
       for (Diagnostic<? extends JavaFileObject> d: diagnostics.getDiagnostics()) {
         Diagnostic.Kind dt = d.getKind();
         boolean isWarning = false;  // init required by javac
@@ -177,19 +295,21 @@ public class Javac170Compiler extends JavacCompiler { // Javac170FilteringCompil
           errors.add(new DJError(d.getMessage(null), isWarning));
         }
       }
-      fileManager.close();
+      fileManager.flush();
     }
     catch(Throwable t) {  // compiler threw an exception/error (typically out of memory error)
+      // javac wraps exceptions thrown by the task listener
+      for (Throwable c = t; c != null; c = c.getCause()) { if (c instanceof CancelledException) return false; }
       errors.addFirst(new DJError("Compile exception: " + t, false));
       error.log(t);
+      cache.clear();  // the file manager may be in an inconsistent state
     }
-    
-    debug.logEnd("compile()");
-    return errors;
+    finally { cache.release(); }
+    return true;
   }
   
-  private Iterable<String> _createOptions(List<? extends File> classPath, List<? extends File> sourcePath, File destination, 
-                                          List<? extends File> bootClassPath, String sourceVersion, boolean showWarnings) {    
+  private LinkedList<String> _createOptions(List<? extends File> classPath, List<? extends File> sourcePath, File destination, 
+                                            List<? extends File> bootClassPath, String sourceVersion, boolean showWarnings) {    
     if (bootClassPath == null) { bootClassPath = _defaultBootClassPath; }
 
     LinkedList<String> options = new LinkedList<String>();
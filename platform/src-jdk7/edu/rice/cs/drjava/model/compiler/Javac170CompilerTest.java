@@ -2,7 +2,10 @@ package edu.rice.cs.drjava.model.compiler;
 
 import java.util.List;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.HashMap;
 import java.io.File;
+import edu.rice.cs.plt.lambda.Condition;
 import edu.rice.cs.plt.reflect.JavaVersion;
 
 // DJError class is not in the same package as this
@@ -18,6 +21,59 @@ public class Javac170CompilerTest extends TestCase {
     assertTrue(doCompile(c, "testFiles/IterableTest.java").isEmpty());
   }
   
+  public void testCompileSources() {
+    Javac170Compiler c = new Javac170Compiler(JavaVersion.CURRENT_FULL, "", null);
+    File f = new File("NotOnDisk.java").getAbsoluteFile();
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(f, "public class NotOnDisk { class Inner {} }");
+    Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+    assertTrue(c.compileSources(sources, null, null, null, null, null, true, classFiles).isEmpty());
+    assertEquals(2, classFiles.size());
+    assertTrue(classFiles.containsKey("NotOnDisk"));
+    assertTrue(classFiles.containsKey("NotOnDisk$Inner"));
+    assertFalse(f.exists());
+    assertFalse(new File("NotOnDisk.class").exists());
+    
+    sources.put(f, "public class NotOnDisk { int x = \"\"; }");
+    List<? extends DJError> errors = c.compileSources(sources, null, null, null, null, null, true, null);
+    assertEquals(1, errors.size());
+    assertEquals(f, errors.get(0).file());
+    assertEquals(0, errors.get(0).lineNumber());
+  }
+  
+  public void testCompileAgainstMemoryClasses() {
+    Javac170Compiler c = new Javac170Compiler(JavaVersion.CURRENT_FULL, "", null);
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(new File("MemoryA.java").getAbsoluteFile(), "public class MemoryA { int f() { return 1; } }");
+    Map<String, byte[]> classes = new HashMap<String, byte[]>();
+    assertTrue(c.compileSources(sources, null, null, null, null, null, true, classes).isEmpty());
+    
+    // MemoryA exists only in memory, so it is found only if the earlier class files are given
+    sources.clear();
+    sources.put(new File("MemoryB.java").getAbsoluteFile(), 
+                "public class MemoryB { int g() { return new MemoryA().f(); } }");
+    assertEquals(1, c.compileSources(sources, null, null, null, null, null, true, null).size());
+    Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+    assertTrue(c.compileSources(sources, classes, null, null, null, null, true, classFiles).isEmpty());
+    assertEquals(1, classFiles.size());
+    assertTrue(classFiles.containsKey("MemoryB"));
+    assertTrue(c.checkSources(sources, null, classes, null, null, null, null, true, null).isEmpty());
+  }
+  
+  public void testCheckSources() {
+    Javac170Compiler c = new Javac170Compiler(JavaVersion.CURRENT_FULL, "", null);
+    File f = new File("NotOnDisk.java").getAbsoluteFile();
+    Map<File, String> sources = new HashMap<File, String>();
+    sources.put(f, "public class NotOnDisk {\n int f() { }\n}");
+    Condition never = new Condition() { public boolean isTrue() { return false; } };
+    List<? extends DJError> errors = c.checkSources(sources, null, null, null, null, null, null, true, never);
+    assertEquals(1, errors.size());  // missing return statement: flow analysis is done as well
+    assertEquals(1, errors.get(0).lineNumber());
+    Condition always = new Condition() { public boolean isTrue() { return true; } };
+    assertNull(c.checkSources(sources, null, null, null, null, null, null, true, always));
+    assertEquals(1, c.checkSources(sources, null, null, null, null, null, null, true, never).size());
+  }
+  
   private static List<? extends DJError> doCompile(CompilerInterface c, String... files) {
     return c.compile(fileList(files), null, null, null, null, null, true);
   }